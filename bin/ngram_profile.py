@@ -0,0 +1,41 @@
+# -*- coding: utf-8 -*-
+
+"""
+This script creates the character trigram profile used by the
+LanguageIdentifier for a given language from a sample of plain text in that
+language (one text per line, text on the last tab separated column).
+
+The normalization is the same as in the Java implementation: letters are
+lower cased, any other character is a word boundary, and each word is padded
+with one boundary at both ends. Boundaries are written as "_".
+
+Usage: python ngram_profile.py SIZE FILE... > en.ngram
+"""
+
+import io
+import sys
+from collections import Counter
+
+
+def trigrams(text):
+    word = []
+    for c in text + " ":
+        if c.isalpha():
+            word.append(c.lower())
+        elif word:
+            padded = ["_"] + word + ["_"]
+            for i in range(len(padded) - 2):
+                yield "".join(padded[i:i + 3])
+            word = []
+
+
+if __name__ == "__main__":
+    size = int(sys.argv[1])
+    counts = Counter()
+    for filename in sys.argv[2:]:
+        with io.open(filename, encoding="utf-8", errors="replace") as sample:
+            for line in sample:
+                counts.update(trigrams(line.rstrip("\n").split("\t")[-1]))
+
+    for trigram, _ in sorted(counts.items(), key=lambda tc: (-tc[1], tc[0]))[:size]:
+        sys.stdout.write(trigram + "\n")
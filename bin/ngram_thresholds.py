@@ -0,0 +1,46 @@
+# -*- coding: utf-8 -*-
+
+"""
+This script derives the LanguageIdentifier thresholds of a trigram profile
+from a held-out sample of texts in other languages (one text per line, text
+on the last tab separated column):
+
+ - COVERAGE_FOREIGN is the mean profile coverage of the foreign texts (i.e.,
+   chance level);
+ - CONFIDENCE_MIN_DEFAULT is the confidence of the foreign text with the
+   highest coverage, plus 0.01, so all the sample is rejected.
+
+Given more files (e.g., texts in the profile language), the share of their
+texts accepted with these thresholds is printed too.
+
+Usage: python ngram_thresholds.py PROFILE FOREIGN [FILE...]
+"""
+
+import io
+import math
+import sys
+
+from ngram_profile import trigrams
+
+
+def coverages(profile, filename):
+    with io.open(filename, encoding="utf-8", errors="replace") as sample:
+        for line in sample:
+            text_trigrams = list(trigrams(line.rstrip("\n").split("\t")[-1]))
+            if text_trigrams:
+                yield float(sum(1 for t in text_trigrams if t in profile)) / len(text_trigrams)
+
+
+with io.open(sys.argv[1], encoding="utf-8") as profile_file:
+    profile = set(line.rstrip("\n") for line in profile_file
+                  if len(line.rstrip("\n")) == 3 and not line.startswith("#"))
+foreign = list(coverages(profile, sys.argv[2]))
+coverage_foreign = round(sum(foreign) / len(foreign), 2)
+confidence_min = (math.floor((max(foreign) - coverage_foreign) / (1.0 - coverage_foreign) * 100) + 1) / 100.0
+sys.stdout.write("COVERAGE_FOREIGN = %.2f (%d texts, max %.3f)\n" % (coverage_foreign, len(foreign), max(foreign)))
+sys.stdout.write("CONFIDENCE_MIN_DEFAULT = %.2f\n" % confidence_min)
+accept = coverage_foreign + confidence_min * (1.0 - coverage_foreign)
+for filename in sys.argv[3:]:
+    texts = list(coverages(profile, filename))
+    sys.stdout.write("%s: %.1f%% of %d texts accepted\n"
+                     % (filename, 100.0 * sum(1 for c in texts if c >= accept) / len(texts), len(texts)))
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.lexicon.Language;
+import net.nunoachenriques.vader.lexicon.OverlayLanguage;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Adversarial and oversized inputs benchmark: each input kind (repeated
+ * tokens, repeated punctuated tokens, a "but" after thousands of valences,
+ * one huge token, ...) is analysed at N, 2N, 4N and 8N tokens and the time
+ * per character compared, the analysis being linear in the text length. A
+ * quadratic step shows as about 8 times the time per character at 8N. Then
+ * the token budget is checked: the largest input analysed in about the time
+ * of an N tokens one, truncated. Exits with status 1 if a bound fails.
+ * <pre>
+ * --tokens 4000        N, the smallest input tokens.
+ * --rounds 5           Timed calls per input (the fastest one is kept).
+ * --threshold 3.0      Time per character growth allowed from N to 8N.
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class AdversarialHarness {
+
+    private static final int[] SCALES = {1, 2, 4, 8};
+    private static final int WARM_UP_CALLS = 50;
+
+    private final int tokens;
+    private final int rounds;
+    private final float threshold;
+    private final List<String> failures = new ArrayList<>();
+
+    /**
+     * @param tokens N, the smallest input tokens.
+     * @param rounds Timed calls per input (the fastest one is kept).
+     * @param threshold Time per character growth allowed from N to 8N.
+     */
+    public AdversarialHarness(int tokens, int rounds, float threshold) {
+        this.tokens = tokens;
+        this.rounds = rounds;
+        this.threshold = threshold;
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("--tokens", "4000");
+        options.put("--rounds", "5");
+        options.put("--threshold", "3.0");
+        for (int i = 0; i < args.length; i += 2) {
+            if (!options.containsKey(args[i]) || i + 1 == args.length) {
+                System.err.println("Usage: AdversarialHarness " + options.keySet() + " (see Javadoc)");
+                System.exit(2);
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        AdversarialHarness harness = new AdversarialHarness(
+                Integer.parseInt(options.get("--tokens")),
+                Integer.parseInt(options.get("--rounds")),
+                Float.parseFloat(options.get("--threshold")));
+        List<String> failures = harness.run();
+        for (String failure : failures) {
+            System.out.println("FAILED " + failure);
+        }
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs all the input kinds and the token budget check.
+     *
+     * @return The bounds failed description, empty if none.
+     */
+    public List<String> run() {
+        failures.clear();
+        Language english = new English();
+        // No lexicon map: the Properties (String tokens) analysis.
+        Language overlay = new OverlayLanguage(english, Collections.<String, Float>emptyMap());
+        final List<String> lexicon = new ArrayList<>(english.getWordValenceDictionary().keySet());
+        Collections.sort(lexicon);
+        List<Input> inputs = new ArrayList<>();
+        inputs.add(new Input("repeated word", english) {
+            @Override
+            String text(int n) {
+                return repeat("good ", n);
+            }
+        });
+        inputs.add(new Input("repeated punctuated words", english) {
+            @Override
+            String text(int n) {
+                return repeat("good!! bad?? ", n / 2);
+            }
+        });
+        inputs.add(new Input("but after repeated word", english) {
+            @Override
+            String text(int n) {
+                return repeat("good ", n - 2) + "but great";
+            }
+        });
+        inputs.add(new Input("but among distinct words", english) {
+            @Override
+            String text(int n) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < n; i++) {
+                    sb.append((i == n / 2) ? "but" : lexicon.get(i % lexicon.size())).append(' ');
+                }
+                return sb.toString();
+            }
+        });
+        inputs.add(new Input("one huge token", english) {
+            @Override
+            String text(int n) {
+                return repeat("good", n);
+            }
+        });
+        inputs.add(new Input("punctuation only", english) {
+            @Override
+            String text(int n) {
+                return repeat("!?!? ", n);
+            }
+        });
+        inputs.add(new Input("distinct words (Properties)", overlay) {
+            @Override
+            String text(int n) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < n; i++) {
+                    sb.append(lexicon.get(i % lexicon.size())).append(' ');
+                }
+                return sb.toString();
+            }
+        });
+        inputs.add(new Input("repeated punctuated words (Properties)", overlay) {
+            @Override
+            String text(int n) {
+                return repeat("good!! bad?? ", n / 2);
+            }
+        });
+        inputs.add(new Input("but after repeated word (Properties)", overlay) {
+            @Override
+            String text(int n) {
+                return repeat("good ", n - 2) + "but great";
+            }
+        });
+        for (Input input : inputs) {
+            checkLinear(input);
+        }
+        checkTokenBudget(inputs.get(2));
+        checkTokenBudget(inputs.get(inputs.size() - 1));
+        return failures;
+    }
+
+    /*
+     * The time per character at each scale, the growth from N to 8N
+     * checked.
+     */
+    private void checkLinear(Input input) {
+        SentimentAnalysis sa = new SentimentAnalysis(input.language, new TokenizerEnglish());
+        String warmUp = input.text(tokens);
+        for (int r = 0; r < WARM_UP_CALLS; r++) {
+            sa.getSentimentAnalysis(warmUp);
+        }
+        double[] nanosPerChar = new double[SCALES.length];
+        StringBuilder report = new StringBuilder(input.name).append(':');
+        for (int s = 0; s < SCALES.length; s++) {
+            String text = input.text(SCALES[s] * tokens);
+            nanosPerChar[s] = (double) fastest(sa, text) / text.length();
+            report.append(String.format(Locale.ROOT, " %dN %.1f ns/char", SCALES[s], nanosPerChar[s]));
+        }
+        double growth = nanosPerChar[SCALES.length - 1] / nanosPerChar[0];
+        report.append(String.format(Locale.ROOT, ", growth %.2f", growth));
+        System.out.println(report);
+        if (growth > threshold) {
+            failures.add(String.format(Locale.ROOT, "%s: time per char x%.2f from N to %dN (max %.2f)",
+                    input.name, growth, SCALES[SCALES.length - 1], threshold));
+        }
+    }
+
+    /*
+     * The largest input with a budget of N tokens: truncated and about the
+     * time of the N tokens input.
+     */
+    private void checkTokenBudget(Input input) {
+        SentimentAnalysis sa = new SentimentAnalysis(input.language, new TokenizerEnglish());
+        long small = fastest(sa, input.text(tokens));
+        sa.setTokenBudget(tokens);
+        String large = input.text(SCALES[SCALES.length - 1] * tokens);
+        long budgeted = fastest(sa, large);
+        double ratio = (double) budgeted / small;
+        System.out.println(String.format(Locale.ROOT, "%s with a budget of N tokens: %dN input x%.2f the N input time, truncated %b",
+                input.name, SCALES[SCALES.length - 1], ratio, sa.isTruncated()));
+        if (!sa.isTruncated()) {
+            failures.add(input.name + ": not truncated by the token budget");
+        }
+        if (ratio > threshold) {
+            failures.add(String.format(Locale.ROOT, "%s: budgeted time x%.2f the N input time (max %.2f)",
+                    input.name, ratio, threshold));
+        }
+    }
+
+    // Warm-up calls then the fastest of the timed ones.
+    private long fastest(SentimentAnalysis sa, String text) {
+        for (int r = 0; r < rounds; r++) {
+            sa.getSentimentAnalysis(text);
+        }
+        long fastest = Long.MAX_VALUE;
+        for (int r = 0; r < rounds; r++) {
+            long t0 = System.nanoTime();
+            sa.getSentimentAnalysis(text);
+            fastest = Math.min(fastest, System.nanoTime() - t0);
+        }
+        return fastest;
+    }
+
+    private static String repeat(String s, int n) {
+        StringBuilder sb = new StringBuilder(s.length() * Math.max(n, 0));
+        for (int i = 0; i < n; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    /*
+     * An input kind: the text of n tokens (about) and the language.
+     */
+    private abstract static class Input {
+
+        final String name;
+        final Language language;
+
+        Input(String name, Language language) {
+            this.name = name;
+            this.language = language;
+        }
+
+        abstract String text(int n);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import net.nunoachenriques.vader.aggregation.SentimentAggregator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sentiment aggregation adds from many threads to a few (hot) keys, the
+ * contention case, in one second windows:
+ *
+ * <pre>
+ * ./gradlew jmh -PjmhArgs='AggregationBenchmark -t 8'
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class AggregationBenchmark {
+
+    private static final float[] COMPOUNDS = {0.8316f, -0.5423f, 0.0f, 0.4404f, -0.2023f, 0.9468f, 0.0772f};
+
+    @Param({"1", "16"})
+    public int keys;
+
+    private SentimentAggregator<Integer> aggregator;
+    private Integer[] names;
+
+    @Setup
+    public void setup() {
+        aggregator = new SentimentAggregator<>(1000L, 60);
+        names = new Integer[keys];
+        for (int k = 0; k < keys; k++) {
+            names[k] = k;
+        }
+    }
+
+    @Benchmark
+    public void add(ThreadCursor cursor) {
+        int i = cursor.next++;
+        float compound = COMPOUNDS[(i & 0x7fffffff) % COMPOUNDS.length];
+        aggregator.add(names[(i & 0x7fffffff) % keys], System.currentTimeMillis(),
+                compound, 0.3f, 0.1f, 0.6f);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadCursor {
+
+        int next;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import net.nunoachenriques.vader.AnalysisContext;
+import net.nunoachenriques.vader.Label;
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sentiment analysis of the full polarity values (a map or a reused
+ * {@link AnalysisContext}) versus the compound only (and its label):
+ *
+ * <pre>
+ * ./gradlew jmh -PjmhArgs='CompoundBenchmark -prof gc'
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompoundBenchmark {
+
+    @Param({GroundTruth.TWEETS, GroundTruth.NYT})
+    public String corpus;
+
+    private SentimentAnalysis sa;
+    private final AnalysisContext context = new AnalysisContext();
+    private String[] texts;
+    private int next;
+
+    @Setup
+    public void setup()
+            throws IOException {
+        sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        texts = GroundTruth.load(corpus).getTexts();
+        next = 0;
+    }
+
+    @Benchmark
+    public Map<String, Float> full() {
+        return sa.getSentimentAnalysis(nextText());
+    }
+
+    @Benchmark
+    public AnalysisContext context() {
+        return sa.getSentimentAnalysis(nextText(), context);
+    }
+
+    @Benchmark
+    public float compound() {
+        return sa.getCompound(nextText());
+    }
+
+    @Benchmark
+    public Label label() {
+        return sa.getLabel(nextText());
+    }
+
+    private String nextText() {
+        String t = texts[next];
+        next = (next + 1 == texts.length) ? 0 : next + 1;
+        return t;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ground truth corpora (test resources) with the expected polarity
+ * values, the same files as {@code SentimentAnalysisEnglishTest}.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class GroundTruth {
+
+    private static final ClassLoader LOADER = GroundTruth.class.getClassLoader();
+
+    public static final String AMAZON = "amazonReviewSnippets_GroundTruth_vader.tsv";
+    public static final String MOVIE = "movieReviewSnippets_GroundTruth_vader.tsv";
+    public static final String NYT = "nytEditorialSnippets_GroundTruth_vader.tsv";
+    public static final String TWEETS = "tweets_GroundTruth_vader.tsv";
+    public static final List<String> ALL = Collections.unmodifiableList(Arrays.asList(AMAZON, MOVIE, NYT, TWEETS));
+
+    private final String name;
+    private final List<Sample> samples;
+
+    private GroundTruth(String name, List<Sample> samples) {
+        this.name = name;
+        this.samples = samples;
+    }
+
+    /**
+     * Loads a ground truth file from the class path.
+     *
+     * @param file The file name (e.g., {@link #TWEETS}).
+     * @return The ground truth samples.
+     * @throws IOException On file not found or read error.
+     */
+    public static GroundTruth load(String file)
+            throws IOException {
+        InputStream is = LOADER.getResourceAsStream(file);
+        if (is == null) {
+            throw new IOException("Ground truth not found: " + file);
+        }
+        List<Sample> samples = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] data = line.split("\\t");
+                samples.add(new Sample(data[5],
+                        Float.parseFloat(data[1]),
+                        Float.parseFloat(data[2]),
+                        Float.parseFloat(data[3]),
+                        Float.parseFloat(data[4])));
+            }
+        }
+        return new GroundTruth(file, Collections.unmodifiableList(samples));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    /**
+     * Gets all the sample texts.
+     *
+     * @return Array of texts, in file order.
+     */
+    public String[] getTexts() {
+        String[] texts = new String[samples.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = samples.get(i).text;
+        }
+        return texts;
+    }
+
+    /**
+     * A text sample and the expected polarity values.
+     */
+    public static final class Sample {
+
+        public final String text;
+        public final float negative;
+        public final float neutral;
+        public final float positive;
+        public final float compound;
+
+        Sample(String text, float negative, float neutral, float positive, float compound) {
+            this.text = text;
+            this.negative = negative;
+            this.neutral = neutral;
+            this.positive = positive;
+            this.compound = compound;
+        }
+
+        /**
+         * Checks the polarity values against the expected ones with the same
+         * tolerance (last decimal digit off by one) as
+         * {@code SentimentAnalysisEnglishTest}.
+         *
+         * @param polarity The {@code getSentimentAnalysis()} result.
+         * @return True if all the values are as expected, false otherwise.
+         */
+        public boolean isMatch(Map<String, Float> polarity) {
+            return isMatch(polarity.get("negative"), negative)
+                    && isMatch(polarity.get("positive"), positive)
+                    && isMatch(polarity.get("neutral"), neutral)
+                    && isMatch(polarity.get("compound"), compound);
+        }
+
+        private static boolean isMatch(Float actual, float expected) {
+            if (actual == null) {
+                return false;
+            }
+            int maxPlaces = Math.max(noOfDecimalDigits(actual), noOfDecimalDigits(expected));
+            return Math.abs(Math.abs(actual * maxPlaces) - Math.abs(expected * maxPlaces)) <= 1.0;
+        }
+
+        private static int noOfDecimalDigits(float value) {
+            String text = Float.toString(Math.abs(value));
+            return text.length() - text.indexOf('.') - 1;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * A latency histogram (nanoseconds) with log-linear buckets: each power of
+ * two range is split in 64 sub-buckets, a relative error below 1.6%. Not
+ * thread-safe, one per thread and {@link #add(LatencyHistogram)} to merge.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see LoadGenerator
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_HALF = 1 << (SUB_BITS - 1);
+
+    private final long[] counts = new long[(64 - SUB_BITS + 2) * SUB_HALF];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Records a value.
+     *
+     * @param value Latency in nanoseconds, negative is taken as 0.
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0L);
+        counts[index(v)]++;
+        count++;
+        sum += v;
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Adds all the values of another histogram.
+     *
+     * @param other The histogram to merge into this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return (count == 0L) ? 0.0 : (double) sum / count;
+    }
+
+    /**
+     * Gets a percentile value, the highest value in its bucket (capped by the
+     * maximum recorded).
+     *
+     * @param p Percentile from 0 to 100.
+     * @return The percentile value in nanoseconds, 0 if empty.
+     */
+    public long getPercentile(double p) {
+        long rank = Math.max((long) Math.ceil(count * p / 100.0), 1L);
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Writes the percentile distribution (in microseconds) with the ticks
+     * halving the remaining percentile each time (50, 75, 87.5, ...), as
+     * HdrHistogram does, up to the maximum.
+     *
+     * @param w Output writer.
+     * @throws IOException On write error.
+     */
+    public void writePercentiles(Writer w)
+            throws IOException {
+        w.write(String.format(Locale.ROOT, "%12s %14s %10s%n", "Value(us)", "Percentile", "TotalCount"));
+        if (count == 0L) {
+            return;
+        }
+        double remaining = 100.0;
+        double p = 0.0;
+        while (true) {
+            long value = getPercentile(p);
+            w.write(String.format(Locale.ROOT, "%12.3f %14.10f %10d%n", value / 1e3, p / 100.0, countAtOrBelow(value)));
+            if (value >= max || remaining < 1e-6) {
+                break;
+            }
+            remaining /= 2.0;
+            p = 100.0 - remaining;
+        }
+        w.write(String.format(Locale.ROOT, "#[Mean = %.3f, Max = %.3f, Total count = %d]%n", getMean() / 1e3, max / 1e3, count));
+    }
+
+    private long countAtOrBelow(long value) {
+        long seen = 0L;
+        for (int i = 0; i < counts.length && highestValue(i) <= value; i++) {
+            seen += counts[i];
+        }
+        return Math.min(seen, count);
+    }
+
+    private static int index(long v) {
+        int shift = 64 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        if (shift <= 0) {
+            return (int) v;
+        }
+        return shift * SUB_HALF + (int) (v >>> shift);
+    }
+
+    private static long highestValue(int index) {
+        if (index < 2 * SUB_HALF) {
+            return index;
+        }
+        int shift = index / SUB_HALF - 1;
+        long sub = index % SUB_HALF + SUB_HALF;
+        return ((sub + 1L) << shift) - 1L;
+    }
+}
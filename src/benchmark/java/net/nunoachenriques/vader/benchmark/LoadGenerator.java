@@ -0,0 +1,545 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Closed-loop load generator for saturation testing: keeps a concurrency
+ * level of sentiment analysis calls in flight against the library or a
+ * local {@link ScoringServer}, replaying the ground truth texts in a
+ * configurable corpora mix (e.g., short tweets and long editorials).
+ * <p>
+ * Each caller thread issues its next call when the previous one ends. With
+ * a target rate, calls are also paced on a fixed schedule and the response
+ * latency is measured from the intended start (coordinated omission
+ * corrected), otherwise only the service time is meaningful. Per step it
+ * reports throughput, service and response latency percentiles, and the
+ * monitor contention (blocked count and time) over the measured window of
+ * the caller threads and of the service threads, e.g., shared lexicon maps
+ * or logging. The saturation point is
+ * the first (unpaced) concurrency step that does not raise the throughput
+ * by 5%.
+ * <pre>
+ * --target library     library or http (local ScoringServer, any free port).
+ * --concurrency 1,2,4  Calls in flight per step (default: powers of 2 up to
+ *                      2x the CPUs).
+ * --rate 0             Intended calls per second per step, 0 for unpaced.
+ * --mix tweets=1,nyt=1,amazon=1,movie=1  Corpora weights.
+ * --warmup 5           Warm-up seconds per step.
+ * --duration 10        Measured seconds per step.
+ * --histogram DIR      Writes the response latency percentile distribution
+ *                      per step (HdrHistogram like text).
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see LatencyHistogram
+ * @see ScoringServer
+ */
+public final class LoadGenerator {
+
+    private static final String THREAD_NAME_PREFIX = "load-";
+    private static final double SATURATION_GAIN_MIN = 0.05;
+
+    private final String target;
+    private final double rate;
+    private final long warmUpNanos;
+    private final long durationNanos;
+    private final String[][] corpora;
+    private final double[] cumulativeWeights;
+    private int port;
+
+    /**
+     * Loads the ground truth corpora of the mix.
+     *
+     * @param target "library" or "http".
+     * @param rate Intended calls per second, 0 for unpaced.
+     * @param warmUpSeconds Warm-up seconds per step.
+     * @param durationSeconds Measured seconds per step.
+     * @param mix Corpus name (amazon, movie, nyt, tweets) to weight.
+     * @throws IOException On corpora read error.
+     */
+    public LoadGenerator(String target, double rate, int warmUpSeconds, int durationSeconds, Map<String, Double> mix)
+            throws IOException {
+        if (!"library".equals(target) && !"http".equals(target)) {
+            throw new IllegalArgumentException("Unknown target: " + target);
+        }
+        this.target = target;
+        this.rate = rate;
+        this.warmUpNanos = TimeUnit.SECONDS.toNanos(warmUpSeconds);
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        corpora = new String[mix.size()][];
+        cumulativeWeights = new double[mix.size()];
+        double total = 0.0;
+        int i = 0;
+        for (Map.Entry<String, Double> e : mix.entrySet()) {
+            corpora[i] = GroundTruth.load(corpusFile(e.getKey())).getTexts();
+            total += e.getValue();
+            cumulativeWeights[i++] = total;
+        }
+        for (i = 0; i < cumulativeWeights.length; i++) {
+            cumulativeWeights[i] /= total;
+        }
+    }
+
+    public static void main(String[] args)
+            throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("--target", "library");
+        options.put("--concurrency", null);
+        options.put("--rate", "0");
+        options.put("--mix", "tweets=1,nyt=1,amazon=1,movie=1");
+        options.put("--warmup", "5");
+        options.put("--duration", "10");
+        options.put("--histogram", null);
+        for (int i = 0; i < args.length; i += 2) {
+            if (!options.containsKey(args[i]) || i + 1 == args.length) {
+                System.err.println("Usage: LoadGenerator " + options.keySet() + " (see Javadoc)");
+                System.exit(2);
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        Map<String, Double> mix = new LinkedHashMap<>();
+        for (String weight : options.get("--mix").split(",")) {
+            String[] kv = weight.split("=");
+            mix.put(kv[0].trim(), Double.parseDouble(kv[1]));
+        }
+        LoadGenerator generator = new LoadGenerator(options.get("--target"),
+                Double.parseDouble(options.get("--rate")),
+                Integer.parseInt(options.get("--warmup")),
+                Integer.parseInt(options.get("--duration")),
+                mix);
+        ScoringServer server = null;
+        if ("http".equals(generator.target)) {
+            server = new ScoringServer(0, Runtime.getRuntime().availableProcessors());
+            server.start();
+            generator.port = server.getPort();
+        }
+        try {
+            List<Step> steps = new ArrayList<>();
+            for (int concurrency : concurrencyLevels(options.get("--concurrency"))) {
+                Step step = generator.run(concurrency);
+                System.out.println(step);
+                if (options.get("--histogram") != null) {
+                    step.writeHistogram(new File(options.get("--histogram"), "response-c" + concurrency + ".hgrm"));
+                }
+                steps.add(step);
+            }
+            if (generator.rate > 0.0) {
+                System.out.println("Paced at " + generator.rate + " calls/s, no saturation search");
+            } else {
+                Step saturation = saturation(steps);
+                System.out.println((saturation == null)
+                        ? "No saturation up to concurrency " + steps.get(steps.size() - 1).concurrency
+                        : "Saturation at concurrency " + saturation.concurrency
+                        + String.format(Locale.ROOT, " (%.1f calls/s)", saturation.throughput));
+            }
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    /**
+     * Runs a load step: warm-up then measure at the given calls in flight.
+     *
+     * @param concurrency Number of caller threads (calls in flight).
+     * @return The step result.
+     * @throws InterruptedException On thread interruption.
+     */
+    public Step run(final int concurrency)
+            throws InterruptedException {
+        final long interval = (rate > 0.0) ? (long) (concurrency * 1e9 / rate) : 0L;
+        final LatencyHistogram[] service = new LatencyHistogram[concurrency];
+        final LatencyHistogram[] response = new LatencyHistogram[concurrency];
+        final long[] errors = new long[concurrency];
+        final long[][] blocked = new long[concurrency][2];
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        final long measureStart = start + warmUpNanos;
+        final long end = measureStart + durationNanos;
+        final ThreadMXBean tmx = ManagementFactory.getThreadMXBean();
+        final boolean contention = tmx.isThreadContentionMonitoringSupported();
+        if (contention) {
+            tmx.setThreadContentionMonitoringEnabled(true);
+        }
+        for (int t = 0; t < concurrency; t++) {
+            final int id = t;
+            service[t] = new LatencyHistogram();
+            response[t] = new LatencyHistogram();
+            Thread caller = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        callLoop(id, concurrency, interval, start, measureStart, end, service[id], response[id], errors,
+                                contention ? tmx : null, blocked[id]);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, THREAD_NAME_PREFIX + t);
+            caller.setDaemon(true);
+            caller.start();
+        }
+        long sleep = measureStart - System.nanoTime();
+        if (sleep > 0L) {
+            TimeUnit.NANOSECONDS.sleep(sleep);
+        }
+        Contention before = contention ? Contention.of(tmx) : null;
+        done.await();
+        Contention callers = null;
+        Contention server = null;
+        if (contention) {
+            server = Contention.of(tmx).minus(before);
+            long count = 0L;
+            long millis = 0L;
+            for (long[] b : blocked) {
+                count += b[0];
+                millis += b[1];
+            }
+            callers = new Contention(count, millis);
+        }
+        LatencyHistogram serviceAll = new LatencyHistogram();
+        LatencyHistogram responseAll = new LatencyHistogram();
+        long errorCount = 0L;
+        for (int t = 0; t < concurrency; t++) {
+            serviceAll.add(service[t]);
+            responseAll.add(response[t]);
+            errorCount += errors[t];
+        }
+        return new Step(concurrency, serviceAll.getCount() * 1e9 / durationNanos, interval > 0L,
+                serviceAll, responseAll, errorCount, callers, server);
+    }
+
+    private void callLoop(int id, int concurrency, long interval, long start, long measureStart, long end,
+                          LatencyHistogram service, LatencyHistogram response, long[] errors,
+                          ThreadMXBean tmx, long[] blocked) {
+        SentimentAnalysis sa = "library".equals(target)
+                ? new SentimentAnalysis(new English(), new TokenizerEnglish())
+                : null;
+        HttpCaller http = (sa == null) ? new HttpCaller(port) : null;
+        Random random = new Random(id);
+        // Callers spread evenly on the schedule.
+        long intended = start + ((interval > 0L) ? interval * id / concurrency : 0L);
+        boolean measuring = false;
+        waitUntil(start);
+        while (true) {
+            if (interval > 0L) {
+                waitUntil(intended);
+            } else {
+                intended = System.nanoTime();
+            }
+            if (intended >= end || System.nanoTime() >= end) {
+                break;
+            }
+            if (!measuring && intended >= measureStart) {
+                measuring = true;
+                addBlocked(tmx, blocked, -1L);
+            }
+            String text = nextText(random);
+            long t0 = System.nanoTime();
+            boolean ok = (sa == null) ? http.post(text) : !sa.getSentimentAnalysis(text).isEmpty();
+            long t1 = System.nanoTime();
+            if (intended >= measureStart && t1 < end) {
+                service.record(t1 - t0);
+                response.record(t1 - intended);
+                if (!ok) {
+                    errors[id]++;
+                }
+            }
+            intended += interval;
+        }
+        if (measuring) {
+            // Own totals before ending, the thread info is gone afterwards.
+            addBlocked(tmx, blocked, 1L);
+        }
+        if (http != null) {
+            http.close();
+        }
+    }
+
+    // Adds (sign 1) or subtracts (sign -1) the current thread blocked count and time.
+    private static void addBlocked(ThreadMXBean tmx, long[] blocked, long sign) {
+        if (tmx != null) {
+            ThreadInfo info = tmx.getThreadInfo(Thread.currentThread().getId());
+            blocked[0] += sign * info.getBlockedCount();
+            blocked[1] += sign * Math.max(info.getBlockedTime(), 0L);
+        }
+    }
+
+    private String nextText(Random random) {
+        double r = random.nextDouble();
+        int c = 0;
+        while (c < cumulativeWeights.length - 1 && r >= cumulativeWeights[c]) {
+            c++;
+        }
+        return corpora[c][random.nextInt(corpora[c].length)];
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0L) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static String corpusFile(String name) {
+        switch (name) {
+            case "amazon":
+                return GroundTruth.AMAZON;
+            case "movie":
+                return GroundTruth.MOVIE;
+            case "nyt":
+                return GroundTruth.NYT;
+            case "tweets":
+                return GroundTruth.TWEETS;
+            default:
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+        }
+    }
+
+    private static List<Integer> concurrencyLevels(String option) {
+        List<Integer> levels = new ArrayList<>();
+        if (option != null) {
+            for (String c : option.split(",")) {
+                levels.add(Integer.parseInt(c.trim()));
+            }
+            return levels;
+        }
+        int max = 2 * Runtime.getRuntime().availableProcessors();
+        for (int c = 1; c < max; c *= 2) {
+            levels.add(c);
+        }
+        levels.add(max);
+        return levels;
+    }
+
+    private static Step saturation(List<Step> steps) {
+        for (int i = 1; i < steps.size(); i++) {
+            if (steps.get(i).throughput < steps.get(i - 1).throughput * (1.0 + SATURATION_GAIN_MIN)) {
+                return steps.get(i - 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A minimal HTTP/1.1 keep-alive client of the {@link ScoringServer}: one
+     * connection per caller, request written at once with no Nagle delay
+     * (HttpURLConnection writes the headers and body apart, delayed ACK makes
+     * it about 40 ms per call).
+     */
+    static final class HttpCaller {
+
+        private static final byte[] CRLF_CRLF = {'\r', '\n', '\r', '\n'};
+
+        private final int port;
+        private final ByteArrayOutputStream request = new ByteArrayOutputStream();
+        private Socket socket;
+        private OutputStream out;
+        private InputStream in;
+
+        HttpCaller(int port) {
+            this.port = port;
+        }
+
+        boolean post(String text) {
+            try {
+                if (socket == null) {
+                    socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                    socket.setTcpNoDelay(true);
+                    out = socket.getOutputStream();
+                    in = new BufferedInputStream(socket.getInputStream());
+                }
+                byte[] body = text.getBytes(StandardCharsets.UTF_8);
+                request.reset();
+                request.write(("POST " + ScoringServer.PATH + " HTTP/1.1\r\n"
+                        + "Host: 127.0.0.1:" + port + "\r\n"
+                        + "Content-Type: text/plain; charset=UTF-8\r\n"
+                        + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                request.write(body);
+                request.writeTo(out);
+                out.flush();
+                return readResponse();
+            } catch (IOException e) {
+                close();
+                return false;
+            }
+        }
+
+        private boolean readResponse()
+                throws IOException {
+            String head = readHead();
+            int status = Integer.parseInt(head.substring(9, 12));
+            int length = 0;
+            for (String line : head.split("\r\n")) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    length = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                if (in.read() == -1) {
+                    throw new EOFException("Response body truncated");
+                }
+            }
+            return status == 200;
+        }
+
+        private String readHead()
+                throws IOException {
+            StringBuilder head = new StringBuilder();
+            int matched = 0;
+            while (matched < CRLF_CRLF.length) {
+                int b = in.read();
+                if (b == -1) {
+                    throw new EOFException("Connection closed");
+                }
+                matched = (b == CRLF_CRLF[matched]) ? matched + 1 : (b == '\r') ? 1 : 0;
+                head.append((char) b);
+            }
+            return head.toString();
+        }
+
+        void close() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Nothing to do.
+                }
+                socket = null;
+            }
+        }
+    }
+
+    /**
+     * Monitor contention totals of the caller threads or of the service
+     * ({@link ScoringServer}) threads, both over the measured window: the
+     * callers from their first measured call to their end, the service from
+     * the measure start to the last caller end.
+     */
+    static final class Contention {
+
+        final long blockedCount;
+        final long blockedMillis;
+
+        Contention(long blockedCount, long blockedMillis) {
+            this.blockedCount = blockedCount;
+            this.blockedMillis = blockedMillis;
+        }
+
+        static Contention of(ThreadMXBean tmx) {
+            long count = 0L;
+            long millis = 0L;
+            for (ThreadInfo info : tmx.getThreadInfo(tmx.getAllThreadIds())) {
+                if (info != null && info.getThreadName().startsWith(ScoringServer.THREAD_NAME_PREFIX)) {
+                    count += info.getBlockedCount();
+                    millis += Math.max(info.getBlockedTime(), 0L);
+                }
+            }
+            return new Contention(count, millis);
+        }
+
+        Contention minus(Contention other) {
+            return new Contention(blockedCount - other.blockedCount, blockedMillis - other.blockedMillis);
+        }
+    }
+
+    /**
+     * A concurrency step result.
+     */
+    public static final class Step {
+
+        public final int concurrency;
+        public final double throughput;
+        public final boolean paced;
+        public final LatencyHistogram service;
+        public final LatencyHistogram response;
+        public final long errors;
+        final Contention callers;
+        final Contention server;
+
+        Step(int concurrency, double throughput, boolean paced, LatencyHistogram service,
+             LatencyHistogram response, long errors, Contention callers, Contention server) {
+            this.concurrency = concurrency;
+            this.throughput = throughput;
+            this.paced = paced;
+            this.service = service;
+            this.response = response;
+            this.errors = errors;
+            this.callers = callers;
+            this.server = server;
+        }
+
+        void writeHistogram(File file)
+                throws IOException {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Cannot create directory: " + parent);
+            }
+            try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                response.writePercentiles(w);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                    "concurrency=%d calls/s=%.1f errors=%d service(us) p50=%.1f p99=%.1f max=%.1f",
+                    concurrency, throughput, errors,
+                    service.getPercentile(50.0) / 1e3, service.getPercentile(99.0) / 1e3, service.getMax() / 1e3));
+            if (paced) {
+                sb.append(String.format(Locale.ROOT, " response(us) p50=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+                        response.getPercentile(50.0) / 1e3, response.getPercentile(99.0) / 1e3,
+                        response.getPercentile(99.9) / 1e3, response.getMax() / 1e3));
+            }
+            if (callers != null && server != null) {
+                sb.append(String.format(Locale.ROOT, " blocked callers=%d (%d ms) server=%d (%d ms)",
+                        callers.blockedCount, callers.blockedMillis, server.blockedCount, server.blockedMillis));
+            }
+            return sb.toString();
+        }
+    }
+}
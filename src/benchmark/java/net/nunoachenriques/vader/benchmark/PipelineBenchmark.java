@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import net.nunoachenriques.vader.PipelinedSentimentAnalysis;
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained ingestion of a stream of texts: the three stage
+ * {@link PipelinedSentimentAnalysis} versus each text submitted to a shared
+ * executor of three threads (one analysis per thread). The score is texts
+ * per second:
+ *
+ * <pre>
+ * ./gradlew jmh -PjmhArgs='PipelineBenchmark'
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final int TEXTS = 1024;
+    private static final int THREADS = 3;
+
+    @Param({"BUSY_SPIN", "YIELD", "PARK"})
+    public String waitStrategy;
+
+    private String[] texts;
+    private PipelinedSentimentAnalysis<Integer> pipeline;
+    private ExecutorService executor;
+    private final ThreadLocal<SentimentAnalysis> analysis = new ThreadLocal<SentimentAnalysis>() {
+        @Override
+        protected SentimentAnalysis initialValue() {
+            return new SentimentAnalysis(new English(), new TokenizerEnglish());
+        }
+    };
+    private volatile Map<String, Float> last;
+
+    @Setup(Level.Trial)
+    public void setup()
+            throws IOException {
+        texts = Arrays.copyOf(GroundTruth.load(GroundTruth.TWEETS).getTexts(), TEXTS);
+        pipeline = new PipelinedSentimentAnalysis<>(new English(), new TokenizerEnglish(),
+                new PipelinedSentimentAnalysis.Handler<Integer>() {
+                    @Override
+                    public void onResult(Integer tag, Map<String, Float> polarity) {
+                        last = polarity;
+                    }
+
+                    @Override
+                    public void onError(Integer tag, RuntimeException e) {
+                        throw e;
+                    }
+                },
+                PipelinedSentimentAnalysis.CAPACITY_DEFAULT,
+                PipelinedSentimentAnalysis.BATCH_SIZE_DEFAULT,
+                PipelinedSentimentAnalysis.WaitStrategy.valueOf(waitStrategy),
+                null);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipeline.close();
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTS)
+    public long pipeline() {
+        for (int i = 0; i < texts.length; i++) {
+            pipeline.submit(texts[i], i);
+        }
+        pipeline.flush();
+        return pipeline.getEmitted();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTS)
+    public int executor()
+            throws InterruptedException, ExecutionException {
+        List<Future<Map<String, Float>>> results = new ArrayList<>(texts.length);
+        for (final String text : texts) {
+            results.add(executor.submit(new Callable<Map<String, Float>>() {
+                @Override
+                public Map<String, Float> call() {
+                    return analysis.get().getSentimentAnalysis(text);
+                }
+            }));
+        }
+        for (Future<Map<String, Float>> r : results) {
+            last = r.get();
+        }
+        return results.size();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+import org.pmw.tinylog.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal local scoring service ({@code com.sun.net.httpserver}) for load
+ * testing: {@code POST /sentiment} with the UTF-8 text as body answers the
+ * polarity as JSON. One {@link SentimentAnalysis} per server thread.
+ * <pre>
+ * --port 8080      Listening port on the loopback address (0 is any free).
+ * --threads N      Server threads (default: the CPUs).
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see LoadGenerator
+ */
+public final class ScoringServer {
+
+    public static final String PATH = "/sentiment";
+    public static final String THREAD_NAME_PREFIX = "scoring-";
+
+    static {
+        // No Nagle delay on the response (headers and body written apart).
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Binds the service to the loopback address, use {@link #start()}.
+     *
+     * @param port The port, 0 for any free one.
+     * @param threads Number of server threads.
+     * @throws IOException On bind error.
+     */
+    public ScoringServer(int port, int threads)
+            throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        final AtomicInteger id = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, THREAD_NAME_PREFIX + id.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        server.setExecutor(executor);
+        server.createContext(PATH, new SentimentHandler());
+    }
+
+    public static void main(String[] args)
+            throws IOException {
+        int port = 8080;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--port".equals(args[i])) {
+                port = Integer.parseInt(args[i + 1]);
+            } else if ("--threads".equals(args[i])) {
+                threads = Integer.parseInt(args[i + 1]);
+            }
+        }
+        ScoringServer s = new ScoringServer(port, threads);
+        s.start();
+        System.out.println("Scoring service on http://127.0.0.1:" + s.getPort() + PATH);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and ends the server threads.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static final class SentimentHandler
+            implements HttpHandler {
+
+        private final ThreadLocal<SentimentAnalysis> analysis = new ThreadLocal<SentimentAnalysis>() {
+            @Override
+            protected SentimentAnalysis initialValue() {
+                return new SentimentAnalysis(new English(), new TokenizerEnglish());
+            }
+        };
+
+        @Override
+        public void handle(HttpExchange exchange)
+                throws IOException {
+            try {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                String text = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+                Map<String, Float> polarity = analysis.get().getSentimentAnalysis(text);
+                byte[] body = String.format(Locale.ROOT,
+                        "{\"compound\": %s, \"positive\": %s, \"negative\": %s, \"neutral\": %s}",
+                        polarity.get("compound"), polarity.get("positive"),
+                        polarity.get("negative"), polarity.get("neutral"))
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            } catch (RuntimeException e) {
+                Logger.error(e, "Scoring request failed");
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    static byte[] readAll(InputStream is)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            bytes.write(buffer, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+}
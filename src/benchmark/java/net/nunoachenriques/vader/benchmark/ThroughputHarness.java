@@ -0,0 +1,389 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Macro benchmark (throughput regression harness): replays all the ground
+ * truth corpora through the sentiment analysis at 1, 2, 4, ... N threads
+ * (one {@link SentimentAnalysis} per thread), checks the accuracy against
+ * the expected values, writes a JSON report (texts per second, p50 and p99
+ * latency, accuracy) and compares it with a baseline report of the same
+ * number of available processors. Exits with status 1 on a regression
+ * beyond the threshold, 3 if the baseline is of another number of available
+ * processors (the thread scaling is not comparable). Every thread count is warmed up, all its threads replaying
+ * together, before the timed replays.
+ * <pre>
+ * --threads 1,2,4      Thread counts (default: powers of 2 up to the CPUs).
+ * --warmup 3           Untimed corpora replays per thread, every thread count.
+ * --rounds 3           Timed corpora replays per thread.
+ * --report FILE        JSON report (default: build/reports/throughput.json).
+ * --baseline FILE      Baseline report, "none" to skip (default: the class
+ *                      path throughput-baseline.json).
+ * --threshold 0.10     Relative throughput or p99 latency regression allowed.
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see GroundTruth
+ */
+public final class ThroughputHarness {
+
+    public static final String BASELINE = "throughput-baseline.json";
+    private static final Pattern JSON_NUMBER = Pattern.compile("\"(\\w+)\": (-?[0-9.]+(?:[eE][-+]?[0-9]+)?)");
+    private static final Pattern JSON_PROCESSORS = Pattern.compile("\"availableProcessors\": ([0-9]+)");
+
+    private final int warmUpRounds;
+    private final int rounds;
+    private final List<GroundTruth.Sample> samples = new ArrayList<>();
+
+    /**
+     * Loads all the ground truth corpora.
+     *
+     * @param warmUpRounds Untimed corpora replays per thread.
+     * @param rounds Timed corpora replays per thread.
+     * @throws IOException On corpora read error.
+     */
+    public ThroughputHarness(int warmUpRounds, int rounds)
+            throws IOException {
+        this.warmUpRounds = warmUpRounds;
+        this.rounds = rounds;
+        for (String corpus : GroundTruth.ALL) {
+            samples.addAll(GroundTruth.load(corpus).getSamples());
+        }
+    }
+
+    public static void main(String[] args)
+            throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("--threads", null);
+        options.put("--warmup", "3");
+        options.put("--rounds", "3");
+        options.put("--report", "build/reports/throughput.json");
+        options.put("--baseline", null);
+        options.put("--threshold", "0.10");
+        for (int i = 0; i < args.length; i += 2) {
+            if (!options.containsKey(args[i]) || i + 1 == args.length) {
+                System.err.println("Usage: ThroughputHarness " + options.keySet() + " (see Javadoc)");
+                System.exit(2);
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        ThroughputHarness harness = new ThroughputHarness(
+                Integer.parseInt(options.get("--warmup")),
+                Integer.parseInt(options.get("--rounds")));
+        List<Result> results = new ArrayList<>();
+        for (int threads : threadCounts(options.get("--threads"))) {
+            Result r = harness.run(threads);
+            System.out.println(r);
+            results.add(r);
+        }
+        File report = new File(options.get("--report"));
+        writeReport(report, results);
+        System.out.println("Report: " + report.getAbsolutePath());
+        String baseline = options.get("--baseline");
+        if ("none".equals(baseline)) {
+            return;
+        }
+        InputStream is = (baseline == null)
+                ? ThroughputHarness.class.getClassLoader().getResourceAsStream(BASELINE)
+                : new FileInputStream(baseline);
+        if (is == null) {
+            System.out.println("No baseline: " + BASELINE);
+            return;
+        }
+        List<Result> baselineResults = new ArrayList<>();
+        int baselineProcessors = readReport(is, baselineResults);
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (baselineProcessors != processors) {
+            System.err.println("Baseline of " + baselineProcessors + " available processors, not " + processors
+                    + ": refusing to compare, record a baseline here (--baseline none)");
+            System.exit(3);
+        }
+        List<String> regressions = compare(results, baselineResults, Float.parseFloat(options.get("--threshold")));
+        for (String regression : regressions) {
+            System.out.println("REGRESSION " + regression);
+        }
+        if (!regressions.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays the corpora at the given number of threads, the warm-up
+     * replays first, all the threads together, then the timed ones.
+     *
+     * @param threads Number of threads, each one with its own
+     * {@link SentimentAnalysis} instance.
+     * @return The throughput, latency and accuracy result.
+     * @throws InterruptedException On thread interruption.
+     */
+    public Result run(int threads)
+            throws InterruptedException {
+        final CountDownLatch ready = new CountDownLatch(threads);
+        final CountDownLatch warmUp = new CountDownLatch(1);
+        final CountDownLatch warm = new CountDownLatch(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[][] latencies = new long[threads][];
+        final int[] matches = new int[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+                    long[] nanos = new long[rounds * samples.size()];
+                    int matched = 0;
+                    int n = 0;
+                    ready.countDown();
+                    try {
+                        warmUp.await();
+                        for (int r = 0; r < warmUpRounds; r++) {
+                            for (GroundTruth.Sample sample : samples) {
+                                sa.getSentimentAnalysis(sample.text);
+                            }
+                        }
+                        warm.countDown();
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int r = 0; r < rounds; r++) {
+                        for (GroundTruth.Sample sample : samples) {
+                            long t0 = System.nanoTime();
+                            Map<String, Float> polarity = sa.getSentimentAnalysis(sample.text);
+                            nanos[n++] = System.nanoTime() - t0;
+                            if (sample.isMatch(polarity)) {
+                                matched++;
+                            }
+                        }
+                    }
+                    latencies[id] = nanos;
+                    matches[id] = matched;
+                }
+            }, "throughput-" + t);
+            workers[t].start();
+        }
+        ready.await();
+        warmUp.countDown();
+        warm.await();
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - t0;
+        long texts = 0L;
+        long matched = 0L;
+        for (int t = 0; t < threads; t++) {
+            if (latencies[t] == null) {
+                throw new IllegalStateException("Worker " + t + " did not finish");
+            }
+            texts += latencies[t].length;
+            matched += matches[t];
+        }
+        long[] all = new long[(int) texts];
+        int offset = 0;
+        for (long[] l : latencies) {
+            System.arraycopy(l, 0, all, offset, l.length);
+            offset += l.length;
+        }
+        Arrays.sort(all);
+        return new Result(threads,
+                texts * 1e9 / elapsed,
+                percentile(all, 50.0) / 1e3,
+                percentile(all, 99.0) / 1e3,
+                (texts == 0L) ? 0.0 : (double) matched / texts);
+    }
+
+    /**
+     * Compares the results with the baseline ones of the same thread count.
+     *
+     * @param results Current results.
+     * @param baseline Baseline results.
+     * @param threshold Relative throughput decrease or p99 latency increase
+     * allowed (e.g., 0.10). Any accuracy decrease is a regression.
+     * @return The regressions description, empty if none.
+     */
+    public static List<String> compare(List<Result> results, List<Result> baseline, float threshold) {
+        List<String> regressions = new ArrayList<>();
+        for (Result r : results) {
+            for (Result b : baseline) {
+                if (b.threads != r.threads) {
+                    continue;
+                }
+                if (r.textsPerSecond < b.textsPerSecond * (1.0 - threshold)) {
+                    regressions.add(String.format(Locale.ROOT, "threads=%d texts/s %.1f < baseline %.1f",
+                            r.threads, r.textsPerSecond, b.textsPerSecond));
+                }
+                if (r.latencyP99Micros > b.latencyP99Micros * (1.0 + threshold)) {
+                    regressions.add(String.format(Locale.ROOT, "threads=%d p99 %.1f us > baseline %.1f us",
+                            r.threads, r.latencyP99Micros, b.latencyP99Micros));
+                }
+                if (r.accuracy < b.accuracy) {
+                    regressions.add(String.format(Locale.ROOT, "threads=%d accuracy %.6f < baseline %.6f",
+                            r.threads, r.accuracy, b.accuracy));
+                }
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Writes the JSON report, one result object per line.
+     *
+     * @param file Report file, parent directories created if needed.
+     * @param results The results.
+     * @throws IOException On write error.
+     */
+    public static void writeReport(File file, List<Result> results)
+            throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write("{\n");
+            w.write("  \"java\": \"" + System.getProperty("java.version") + "\",\n");
+            w.write("  \"os\": \"" + System.getProperty("os.name") + " " + System.getProperty("os.arch") + "\",\n");
+            w.write("  \"availableProcessors\": " + Runtime.getRuntime().availableProcessors() + ",\n");
+            w.write("  \"results\": [\n");
+            for (int i = 0; i < results.size(); i++) {
+                w.write("    " + results.get(i).toJson() + ((i + 1 < results.size()) ? ",\n" : "\n"));
+            }
+            w.write("  ]\n");
+            w.write("}\n");
+        }
+    }
+
+    /**
+     * Reads the results of a report written by
+     * {@link #writeReport(File, List)} (one result object per line).
+     *
+     * @param is The report input stream, closed on return.
+     * @param results The results read are added to.
+     * @return The number of available processors of the report, 0 if
+     * missing.
+     * @throws IOException On read error.
+     */
+    public static int readReport(InputStream is, List<Result> results)
+            throws IOException {
+        int processors = 0;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Matcher p = JSON_PROCESSORS.matcher(line);
+                if (p.find()) {
+                    processors = Integer.parseInt(p.group(1));
+                }
+                if (!line.contains("\"threads\"")) {
+                    continue;
+                }
+                Map<String, Double> values = new LinkedHashMap<>();
+                Matcher m = JSON_NUMBER.matcher(line);
+                while (m.find()) {
+                    values.put(m.group(1), Double.parseDouble(m.group(2)));
+                }
+                results.add(new Result(values.get("threads").intValue(),
+                        values.get("textsPerSecond"),
+                        values.get("latencyP50Micros"),
+                        values.get("latencyP99Micros"),
+                        values.get("accuracy")));
+            }
+        }
+        return processors;
+    }
+
+    private static List<Integer> threadCounts(String option) {
+        List<Integer> counts = new ArrayList<>();
+        if (option != null) {
+            for (String t : option.split(",")) {
+                counts.add(Integer.parseInt(t.trim()));
+            }
+            return counts;
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int t = 1; t < processors; t *= 2) {
+            counts.add(t);
+        }
+        counts.add(processors);
+        return counts;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        int rank = (int) Math.ceil(sorted.length * p / 100.0);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * A thread count result.
+     */
+    public static final class Result {
+
+        public final int threads;
+        public final double textsPerSecond;
+        public final double latencyP50Micros;
+        public final double latencyP99Micros;
+        public final double accuracy;
+
+        Result(int threads, double textsPerSecond, double latencyP50Micros, double latencyP99Micros, double accuracy) {
+            this.threads = threads;
+            this.textsPerSecond = textsPerSecond;
+            this.latencyP50Micros = latencyP50Micros;
+            this.latencyP99Micros = latencyP99Micros;
+            this.accuracy = accuracy;
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"threads\": %d, \"textsPerSecond\": %.1f, \"latencyP50Micros\": %.1f, \"latencyP99Micros\": %.1f, \"accuracy\": %.6f}",
+                    threads, textsPerSecond, latencyP50Micros, latencyP99Micros, accuracy);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "threads=%d texts/s=%.1f p50=%.1fus p99=%.1fus accuracy=%.6f",
+                    threads, textsPerSecond, latencyP50Micros, latencyP99Micros, accuracy);
+        }
+    }
+}
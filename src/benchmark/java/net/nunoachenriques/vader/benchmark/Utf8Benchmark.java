@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.benchmark;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sentiment analysis of UTF-8 messages: decoded to a {@code String} first
+ * versus the bytes entry point. The {@code system} corpus is made of
+ * messages with no lexicon entry (URLs, IDs, ...), the fast-reject case:
+ *
+ * <pre>
+ * ./gradlew jmh -PjmhArgs='Utf8Benchmark -prof gc'
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8Benchmark {
+
+    private static final String SYSTEM = "system";
+    private static final String[] SYSTEM_TEXTS = {
+            "https://example.com/orders/a1b2c3?id=42&ref=mail",
+            "Build #4521 finished in 00:03:12 (id 7f3a-99be)",
+            "Job 12 queued; job 13 running; job 14 done.",
+            "Order 99812 shipped to warehouse 7, tracking 1Z999AA10123456784",
+            "User 5521 logged in from 10.0.0.12",
+            "c0ffee00-1234-4cde-8f00-0123456789ab"
+    };
+
+    @Param({GroundTruth.TWEETS, GroundTruth.NYT, SYSTEM})
+    public String corpus;
+
+    private SentimentAnalysis sa;
+    private byte[][] messages;
+    private int next;
+
+    @Setup
+    public void setup()
+            throws IOException {
+        sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        String[] texts = corpus.equals(SYSTEM) ? SYSTEM_TEXTS : GroundTruth.load(corpus).getTexts();
+        messages = new byte[texts.length][];
+        for (int i = 0; i < texts.length; i++) {
+            messages[i] = texts[i].getBytes(StandardCharsets.UTF_8);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public Map<String, Float> string() {
+        byte[] m = nextMessage();
+        return sa.getSentimentAnalysis(new String(m, 0, m.length, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Map<String, Float> bytes() {
+        byte[] m = nextMessage();
+        return sa.getSentimentAnalysis(m, 0, m.length);
+    }
+
+    private byte[] nextMessage() {
+        byte[] m = messages[next];
+        next = (next + 1 == messages.length) ? 0 : next + 1;
+        return m;
+    }
+}
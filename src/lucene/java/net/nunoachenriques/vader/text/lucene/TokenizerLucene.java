@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.text.lucene;
+
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A tokenizer backed by Apache Lucene {@link Analyzer} token streams, e.g.,
+ * the same analyzers of a search index, so the text is scored on the tokens
+ * it is indexed with. The white space split (words plus emoticons) and the
+ * punctuation clean split (words only) are each one analyzer. The Lucene
+ * reuse strategy keeps one {@link TokenStream} per analyzer (and thread), so
+ * its {@link CharTermAttribute} and {@link OffsetAttribute} are looked up
+ * once and reused across calls, and the text is read by one reusable
+ * {@link Reader}, never copied.
+ * <p>
+ * Each token is the text slice between its start and end offsets, i.e., the
+ * original characters even if the analyzer changes the term (e.g., lower
+ * case, stemming) as the lexicon and the yelling check need. The term is
+ * the token only if the offsets are out of the text. The {@code split()},
+ * {@code cleanAndSplit()} and {@code removeTokensBySize()} are the
+ * {@link TokenizerEnglish} ones.
+ * <p>
+ * NOTICE: not thread-safe, use one instance per thread (as the
+ * {@link net.nunoachenriques.vader.SentimentAnalysis}). Optional module,
+ * requires {@code lucene-core} and {@code lucene-analyzers-common} 5.5.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see net.nunoachenriques.vader.text.Tokenizer
+ */
+public class TokenizerLucene
+        extends TokenizerEnglish
+        implements Closeable {
+
+    /**
+     * The field name given to the analyzers by default.
+     */
+    public static final String FIELD = "text";
+
+    private final Source whitespace;
+    private final Source words;
+    private final String field;
+    private final boolean owner;
+    private final CharSequenceReader reader = new CharSequenceReader();
+
+    /**
+     * Default constructor. The white space split by a Lucene
+     * {@link WhitespaceAnalyzer} and the punctuation clean split by a Lucene
+     * {@link StandardTokenizer} (Unicode text segmentation), as in the
+     * original Java port. Both analyzers are closed by {@link #close()}.
+     */
+    public TokenizerLucene() {
+        this(new WhitespaceAnalyzer(), new StandardTokenizerAnalyzer(), FIELD, true);
+    }
+
+    /**
+     * Tokenizer on the given analyzers, e.g., the ones of the search index
+     * fields. The analyzers are owned by the caller, not closed by
+     * {@link #close()}.
+     *
+     * @param whitespace The analyzer to split words plus emoticons (e.g.,
+     *                   white space tokenizer).
+     * @param words The analyzer to split words only (e.g., punctuation
+     *              removed).
+     * @param field The field name given to both analyzers (e.g., to a
+     *              per field analyzer wrapper).
+     */
+    public TokenizerLucene(Analyzer whitespace, Analyzer words, String field) {
+        this(whitespace, words, field, false);
+    }
+
+    private TokenizerLucene(Analyzer whitespace, Analyzer words, String field, boolean owner) {
+        this.whitespace = new Source(whitespace);
+        this.words = new Source(words);
+        this.field = field;
+        this.owner = owner;
+    }
+
+    @Override
+    public List<String> splitWhitespace(CharSequence s) {
+        return tokens(whitespace, s);
+    }
+
+    /**
+     * Splits words only, the punctuation removed by the words analyzer.
+     *
+     * @param s The text to be split.
+     * @param r Not used, the analyzer removes the punctuation.
+     * @return The list of words.
+     */
+    @Override
+    public List<String> cleanPunctuationAndSplitWhitespace(CharSequence s, String r) {
+        return tokens(words, s);
+    }
+
+    /**
+     * Closes the analyzers of the default constructor, none otherwise.
+     */
+    @Override
+    public void close() {
+        if (owner) {
+            whitespace.analyzer.close();
+            words.analyzer.close();
+        }
+    }
+
+    private List<String> tokens(Source source, CharSequence s) {
+        List<String> tokens = new ArrayList<>();
+        reader.set(s);
+        try {
+            TokenStream ts = source.stream(field, reader);
+            try {
+                ts.reset();
+                while (ts.incrementToken()) {
+                    tokens.add(source.token(s));
+                }
+                ts.end();
+            } finally {
+                ts.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Lucene token stream failed!", e);
+        }
+        return tokens;
+    }
+
+    /*
+     * One analyzer plus its (reused) token stream and attributes, looked up
+     * again only if the analyzer gives another token stream (e.g., other
+     * thread, reuse strategy).
+     */
+    private static final class Source {
+
+        private final Analyzer analyzer;
+        private TokenStream stream;
+        private CharTermAttribute term;
+        private OffsetAttribute offset;
+
+        Source(Analyzer analyzer) {
+            this.analyzer = analyzer;
+        }
+
+        TokenStream stream(String field, Reader reader) {
+            TokenStream ts = analyzer.tokenStream(field, reader);
+            if (ts != stream) {
+                stream = ts;
+                term = ts.addAttribute(CharTermAttribute.class);
+                offset = ts.addAttribute(OffsetAttribute.class);
+            }
+            return ts;
+        }
+
+        String token(CharSequence s) {
+            int start = offset.startOffset();
+            int end = offset.endOffset();
+            if (0 <= start && start < end && end <= s.length()) {
+                return s.subSequence(start, end).toString();
+            }
+            return term.toString();
+        }
+    }
+
+    /*
+     * The standard tokenizer only: no lower case nor stop words filters as
+     * the Lucene StandardAnalyzer.
+     */
+    private static final class StandardTokenizerAnalyzer
+            extends Analyzer {
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            return new TokenStreamComponents(new StandardTokenizer());
+        }
+    }
+
+    /*
+     * A reusable reader of a text, characters read straight from it (e.g.,
+     * no String copy of a StringBuilder).
+     */
+    private static final class CharSequenceReader
+            extends Reader {
+
+        private CharSequence s;
+        private int next;
+
+        void set(CharSequence s) {
+            this.s = s;
+            next = 0;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len)
+                throws IOException {
+            if (s == null) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int n = Math.min(len, s.length() - next);
+            if (n <= 0) {
+                return -1;
+            }
+            if (s instanceof String) {
+                ((String) s).getChars(next, next + n, cbuf, off);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    cbuf[off + i] = s.charAt(next + i);
+                }
+            }
+            next += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            s = null;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+@REM Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+@REM
+@REM Licensed under the Apache License, Version 2.0 (the "License").
+@REM See http://www.apache.org/licenses/LICENSE-2.0
+@REM
+@REM Corpus scoring (TSV or JSONL), e.g.: vader-score --threads 8 in.tsv out.tsv
+@REM JAVA_OPTS for the JVM options (e.g., -Xmx2g).
+@echo off
+setlocal
+set APP_HOME=%~dp0..
+set JAVA=java
+if defined JAVA_HOME set JAVA=%JAVA_HOME%\bin\java
+"%JAVA%" %JAVA_OPTS% -cp "%APP_HOME%\lib\*" net.nunoachenriques.vader.cli.CorpusScorer %*
+endlocal
@@ -0,0 +1,973 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import net.nunoachenriques.vader.lexicon.Language;
+import net.nunoachenriques.vader.lexicon.LexiconSymbols;
+import net.nunoachenriques.vader.text.Properties;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>The reusable working memory of a sentiment analysis: the text
+ * characters, the token spans (offsets in the text, no {@code String}), the
+ * token symbol IDs, the valences and the polarity values (the result). The
+ * buffers grow as required and are kept for the next text, so after a
+ * warm-up the analysis of typical texts allocates nothing on the heap.</p>
+ *
+ * <p>The rules run once, here, over the token symbol IDs and spans: of the
+ * text itself (the English lexicon and the TokenizerEnglish) or of
+ * the {@link Properties} words and emoticons (any language and tokenizer),
+ * explaining and measuring if required.</p>
+ *
+ * <p>Not thread-safe: one per thread (e.g., a {@code ThreadLocal}) or per
+ * {@link SentimentAnalysis} instance.</p>
+ *
+ * <pre>
+ * ...
+ * <code>
+ * AnalysisContext context = new AnalysisContext();
+ * for (String text : texts) {
+ *     float compound = sa.getSentimentAnalysis(text, context).getCompound();
+ * }
+ * </code>
+ * ...
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see SentimentAnalysis#getSentimentAnalysis(CharSequence, AnalysisContext)
+ */
+public final class AnalysisContext {
+
+    private static final int CHARS_DEFAULT = 256;
+    private static final int TOKENS_DEFAULT = 32;
+
+    // The text and the tokens lower case.
+    private char[] chars = new char[CHARS_DEFAULT];
+    private char[] lower = new char[2 * CHARS_DEFAULT];
+    private int length;
+    // Words only (white space and punctuation split) spans.
+    private int words;
+    private int[] wordStart = new int[TOKENS_DEFAULT];
+    private int[] wordEnd = new int[TOKENS_DEFAULT];
+    private int[] wordTable = new int[2 * TOKENS_DEFAULT];
+    private int wordMask;
+    // Words and emoticons (white space split) spans.
+    private int tokens;
+    private int[] start = new int[TOKENS_DEFAULT];
+    private int[] end = new int[TOKENS_DEFAULT];
+    private int[] lowerStart = new int[TOKENS_DEFAULT];
+    private int[] lowerEnd = new int[TOKENS_DEFAULT];
+    private int[] symbol = new int[TOKENS_DEFAULT];
+    private int[] lowerSymbol = new int[TOKENS_DEFAULT];
+    // The first token equal to each one.
+    private int[] first = new int[TOKENS_DEFAULT];
+    private boolean[] upper = new boolean[TOKENS_DEFAULT];
+    private boolean[] negation = new boolean[TOKENS_DEFAULT];
+    private float[] valences = new float[TOKENS_DEFAULT];
+    private final ValenceIndex valenceIndex = new ValenceIndex();
+    private int[] tokenTable = new int[2 * TOKENS_DEFAULT];
+    private boolean capDifferential;
+    // An idiom (tokens joined by a space).
+    private char[] gram = new char[64];
+    // The text punctuation boost counts.
+    private int exclamationCount;
+    private int questionMarkCount;
+    // The symbol table and the IDs of the words tested by the rules.
+    private LexiconSymbols symbols;
+    private Language lazyLanguage;
+    private LexiconSymbols lazySymbols;
+    private int kind;
+    private int of;
+    private int least;
+    private int at;
+    private int very;
+    private int but;
+    private int butUpper;
+    private int never;
+    private int so;
+    private int thisWord;
+    // The polarity values.
+    private float compound;
+    private float positive;
+    private float negative;
+    private float neutral;
+    private boolean truncated;
+    // The explanation, the stage durations and the counts, if required.
+    private Explanation explanation;
+    private boolean measured;
+    private long rulesStart;
+    private long rulesNanos;
+    private long idiomsNanos;
+    private long normalizationNanos;
+    private int tokenCount;
+    private int lexiconHits;
+
+    public AnalysisContext() {
+    }
+
+    /**
+     * Gets the compound score of the last analysis.
+     *
+     * @return The compound score [-1, 1].
+     */
+    public float getCompound() {
+        return compound;
+    }
+
+    /**
+     * Gets the positive score of the last analysis.
+     *
+     * @return The positive score [0, 1].
+     */
+    public float getPositive() {
+        return positive;
+    }
+
+    /**
+     * Gets the negative score of the last analysis.
+     *
+     * @return The negative score [0, 1].
+     */
+    public float getNegative() {
+        return negative;
+    }
+
+    /**
+     * Gets the neutral score of the last analysis.
+     *
+     * @return The neutral score [0, 1].
+     */
+    public float getNeutral() {
+        return neutral;
+    }
+
+    /**
+     * Checks if the last analysis was truncated by the token or time budget
+     * (only the text beginning scored).
+     *
+     * @return True if truncated, false otherwise.
+     * @see SentimentAnalysis#setTokenBudget(int)
+     * @see SentimentAnalysis#setTimeBudget(long)
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Gets the polarity values of the last analysis as the
+     * {@link SentimentAnalysis#getSentimentAnalysis(CharSequence)} result.
+     *
+     * @return A new map of the positive, neutral, negative, and compound
+     * name-value pairs.
+     */
+    public Map<String, Float> toMap() {
+        Map<String, Float> polarity = new HashMap<>(8);
+        polarity.put("compound", compound);
+        polarity.put("positive", positive);
+        polarity.put("negative", negative);
+        polarity.put("neutral", neutral);
+        return polarity;
+    }
+
+    /*
+     * The polarity values of an analysis done elsewhere.
+     */
+    void setPolarity(Map<String, Float> polarity) {
+        compound = polarity.get("compound");
+        positive = polarity.get("positive");
+        negative = polarity.get("negative");
+        neutral = polarity.get("neutral");
+    }
+
+    void setTruncated(boolean t) {
+        truncated = t;
+    }
+
+    /*
+     * The explanation of the next analyses, null if none.
+     */
+    void setExplanation(Explanation e) {
+        explanation = e;
+    }
+
+    /*
+     * If the next analyses measure the stage durations and the counts.
+     */
+    void setMeasured(boolean m) {
+        measured = m;
+    }
+
+    /*
+     * The System.nanoTime() of the rules start (the tokenization end) of the
+     * last measured analysis.
+     */
+    long getRulesStart() {
+        return rulesStart;
+    }
+
+    long getRulesNanos() {
+        return rulesNanos;
+    }
+
+    long getIdiomsNanos() {
+        return idiomsNanos;
+    }
+
+    long getNormalizationNanos() {
+        return normalizationNanos;
+    }
+
+    /*
+     * The token count of the last analysis, the truncated ones included.
+     */
+    int getTokenCount() {
+        return tokenCount;
+    }
+
+    int getLexiconHits() {
+        return lexiconHits;
+    }
+
+    /*
+     * The punctuation boost (exclamation and question marks) of the last
+     * analysis text.
+     */
+    float getPunctuationBoost() {
+        float questionMarkAmplifier = 0.0f;
+        if (questionMarkCount > 1) {
+            questionMarkAmplifier =
+                    (questionMarkCount <= 3)
+                            ? questionMarkCount * Constant.QUESTION_BOOST_COUNT_3
+                            : Constant.QUESTION_BOOST;
+        }
+        return Math.min(exclamationCount, 4) * Constant.EXCLAMATION_BOOST + questionMarkAmplifier;
+    }
+
+    /*
+     * The polarity values when all valences are 0.
+     */
+    void setNeutral(int tokenCount) {
+        compound = 0.0f;
+        positive = 0.0f;
+        negative = 0.0f;
+        neutral = (tokenCount > 0) ? 1.0f : 0.0f;
+    }
+
+    /*
+     * The sentiment analysis of the text on the spans, the same tokens as the
+     * Properties (TokenizerEnglish) ones, bit-exact. If timed, the tokens
+     * scored up to the deadline only (the truncated flag set). False if not
+     * applicable (locale dependent lower case or ambiguous punctuation),
+     * nothing set.
+     */
+    boolean analyze(CharSequence s, LexiconSymbols l, List<String> punctuation, boolean timed, long deadline) {
+        if (!load(s)) {
+            return false;
+        }
+        if (l != symbols) {
+            setSymbols(l);
+        }
+        splitWords();
+        if (!isPunctuationUnambiguous(punctuation)) {
+            return false;
+        }
+        splitTokens(punctuation);
+        resolveTokens();
+        score(timed, deadline);
+        return true;
+    }
+
+    /*
+     * The sentiment analysis of the text on the Properties words and
+     * emoticons, any language and tokenizer. If timed, the tokens scored up
+     * to the deadline only (the truncated flag set).
+     */
+    void analyze(CharSequence s, Properties p, Language l, boolean timed, long deadline) {
+        countPunctuation(s);
+        if (l != lazyLanguage) {
+            lazySymbols = LexiconSymbols.lazy(l);
+            lazyLanguage = l;
+        } else {
+            lazySymbols.clear();
+        }
+        if (lazySymbols != symbols) {
+            setSymbols(lazySymbols);
+        }
+        List<String> wordsAndEmoticons = p.getWordsAndEmoticons();
+        while (start.length < wordsAndEmoticons.size()) {
+            grow();
+        }
+        tokens = 0;
+        length = 0;
+        int position = 0;
+        for (int t = 0; t < wordsAndEmoticons.size(); t++) {
+            String token = wordsAndEmoticons.get(t);
+            String tokenLower = token.toLowerCase();
+            if (chars.length < length + token.length() + 1) {
+                chars = Arrays.copyOf(chars, Math.max(length + token.length() + 1, 2 * chars.length));
+            }
+            if (lower.length < position + tokenLower.length()) {
+                lower = Arrays.copyOf(lower, Math.max(position + tokenLower.length(), 2 * lower.length));
+            }
+            if (t > 0) {
+                chars[length++] = ' ';
+            }
+            token.getChars(0, token.length(), chars, length);
+            start[t] = length;
+            length += token.length();
+            end[t] = length;
+            tokenLower.getChars(0, tokenLower.length(), lower, position);
+            lowerStart[t] = position;
+            position += tokenLower.length();
+            lowerEnd[t] = position;
+            symbol[t] = symbols.lookup(chars, start[t], token.length());
+            lowerSymbol[t] = symbols.lookup(lower, lowerStart[t], tokenLower.length());
+            upper[t] = l.isUpper(token);
+            negation[t] = symbols.isNegative(symbol[t]) || token.endsWith("n't");
+            tokens++;
+        }
+        capDifferential = p.isCapDifferential();
+        resolveFirst();
+        score(timed, deadline);
+    }
+
+    private boolean load(CharSequence s) {
+        length = s.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, 2 * chars.length)];
+            lower = new char[2 * chars.length];
+        }
+        if (s instanceof String) {
+            ((String) s).getChars(0, length, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars[i] = s.charAt(i);
+            }
+        }
+        exclamationCount = 0;
+        questionMarkCount = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c == '!') {
+                exclamationCount++;
+            } else if (c == '?') {
+                questionMarkCount++;
+            } else if (c == '\u0130' || c == '\u03A3') {
+                // String.toLowerCase() special casing: dotted I and final sigma.
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void countPunctuation(CharSequence s) {
+        exclamationCount = 0;
+        questionMarkCount = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '!') {
+                exclamationCount++;
+            } else if (c == '?') {
+                questionMarkCount++;
+            }
+        }
+    }
+
+    private void setSymbols(LexiconSymbols l) {
+        symbols = l;
+        kind = l.lookup("kind");
+        of = l.lookup("of");
+        least = l.lookup("least");
+        at = l.lookup("at");
+        very = l.lookup("very");
+        but = l.lookup("but");
+        butUpper = l.lookup("BUT");
+        never = l.lookup("never");
+        so = l.lookup("so");
+        thisWord = l.lookup("this");
+    }
+
+    /*
+     * The TokenizerEnglish white space and punctuation split, tokens of 2
+     * or more characters.
+     */
+    private void splitWords() {
+        words = 0;
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || isWhitespace(chars[i]) || isPunctuationSeparator(i)) {
+                if (runStart >= 0 && i - runStart >= 2) {
+                    if (words == wordStart.length) {
+                        wordStart = Arrays.copyOf(wordStart, 2 * words);
+                        wordEnd = Arrays.copyOf(wordEnd, 2 * words);
+                    }
+                    wordStart[words] = runStart;
+                    wordEnd[words] = i;
+                    words++;
+                }
+                runStart = -1;
+            } else if (runStart < 0) {
+                runStart = i;
+            }
+        }
+        int capacity = tableCapacity(words);
+        if (wordTable.length < capacity) {
+            wordTable = new int[capacity];
+        }
+        Arrays.fill(wordTable, 0, capacity, 0);
+        wordMask = capacity - 1;
+        int mask = wordMask;
+        // One entry per distinct word: equal words would share (and lengthen)
+        // a probe sequence, quadratic on a repeated word.
+        for (int w = 0; w < words; w++) {
+            int wordLength = wordEnd[w] - wordStart[w];
+            int slot = hash(chars, wordStart[w], wordEnd[w]) & mask;
+            int k;
+            while ((k = wordTable[slot]) != 0) {
+                k--;
+                if (wordEnd[k] - wordStart[k] == wordLength && spanEquals(wordStart[k], wordStart[w], wordLength)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (wordTable[slot] == 0) {
+                wordTable[slot] = w + 1;
+            }
+        }
+    }
+
+    /*
+     * The same as the Properties check: no word starts or ends with a
+     * punctuation character.
+     */
+    private boolean isPunctuationUnambiguous(List<String> punctuation) {
+        for (int p = 0; p < punctuation.size(); p++) {
+            if (punctuation.get(p).isEmpty()) {
+                return false;
+            }
+        }
+        for (int w = 0; w < words; w++) {
+            char firstChar = chars[wordStart[w]];
+            char lastChar = chars[wordEnd[w] - 1];
+            for (int p = 0; p < punctuation.size(); p++) {
+                String punctuationChars = punctuation.get(p);
+                if (punctuationChars.indexOf(firstChar) != -1 || punctuationChars.indexOf(lastChar) != -1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * The white space split, tokens of 2 or more characters, each one made
+     * of a word plus punctuation (or punctuation plus word) replaced by the
+     * word, as the Properties.
+     */
+    private void splitTokens(List<String> punctuation) {
+        tokens = 0;
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || isWhitespace(chars[i])) {
+                if (runStart >= 0 && i - runStart >= 2) {
+                    if (tokens == start.length) {
+                        grow();
+                    }
+                    start[tokens] = runStart;
+                    end[tokens] = i;
+                    stripPunctuation(tokens, punctuation);
+                    tokens++;
+                }
+                runStart = -1;
+            } else if (runStart < 0) {
+                runStart = i;
+            }
+        }
+    }
+
+    private void stripPunctuation(int t, List<String> punctuation) {
+        int s = start[t];
+        int e = end[t];
+        for (int p = 0; p < punctuation.size(); p++) {
+            String punctuationChars = punctuation.get(p);
+            int wordLength = e - s - punctuationChars.length();
+            if (wordLength > 0 && regionMatches(e - punctuationChars.length(), punctuationChars)
+                    && containsWord(s, wordLength)) {
+                end[t] = s + wordLength;
+                return;
+            }
+            if (wordLength > 0 && regionMatches(s, punctuationChars)
+                    && containsWord(s + punctuationChars.length(), wordLength)) {
+                start[t] = s + punctuationChars.length();
+                return;
+            }
+        }
+    }
+
+    private boolean containsWord(int offset, int wordLength) {
+        int mask = wordMask;
+        int slot = hash(chars, offset, offset + wordLength) & mask;
+        int w;
+        while ((w = wordTable[slot]) != 0) {
+            w--;
+            if (wordEnd[w] - wordStart[w] == wordLength && spanEquals(wordStart[w], offset, wordLength)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /*
+     * The lower case, the symbols, the first equal token and the upper case
+     * flag of each token.
+     */
+    private void resolveTokens() {
+        resolveFirst();
+        int position = 0;
+        int upperCount = 0;
+        for (int t = 0; t < tokens; t++) {
+            int s = start[t];
+            int e = end[t];
+            lowerStart[t] = position;
+            for (int i = s; i < e; ) {
+                int c = Character.codePointAt(chars, i, e);
+                position += Character.toChars(Character.toLowerCase(c), lower, position);
+                i += Character.charCount(c);
+            }
+            lowerEnd[t] = position;
+            symbol[t] = symbols.lookup(chars, s, e - s);
+            lowerSymbol[t] = symbols.lookup(lower, lowerStart[t], position - lowerStart[t]);
+            upper[t] = LexiconSymbols.isUpper(chars, s, e - s);
+            negation[t] = symbols.isNegative(symbol[t])
+                    || (e - s >= 3 && chars[e - 3] == 'n' && chars[e - 2] == '\'' && chars[e - 1] == 't');
+            if (upper[t]) {
+                upperCount++;
+            }
+        }
+        int capDifference = tokens - upperCount;
+        capDifferential = (0 < capDifference) && (capDifference < tokens);
+    }
+
+    /*
+     * The first token equal to each one (i.e., List.indexOf()), hashed
+     * instead of a scan per token (quadratic).
+     */
+    private void resolveFirst() {
+        int capacity = tableCapacity(tokens);
+        if (tokenTable.length < capacity) {
+            tokenTable = new int[capacity];
+        }
+        Arrays.fill(tokenTable, 0, capacity, 0);
+        int mask = capacity - 1;
+        for (int t = 0; t < tokens; t++) {
+            int s = start[t];
+            int e = end[t];
+            int slot = hash(chars, s, e) & mask;
+            int k;
+            first[t] = t;
+            while ((k = tokenTable[slot]) != 0) {
+                k--;
+                if (end[k] - start[k] == e - s && spanEquals(start[k], s, e - s)) {
+                    first[t] = k;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (first[t] == t) {
+                tokenTable[slot] = t + 1;
+            }
+        }
+    }
+
+    /*
+     * The rules valence of each token, the conjunction "but" and the
+     * polarity values.
+     */
+    private void score(boolean timed, long deadline) {
+        if (measured) {
+            rulesStart = System.nanoTime();
+            idiomsNanos = 0L;
+        }
+        tokenCount = tokens;
+        lexiconHits = 0;
+        int scored = tokens;
+        for (int j = 0; j < tokens; j++) {
+            if (timed && (j & (Constant.TIME_BUDGET_TOKENS - 1)) == 0 && System.nanoTime() - deadline >= 0L) {
+                scored = j;
+                truncated = true;
+                break;
+            }
+            if (explanation != null) {
+                explanation.addToken(new String(chars, start[j], end[j] - start[j]));
+            }
+            valences[j] = valence(j);
+        }
+        tokens = scored;
+        checkConjunctionBut();
+        if (explanation != null) {
+            explanation.setValences(valences);
+        }
+        if (measured) {
+            long normalizationStart = System.nanoTime();
+            polarityScores();
+            normalizationNanos = System.nanoTime() - normalizationStart;
+            rulesNanos = normalizationStart - rulesStart;
+        } else {
+            polarityScores();
+        }
+    }
+
+    /*
+     * The rules valence of token j.
+     */
+    // TODO hardcoded values (0.95f, 0.9f) to Constant?!
+    private float valence(int j) {
+        int i = first[j];
+        float currentValence = 0.0f;
+        // TODO English language dependent!
+        if (i < tokens - 1 && lowerSymbol[i] == kind && lowerSymbol[i + 1] == of
+                || symbols.hasBooster(lowerSymbol[i])) {
+            explainStep(Explanation.Rule.SKIPPED, i, currentValence, currentValence);
+            return currentValence;
+        }
+        if (!symbols.hasValence(lowerSymbol[i])) {
+            return currentValence;
+        }
+        lexiconHits++;
+        currentValence = symbols.getValence(lowerSymbol[i]);
+        if (explanation != null) {
+            explanation.setLexiconValence(currentValence);
+        }
+        if (upper[i] && capDifferential) {
+            currentValence = explainStep(Explanation.Rule.ALL_CAPS, i, currentValence,
+                    (currentValence > 0.0) ? currentValence + Constant.ALL_CAPS_BOOSTER_SCORE : currentValence - Constant.ALL_CAPS_BOOSTER_SCORE);
+        }
+        for (int startI = 0; startI < 3; startI++) {
+            int closeTokenIndex = i - (startI + 1);
+            if ((i > startI) && !symbols.hasValence(lowerSymbol[closeTokenIndex])) {
+                float gramBasedValence = valenceModifier(closeTokenIndex, currentValence);
+                if (startI == 1 && gramBasedValence != 0.0f) {
+                    gramBasedValence *= 0.95f;
+                }
+                if (startI == 2 && gramBasedValence != 0.0f) {
+                    gramBasedValence *= 0.9f;
+                }
+                if (explanation != null && gramBasedValence != 0.0f) {
+                    explanation.addStep(Explanation.Rule.BOOSTER, closeTokenIndex, currentValence, currentValence + gramBasedValence);
+                }
+                currentValence += gramBasedValence;
+                currentValence = checkForNever(currentValence, startI, i, closeTokenIndex);
+                if (startI == 2) {
+                    if (measured) {
+                        long idiomsStart = System.nanoTime();
+                        currentValence = checkForIdioms(currentValence, i);
+                        idiomsNanos += System.nanoTime() - idiomsStart;
+                    } else {
+                        currentValence = checkForIdioms(currentValence, i);
+                    }
+                }
+            }
+        }
+        if (i > 1 && !symbols.hasValence(lowerSymbol[i - 1]) && lowerSymbol[i - 1] == least) {
+            if (!(lowerSymbol[i - 2] == at || lowerSymbol[i - 2] == very)) {
+                currentValence = explainStep(Explanation.Rule.LEAST, i - 1, currentValence, currentValence * Constant.N_SCALAR);
+            }
+        } else if (i > 0 && !symbols.hasValence(lowerSymbol[i - 1]) && symbol[i - 1] == least) {
+            currentValence = explainStep(Explanation.Rule.LEAST, i - 1, currentValence, currentValence * Constant.N_SCALAR);
+        }
+        return currentValence;
+    }
+
+    private float valenceModifier(int preceding, float currentValence) {
+        float scalar = 0.0f;
+        if (symbols.hasBooster(lowerSymbol[preceding])) {
+            scalar = symbols.getBooster(lowerSymbol[preceding]);
+            if (currentValence < 0.0) {
+                scalar *= -1.0;
+            }
+            if (upper[preceding] && capDifferential) {
+                scalar = (currentValence > 0.0) ? scalar + Constant.ALL_CAPS_BOOSTER_SCORE : scalar - Constant.ALL_CAPS_BOOSTER_SCORE;
+            }
+        }
+        return scalar;
+    }
+
+    // TODO hardcoded values (1.5f, 1.25f) to Constant?!
+    private float checkForNever(float currentValence, int startI, int i, int closeTokenIndex) {
+        if (startI == 0) {
+            if (negation[i - 1]) {
+                currentValence = explainStep(Explanation.Rule.NEGATION, closeTokenIndex, currentValence, currentValence * Constant.N_SCALAR);
+            }
+        }
+        // TODO English language dependent!
+        if (startI == 1) {
+            if (symbol[i - 2] == never && (symbol[i - 1] == so || symbol[i - 1] == thisWord)) {
+                currentValence = explainStep(Explanation.Rule.NEVER, closeTokenIndex, currentValence, currentValence * 1.5f);
+            } else if (negation[closeTokenIndex]) {
+                currentValence = explainStep(Explanation.Rule.NEGATION, closeTokenIndex, currentValence, currentValence * Constant.N_SCALAR);
+            }
+        }
+        if (startI == 2) {
+            if (symbol[i - 3] == never && (symbol[i - 2] == so || symbol[i - 2] == thisWord)
+                    || (symbol[i - 1] == so || symbol[i - 1] == thisWord)) {
+                currentValence = explainStep(Explanation.Rule.NEVER, closeTokenIndex, currentValence, currentValence * 1.25f);
+            } else if (negation[closeTokenIndex]) {
+                currentValence = explainStep(Explanation.Rule.NEGATION, closeTokenIndex, currentValence, currentValence * Constant.N_SCALAR);
+            }
+        }
+        return currentValence;
+    }
+
+    private float checkForIdioms(float currentValence, int i) {
+        int leftBiGramFromCurrent = gram(i - 1, i);
+        int leftTriGramFromCurrent = gram(i - 2, i);
+        int leftBiGramFromOnePrevious = gram(i - 2, i - 1);
+        int leftTriGramFromOnePrevious = gram(i - 3, i - 1);
+        int leftBiGramFromTwoPrevious = gram(i - 3, i - 2);
+        int idiom = LexiconSymbols.NONE;
+        if (symbols.hasIdiom(leftBiGramFromCurrent)) {
+            idiom = leftBiGramFromCurrent;
+        } else if (symbols.hasIdiom(leftTriGramFromCurrent)) {
+            idiom = leftTriGramFromCurrent;
+        } else if (symbols.hasIdiom(leftBiGramFromOnePrevious)) {
+            idiom = leftBiGramFromOnePrevious;
+        } else if (symbols.hasIdiom(leftTriGramFromOnePrevious)) {
+            idiom = leftTriGramFromOnePrevious;
+        } else if (symbols.hasIdiom(leftBiGramFromTwoPrevious)) {
+            idiom = leftBiGramFromTwoPrevious;
+        }
+        if (idiom != LexiconSymbols.NONE) {
+            currentValence = explainStep(Explanation.Rule.IDIOM, i, currentValence, symbols.getIdiom(idiom));
+        }
+        if (tokens - 1 > i) {
+            int rightBiGramFromCurrent = gram(i, i + 1);
+            if (symbols.hasIdiom(rightBiGramFromCurrent)) {
+                currentValence = explainStep(Explanation.Rule.IDIOM, i, currentValence, symbols.getIdiom(rightBiGramFromCurrent));
+            }
+        }
+        if (tokens - 1 > i + 1) {
+            int rightTriGramFromCurrent = gram(i, i + 2);
+            if (symbols.hasIdiom(rightTriGramFromCurrent)) {
+                currentValence = explainStep(Explanation.Rule.IDIOM, i, currentValence, symbols.getIdiom(rightTriGramFromCurrent));
+            }
+        }
+        if (symbols.hasBooster(leftBiGramFromTwoPrevious) || symbols.hasBooster(leftBiGramFromOnePrevious)) {
+            int trigger = symbols.hasBooster(leftBiGramFromOnePrevious) ? i - 2 : i - 3;
+            currentValence = explainStep(Explanation.Rule.BOOSTER_PHRASE, trigger, currentValence, currentValence + -0.293f); // TODO review Language and English.DAMPENER_WORD_DECREMENT;
+        }
+        return currentValence;
+    }
+
+    /*
+     * Adds the rule step to the explanation (if explaining) and returns the
+     * valence after the rule.
+     */
+    private float explainStep(Explanation.Rule rule, int trigger, float valenceBefore, float valenceAfter) {
+        if (explanation != null) {
+            explanation.addStep(rule, trigger, valenceBefore, valenceAfter);
+        }
+        return valenceAfter;
+    }
+
+    /*
+     * The symbol of the tokens from first to last joined by a space.
+     */
+    private int gram(int firstToken, int lastToken) {
+        int size = lastToken - firstToken;
+        for (int t = firstToken; t <= lastToken; t++) {
+            size += end[t] - start[t];
+        }
+        if (gram.length < size) {
+            gram = new char[Math.max(size, 2 * gram.length)];
+        }
+        int position = 0;
+        for (int t = firstToken; t <= lastToken; t++) {
+            if (t > firstToken) {
+                gram[position++] = ' ';
+            }
+            System.arraycopy(chars, start[t], gram, position, end[t] - start[t]);
+            position += end[t] - start[t];
+        }
+        return symbols.lookup(gram, 0, size);
+    }
+
+    // TODO hardcoded values (0.5f, 1.5f) to Constant?!
+    private void checkConjunctionBut() {
+        // TODO English language dependent!
+        int index = -1;
+        for (int t = 0; t < tokens && index == -1; t++) {
+            if (symbol[t] == but) {
+                index = t;
+            }
+        }
+        for (int t = 0; t < tokens && index == -1; t++) {
+            if (symbol[t] == butUpper) {
+                index = t;
+            }
+        }
+        if (index == -1) {
+            return;
+        }
+        // As in the original, the valence index is the first one with the
+        // same value (i.e., List.indexOf() Float.equals() semantics).
+        valenceIndex.reset(valences, tokens);
+        for (int k = 0; k < tokens; k++) {
+            float valence = valences[k];
+            int currentValenceIndex = valenceIndex.indexOf(k);
+            if (currentValenceIndex < index) {
+                valenceIndex.set(currentValenceIndex, valence * 0.5f);
+            } else if (currentValenceIndex > index) {
+                valenceIndex.set(currentValenceIndex, valence * 1.5f);
+            }
+            if (explanation != null && currentValenceIndex != index && valence != 0.0f) {
+                explanation.addStep(currentValenceIndex, Explanation.Rule.BUT, index, valence, valences[currentValenceIndex]);
+            }
+        }
+    }
+
+    // TODO hardcoded values (4) to Constant?!
+    private void polarityScores() {
+        if (tokens == 0) {
+            setNeutral(0);
+            return;
+        }
+        float totalValence = 0.0f;
+        float positiveSentimentScore = 0.0f;
+        float negativeSentimentScore = 0.0f;
+        int neutralSentimentCount = 0;
+        for (int k = 0; k < tokens; k++) {
+            float valence = valences[k];
+            totalValence += valence;
+            if (valence > 0.0f) {
+                positiveSentimentScore = positiveSentimentScore + valence + 1.0f;
+            } else if (valence < 0.0f) {
+                negativeSentimentScore = negativeSentimentScore + valence - 1.0f;
+            } else {
+                neutralSentimentCount += 1;
+            }
+        }
+        // As in the original, the count goes through a float round trip.
+        neutralSentimentCount = Math.round((float) neutralSentimentCount);
+        float punctuationAmplifier = getPunctuationBoost();
+        if (totalValence > 0.0f) {
+            totalValence += punctuationAmplifier;
+        } else if (totalValence < 0.0f) {
+            totalValence -= punctuationAmplifier;
+        }
+        float compoundPolarity = (float) (totalValence / Math.sqrt((totalValence * totalValence) + Constant.NORMALIZE_SCORE_ALPHA_DEFAULT));
+        if (positiveSentimentScore > Math.abs(negativeSentimentScore)) {
+            positiveSentimentScore += punctuationAmplifier;
+        } else if (positiveSentimentScore < Math.abs(negativeSentimentScore)) {
+            negativeSentimentScore -= punctuationAmplifier;
+        }
+        float normalizationFactor = positiveSentimentScore
+                + Math.abs(negativeSentimentScore)
+                + neutralSentimentCount;
+        compound = Math.round(compoundPolarity * 10000.0f) / 10000.0f;
+        positive = round3(Math.abs(positiveSentimentScore / normalizationFactor));
+        negative = round3(Math.abs(negativeSentimentScore / normalizationFactor));
+        neutral = round3(Math.abs(neutralSentimentCount / normalizationFactor));
+    }
+
+    private static float round3(float value) {
+        float number = Math.round(value * 1000.0f);
+        return number / 1000.0f;
+    }
+
+    /*
+     * A TokenizerEnglish punctuation match: any ASCII punctuation but the
+     * period and the apostrophe, these only at a token start or end.
+     */
+    private boolean isPunctuationSeparator(int i) {
+        char c = chars[i];
+        if (!isPunctuation(c)) {
+            return false;
+        }
+        if (c != '.' && c != '\'') {
+            return true;
+        }
+        if (i == 0 || isWhitespace(chars[i - 1]) || isPunctuation(chars[i - 1])) {
+            return true;
+        }
+        // The pattern $ matches at the end or before a final line terminator.
+        return i + 1 == length || isWhitespace(chars[i + 1]) || isPunctuation(chars[i + 1])
+                || (i + 2 == length && isLineTerminator(chars[i + 1]));
+    }
+
+    private void grow() {
+        int capacity = 2 * start.length;
+        start = Arrays.copyOf(start, capacity);
+        end = Arrays.copyOf(end, capacity);
+        lowerStart = new int[capacity];
+        lowerEnd = new int[capacity];
+        symbol = new int[capacity];
+        lowerSymbol = new int[capacity];
+        first = new int[capacity];
+        upper = new boolean[capacity];
+        negation = new boolean[capacity];
+        valences = new float[capacity];
+    }
+
+    private boolean regionMatches(int offset, String s) {
+        for (int k = 0; k < s.length(); k++) {
+            if (chars[offset + k] != s.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean spanEquals(int a, int b, int spanLength) {
+        for (int k = 0; k < spanLength; k++) {
+            if (chars[a + k] != chars[b + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // A power of two, at least twice the entries (half full at most).
+    private static int tableCapacity(int entries) {
+        return Integer.highestOneBit(Math.max(entries, 1) * 2 - 1) << 1;
+    }
+
+    private static int hash(char[] b, int from, int to) {
+        int h = 0;
+        for (int k = from; k < to; k++) {
+            h = 31 * h + b[k];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // Java \p{Punct}: the ASCII punctuation.
+    private static boolean isPunctuation(char c) {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+    }
+
+    // Java \p{Space} as in the TokenizerEnglish.
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+/**
+ * A sentiment analysis call event. This is the Java 7 (and Android) version
+ * that does nothing. In Java 11+ the multi-release JAR version
+ * ({@code META-INF/versions/11}) is a Java Flight Recorder event, the same
+ * fields and methods as here.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+final class AnalysisEvent {
+
+    static final String CACHE_NONE = "none";
+    static final String CACHE_HIT = "hit";
+    static final String CACHE_MISS = "miss";
+
+    int textLength;
+    int tokenCount;
+    String language;
+    long tokenizeDuration;
+    long rulesDuration;
+    long idiomsDuration;
+    long normalizationDuration;
+    String cacheOutcome;
+
+    AnalysisEvent() {
+    }
+
+    boolean isEnabled() {
+        return false;
+    }
+
+    void begin() {
+    }
+
+    void end() {
+    }
+
+    boolean shouldCommit() {
+        return false;
+    }
+
+    void commit() {
+    }
+}
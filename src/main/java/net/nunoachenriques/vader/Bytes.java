@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The UTF-8 bytes of a text sample. This is the Java 7 (and Android) version.
+ * In Java 11+ the multi-release JAR version ({@code META-INF/versions/11})
+ * uses the JDK UTF-8 decoding, the same methods and results as here.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+final class Bytes {
+
+    private Bytes() {
+    }
+
+    /**
+     * UTF-8 decoding, a plain copy if ASCII only (the common case).
+     *
+     * @param b UTF-8 bytes.
+     * @param offset The text first byte index.
+     * @param length The text number of bytes.
+     * @return The decoded text.
+     */
+    static String decode(byte[] b, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (b[i] < 0) {
+                return new String(b, offset, length, StandardCharsets.UTF_8);
+            }
+        }
+        return new String(b, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Copies the remaining bytes, the buffer position is not changed.
+     *
+     * @param b The buffer.
+     * @return The remaining bytes.
+     */
+    static byte[] remaining(ByteBuffer b) {
+        byte[] bytes = new byte[b.remaining()];
+        b.duplicate().get(bytes);
+        return bytes;
+    }
+}
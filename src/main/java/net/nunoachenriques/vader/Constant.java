@@ -34,4 +34,6 @@ class Constant {
     static final float EXCLAMATION_BOOST = 0.292f;
     static final float QUESTION_BOOST_COUNT_3 = 0.18f;
     static final float QUESTION_BOOST = 0.96f;
+    // Tokens scored between time budget checks (a power of two).
+    static final int TIME_BUDGET_TOKENS = 64;
 }
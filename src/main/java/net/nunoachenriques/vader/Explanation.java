@@ -0,0 +1,266 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The explanation of a sentiment analysis: the contribution of each token
+ * (word or emoticon), with the lexicon valence and the rules applied, plus
+ * the punctuation boost and the resulting polarity values. Created by
+ * {@link SentimentAnalysis#explain(CharSequence)}.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class Explanation {
+
+    /**
+     * The rules that change a token valence.
+     */
+    public enum Rule {
+        /** Booster word or "kind" (of) itself, valence ignored. */
+        SKIPPED,
+        /** All caps (yelling) token among non all caps. */
+        ALL_CAPS,
+        /** Preceding booster (or dampener) word. */
+        BOOSTER,
+        /** Preceding negation (e.g., "not", "isn't"). */
+        NEGATION,
+        /** Preceding "never so" or "never this" (e.g., "never so good"). */
+        NEVER,
+        /** Sentiment laden idiom (e.g., "the bomb"). */
+        IDIOM,
+        /** Preceding booster phrase (e.g., "kind of"). */
+        BOOSTER_PHRASE,
+        /** Preceding "least" (e.g., "least good") but not "at least". */
+        LEAST,
+        /** Before (halved) or after (increased) the "but" conjunction. */
+        BUT
+    }
+
+    private final List<Token> tokens = new ArrayList<>();
+    private float punctuationBoost;
+    private Map<String, Float> polarity;
+
+    Explanation() {
+    }
+
+    /**
+     * Gets the contribution of each token, in text order.
+     *
+     * @return List of token contributions.
+     */
+    public List<Token> getTokens() {
+        return Collections.unmodifiableList(tokens);
+    }
+
+    /**
+     * Gets the punctuation (exclamation and question marks) boost added to
+     * the total valence.
+     *
+     * @return The punctuation boost.
+     */
+    public float getPunctuationBoost() {
+        return punctuationBoost;
+    }
+
+    /**
+     * Gets the resulting polarity values, the same as the sentiment analysis.
+     *
+     * @return The list of positive, neutral, negative, and compound
+     * name-value pairs.
+     */
+    public Map<String, Float> getPolarity() {
+        return polarity;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Token t : tokens) {
+            sb.append(t).append('\n');
+        }
+        return sb.append("punctuation boost ").append(punctuationBoost)
+                .append('\n').append(polarity).toString();
+    }
+
+    void addToken(String token) {
+        tokens.add(new Token(tokens.size(), token));
+    }
+
+    void setLexiconValence(float valence) {
+        tokens.get(tokens.size() - 1).lexiconValence = valence;
+    }
+
+    void addStep(Rule rule, int trigger, float valenceBefore, float valenceAfter) {
+        addStep(tokens.size() - 1, rule, trigger, valenceBefore, valenceAfter);
+    }
+
+    void addStep(int index, Rule rule, int trigger, float valenceBefore, float valenceAfter) {
+        tokens.get(index).steps.add(new Step(rule, trigger, valenceBefore, valenceAfter));
+    }
+
+    void setValences(float[] valences) {
+        for (int i = 0; i < tokens.size(); i++) {
+            tokens.get(i).valence = valences[i];
+        }
+    }
+
+    void setPolarity(float punctuationBoost, Map<String, Float> polarity) {
+        this.punctuationBoost = punctuationBoost;
+        this.polarity = polarity;
+    }
+
+    /**
+     * A token (word or emoticon) contribution to the sentiment.
+     */
+    public static final class Token {
+
+        private final int index;
+        private final String token;
+        private final List<Step> steps = new ArrayList<>();
+        private float lexiconValence = Float.NaN;
+        private float valence;
+
+        private Token(int index, String token) {
+            this.index = index;
+            this.token = token;
+        }
+
+        /**
+         * Gets the token position in the words and emoticons list.
+         *
+         * @return Token index.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the token text.
+         *
+         * @return Token text.
+         */
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * Checks if the token is in the word valence dictionary.
+         *
+         * @return True if found, false otherwise.
+         */
+        public boolean isLexiconHit() {
+            return !Float.isNaN(lexiconValence);
+        }
+
+        /**
+         * Gets the word valence dictionary value of the token.
+         *
+         * @return The lexicon valence, {@code NaN} if not found.
+         */
+        public float getLexiconValence() {
+            return lexiconValence;
+        }
+
+        /**
+         * Gets the rules applied to the token valence, in order.
+         *
+         * @return List of rule steps.
+         */
+        public List<Step> getSteps() {
+            return Collections.unmodifiableList(steps);
+        }
+
+        /**
+         * Gets the final valence of the token, all rules applied.
+         *
+         * @return Token valence.
+         */
+        public float getValence() {
+            return valence;
+        }
+
+        @Override
+        public String toString() {
+            return index + " " + token + " " + (isLexiconHit() ? lexiconValence : "-")
+                    + " " + steps + " => " + valence;
+        }
+    }
+
+    /**
+     * A rule applied to a token valence.
+     */
+    public static final class Step {
+
+        private final Rule rule;
+        private final int trigger;
+        private final float valenceBefore;
+        private final float valenceAfter;
+
+        private Step(Rule rule, int trigger, float valenceBefore, float valenceAfter) {
+            this.rule = rule;
+            this.trigger = trigger;
+            this.valenceBefore = valenceBefore;
+            this.valenceAfter = valenceAfter;
+        }
+
+        /**
+         * Gets the rule applied.
+         *
+         * @return The rule.
+         */
+        public Rule getRule() {
+            return rule;
+        }
+
+        /**
+         * Gets the index of the token that triggered the rule (e.g., the
+         * booster word).
+         *
+         * @return Trigger token index.
+         */
+        public int getTrigger() {
+            return trigger;
+        }
+
+        /**
+         * Gets the token valence before the rule.
+         *
+         * @return Valence before.
+         */
+        public float getValenceBefore() {
+            return valenceBefore;
+        }
+
+        /**
+         * Gets the token valence after the rule.
+         *
+         * @return Valence after.
+         */
+        public float getValenceAfter() {
+            return valenceAfter;
+        }
+
+        @Override
+        public String toString() {
+            return rule + "@" + trigger + " " + valenceBefore + "->" + valenceAfter;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+/**
+ * The sentiment label of a compound score by the VADER thresholds:
+ * positive if {@code >= 0.05}, negative if {@code <= -0.05}, neutral
+ * otherwise.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see SentimentAnalysis#getCompound(CharSequence)
+ */
+public enum Label {
+    POSITIVE,
+    NEUTRAL,
+    NEGATIVE;
+
+    /**
+     * The positive (and negative, symmetric) compound threshold.
+     */
+    public static final float THRESHOLD = 0.05f;
+
+    /**
+     * Gets the label of a compound score.
+     *
+     * @param compound The compound score [-1, 1].
+     * @return The compound label.
+     */
+    public static Label of(float compound) {
+        if (compound >= THRESHOLD) {
+            return POSITIVE;
+        }
+        return (compound <= -THRESHOLD) ? NEGATIVE : NEUTRAL;
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import net.nunoachenriques.vader.lexicon.Language;
+import net.nunoachenriques.vader.text.Properties;
+import net.nunoachenriques.vader.text.Tokenizer;
+
+import org.pmw.tinylog.Logger;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A pipelined sentiment analysis engine for sustained high rate
+ * ingestion. The tokenization ({@link Properties}), the rules scoring and
+ * the results emission run as three stages, each one in its own thread
+ * (e.g., pinned to a dedicated core by the given {@link ThreadFactory}).</p>
+ *
+ * <p>The stages share one pre-allocated ring of items. Each stage has a
+ * cursor (the number of items done) written by it only and read by the next
+ * stage only: the producer, tokenize, score and emit hand-offs are lock-free
+ * single producer, single consumer. A stage takes all the items available up
+ * to the batch size and then publishes its cursor once. The results are
+ * emitted in the submission order.</p>
+ *
+ * <p>A text failure (a {@link RuntimeException}) goes to the
+ * {@link Handler#onError(Object, RuntimeException)}. Any other failure of a
+ * stage thread (e.g., {@link OutOfMemoryError}) stops it and is rethrown by
+ * {@link #submit(CharSequence, Object)}, {@link #flush()} and
+ * {@link #close()} instead of waiting for it.</p>
+ *
+ * <pre>
+ * ...
+ * <code>
+ * PipelinedSentimentAnalysis&lt;Long&gt; pipeline = new PipelinedSentimentAnalysis&lt;&gt;(
+ *         new English(), new TokenizerEnglish(), handler);
+ * pipeline.submit(text, id); // the same producer thread only
+ * ...
+ * pipeline.close(); // emits all the submitted first
+ * </code>
+ * ...
+ * </pre>
+ *
+ * @param <T> The type of the tag given with each text (e.g., message id).
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class PipelinedSentimentAnalysis<T>
+        implements Closeable {
+
+    /**
+     * The default ring capacity (items).
+     */
+    public static final int CAPACITY_DEFAULT = 1024;
+    /**
+     * The default batch size (items).
+     */
+    public static final int BATCH_SIZE_DEFAULT = 64;
+
+    // Cursors 128 bytes apart (no false sharing) in one array.
+    private static final int PADDING = 16;
+    private static final int PRODUCER = 0;
+    private static final int TOKENIZE = PADDING;
+    private static final int SCORE = 2 * PADDING;
+    private static final int EMIT = 3 * PADDING;
+
+    private final Item[] ring;
+    private final int mask;
+    private final int batchSize;
+    private final WaitStrategy waitStrategy;
+    private final Handler<T> handler;
+    private final AtomicLongArray cursors = new AtomicLongArray(4 * PADDING);
+    private final Thread[] stages;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    // Producer thread only.
+    private long produced;
+    private long emittedCached;
+
+    /**
+     * The handler of each text sample result, called by the emit stage
+     * thread in the submission order.
+     *
+     * @param <T> The type of the tag given with each text.
+     */
+    public interface Handler<T> {
+
+        /**
+         * The polarity values of a text sample.
+         *
+         * @param tag The tag given with the text.
+         * @param polarity The list of positive, neutral, negative, and
+         *                 compound name-value pairs.
+         */
+        void onResult(T tag, Map<String, Float> polarity);
+
+        /**
+         * The sentiment analysis of a text sample failed.
+         *
+         * @param tag The tag given with the text.
+         * @param e The failure.
+         */
+        void onError(T tag, RuntimeException e);
+    }
+
+    /**
+     * How a stage (or the producer) waits for items (or free slots).
+     */
+    public enum WaitStrategy {
+        /**
+         * Spins on the cursor, the lowest latency, one core busy per stage.
+         */
+        BUSY_SPIN,
+        /**
+         * Spins a little then yields the core to other threads.
+         */
+        YIELD,
+        /**
+         * Spins a little, yields, then parks for a short time (up to 100
+         * microseconds), the lowest CPU usage when idle.
+         */
+        PARK;
+
+        void idle(int count) {
+            if (this == BUSY_SPIN || count < 100) {
+                return;
+            }
+            if (this == YIELD || count < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(Math.min(count - 199, 100) * 1000L);
+            }
+        }
+    }
+
+    /**
+     * A pipeline with the default capacity, batch size, yield wait strategy
+     * and daemon threads named {@code vader-pipeline-*}.
+     *
+     * @param l The text {@link Language}.
+     * @param t The text {@link Tokenizer}.
+     * @param h The results {@link Handler}.
+     */
+    public PipelinedSentimentAnalysis(Language l, Tokenizer t, Handler<T> h) {
+        this(l, t, h, CAPACITY_DEFAULT, BATCH_SIZE_DEFAULT, WaitStrategy.YIELD, null);
+    }
+
+    /**
+     * Starts the tokenize, score and emit stage threads.
+     *
+     * @param l The text {@link Language}.
+     * @param t The text {@link Tokenizer}.
+     * @param h The results {@link Handler}.
+     * @param capacity The ring capacity (items in flight), a power of two.
+     * @param batchSize The maximum items taken by a stage at once.
+     * @param w The {@link WaitStrategy} of the stages and the producer.
+     * @param threads The stage threads factory (e.g., pinning each thread
+     *                to a core), {@code null} for daemon threads named
+     *                {@code vader-pipeline-*}.
+     * @throws IllegalArgumentException If the capacity is not a power of two
+     * or the batch size is not positive.
+     */
+    public PipelinedSentimentAnalysis(Language l, Tokenizer t, Handler<T> h, int capacity, int batchSize, WaitStrategy w, ThreadFactory threads) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity " + capacity + " is not a power of two!");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size " + batchSize + " is not positive!");
+        }
+        ring = new Item[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Item();
+        }
+        mask = capacity - 1;
+        this.batchSize = batchSize;
+        waitStrategy = w;
+        handler = h;
+        final SentimentAnalysis tokenizeAnalysis = new SentimentAnalysis(l, t);
+        final SentimentAnalysis scoreAnalysis = new SentimentAnalysis(l, t);
+        stages = new Thread[]{
+                stage(threads, "tokenize", new Stage(PRODUCER, TOKENIZE) {
+                    @Override
+                    void process(Item item) {
+                        tokenizeAnalysis.tokenize(item);
+                    }
+                }),
+                stage(threads, "score", new Stage(TOKENIZE, SCORE) {
+                    @Override
+                    void process(Item item) {
+                        if (item.error == null) {
+                            scoreAnalysis.score(item);
+                        }
+                    }
+                }),
+                stage(threads, "emit", new Stage(SCORE, EMIT) {
+                    @Override
+                    void process(Item item) {
+                        emit(item);
+                    }
+                })
+        };
+        for (Thread stage : stages) {
+            stage.start();
+        }
+    }
+
+    /**
+     * Submits a text sample, waits (by the wait strategy) if the ring is
+     * full. The text must not be changed until its result is emitted. Only
+     * one producer thread may submit.
+     *
+     * @param s Text sample to analyse.
+     * @param tag The tag given to the handler with the result.
+     * @throws IllegalStateException If closed or a stage thread failed (not
+     * an {@link Error}).
+     * @throws Error If a stage thread failed with it.
+     */
+    public void submit(CharSequence s, T tag) {
+        if (closed) {
+            throw new IllegalStateException("Pipeline closed!");
+        }
+        long wrap = produced - ring.length;
+        int idle = 0;
+        while (wrap >= emittedCached) {
+            emittedCached = cursors.get(EMIT);
+            if (wrap >= emittedCached) {
+                checkFailure();
+                waitStrategy.idle(idle++);
+            }
+        }
+        Item item = ring[(int) produced & mask];
+        item.text = s;
+        item.tag = tag;
+        produced++;
+        cursors.lazySet(PRODUCER, produced);
+    }
+
+    /**
+     * Waits (by the wait strategy) until all the submitted text samples
+     * results are emitted. The producer thread only.
+     *
+     * @throws IllegalStateException If a stage thread failed (not an
+     * {@link Error}).
+     * @throws Error If a stage thread failed with it.
+     */
+    public void flush() {
+        int idle = 0;
+        while (cursors.get(EMIT) < produced) {
+            checkFailure();
+            waitStrategy.idle(idle++);
+        }
+    }
+
+    /**
+     * Gets the number of results emitted.
+     *
+     * @return Number of results emitted.
+     */
+    public long getEmitted() {
+        return cursors.get(EMIT);
+    }
+
+    /**
+     * Flushes and then stops the stage threads, also if a stage thread
+     * failed. The producer thread only.
+     *
+     * @throws IllegalStateException If a stage thread failed (not an
+     * {@link Error}).
+     * @throws Error If a stage thread failed with it.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            join();
+        }
+    }
+
+    private void join() {
+        for (Thread stage : stages) {
+            try {
+                stage.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void checkFailure() {
+        Throwable t = failure;
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new IllegalStateException("Pipeline stage failed!", t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void emit(Item item) {
+        T tag = (T) item.tag;
+        try {
+            if (item.error != null) {
+                handler.onError(tag, item.error);
+            } else {
+                handler.onResult(tag, item.polarity);
+            }
+        } catch (RuntimeException e) {
+            Logger.error(e, "Pipeline result handler failed");
+        }
+        item.clear();
+    }
+
+    private static Thread stage(ThreadFactory threads, String name, Runnable stage) {
+        Thread t;
+        if (threads == null) {
+            t = new Thread(stage, "vader-pipeline-" + name);
+            t.setDaemon(true);
+        } else {
+            t = threads.newThread(stage);
+        }
+        return t;
+    }
+
+    /*
+     * A stage loop: takes the items available from the upstream cursor (up
+     * to the batch size), processes them and publishes its cursor.
+     */
+    private abstract class Stage
+            implements Runnable {
+
+        private final int upstream;
+        private final int cursor;
+
+        Stage(int upstream, int cursor) {
+            this.upstream = upstream;
+            this.cursor = cursor;
+        }
+
+        abstract void process(Item item);
+
+        @Override
+        public void run() {
+            try {
+                loop();
+            } catch (Throwable t) {
+                // The cursor stops here, the producer rethrows it (set first,
+                // logging may fail too, e.g., out of memory).
+                if (failure == null) {
+                    failure = t;
+                }
+                Logger.error(t, "Pipeline stage {} failed", Thread.currentThread().getName());
+            }
+        }
+
+        private void loop() {
+            long next = 0L;
+            int idle = 0;
+            while (true) {
+                long available = cursors.get(upstream);
+                if (available <= next) {
+                    if (closed) {
+                        return;
+                    }
+                    waitStrategy.idle(idle++);
+                    continue;
+                }
+                idle = 0;
+                long end = Math.min(available, next + batchSize);
+                for (; next < end; next++) {
+                    Item item = ring[(int) next & mask];
+                    try {
+                        process(item);
+                    } catch (RuntimeException e) {
+                        item.error = e;
+                    }
+                }
+                cursors.lazySet(cursor, end);
+            }
+        }
+    }
+
+    /*
+     * A ring slot, reused: the text sample and each stage output.
+     */
+    static final class Item {
+
+        CharSequence text;
+        Object tag;
+        Language lexicon;
+        Properties properties;
+        Map<String, Float> polarity;
+        RuntimeException error;
+
+        void clear() {
+            text = null;
+            tag = null;
+            lexicon = null;
+            properties = null;
+            polarity = null;
+            error = null;
+        }
+    }
+}
@@ -17,15 +17,20 @@ package net.nunoachenriques.vader;
 
 import net.nunoachenriques.vader.lexicon.English;
 import net.nunoachenriques.vader.lexicon.Language;
+import net.nunoachenriques.vader.lexicon.LanguageIdentifier;
+import net.nunoachenriques.vader.lexicon.LexiconAutomaton;
+import net.nunoachenriques.vader.lexicon.LexiconSymbols;
+import net.nunoachenriques.vader.lexicon.ReloadableLanguage;
+import net.nunoachenriques.vader.metrics.Metrics;
 import net.nunoachenriques.vader.text.Properties;
 import net.nunoachenriques.vader.text.Tokenizer;
 import net.nunoachenriques.vader.text.TokenizerEnglish;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -66,29 +71,70 @@ import java.util.Map;
  * ...
  * </pre>
  *
+ * <h2>III. Several samples, unknown languages.</h2>
+ * <pre>
+ * ...
+ * <code>
+ * SentimentAnalysis sa = new SentimentAnalysis();
+ * Map<String,Float> sp;
+ * String s1 = "VADER is smart, handsome, and funny!";
+ *
+ * sp = sa.analyze(s1);
+ * System.out.println(s1 + " *** " + sa.getLanguageIdentification() + " *** " + sp.toString());
+ * </code>
+ * ...
+ * </pre>
+ *
  * @author Nuno A. C. Henriques [nunoachenriques.net]
  * @see <a href="http://comp.social.gatech.edu/papers/icwsm14.vader.hutto.pdf" target="_blank">VADER: A Parsimonious Rule-based Model for Sentiment Analysis of Social Media Text</a>
  */
 public class SentimentAnalysis {
 
     // Available languages (e.g., "en").
-    // TODO automatic detection of all languages?!
     private static final List<String> LANGUAGES = Collections.singletonList("en");
+    private static final String LANGUAGE_DEFAULT = "en";
 
-    private String text;
     private Language language;
+    // The language (lexicon version) of the current analysis, see pin().
+    private Language lexicon;
     private Tokenizer tokenizer;
-    private Properties textProperties;
+    private LanguageIdentifier.Result languageIdentification;
+    private Metrics metrics;
+    // Measured stages (if metrics or events are enabled) of the last call.
+    private boolean measuring;
+    private AnalysisEvent event;
+    private long measureStart;
+    private long tokenizeNanos;
+    private long rulesNanos;
+    private long idiomsNanos;
+    private long normalizationNanos;
+    private int tokenCount;
+    private int lexiconHits;
+    // Result cache outcome of the next call (see recordCacheMiss()) and the last.
+    private String nextCacheOutcome = AnalysisEvent.CACHE_NONE;
+    private String cacheOutcome = AnalysisEvent.CACHE_NONE;
+    // Explain mode trace, null (default) when not explaining.
+    private Explanation explanation;
+    // The rules working memory and the analysis event enabled probe.
+    private final AnalysisContext context = new AnalysisContext();
+    private final AnalysisEvent eventProbe = new AnalysisEvent();
+    // Per call budget (0 is unlimited) and the last call truncated flag.
+    private int tokenBudget;
+    private long timeBudget;
+    private boolean timed;
+    private long deadline;
+    private boolean truncated;
+    // Fast-reject delimiters of the last punctuation list seen.
+    private List<String> delimitersPunctuation;
+    private boolean[] delimiters;
 
     /**
      * Default constructor with all parameters {@code null}.
      */
     @SuppressWarnings("WeakerAccess")
     public SentimentAnalysis() {
-        text = null;
         language = null;
         tokenizer = null;
-        textProperties = null;
     }
 
     /**
@@ -102,10 +148,8 @@ public class SentimentAnalysis {
      */
     @SuppressWarnings("WeakerAccess")
     public SentimentAnalysis(Language l, Tokenizer t) {
-        text = null;
         language = l;
         tokenizer = t;
-        textProperties = null;
     }
 
     /**
@@ -115,11 +159,179 @@ public class SentimentAnalysis {
      * @param s Text sample to analyse.
      * @return The list of positive, neutral, negative, and compound name-value
      * pairs.
+     * @see #getSentimentAnalysis(CharSequence)
      */
     public Map<String, Float> getSentimentAnalysis(String s) {
-        text = s;
-        textProperties = new Properties(s, language, tokenizer);
-        return getPolarity();
+        return getSentimentAnalysis((CharSequence) s);
+    }
+
+    /**
+     * Does the sentiment analysis of the given text sample and returns
+     * the polarity values. The text is read in place, no copy: a
+     * {@code String}, a {@code StringBuilder}, or a slice of a larger
+     * document (e.g., {@code CharBuffer.wrap(document, start, end)}), not to
+     * be changed during the call.
+     *
+     * @param s Text sample to analyse.
+     * @return The list of positive, neutral, negative, and compound name-value
+     * pairs.
+     * @see #setTokenBudget(int)
+     * @see #setTimeBudget(long)
+     */
+    public Map<String, Float> getSentimentAnalysis(CharSequence s) {
+        return sentimentAnalysis(budget(s));
+    }
+
+    private Map<String, Float> sentimentAnalysis(CharSequence s) {
+        lexicon = pin(language);
+        int rejectedTokenCount = fastReject(s);
+        if (rejectedTokenCount >= 0) {
+            recordRejected(s.length(), rejectedTokenCount);
+            return neutralPolarity(rejectedTokenCount);
+        }
+        return analyze(s, context).toMap();
+    }
+
+    /**
+     * Does the sentiment analysis of the given UTF-8 text sample and returns
+     * the polarity values. A text with no lexicon entry is scored on the
+     * bytes, decoded only if required.
+     *
+     * @param b UTF-8 bytes of the text sample to analyse.
+     * @param offset The text first byte index.
+     * @param length The text number of bytes.
+     * @return The list of positive, neutral, negative, and compound name-value
+     * pairs.
+     * @throws IndexOutOfBoundsException If offset and length are out of the
+     * byte array bounds.
+     */
+    public Map<String, Float> getSentimentAnalysis(byte[] b, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > b.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + b.length);
+        }
+        length = budget(b, offset, length);
+        lexicon = pin(language);
+        LexiconAutomaton automaton = fastRejectAutomaton();
+        if (automaton != null) {
+            if (!automaton.containsEntry(b, offset, length, delimiters)) {
+                int rejectedTokenCount = countTokens(b, offset, length);
+                recordRejected(length, rejectedTokenCount);
+                return neutralPolarity(rejectedTokenCount);
+            }
+            // An entry found, the full analysis without scanning again.
+            return analyze(Bytes.decode(b, offset, length), context).toMap();
+        }
+        return sentimentAnalysis(Bytes.decode(b, offset, length));
+    }
+
+    /**
+     * Does the sentiment analysis of the given UTF-8 text sample (the
+     * remaining bytes, the buffer position is not changed) and returns the
+     * polarity values.
+     *
+     * @param b UTF-8 bytes of the text sample to analyse.
+     * @return The list of positive, neutral, negative, and compound name-value
+     * pairs.
+     * @see #getSentimentAnalysis(byte[], int, int)
+     */
+    public Map<String, Float> getSentimentAnalysis(ByteBuffer b) {
+        if (b.hasArray()) {
+            return getSentimentAnalysis(b.array(), b.arrayOffset() + b.position(), b.remaining());
+        }
+        byte[] bytes = Bytes.remaining(b);
+        return getSentimentAnalysis(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Does the sentiment analysis of the given text sample in a reusable
+     * context: the polarity values are set in the context, the same as the
+     * {@link #getSentimentAnalysis(CharSequence)} ones. With the
+     * {@link English} lexicon (or a {@link ReloadableLanguage} of it) and the
+     * {@link TokenizerEnglish}, the analysis runs on the context buffers and allocates nothing once
+     * these are large enough.
+     *
+     * @param s Text sample to analyse.
+     * @param c The context to reuse (one per thread).
+     * @return The context with the polarity values.
+     */
+    public AnalysisContext getSentimentAnalysis(CharSequence s, AnalysisContext c) {
+        s = budget(s);
+        lexicon = pin(language);
+        int rejectedTokenCount = fastReject(s);
+        if (rejectedTokenCount >= 0) {
+            recordRejected(s.length(), rejectedTokenCount);
+            c.setNeutral(rejectedTokenCount);
+        } else {
+            analyze(s, c);
+        }
+        c.setTruncated(truncated);
+        return c;
+    }
+
+    /**
+     * Does the sentiment analysis of the given text sample and returns the
+     * compound score only: the same value as the "compound" of
+     * {@link #getSentimentAnalysis(CharSequence)}, skipping the positive,
+     * negative and neutral scores (and the punctuation boost of a zero
+     * valence) with no result map.
+     *
+     * @param s Text sample to analyse.
+     * @return The compound score [-1, 1].
+     * @see Label#of(float)
+     */
+    public float getCompound(CharSequence s) {
+        return compound(budget(s));
+    }
+
+    private float compound(CharSequence s) {
+        lexicon = pin(language);
+        int rejectedTokenCount = fastReject(s);
+        if (rejectedTokenCount >= 0) {
+            recordRejected(s.length(), rejectedTokenCount);
+            return 0.0f;
+        }
+        return analyze(s, context).getCompound();
+    }
+
+    /**
+     * Does the sentiment analysis of the given UTF-8 text sample and returns
+     * the compound score only. A text with no lexicon entry is scored on the
+     * bytes, decoded only if required.
+     *
+     * @param b UTF-8 bytes of the text sample to analyse.
+     * @param offset The text first byte index.
+     * @param length The text number of bytes.
+     * @return The compound score [-1, 1].
+     * @throws IndexOutOfBoundsException If offset and length are out of the
+     * byte array bounds.
+     * @see #getCompound(CharSequence)
+     */
+    public float getCompound(byte[] b, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > b.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + b.length);
+        }
+        length = budget(b, offset, length);
+        lexicon = pin(language);
+        LexiconAutomaton automaton = fastRejectAutomaton();
+        if (automaton != null && !automaton.containsEntry(b, offset, length, delimiters)) {
+            if (measuring) {
+                recordRejected(length, countTokens(b, offset, length));
+            }
+            return 0.0f;
+        }
+        return compound(Bytes.decode(b, offset, length));
+    }
+
+    /**
+     * Does the sentiment analysis of the given text sample and returns the
+     * label of the compound score only.
+     *
+     * @param s Text sample to analyse.
+     * @return The compound score label.
+     * @see #getCompound(CharSequence)
+     */
+    public Label getLabel(CharSequence s) {
+        return Label.of(getCompound(s));
     }
 
     /**
@@ -130,14 +342,23 @@ public class SentimentAnalysis {
      * @param l Language of the text sample to analyse.
      * @return The list of positive, neutral, negative, and compound name-value
      * pairs.
+     * @see #getSentimentAnalysis(CharSequence, String)
      */
     public Map<String, Float> getSentimentAnalysis(String s, String l) {
-        switch (l) {
-            case "en":
-                language = new English();
-                tokenizer = new TokenizerEnglish();
-                break;
-        }
+        return getSentimentAnalysis((CharSequence) s, l);
+    }
+
+    /**
+     * Does the sentiment analysis of the given text sample and returns
+     * the polarity values.
+     *
+     * @param s Text sample to analyse.
+     * @param l Language of the text sample to analyse.
+     * @return The list of positive, neutral, negative, and compound name-value
+     * pairs.
+     */
+    public Map<String, Float> getSentimentAnalysis(CharSequence s, String l) {
+        setLanguage(l);
         return getSentimentAnalysis(s);
     }
 
@@ -151,341 +372,577 @@ public class SentimentAnalysis {
      * @param t The text {@link Tokenizer} to be used (e.g., {@link TokenizerEnglish}).
      * @return The list of positive, neutral, negative, and compound name-value
      * pairs.
+     * @see #getSentimentAnalysis(CharSequence, Language, Tokenizer)
      */
     public Map<String, Float> getSentimentAnalysis(String s, Language l, Tokenizer t) {
+        return getSentimentAnalysis((CharSequence) s, l, t);
+    }
+
+    /**
+     * Does the sentiment analysis of the given text sample, using the specified
+     * tokenizer, the specified language parameters, and returns the polarity
+     * values.
+     *
+     * @param s Text sample to analyse.
+     * @param l The text {@link Language} (e.g., {@link English}).
+     * @param t The text {@link Tokenizer} to be used (e.g., {@link TokenizerEnglish}).
+     * @return The list of positive, neutral, negative, and compound name-value
+     * pairs.
+     */
+    public Map<String, Float> getSentimentAnalysis(CharSequence s, Language l, Tokenizer t) {
         tokenizer = t;
         language = l;
         return getSentimentAnalysis(s);
     }
 
     /**
-     * Gets the languages available for the sentiment analysis process.
+     * Does the sentiment analysis of the given text sample and explains it:
+     * the contribution of each token (lexicon valence and rules applied) and
+     * the punctuation boost. Regular sentiment analysis calls do not trace.
      *
-     * @return List of available languages in ISO 639-1 or 639-3 language code
-     * (e.g., en).
+     * @param s Text sample to analyse.
+     * @return The {@link Explanation} with the polarity values.
      */
-    public List<String> getAvailableLanguages() {
-        return LANGUAGES;
+    public Explanation explain(CharSequence s) {
+        Explanation e = new Explanation();
+        explanation = e;
+        try {
+            Map<String, Float> polarity = getSentimentAnalysis(s);
+            e.setPolarity(context.getPunctuationBoost(), polarity);
+            return e;
+        } finally {
+            explanation = null;
+        }
     }
 
-    // TODO hardcoded values (0.95f, 0.9f) to Constant?!
-    private Map<String, Float> getPolarity() {
-        List<Float> sentiments = new ArrayList<>();
-        List<String> wordsAndEmoticons = textProperties.getWordsAndEmoticons();
-        final Map<String, Float> boosterDictionary = language.getBoosterDictionary();
-        final Map<String, Float> valenceDictionary = language.getWordValenceDictionary();
-
-        for (String item : wordsAndEmoticons) {
-            float currentValence = 0.0f;
-            int i = wordsAndEmoticons.indexOf(item);
-
-            // TODO English language dependent!
-            if (i < wordsAndEmoticons.size() - 1
-                    && item.toLowerCase().equals("kind")
-                    && wordsAndEmoticons.get(i + 1).toLowerCase().equals("of")
-                    || boosterDictionary.containsKey(item.toLowerCase())) {
-                sentiments.add(currentValence);
-                continue;
-            }
-
-            String currentItemLower = item.toLowerCase();
-            if (valenceDictionary.containsKey(currentItemLower)) {
-                currentValence = valenceDictionary.get(currentItemLower);
-                if (language.isUpper(item) && textProperties.isCapDifferential()) {
-                    currentValence = (currentValence > 0.0) ? currentValence + Constant.ALL_CAPS_BOOSTER_SCORE : currentValence - Constant.ALL_CAPS_BOOSTER_SCORE;
-                }
-                int startI = 0;
-                float gramBasedValence;
-                while (startI < 3) {
-                    int closeTokenIndex = i - (startI + 1);
-                    if (closeTokenIndex < 0) {
-                        closeTokenIndex = pythonIndexToJavaIndex(closeTokenIndex);
-                    }
-                    if ((i > startI) && !valenceDictionary.containsKey(wordsAndEmoticons.get(closeTokenIndex).toLowerCase())) {
-                        gramBasedValence = valenceModifier(wordsAndEmoticons.get(closeTokenIndex), currentValence);
-                        if (startI == 1 && gramBasedValence != 0.0f) {
-                            gramBasedValence *= 0.95f;
-                        }
-                        if (startI == 2 && gramBasedValence != 0.0f) {
-                            gramBasedValence *= 0.9f;
-                        }
-                        currentValence += gramBasedValence;
-                        currentValence = checkForNever(currentValence, startI, i, closeTokenIndex);
-                        if (startI == 2) {
-                            currentValence = checkForIdioms(currentValence, i);
-                        }
-                    }
-                    startI++;
-                }
-                if (i > 1 && !valenceDictionary.containsKey(wordsAndEmoticons.get(i - 1).toLowerCase()) && wordsAndEmoticons.get(i - 1).toLowerCase().equals("least")) {
-                    if (!(wordsAndEmoticons.get(i - 2).toLowerCase().equals("at") || wordsAndEmoticons.get(i - 2).toLowerCase().equals("very"))) {
-                        currentValence *= Constant.N_SCALAR;
-                    }
-                } else if (i > 0 && !valenceDictionary.containsKey(wordsAndEmoticons.get(i - 1).toLowerCase()) && wordsAndEmoticons.get(i - 1).equals("least")) {
-                    currentValence *= Constant.N_SCALAR;
-                }
-            }
-            sentiments.add(currentValence);
+    /**
+     * Identifies the language of the given text sample (falls back to the
+     * default language, "en", if not confident) and then does the sentiment
+     * analysis with the identified language lexicon and tokenizer. The
+     * configured language and tokenizer are used if of the identified
+     * language (e.g., an {@link net.nunoachenriques.vader.lexicon.OverlayLanguage}
+     * over {@link English}) and are kept for the next calls either way.
+     *
+     * @param s Text sample to analyse.
+     * @return The list of positive, neutral, negative, and compound name-value
+     * pairs.
+     * @see #getLanguageIdentification()
+     */
+    public Map<String, Float> analyze(CharSequence s) {
+        languageIdentification = LanguageIdentifierHolder.IDENTIFIER.identify(s);
+        String l = languageIdentification.getLanguage();
+        if (tokenizer != null && l.equals(LanguageIdentifier.languageOf(language))) {
+            return getSentimentAnalysis(s);
+        }
+        Language configuredLanguage = language;
+        Tokenizer configuredTokenizer = tokenizer;
+        try {
+            setLanguage(l);
+            return getSentimentAnalysis(s);
+        } finally {
+            language = configuredLanguage;
+            tokenizer = configuredTokenizer;
         }
-        sentiments = checkConjunctionBut(wordsAndEmoticons, sentiments);
-        return polarityScores(sentiments);
     }
 
-    private float valenceModifier(String precedingWord, float currentValence) {
-        float scalar = 0.0f;
-        final Map<String, Float> boosterDictionary = language.getBoosterDictionary();
-        String precedingWordLower = precedingWord.toLowerCase();
-        if (boosterDictionary.containsKey(precedingWordLower)) {
-            scalar = boosterDictionary.get(precedingWordLower);
-            if (currentValence < 0.0) {
-                scalar *= -1.0;
-            }
-            if (language.isUpper(precedingWord) && textProperties.isCapDifferential()) {
-                scalar = (currentValence > 0.0) ? scalar + Constant.ALL_CAPS_BOOSTER_SCORE : scalar - Constant.ALL_CAPS_BOOSTER_SCORE;
-            }
-        }
-        return scalar;
+    /**
+     * Gets the language identification (language and confidence) of the last
+     * text sample given to {@link #analyze(CharSequence)}.
+     *
+     * @return The last language identification, {@code null} if none.
+     */
+    public LanguageIdentifier.Result getLanguageIdentification() {
+        return languageIdentification;
+    }
+
+    /**
+     * Sets the metrics to be recorded by each sentiment analysis call
+     * (e.g., exposed by {@link net.nunoachenriques.vader.metrics.MetricsJmx}).
+     * The same metrics may be shared by several instances.
+     *
+     * @param m The {@link Metrics} to record, {@code null} (default) to
+     *          disable.
+     */
+    public void setMetrics(Metrics m) {
+        metrics = m;
     }
 
-    private int pythonIndexToJavaIndex(int pythonIndex) {
-        return textProperties.getWordsAndEmoticons().size() - Math.abs(pythonIndex);
+    /**
+     * Gets the metrics recorded by each sentiment analysis call.
+     *
+     * @return The {@link Metrics} recorded, {@code null} if disabled.
+     */
+    public Metrics getMetrics() {
+        return metrics;
     }
 
-    // TODO hardcoded values (1.5f, 1.25f) to Constant?!
-    private float checkForNever(float currentValence, int startI, int i, int closeTokenIndex) {
-        List<String> wordsAndEmoticons = textProperties.getWordsAndEmoticons();
-        final List<String> negativeWords = language.getNegativeWords();
-        if (startI == 0) {
-            if (isNegative(new ArrayList<>(Collections.singletonList(wordsAndEmoticons.get(i - 1))), negativeWords)) {
-                currentValence *= Constant.N_SCALAR;
+    /**
+     * Records a result of this sentiment analysis found in a results cache
+     * (e.g., the {@link net.nunoachenriques.vader.io.ScoreStore}) instead of
+     * analysed: a metrics cache hit and (Java 11+, if recording) an analysis
+     * event with the {@code hit} cache outcome, no tokens nor stage
+     * durations.
+     *
+     * @param textLength The text length (characters or UTF-8 bytes).
+     */
+    public void recordCacheHit(int textLength) {
+        if (metrics != null) {
+            metrics.recordCacheHit();
+        }
+        if (eventProbe.isEnabled()) {
+            AnalysisEvent hit = new AnalysisEvent();
+            hit.begin();
+            hit.end();
+            if (hit.shouldCommit()) {
+                hit.textLength = textLength;
+                hit.language = language.getClass().getSimpleName();
+                hit.cacheOutcome = AnalysisEvent.CACHE_HIT;
+                hit.commit();
             }
         }
-        if (startI == 1) {
-            String wordAtDistanceTwoLeft = wordsAndEmoticons.get(i - 2);
-            String wordAtDistanceOneLeft = wordsAndEmoticons.get(i - 1);
+    }
 
-            // TODO English language dependent!
-            if ((wordAtDistanceTwoLeft.equals("never"))
-                    && (wordAtDistanceOneLeft.equals("so")
-                    || (wordAtDistanceOneLeft.equals("this")))) {
+    /**
+     * Records a result of this sentiment analysis not found in a results
+     * cache, the text analysed next by this instance: a metrics cache miss
+     * and the {@code miss} cache outcome of the next call analysis event.
+     */
+    public void recordCacheMiss() {
+        if (metrics != null) {
+            metrics.recordCacheMiss();
+        }
+        nextCacheOutcome = AnalysisEvent.CACHE_MISS;
+    }
 
-                currentValence *= 1.5f;
-            } else if (isNegative(new ArrayList<>(Collections.singletonList(wordsAndEmoticons.get(closeTokenIndex))), negativeWords)) {
-                currentValence *= Constant.N_SCALAR;
-            }
+    /**
+     * Sets the maximum tokens (white space separated, 2 or more characters)
+     * analysed per call: a longer text is analysed up to the token after the
+     * budget (the text beginning as if it was the whole text) and the call
+     * is flagged as truncated.
+     *
+     * @param tokens The maximum tokens per call, 0 (default) for no limit.
+     * @throws IllegalArgumentException If negative.
+     * @see #isTruncated()
+     */
+    public void setTokenBudget(int tokens) {
+        if (tokens < 0) {
+            throw new IllegalArgumentException("Token budget " + tokens + " is negative!");
         }
-        if (startI == 2) {
-            String wordAtDistanceThreeLeft = wordsAndEmoticons.get(i - 3);
-            String wordAtDistanceTwoLeft = wordsAndEmoticons.get(i - 2);
-            String wordAtDistanceOneLeft = wordsAndEmoticons.get(i - 1);
+        tokenBudget = tokens;
+    }
 
-            // TODO English language dependent!
-            if ((wordAtDistanceThreeLeft.equals("never"))
-                    && (wordAtDistanceTwoLeft.equals("so") || wordAtDistanceTwoLeft.equals("this"))
-                    || (wordAtDistanceOneLeft.equals("so") || wordAtDistanceOneLeft.equals("this"))) {
+    /**
+     * Gets the maximum tokens analysed per call.
+     *
+     * @return The maximum tokens per call, 0 for no limit.
+     */
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
 
-                currentValence *= 1.25f;
-            } else if (isNegative(new ArrayList<>(Collections.singletonList(wordsAndEmoticons.get(closeTokenIndex))), negativeWords)) {
-                currentValence *= Constant.N_SCALAR;
-            }
+    /**
+     * Sets the maximum time per call: once spent, the tokens left are not
+     * scored (the ones scored are, as if the text ended there) and the call
+     * is flagged as truncated. Checked every few tokens of the rules stage,
+     * the tokenization is not interrupted (hence bound it with the
+     * {@link #setTokenBudget(int) token budget}).
+     *
+     * @param nanos The maximum nanoseconds per call, 0 (default) for no
+     *              limit.
+     * @throws IllegalArgumentException If negative.
+     * @see #isTruncated()
+     */
+    public void setTimeBudget(long nanos) {
+        if (nanos < 0L) {
+            throw new IllegalArgumentException("Time budget " + nanos + " is negative!");
         }
-        return currentValence;
-    }
-
-    private float checkForIdioms(float currentValence, int i) {
-        List<String> wordsAndEmoticons = textProperties.getWordsAndEmoticons();
-        final String leftBiGramFromCurrent = String.format("%s %s", wordsAndEmoticons.get(i - 1), wordsAndEmoticons.get(i));
-        final String leftTriGramFromCurrent = String.format("%s %s %s", wordsAndEmoticons.get(i - 2), wordsAndEmoticons.get(i - 1), wordsAndEmoticons.get(i));
-        final String leftBiGramFromOnePrevious = String.format("%s %s", wordsAndEmoticons.get(i - 2), wordsAndEmoticons.get(i - 1));
-        final String leftTriGramFromOnePrevious = String.format("%s %s %s", wordsAndEmoticons.get(i - 3), wordsAndEmoticons.get(i - 2), wordsAndEmoticons.get(i - 1));
-        final String leftBiGramFromTwoPrevious = String.format("%s %s", wordsAndEmoticons.get(i - 3), wordsAndEmoticons.get(i - 2));
-        final Map<String, Float> boosterDictionary = language.getBoosterDictionary();
-        final Map<String, Float> sentimentLadenIdioms = language.getSentimentLadenIdioms();
-
-        List<String> leftGramSequences = new ArrayList<String>() {{
-            add(leftBiGramFromCurrent);
-            add(leftTriGramFromCurrent);
-            add(leftBiGramFromOnePrevious);
-            add(leftTriGramFromOnePrevious);
-            add(leftBiGramFromTwoPrevious);
-        }};
-
-        for (String leftGramSequence : leftGramSequences) {
-            if (sentimentLadenIdioms.containsKey(leftGramSequence)) {
-                currentValence = sentimentLadenIdioms.get(leftGramSequence);
+        timeBudget = nanos;
+    }
+
+    /**
+     * Gets the maximum time per call.
+     *
+     * @return The maximum nanoseconds per call, 0 for no limit.
+     */
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * Checks if the last sentiment analysis call was truncated by the token
+     * or the time budget.
+     *
+     * @return True if truncated, false otherwise.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Gets the languages available for the sentiment analysis process.
+     *
+     * @return List of available languages in ISO 639-1 or 639-3 language code
+     * (e.g., en).
+     */
+    public List<String> getAvailableLanguages() {
+        return LANGUAGES;
+    }
+
+    private void setLanguage(String l) {
+        switch (l) {
+            case "en":
+                language = new English();
+                tokenizer = new TokenizerEnglish();
                 break;
-            }
         }
-        if (wordsAndEmoticons.size() - 1 > i) {
-            final String rightBiGramFromCurrent = String.format("%s %s", wordsAndEmoticons.get(i), wordsAndEmoticons.get(i + 1));
-            if (sentimentLadenIdioms.containsKey(rightBiGramFromCurrent)) {
-                currentValence = sentimentLadenIdioms.get(rightBiGramFromCurrent);
+    }
+
+    /*
+     * The tokenize stage of the PipelinedSentimentAnalysis: pins the lexicon
+     * version and sets the item text properties, or the polarity if
+     * fast-rejected.
+     */
+    void tokenize(PipelinedSentimentAnalysis.Item item) {
+        lexicon = pin(language);
+        item.lexicon = lexicon;
+        int rejectedTokenCount = fastReject(item.text);
+        if (rejectedTokenCount >= 0) {
+            item.polarity = neutralPolarity(rejectedTokenCount);
+        } else {
+            item.properties = new Properties(item.text, lexicon, tokenizer);
+        }
+    }
+
+    /*
+     * The score stage of the PipelinedSentimentAnalysis: the rules and
+     * normalization on the item text properties, if not fast-rejected.
+     */
+    void score(PipelinedSentimentAnalysis.Item item) {
+        if (item.polarity == null) {
+            context.setTruncated(false);
+            context.analyze(item.text, item.properties, item.lexicon, false, 0L);
+            item.polarity = context.toMap();
+        }
+    }
+
+    /*
+     * One consistent lexicon version for the whole analysis of a reloadable
+     * language, the language itself otherwise.
+     */
+    private static Language pin(Language l) {
+        return (l instanceof ReloadableLanguage) ? ((ReloadableLanguage) l).snapshot() : l;
+    }
+
+    /*
+     * Starts the call budget: the deadline set and the text cut before the
+     * token after the token budget, if any (truncated).
+     */
+    private CharSequence budget(CharSequence s) {
+        startMeasure();
+        startBudget();
+        if (tokenBudget > 0) {
+            int cut = tokenStart(s, tokenBudget);
+            if (cut >= 0) {
+                truncated = true;
+                return s.subSequence(0, cut);
             }
         }
-        if (wordsAndEmoticons.size() - 1 > i + 1) {
-            final String rightTriGramFromCurrent = String.format("%s %s %s", wordsAndEmoticons.get(i), wordsAndEmoticons.get(i + 1), wordsAndEmoticons.get(i + 2));
-            if (sentimentLadenIdioms.containsKey(rightTriGramFromCurrent)) {
-                currentValence = sentimentLadenIdioms.get(rightTriGramFromCurrent);
+        return s;
+    }
+
+    /*
+     * The same as budget(CharSequence) on UTF-8 bytes, returns the length.
+     */
+    private int budget(byte[] b, int offset, int length) {
+        startMeasure();
+        startBudget();
+        if (tokenBudget > 0) {
+            int cut = tokenStart(b, offset, length, tokenBudget);
+            if (cut >= 0) {
+                truncated = true;
+                return cut - offset;
             }
         }
-        if (boosterDictionary.containsKey(leftBiGramFromTwoPrevious) || boosterDictionary.containsKey(leftBiGramFromOnePrevious)) {
-            currentValence += -0.293f; // TODO review Language and English.DAMPENER_WORD_DECREMENT;
+        return length;
+    }
+
+    private void startBudget() {
+        truncated = false;
+        timed = timeBudget > 0L;
+        if (timed) {
+            deadline = System.nanoTime() + timeBudget;
         }
-        return currentValence;
     }
 
-    private List<Float> siftSentimentScores(List<Float> currentSentimentState) {
-        float positiveSentimentScore = 0.0f;
-        float negativeSentimentScore = 0.0f;
-        int neutralSentimentCount = 0;
-        for (Float valence : currentSentimentState) {
-            if (valence > 0.0f) {
-                positiveSentimentScore = positiveSentimentScore + valence + 1.0f;
-            } else if (valence < 0.0f) {
-                negativeSentimentScore = negativeSentimentScore + valence - 1.0f;
-            } else {
-                neutralSentimentCount += 1;
+    /*
+     * Starts measuring the call stages if the metrics or the (Java Flight
+     * Recorder, Java 11+) analysis event are enabled, nothing done otherwise.
+     */
+    private void startMeasure() {
+        cacheOutcome = nextCacheOutcome;
+        nextCacheOutcome = AnalysisEvent.CACHE_NONE;
+        event = eventProbe.isEnabled() ? new AnalysisEvent() : null;
+        measuring = metrics != null || event != null;
+        if (measuring) {
+            if (event != null) {
+                event.begin();
             }
+            measureStart = System.nanoTime();
         }
-        return new ArrayList<>(Arrays.asList(
-                positiveSentimentScore,
-                negativeSentimentScore,
-                (float) neutralSentimentCount)
-        );
     }
 
-    // TODO hardcoded values (4) to Constant?!
-    private Map<String, Float> polarityScores(List<Float> currentSentimentState) {
-        if (!currentSentimentState.isEmpty()) {
-            float totalValence = 0.0f;
-            for (Float valence : currentSentimentState) {
-                totalValence += valence;
-            }
-            float punctuationAmplifier = boostByPunctuation();
-            if (totalValence > 0.0f) {
-                totalValence += boostByPunctuation();
-            } else if (totalValence < 0.0f) {
-                totalValence -= boostByPunctuation();
-            }
-            float compoundPolarity = normalizeScore(totalValence, Constant.NORMALIZE_SCORE_ALPHA_DEFAULT);
-            List<Float> siftedScores = siftSentimentScores(currentSentimentState);
-            float positiveSentimentScore = siftedScores.get(0);
-            float negativeSentimentScore = siftedScores.get(1);
-            int neutralSentimentCount = Math.round(siftedScores.get(2));
-            if (positiveSentimentScore > Math.abs(negativeSentimentScore)) {
-                positiveSentimentScore += punctuationAmplifier;
-            } else if (positiveSentimentScore < Math.abs(negativeSentimentScore)) {
-                negativeSentimentScore -= punctuationAmplifier;
-            }
-            float normalizationFactor = positiveSentimentScore
-                    + Math.abs(negativeSentimentScore)
-                    + neutralSentimentCount;
-            final float normalizedPositivePolarity = roundDecimal(Math.abs(positiveSentimentScore / normalizationFactor), 3);
-            final float normalizedNegativePolarity = roundDecimal(Math.abs(negativeSentimentScore / normalizationFactor), 3);
-            final float normalizedNeutralPolarity = roundDecimal(Math.abs(neutralSentimentCount / normalizationFactor), 3);
-            final float normalizedCompoundPolarity = roundDecimal(compoundPolarity, 4);
-            return new HashMap<String, Float>() {{
-                put("compound", normalizedCompoundPolarity);
-                put("positive", normalizedPositivePolarity);
-                put("negative", normalizedNegativePolarity);
-                put("neutral", normalizedNeutralPolarity);
-            }};
-        } else {
-            return new HashMap<String, Float>() {{
-                put("compound", 0.0f);
-                put("positive", 0.0f);
-                put("negative", 0.0f);
-                put("neutral", 0.0f);
-            }};
+    /*
+     * Records a fast-rejected call, if measuring: all the time in the
+     * tokenize stage and no lexicon hit.
+     */
+    private void recordRejected(int textLength, int rejectedTokenCount) {
+        if (measuring) {
+            tokenizeNanos = System.nanoTime() - measureStart;
+            rulesNanos = 0L;
+            idiomsNanos = 0L;
+            normalizationNanos = 0L;
+            tokenCount = rejectedTokenCount;
+            lexiconHits = 0;
+            record(textLength);
         }
     }
 
-    private float boostByPunctuation() {
-        return boostByExclamation() + boostByQuestionMark();
+    /*
+     * Records the analysis in the context, if measuring: the tokenize stage
+     * up to the rules start.
+     */
+    private void recordAnalyzed(int textLength, AnalysisContext c) {
+        if (measuring) {
+            tokenizeNanos = c.getRulesStart() - measureStart;
+            rulesNanos = c.getRulesNanos();
+            idiomsNanos = c.getIdiomsNanos();
+            normalizationNanos = c.getNormalizationNanos();
+            tokenCount = c.getTokenCount();
+            lexiconHits = c.getLexiconHits();
+            record(textLength);
+        }
     }
 
-    private float boostByExclamation() {
-        int exclamationCount = Properties.countLetter(text, "!");
-        return Math.min(exclamationCount, 4) * Constant.EXCLAMATION_BOOST;
+    /*
+     * Records the metrics and commits the analysis event if over its
+     * threshold (nothing else done on the event otherwise).
+     */
+    private void record(int textLength) {
+        if (metrics != null) {
+            metrics.recordStage(Metrics.Stage.TOKENIZE, tokenizeNanos);
+            metrics.recordStage(Metrics.Stage.RULES, rulesNanos);
+            metrics.recordStage(Metrics.Stage.IDIOMS, idiomsNanos);
+            metrics.recordStage(Metrics.Stage.NORMALIZATION, normalizationNanos);
+            metrics.recordCall(tokenCount, lexiconHits, tokenCount - lexiconHits);
+        }
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.textLength = textLength;
+                event.tokenCount = tokenCount;
+                event.language = language.getClass().getSimpleName();
+                event.tokenizeDuration = tokenizeNanos;
+                event.rulesDuration = rulesNanos;
+                event.idiomsDuration = idiomsNanos;
+                event.normalizationDuration = normalizationNanos;
+                event.cacheOutcome = cacheOutcome;
+                event.commit();
+            }
+            event = null;
+        }
     }
 
-    private float boostByQuestionMark() {
-        float questionMarkAmplifier = 0.0f;
-        int questionMarkCount = Properties.countLetter(text, "?");
-        if (questionMarkCount > 1) {
-            questionMarkAmplifier =
-                    (questionMarkCount <= 3)
-                            ? questionMarkCount * Constant.QUESTION_BOOST_COUNT_3
-                            : Constant.QUESTION_BOOST;
+    /*
+     * Fast-reject of a text with no lexicon hit: no token may be a word
+     * valence dictionary entry (i.e., no entry occurs in the raw text between
+     * delimiters), hence all valences are 0 and the polarity is the neutral
+     * one. Returns the token count if rejected, -1 otherwise (full analysis
+     * required).
+     */
+    private int fastReject(CharSequence s) {
+        LexiconAutomaton automaton = fastRejectAutomaton();
+        if (automaton == null || automaton.containsEntry(s, delimiters)) {
+            return -1;
         }
-        return questionMarkAmplifier;
+        return countTokens(s);
     }
 
-    // TODO hardcoded values (0.5f, 1.5f) to Constant?!
-    private List<Float> checkConjunctionBut(List<String> inputTokens, List<Float> currentSentimentState) {
+    /*
+     * The word valence dictionary automaton (and the delimiters updated) if
+     * the fast-reject applies: only for the built-in lexicon maps and the
+     * TokenizerEnglish, not explaining. Null otherwise.
+     */
+    private LexiconAutomaton fastRejectAutomaton() {
+        if (explanation != null || tokenizer == null || tokenizer.getClass() != TokenizerEnglish.class) {
+            return null;
+        }
+        LexiconAutomaton automaton = LexiconAutomaton.of(lexicon.getWordValenceDictionary());
+        if (automaton == null) {
+            return null;
+        }
+        // The token lower case is locale dependent (e.g., Turkish dotless i).
+        String localeLanguage = Locale.getDefault().getLanguage();
+        if (localeLanguage.equals("tr") || localeLanguage.equals("az")) {
+            return null;
+        }
+        List<String> punctuation = lexicon.getPunctuation();
+        if (punctuation != delimitersPunctuation) {
+            delimiters = LexiconAutomaton.delimiters(punctuation);
+            delimitersPunctuation = punctuation;
+        }
+        return automaton;
+    }
 
-        // TODO English language dependent!
-        if (inputTokens.contains("but") || inputTokens.contains("BUT")) {
-            int index = inputTokens.indexOf("but");
-            if (index == -1) {
-                index = inputTokens.indexOf("BUT");
+    /*
+     * The analysis in the context (explaining if required): on the text spans
+     * if the symbol table applies, on the Properties words and emoticons
+     * otherwise.
+     */
+    private AnalysisContext analyze(CharSequence s, AnalysisContext c) {
+        c.setTruncated(truncated);
+        c.setExplanation(explanation);
+        c.setMeasured(measuring);
+        try {
+            if (!analyzeSpans(s, c)) {
+                c.analyze(s, new Properties(s, lexicon, tokenizer), lexicon, timed, deadline);
             }
-
-            for (Float valence : currentSentimentState) {
-                int currentValenceIndex = currentSentimentState.indexOf(valence);
-                if (currentValenceIndex < index) {
-                    currentSentimentState.set(currentValenceIndex, valence * 0.5f);
-                } else if (currentValenceIndex > index) {
-                    currentSentimentState.set(currentValenceIndex, valence * 1.5f);
-                }
+        } catch (RuntimeException e) {
+            if (metrics != null) {
+                metrics.recordError();
             }
+            throw e;
+        } finally {
+            c.setExplanation(null);
         }
-        return currentSentimentState;
+        truncated = c.isTruncated();
+        recordAnalyzed(s.length(), c);
+        return c;
     }
 
-    private boolean hasAtLeast(List<String> tokenList) {
+    /*
+     * The analysis on the context spans if the symbol table applies: the
+     * same conditions as the fast-reject ones, also for the lower case.
+     * False if not done (the Properties analysis required).
+     */
+    private boolean analyzeSpans(CharSequence s, AnalysisContext c) {
+        if (tokenizer == null || tokenizer.getClass() != TokenizerEnglish.class) {
+            return false;
+        }
+        LexiconSymbols symbols = LexiconSymbols.of(lexicon);
+        if (symbols == null) {
+            return false;
+        }
+        // The token lower case is locale dependent (e.g., Turkish dotless i).
+        String localeLanguage = Locale.getDefault().getLanguage();
+        if (localeLanguage.equals("tr") || localeLanguage.equals("az") || localeLanguage.equals("lt")) {
+            return false;
+        }
+        return c.analyze(s, symbols, lexicon.getPunctuation(), timed, deadline);
+    }
 
-        // TODO English language dependent!
-        if (tokenList.contains("least")) {
-            int index = tokenList.indexOf("least");
-            return index > 0 && tokenList.get(index - 1).equals("at");
+    /*
+     * The same count as Properties words and emoticons (white space split,
+     * at least 2 chars) of an ASCII text.
+     */
+    private static int countTokens(CharSequence s) {
+        int count = 0;
+        int tokenLength = 0;
+        for (int i = 0; i <= s.length(); i++) {
+            if (i == s.length() || isWhitespace(s.charAt(i))) {
+                if (tokenLength >= 2) {
+                    count++;
+                }
+                tokenLength = 0;
+            } else {
+                tokenLength++;
+            }
         }
-        return false;
+        return count;
     }
 
-    private boolean hasContraction(List<String> tokenList) {
-        for (String s : tokenList) {
+    private static int countTokens(byte[] b, int offset, int length) {
+        int count = 0;
+        int tokenLength = 0;
+        int end = offset + length;
+        for (int i = offset; i <= end; i++) {
+            if (i == end || isWhitespace((char) b[i])) {
+                if (tokenLength >= 2) {
+                    count++;
+                }
+                tokenLength = 0;
+            } else {
+                tokenLength++;
+            }
+        }
+        return count;
+    }
 
-            // TODO English language dependent!
-            if (s.endsWith("n't")) {
-                return true;
+    /*
+     * The start of the token n (0 is the first one) of the Properties words
+     * and emoticons (white space split, at least 2 chars), -1 if none.
+     */
+    private static int tokenStart(CharSequence s, int n) {
+        int count = 0;
+        int tokenStart = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (isWhitespace(s.charAt(i))) {
+                tokenStart = i + 1;
+            } else if (i - tokenStart == 1) {
+                if (count == n) {
+                    return tokenStart;
+                }
+                count++;
             }
         }
-        return false;
+        return -1;
     }
 
-    private boolean hasNegativeWord(List<String> tokenList, List<String> newNegWords) {
-        for (String newNegWord : newNegWords) {
-            if (tokenList.contains(newNegWord)) {
-                return true;
+    /*
+     * The same as tokenStart(CharSequence, int) on UTF-8 bytes, the token
+     * length in chars (a 4 bytes sequence is a surrogate pair).
+     */
+    private static int tokenStart(byte[] b, int offset, int length, int n) {
+        int count = 0;
+        int tokenStart = offset;
+        int tokenLength = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (isWhitespace((char) b[i])) {
+                tokenStart = i + 1;
+                tokenLength = 0;
+            } else if ((b[i] & 0xC0) != 0x80) {
+                int before = tokenLength;
+                tokenLength += ((b[i] & 0xF8) == 0xF0) ? 2 : 1;
+                if (before < 2 && tokenLength >= 2) {
+                    if (count == n) {
+                        return tokenStart;
+                    }
+                    count++;
+                }
             }
         }
-        return false;
+        return -1;
     }
 
-    private boolean isNegative(List<String> tokenList, List<String> newNegWords) {
-        return hasNegativeWord(tokenList, newNegWords)
-                || hasAtLeast(tokenList)
-                || hasContraction(tokenList);
+    // Java \p{Space} as in the TokenizerEnglish.
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
     }
 
-    private float normalizeScore(float score, float alpha) {
-        return (float) (score / Math.sqrt((score * score) + alpha));
+    /*
+     * The polarityScores() result when all valences are 0.
+     */
+    private static Map<String, Float> neutralPolarity(int tokenCount) {
+        Map<String, Float> polarity = new HashMap<>(8);
+        polarity.put("compound", 0.0f);
+        polarity.put("positive", 0.0f);
+        polarity.put("negative", 0.0f);
+        polarity.put("neutral", (tokenCount > 0) ? 1.0f : 0.0f);
+        return polarity;
     }
 
-    private static float roundDecimal(float currentValue, int roundTo) {
-        float n = (float) Math.pow(10.0, (double) roundTo);
-        float number = Math.round(currentValue * n);
-        return number / n;
+    // Lazy loading of the language profiles, only if required.
+    private static final class LanguageIdentifierHolder {
+        private static final LanguageIdentifier IDENTIFIER = new LanguageIdentifier(LANGUAGES, LANGUAGE_DEFAULT);
     }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import java.util.Arrays;
+
+/**
+ * The index of the first valence equal to another one (i.e.,
+ * {@code List.indexOf()} {@code Float.equals()} semantics) while the
+ * valences change, as the "but" rule requires: for each j from 0 up, the
+ * first valence equal to the valence j is found and changed. A scan from
+ * index 0 each time is quadratic (e.g., a long repetition of "good" before
+ * a "but"). Here each distinct value (bit pattern) has a pairing heap of
+ * its indexes: O(1) to add and O(log n) amortized to remove the first one.
+ *
+ * <p>Valence j is not changed before step j (a changed index is the first
+ * one equal to the valence read, hence not after it), so the indexes after
+ * j are added only when read.</p>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+final class ValenceIndex {
+
+    private static final int CAPACITY_DEFAULT = 32;
+
+    private float[] values;
+    // The pairing heaps: first child and next sibling of each index.
+    private int[] child = new int[CAPACITY_DEFAULT];
+    private int[] sibling = new int[CAPACITY_DEFAULT];
+    private int[] pairs = new int[CAPACITY_DEFAULT];
+    // The heap root of each value, open addressing, valid if stamped.
+    private int[] keys = new int[4 * CAPACITY_DEFAULT];
+    private int[] roots = new int[4 * CAPACITY_DEFAULT];
+    private int[] stamps = new int[4 * CAPACITY_DEFAULT];
+    private int mask;
+    private int generation;
+
+    ValenceIndex() {
+    }
+
+    /*
+     * Starts over with the given valences, changed in place by set().
+     */
+    void reset(float[] v, int length) {
+        values = v;
+        if (child.length < length) {
+            int size = Math.max(length, 2 * child.length);
+            child = new int[size];
+            sibling = new int[size];
+            pairs = new int[size];
+        }
+        // At most one value per index plus one per change, half full.
+        int capacity = Integer.highestOneBit(Math.max(4 * length, CAPACITY_DEFAULT) - 1) << 1;
+        if (keys.length < capacity) {
+            keys = new int[capacity];
+            roots = new int[capacity];
+            stamps = new int[capacity];
+            generation = 0;
+        }
+        mask = capacity - 1;
+        if (++generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    /*
+     * Adds index j (the next one, from 0 up) and returns the first index
+     * equal to the valence j.
+     */
+    int indexOf(int j) {
+        child[j] = -1;
+        sibling[j] = -1;
+        int slot = slot(values[j]);
+        int root = roots[slot];
+        roots[slot] = (root == -1) ? j : link(root, j);
+        return roots[slot];
+    }
+
+    /*
+     * Changes the valence k, the first one equal to its value.
+     */
+    void set(int k, float value) {
+        if (Float.floatToIntBits(value) == Float.floatToIntBits(values[k])) {
+            return;
+        }
+        int slot = slot(values[k]);
+        roots[slot] = removeFirst(k);
+        values[k] = value;
+        slot = slot(value);
+        int root = roots[slot];
+        roots[slot] = (root == -1) ? k : link(root, k);
+    }
+
+    private int slot(float value) {
+        int bits = Float.floatToIntBits(value);
+        int h = bits * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (stamps[slot] == generation) {
+            if (keys[slot] == bits) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        stamps[slot] = generation;
+        keys[slot] = bits;
+        roots[slot] = -1;
+        return slot;
+    }
+
+    // Two heap roots linked, the first index one is the root.
+    private int link(int a, int b) {
+        if (b < a) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        sibling[b] = child[a];
+        child[a] = b;
+        return a;
+    }
+
+    // The root removed, the children linked in pairs, left to right, then
+    // the pairs right to left. Returns the new root, -1 if none.
+    private int removeFirst(int root) {
+        int c = child[root];
+        child[root] = -1;
+        int count = 0;
+        while (c != -1) {
+            int a = c;
+            int b = sibling[a];
+            sibling[a] = -1;
+            if (b == -1) {
+                pairs[count++] = a;
+                break;
+            }
+            c = sibling[b];
+            sibling[b] = -1;
+            pairs[count++] = link(a, b);
+        }
+        int r = -1;
+        while (count > 0) {
+            int h = pairs[--count];
+            r = (r == -1) ? h : link(h, r);
+        }
+        return r;
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.aggregation;
+
+import net.nunoachenriques.vader.PipelinedSentimentAnalysis;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>A lock-free aggregation of sentiment analysis results per key (e.g.,
+ * brand or topic) in time windows: the count, the compound, positive,
+ * negative and neutral means, the positive, negative and neutral shares
+ * (compound {@code >= 0.05}, {@code <= -0.05}, between) and a fixed buckets
+ * compound histogram.</p>
+ *
+ * <p>Time is split in tumbling windows of a fixed length, the last ones
+ * retained per key. A sliding window is the merge of the last tumbling
+ * windows up to a time. Each window accumulates in cells striped by thread
+ * (each thread adds to its own cache line apart cells) so that many threads
+ * adding at the same time do not contend. The scores are added as fixed
+ * point longs of the VADER result decimals, exact sums. A result older than
+ * the retained windows is dropped (see {@link #getDropped()}).</p>
+ *
+ * <p>Fed by the analyzer: an aggregator is a
+ * {@link PipelinedSentimentAnalysis.Handler} of the key as the tag (the
+ * result time is the emission time) or {@link #add(Object, long, Map)} with
+ * the event time.</p>
+ *
+ * <pre>
+ * ...
+ * <code>
+ * SentimentAggregator&lt;String&gt; brands = new SentimentAggregator&lt;&gt;(60000L, 60);
+ * brands.add("acme", timestamp, sa.getSentimentAnalysis(text));
+ * ...
+ * SentimentAggregator.Aggregate lastHour = brands.sliding("acme", now, 60);
+ * </code>
+ * ...
+ * </pre>
+ *
+ * <p>Memory per key: up to windows x stripes x (8 + buckets) longs.</p>
+ *
+ * @param <K> The type of the key.
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class SentimentAggregator<K>
+        implements PipelinedSentimentAnalysis.Handler<K> {
+
+    /**
+     * The default compound histogram buckets, 0.1 wide in [-1, 1].
+     */
+    public static final int BUCKETS_DEFAULT = 20;
+    /**
+     * The VADER positive (and negative, symmetric) compound threshold.
+     */
+    public static final float THRESHOLD = 0.05f;
+
+    // The cells of a stripe.
+    private static final int COUNT = 0;
+    private static final int COMPOUND = 1;
+    private static final int POSITIVE = 2;
+    private static final int NEGATIVE = 3;
+    private static final int NEUTRAL = 4;
+    private static final int POSITIVE_COUNT = 5;
+    private static final int NEGATIVE_COUNT = 6;
+    private static final int NEUTRAL_COUNT = 7;
+    private static final int HISTOGRAM = 8;
+    private static final double COMPOUND_SCALE = 10000.0;
+    private static final double SCALE = 1000.0;
+
+    private final long windowMillis;
+    private final int windows;
+    private final int buckets;
+    private final int stripes;
+    // Longs per stripe, a multiple of a cache line (8 longs).
+    private final int stride;
+    private final ConcurrentMap<K, AtomicReferenceArray<Window>> keys = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * An aggregator with the default histogram buckets and stripes.
+     *
+     * @param windowMillis The tumbling window length (milliseconds).
+     * @param windows The windows retained per key (the longest sliding
+     *                window).
+     */
+    public SentimentAggregator(long windowMillis, int windows) {
+        this(windowMillis, windows, BUCKETS_DEFAULT, defaultStripes());
+    }
+
+    /**
+     * @param windowMillis The tumbling window length (milliseconds).
+     * @param windows The windows retained per key (the longest sliding
+     *                window).
+     * @param buckets The compound histogram buckets, equal width in [-1, 1].
+     * @param stripes The cells stripes per window, a power of two (e.g.,
+     *                twice the threads adding).
+     * @throws IllegalArgumentException If a parameter is not positive or the
+     * stripes is not a power of two.
+     */
+    public SentimentAggregator(long windowMillis, int windows, int buckets, int stripes) {
+        if (windowMillis < 1L || windows < 1 || buckets < 1 || stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Window, windows, buckets and stripes (a power of two) must be positive!");
+        }
+        this.windowMillis = windowMillis;
+        this.windows = windows;
+        this.buckets = buckets;
+        this.stripes = stripes;
+        stride = (HISTOGRAM + buckets + 7) & ~7;
+    }
+
+    /**
+     * Adds a sentiment analysis result of a key at a time.
+     *
+     * @param key The key (e.g., brand).
+     * @param timeMillis The result (event) time, milliseconds since the
+     *                   epoch.
+     * @param polarity The compound, positive, negative and neutral
+     *                 name-value pairs.
+     */
+    public void add(K key, long timeMillis, Map<String, Float> polarity) {
+        add(key, timeMillis, polarity.get("compound"), polarity.get("positive"),
+                polarity.get("negative"), polarity.get("neutral"));
+    }
+
+    /**
+     * Adds a sentiment analysis result of a key at a time.
+     *
+     * @param key The key (e.g., brand).
+     * @param timeMillis The result (event) time, milliseconds since the
+     *                   epoch.
+     * @param compound The compound score [-1, 1].
+     * @param positive The positive score [0, 1].
+     * @param negative The negative score [0, 1].
+     * @param neutral The neutral score [0, 1].
+     */
+    public void add(K key, long timeMillis, float compound, float positive, float negative, float neutral) {
+        Window w = window(key, floorDiv(timeMillis, windowMillis));
+        if (w == null) {
+            dropped.incrementAndGet();
+            return;
+        }
+        int base = (int) (Thread.currentThread().getId() & (stripes - 1)) * stride;
+        AtomicLongArray c = w.cells;
+        c.getAndIncrement(base + COUNT);
+        c.getAndAdd(base + COMPOUND, Math.round(compound * COMPOUND_SCALE));
+        c.getAndAdd(base + POSITIVE, Math.round(positive * SCALE));
+        c.getAndAdd(base + NEGATIVE, Math.round(negative * SCALE));
+        c.getAndAdd(base + NEUTRAL, Math.round(neutral * SCALE));
+        c.getAndIncrement(base + ((compound >= THRESHOLD) ? POSITIVE_COUNT
+                : ((compound <= -THRESHOLD) ? NEGATIVE_COUNT : NEUTRAL_COUNT)));
+        int bucket = (int) ((compound + 1.0f) * 0.5f * buckets);
+        c.getAndIncrement(base + HISTOGRAM + Math.max(0, Math.min(bucket, buckets - 1)));
+    }
+
+    /**
+     * Adds a result emitted by a pipeline, the key as the tag, at the
+     * current time.
+     *
+     * @param key The key (e.g., brand).
+     * @param polarity The compound, positive, negative and neutral
+     *                 name-value pairs.
+     */
+    @Override
+    public void onResult(K key, Map<String, Float> polarity) {
+        add(key, System.currentTimeMillis(), polarity);
+    }
+
+    /**
+     * Counts a failed sentiment analysis (see {@link #getErrors()}).
+     *
+     * @param key The key (e.g., brand).
+     * @param e The failure.
+     */
+    @Override
+    public void onError(K key, RuntimeException e) {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Gets the tumbling window aggregate of a key at a time.
+     *
+     * @param key The key (e.g., brand).
+     * @param timeMillis A time in the window, milliseconds since the epoch.
+     * @return The window aggregate (empty if none).
+     */
+    public Aggregate tumbling(K key, long timeMillis) {
+        return sliding(key, timeMillis, 1);
+    }
+
+    /**
+     * Gets the sliding window aggregate of a key: the last tumbling windows
+     * up to (and including) the one of a time.
+     *
+     * @param key The key (e.g., brand).
+     * @param timeMillis A time in the last window, milliseconds since the
+     *                   epoch.
+     * @param n The number of tumbling windows (up to the windows retained).
+     * @return The merged windows aggregate (empty if none).
+     * @throws IllegalArgumentException If n is not in [1, windows].
+     */
+    public Aggregate sliding(K key, long timeMillis, int n) {
+        if (n < 1 || n > windows) {
+            throw new IllegalArgumentException("Sliding windows " + n + " not in [1, " + windows + "]!");
+        }
+        long last = floorDiv(timeMillis, windowMillis);
+        long[] sums = new long[HISTOGRAM + buckets];
+        AtomicReferenceArray<Window> ring = keys.get(key);
+        if (ring != null) {
+            for (long index = last - n + 1; index <= last; index++) {
+                Window w = ring.get(slot(index));
+                if (w != null && w.index == index) {
+                    for (int s = 0; s < stripes; s++) {
+                        for (int i = 0; i < sums.length; i++) {
+                            sums[i] += w.cells.get(s * stride + i);
+                        }
+                    }
+                }
+            }
+        }
+        return new Aggregate((last - n + 1) * windowMillis, (last + 1) * windowMillis, sums, buckets);
+    }
+
+    /**
+     * Gets the keys added.
+     *
+     * @return The keys (a live view).
+     */
+    public Set<K> keys() {
+        return keys.keySet();
+    }
+
+    /**
+     * Removes a key and its windows.
+     *
+     * @param key The key (e.g., brand).
+     */
+    public void remove(K key) {
+        keys.remove(key);
+    }
+
+    /**
+     * Gets the number of results dropped, older than the windows retained.
+     *
+     * @return Number of results dropped.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of failed sentiment analysis (pipeline errors).
+     *
+     * @return Number of errors.
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /*
+     * The window of the index, a new one replacing an older one in the ring
+     * slot, null if the slot has a newer one (the index is too old).
+     */
+    private Window window(K key, long index) {
+        AtomicReferenceArray<Window> ring = keys.get(key);
+        if (ring == null) {
+            AtomicReferenceArray<Window> r = new AtomicReferenceArray<>(windows);
+            ring = keys.putIfAbsent(key, r);
+            if (ring == null) {
+                ring = r;
+            }
+        }
+        int slot = slot(index);
+        while (true) {
+            Window w = ring.get(slot);
+            if (w != null && w.index == index) {
+                return w;
+            }
+            if (w != null && w.index > index) {
+                return null;
+            }
+            // An add to the evicted window meanwhile is lost, it expired.
+            Window fresh = new Window(index, stripes * stride);
+            if (ring.compareAndSet(slot, w, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    // The window index of a time (rounded down, a time before the epoch too).
+    private static long floorDiv(long timeMillis, long millis) {
+        long q = timeMillis / millis;
+        return (timeMillis % millis < 0L) ? q - 1L : q;
+    }
+
+    // The ring slot of a window index.
+    private int slot(long index) {
+        int s = (int) (index % windows);
+        return (s < 0) ? s + windows : s;
+    }
+
+    private static int defaultStripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Math.min(Integer.highestOneBit(Math.max(processors, 1)) << 1, 16);
+    }
+
+    /*
+     * A tumbling window of a key.
+     */
+    private static final class Window {
+
+        private final long index;
+        private final AtomicLongArray cells;
+
+        Window(long index, int cells) {
+            this.index = index;
+            this.cells = new AtomicLongArray(cells);
+        }
+    }
+
+    /**
+     * A point in time view of a (tumbling or sliding) window of a key.
+     */
+    public static final class Aggregate {
+
+        private final long start;
+        private final long end;
+        private final long count;
+        private final long[] sums;
+        private final long[] histogram;
+
+        private Aggregate(long start, long end, long[] sums, int buckets) {
+            this.start = start;
+            this.end = end;
+            this.count = sums[COUNT];
+            this.sums = sums;
+            histogram = new long[buckets];
+            System.arraycopy(sums, HISTOGRAM, histogram, 0, buckets);
+        }
+
+        /**
+         * Gets the window start time (inclusive).
+         *
+         * @return Milliseconds since the epoch.
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Gets the window end time (exclusive).
+         *
+         * @return Milliseconds since the epoch.
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * Gets the number of results.
+         *
+         * @return Number of results.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the compound mean.
+         *
+         * @return The compound mean, 0 if no results.
+         */
+        public double getCompoundMean() {
+            return mean(COMPOUND, COMPOUND_SCALE);
+        }
+
+        /**
+         * Gets the positive score mean.
+         *
+         * @return The positive mean, 0 if no results.
+         */
+        public double getPositiveMean() {
+            return mean(POSITIVE, SCALE);
+        }
+
+        /**
+         * Gets the negative score mean.
+         *
+         * @return The negative mean, 0 if no results.
+         */
+        public double getNegativeMean() {
+            return mean(NEGATIVE, SCALE);
+        }
+
+        /**
+         * Gets the neutral score mean.
+         *
+         * @return The neutral mean, 0 if no results.
+         */
+        public double getNeutralMean() {
+            return mean(NEUTRAL, SCALE);
+        }
+
+        /**
+         * Gets the share of positive results (compound {@code >= 0.05}).
+         *
+         * @return The positive share [0, 1], 0 if no results.
+         */
+        public double getPositiveShare() {
+            return mean(POSITIVE_COUNT, 1.0);
+        }
+
+        /**
+         * Gets the share of negative results (compound {@code <= -0.05}).
+         *
+         * @return The negative share [0, 1], 0 if no results.
+         */
+        public double getNegativeShare() {
+            return mean(NEGATIVE_COUNT, 1.0);
+        }
+
+        /**
+         * Gets the share of neutral results (compound in (-0.05, 0.05)).
+         *
+         * @return The neutral share [0, 1], 0 if no results.
+         */
+        public double getNeutralShare() {
+            return mean(NEUTRAL_COUNT, 1.0);
+        }
+
+        /**
+         * Gets the compound histogram: bucket {@code i} counts the compound
+         * in {@code [-1 + i * w, -1 + (i + 1) * w)} where {@code w} is
+         * {@code 2 / buckets} (the last one includes 1).
+         *
+         * @return The bucket counts (a copy).
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        private double mean(int cell, double scale) {
+            return (count == 0L) ? 0.0 : sums[cell] / scale / count;
+        }
+
+        @Override
+        public String toString() {
+            return "Aggregate[" + start + ", " + end + ") count " + count
+                    + ", compound " + getCompoundMean()
+                    + ", shares +" + getPositiveShare() + " -" + getNegativeShare() + " =" + getNeutralShare();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.cli;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * The progress of a batch job persisted to resume it: the input byte offset
+ * (a line boundary) done and the output byte offset written up to it. The
+ * output beyond the offset (written after the last checkpoint) is discarded
+ * on resume, the input is scored again from the offset, so no line is
+ * duplicated or dropped. The input size and digest (of its first and last
+ * bytes) are checked on resume: another input is not resumed.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+final class Checkpoint {
+
+    // The bytes digested at each end of the input.
+    private static final int DIGEST_BYTES = 1 << 16;
+
+    final long inputSize;
+    final long inputDigest;
+    final long inputOffset;
+    final long outputOffset;
+    final long lines;
+    final long skipped;
+
+    Checkpoint(long inputSize, long inputDigest, long inputOffset, long outputOffset, long lines, long skipped) {
+        this.inputSize = inputSize;
+        this.inputDigest = inputDigest;
+        this.inputOffset = inputOffset;
+        this.outputOffset = outputOffset;
+        this.lines = lines;
+        this.skipped = skipped;
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param file The checkpoint file.
+     * @return The checkpoint, {@code null} if the file does not exist.
+     * @throws IOException On read error or a corrupted checkpoint.
+     */
+    static Checkpoint read(File file)
+            throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        Properties p = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            p.load(is);
+        }
+        try {
+            return new Checkpoint(
+                    Long.parseLong(p.getProperty("input.size")),
+                    Long.parseLong(p.getProperty("input.digest", "-1")),
+                    Long.parseLong(p.getProperty("input.offset")),
+                    Long.parseLong(p.getProperty("output.offset")),
+                    Long.parseLong(p.getProperty("lines")),
+                    Long.parseLong(p.getProperty("skipped")));
+        } catch (NumberFormatException e) {
+            throw new IOException("Checkpoint " + file + " corrupted!", e);
+        }
+    }
+
+    /**
+     * Gets the digest (CRC32) of the first and last 64 KiB of the input.
+     *
+     * @param channel The input channel, position unchanged.
+     * @return The input digest.
+     * @throws IOException On read error.
+     */
+    static long digest(FileChannel channel)
+            throws IOException {
+        long size = channel.size();
+        CRC32 crc = new CRC32();
+        byte[] b = new byte[(int) Math.min(DIGEST_BYTES, size)];
+        read(channel, 0L, b, crc);
+        read(channel, Math.max(size - DIGEST_BYTES, 0L), b, crc);
+        return crc.getValue();
+    }
+
+    private static void read(FileChannel channel, long position, byte[] b, CRC32 crc)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(b);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Input shorter than " + (position + b.length) + " bytes!");
+            }
+        }
+        crc.update(b, 0, b.length);
+    }
+
+    /**
+     * Checks if the input is the same as the one of this checkpoint: the
+     * size and digest.
+     *
+     * @param size The input size.
+     * @param digest The input digest, see {@link #digest(FileChannel)}.
+     * @return True if the same input, false otherwise.
+     */
+    boolean isInput(long size, long digest) {
+        return inputSize == size && inputDigest == digest;
+    }
+
+    /**
+     * Writes this checkpoint to a temporary file, syncs it to the storage
+     * device, renames it to the checkpoint file (atomic if supported by
+     * the file system) and syncs the directory (where supported, e.g., not
+     * on Windows). A crash leaves the previous checkpoint or this one,
+     * never a partial one.
+     *
+     * @param file The checkpoint file.
+     * @throws IOException On write error.
+     */
+    void write(File file)
+            throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temporary)) {
+            Writer w = new OutputStreamWriter(fos, StandardCharsets.ISO_8859_1);
+            w.write("input.size=" + inputSize + "\n"
+                    + "input.digest=" + inputDigest + "\n"
+                    + "input.offset=" + inputOffset + "\n"
+                    + "output.offset=" + outputOffset + "\n"
+                    + "lines=" + lines + "\n"
+                    + "skipped=" + skipped + "\n");
+            w.flush();
+            fos.getFD().sync();
+        }
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        // The rename is in the directory: synced too or a crash may lose it.
+        File directory = file.getAbsoluteFile().getParentFile();
+        try (FileChannel dc = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            dc.force(true);
+        } catch (IOException e) {
+            // A directory cannot be opened or synced on this platform.
+        }
+    }
+}
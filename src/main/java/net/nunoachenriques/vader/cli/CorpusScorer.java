@@ -0,0 +1,710 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.cli;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.io.ColumnarScoreWriter;
+import net.nunoachenriques.vader.io.ScoreStore;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.pmw.tinylog.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command line corpus scoring: the sentiment analysis of each line of a
+ * large TSV or JSONL file. The input is memory-mapped in chunks split on
+ * line boundaries, the chunks are scored on all the cores (one
+ * {@link SentimentAnalysis} per thread) and the results are written in the
+ * input order (a reordering buffer of the chunks in flight). The throughput
+ * is reported to the standard error as it goes.
+ * <pre>
+ * vader-score [options] INPUT OUTPUT    (OUTPUT "-" for the standard output)
+ * --format tsv         tsv or jsonl (default: by the INPUT extension).
+ * --id-column 0        TSV id column, "none" for no id.
+ * --text-column -1     TSV text column, negative from the last (default:
+ *                      the last one, as the ground truth files).
+ * --id-field id        JSONL id field (the raw JSON value is copied).
+ * --text-field text    JSONL text field (a JSON string).
+ * --header false       Skips the first line (e.g., a TSV header).
+ * --threads N          Scoring threads (default: the CPUs).
+ * --chunk-size 4194304 Bytes mapped per chunk (grows to fit a long line).
+ * --progress 5         Seconds between throughput reports, 0 for none.
+ * --checkpoint FILE    Resumable job: the progress is persisted to FILE
+ *                      and a job stopped midway resumes from it (deleted
+ *                      when the job is done).
+ * --checkpoint-interval 10  Seconds between checkpoints, 0 for each chunk.
+ * --range START:END    Scores the input bytes [START, END) only, START and
+ *                      END at line starts (e.g., a shard).
+ * --workers N          Coordinator: splits the input in N shards, each one
+ *                      scored by a local worker JVM (with --threads each,
+ *                      default: the CPUs / N), and merges the outputs.
+ * --retries 2          Coordinator: retries of a failed shard (resuming
+ *                      from its checkpoint).
+ * --jvm-options ""     Coordinator: the worker JVM options (e.g., -Xmx1g).
+ * --output-format text text or columnar (see {@link ColumnarScoreWriter}),
+ *                      the columnar ids are integers (or the record index
+ *                      if none).
+ * --encoding plain     Columnar: plain, delta, quantized or delta+quantized.
+ * --block-size 4096    Columnar: records per block.
+ * --store FILE         Score store (see {@link ScoreStore}): the texts
+ *                      already scored (the same lexicon) are not scored
+ *                      again, the new ones are stored.
+ * --store-compact false  Drops the store entries of other lexicon
+ *                      versions at the end.
+ * </pre>
+ * The TSV output is in the ground truth layout: id (if any), negative,
+ * neutral, positive, compound and text. The JSONL output is one object per
+ * line: {@code {"id":..,"negative":..,"neutral":..,"positive":..,"compound":..}}.
+ * Malformed lines (e.g., missing the text column) are skipped and counted.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class CorpusScorer {
+
+    private static final int CHUNK_SIZE_DEFAULT = 4 * 1024 * 1024;
+    // Columnar record without id (the record index is the id).
+    private static final long NO_ID = Long.MIN_VALUE;
+    private static final String[] POLARITY = {"negative", "neutral", "positive", "compound"};
+
+    private final boolean json;
+    private final int idColumn;
+    private final int textColumn;
+    private final String idField;
+    private final String textField;
+    private final boolean header;
+    private final int threads;
+    private final int chunkSize;
+    private final int progress;
+    private final String checkpoint;
+    private final int checkpointInterval;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final boolean columnar;
+    private final int encoding;
+    private final int blockSize;
+    private final String store;
+    private final boolean storeCompact;
+    // The store of the scores, if any, opened by score().
+    private volatile ScoreStore scores;
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final ThreadLocal<SentimentAnalysis> analysis = new ThreadLocal<SentimentAnalysis>() {
+        @Override
+        protected SentimentAnalysis initialValue() {
+            return new SentimentAnalysis(new English(), new TokenizerEnglish());
+        }
+    };
+    // The chunk input copy, reused by each scoring thread.
+    private final ThreadLocal<byte[]> buffer = new ThreadLocal<>();
+
+    private CorpusScorer(Map<String, String> options, String input, String output) {
+        String format = options.get("--format");
+        if (format == null) {
+            String name = input.toLowerCase(Locale.ROOT);
+            format = (name.endsWith(".jsonl") || name.endsWith(".json")) ? "jsonl" : "tsv";
+        }
+        if (!"tsv".equals(format) && !"jsonl".equals(format)) {
+            throw new IllegalArgumentException("Format " + format + " is not tsv or jsonl!");
+        }
+        json = "jsonl".equals(format);
+        String id = options.get("--id-column");
+        idColumn = "none".equals(id) ? Integer.MIN_VALUE : Integer.parseInt(id);
+        textColumn = Integer.parseInt(options.get("--text-column"));
+        idField = options.get("--id-field");
+        textField = options.get("--text-field");
+        header = Boolean.parseBoolean(options.get("--header"));
+        String t = options.get("--threads");
+        threads = (t == null) ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(t);
+        chunkSize = Integer.parseInt(options.get("--chunk-size"));
+        progress = Integer.parseInt(options.get("--progress"));
+        checkpoint = options.get("--checkpoint");
+        checkpointInterval = Integer.parseInt(options.get("--checkpoint-interval"));
+        if (threads < 1 || chunkSize < 1 || progress < 0 || checkpointInterval < 0) {
+            throw new IllegalArgumentException("Threads and chunk size must be positive, intervals not negative!");
+        }
+        if (checkpoint != null && "-".equals(output)) {
+            throw new IllegalArgumentException("Checkpoint requires an OUTPUT file!");
+        }
+        String range = options.get("--range");
+        if (range == null) {
+            rangeStart = 0L;
+            rangeEnd = Long.MAX_VALUE;
+        } else {
+            int colon = range.indexOf(':');
+            if (colon == -1) {
+                throw new IllegalArgumentException("Range " + range + " is not START:END!");
+            }
+            rangeStart = Long.parseLong(range.substring(0, colon));
+            rangeEnd = Long.parseLong(range.substring(colon + 1));
+            if (rangeStart < 0L || rangeEnd < rangeStart) {
+                throw new IllegalArgumentException("Range " + range + " is not START:END!");
+            }
+        }
+        String outputFormat = options.get("--output-format");
+        if (!"text".equals(outputFormat) && !"columnar".equals(outputFormat)) {
+            throw new IllegalArgumentException("Output format " + outputFormat + " is not text or columnar!");
+        }
+        columnar = "columnar".equals(outputFormat);
+        String e = options.get("--encoding");
+        switch (e) {
+            case "plain":
+                encoding = ColumnarScoreWriter.PLAIN;
+                break;
+            case "delta":
+                encoding = ColumnarScoreWriter.ID_DELTA;
+                break;
+            case "quantized":
+                encoding = ColumnarScoreWriter.QUANTIZED;
+                break;
+            case "delta+quantized":
+                encoding = ColumnarScoreWriter.ID_DELTA | ColumnarScoreWriter.QUANTIZED;
+                break;
+            default:
+                throw new IllegalArgumentException("Encoding " + e + " is not plain, delta, quantized or delta+quantized!");
+        }
+        blockSize = Integer.parseInt(options.get("--block-size"));
+        store = options.get("--store");
+        storeCompact = Boolean.parseBoolean(options.get("--store-compact"));
+        if (store != null && options.get("--workers") != null) {
+            throw new IllegalArgumentException("Store is not shared by workers!");
+        }
+        if (columnar && ("-".equals(output) || checkpoint != null || range != null || options.get("--workers") != null)) {
+            throw new IllegalArgumentException("Columnar output requires an OUTPUT file, no checkpoint, range or workers!");
+        }
+    }
+
+    public static void main(String[] args) {
+        int status = run(args, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Scores the INPUT file to the OUTPUT one (see the class documentation
+     * for the options).
+     *
+     * @param args The options, INPUT and OUTPUT.
+     * @param err The usage, progress and summary report.
+     * @return The exit status: 0 success, 1 failure, 2 usage error.
+     */
+    static int run(String[] args, PrintStream err) {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("--format", null);
+        options.put("--id-column", "0");
+        options.put("--text-column", "-1");
+        options.put("--id-field", "id");
+        options.put("--text-field", "text");
+        options.put("--header", "false");
+        options.put("--threads", null);
+        options.put("--chunk-size", String.valueOf(CHUNK_SIZE_DEFAULT));
+        options.put("--progress", "5");
+        options.put("--checkpoint", null);
+        options.put("--checkpoint-interval", "10");
+        options.put("--range", null);
+        options.put("--output-format", "text");
+        options.put("--encoding", "plain");
+        options.put("--block-size", String.valueOf(ColumnarScoreWriter.BLOCK_SIZE_DEFAULT));
+        options.put("--store", null);
+        options.put("--store-compact", "false");
+        options.put("--workers", null);
+        options.put("--retries", "2");
+        options.put("--jvm-options", null);
+        String input = null;
+        String output = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && options.containsKey(args[i]) && i + 1 < args.length) {
+                options.put(args[i], args[++i]);
+            } else if (!args[i].startsWith("--") && input == null) {
+                input = args[i];
+            } else if (!args[i].startsWith("--") && output == null) {
+                output = args[i];
+            } else {
+                input = null;
+                break;
+            }
+        }
+        CorpusScorer scorer = null;
+        ShardCoordinator coordinator = null;
+        if (input != null && output != null) {
+            try {
+                scorer = new CorpusScorer(options, input, output);
+                if (options.get("--workers") != null) {
+                    coordinator = new ShardCoordinator(options);
+                }
+            } catch (IllegalArgumentException e) {
+                err.println(e.getMessage());
+                scorer = null;
+            }
+        }
+        if (scorer == null) {
+            err.println("Usage: vader-score " + options.keySet() + " INPUT OUTPUT (see Javadoc)");
+            return 2;
+        }
+        try {
+            if (coordinator != null) {
+                coordinator.score(input, output, err);
+            } else {
+                scorer.score(input, output, err);
+            }
+            return 0;
+        } catch (IOException | ExecutionException e) {
+            Logger.error(e, "Corpus scoring of {} failed", input);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 1;
+    }
+
+    private void score(String input, String output, final PrintStream err)
+            throws IOException, ExecutionException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int n;
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "vader-score-" + n++);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "vader-score-progress");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        final long t0 = System.nanoTime();
+        if (progress > 0) {
+            reporter.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    err.println(report(t0));
+                }
+            }, progress, progress, TimeUnit.SECONDS);
+        }
+        File checkpointFile = (checkpoint == null) ? null : new File(checkpoint);
+        Checkpoint resume = (checkpointFile == null) ? null : Checkpoint.read(checkpointFile);
+        // The reordering buffer: the chunks in flight, in the input order.
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = 2 * threads;
+        if (store != null) {
+            scores = new ScoreStore(new File(store), new English());
+        }
+        try (RandomAccessFile file = new RandomAccessFile(input, "r");
+             RandomAccessFile outFile = ("-".equals(output) || columnar) ? null : new RandomAccessFile(output, "rw");
+             ColumnarScoreWriter columns = columnar ? new ColumnarScoreWriter(new File(output), blockSize, encoding) : null) {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            long digest = (checkpointFile == null) ? 0L : Checkpoint.digest(channel);
+            long limit = Math.min(rangeEnd, size);
+            long position = Math.min(rangeStart, limit);
+            long outputOffset = 0L;
+            long written = 0L;
+            long bad = 0L;
+            if (resume != null) {
+                if (!resume.isInput(size, digest) || resume.inputOffset < position || resume.inputOffset > limit
+                        || resume.outputOffset > outFile.length()) {
+                    throw new IOException("Checkpoint " + checkpoint + " does not match " + input + " and " + output + "!");
+                }
+                position = resume.inputOffset;
+                outputOffset = resume.outputOffset;
+                written = resume.lines;
+                bad = resume.skipped;
+                err.println("Resuming at input byte " + position + " (" + written + " lines)");
+            }
+            OutputStream out;
+            if (columns != null) {
+                out = null;
+            } else if (outFile == null) {
+                out = new BufferedOutputStream(System.out, 1 << 16);
+            } else {
+                // Discards the output written after the checkpoint.
+                outFile.setLength(outputOffset);
+                outFile.seek(outputOffset);
+                out = new BufferedOutputStream(Channels.newOutputStream(outFile.getChannel()), 1 << 16);
+            }
+            long checkpointed = System.nanoTime();
+            int window = chunkSize;
+            boolean first = header && position == 0L;
+            while (position < limit || !inFlight.isEmpty()) {
+                if (position < limit && inFlight.size() < maxInFlight) {
+                    int length = (int) Math.min(window, limit - position);
+                    MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    int end = length;
+                    if (position + length < limit) {
+                        while (end > 0 && chunk.get(end - 1) != '\n') {
+                            end--;
+                        }
+                        if (end == 0) { // A line longer than the window.
+                            if (window > Integer.MAX_VALUE / 2) {
+                                throw new IOException("Line at " + position + " too long!");
+                            }
+                            window *= 2;
+                            continue;
+                        }
+                    }
+                    chunk.limit(end);
+                    position += end;
+                    inFlight.addLast(pool.submit(new Chunk(chunk, first, position)));
+                    first = false;
+                    window = chunkSize;
+                    continue;
+                }
+                Chunk done = inFlight.removeFirst().get();
+                if (columns != null) {
+                    for (int i = 0; i < done.recorded; i++) {
+                        long id = (done.ids[i] == NO_ID) ? columns.getRecords() : done.ids[i];
+                        columns.write(id, done.scores[4 * i], done.scores[4 * i + 1],
+                                done.scores[4 * i + 2], done.scores[4 * i + 3]);
+                    }
+                } else {
+                    out.write(done.output);
+                    outputOffset += done.output.length;
+                }
+                written += done.scored;
+                bad += done.malformed;
+                if (checkpointFile != null
+                        && (inFlight.isEmpty() || System.nanoTime() - checkpointed >= checkpointInterval * 1000000000L)) {
+                    // The output first (synced) then the checkpoint: never ahead of the output.
+                    out.flush();
+                    outFile.getChannel().force(false);
+                    new Checkpoint(size, digest, done.end, outputOffset, written, bad).write(checkpointFile);
+                    checkpointed = System.nanoTime();
+                }
+            }
+            if (out != null) {
+                out.flush();
+            }
+        } finally {
+            reporter.shutdownNow();
+            pool.shutdownNow();
+            if (scores != null) {
+                try {
+                    if (storeCompact) {
+                        scores.compact();
+                    }
+                } finally {
+                    scores.close();
+                }
+            }
+        }
+        if (checkpointFile != null) {
+            Files.deleteIfExists(checkpointFile.toPath());
+        }
+        err.println(report(t0));
+    }
+
+    private String report(long t0) {
+        double seconds = Math.max(System.nanoTime() - t0, 1L) / 1e9;
+        long n = lines.get();
+        String r = String.format(Locale.ROOT, "%d lines (%d skipped) in %.1f s: %.0f lines/min, %.1f MB/s",
+                n, skipped.get(), seconds, n * 60 / seconds, bytes.get() / seconds / 1e6);
+        ScoreStore s = scores;
+        return (s == null) ? r : r + ", " + s.getHits() + " from the store";
+    }
+
+    private Map<String, Float> score(SentimentAnalysis sa, byte[] b, int offset, int length)
+            throws IOException {
+        return (scores == null)
+                ? sa.getSentimentAnalysis(b, offset, length)
+                : scores.getSentimentAnalysis(sa, b, offset, length);
+    }
+
+    private Map<String, Float> score(SentimentAnalysis sa, String text)
+            throws IOException {
+        return (scores == null) ? sa.getSentimentAnalysis(text) : scores.getSentimentAnalysis(sa, text);
+    }
+
+    /*
+     * Scores all the lines of a chunk to the output bytes.
+     */
+    private final class Chunk
+            implements Callable<Chunk> {
+
+        private final MappedByteBuffer input;
+        private final boolean skipFirst;
+        // The input byte offset after this chunk.
+        private final long end;
+        private byte[] output;
+        // Columnar output: the ids and the compound, positive, negative and
+        // neutral scores of each record.
+        private long[] ids;
+        private float[] scores;
+        private int recorded;
+        private int scored;
+        private int malformed;
+
+        Chunk(MappedByteBuffer input, boolean skipFirst, long end) {
+            this.input = input;
+            this.skipFirst = skipFirst;
+            this.end = end;
+        }
+
+        @Override
+        public Chunk call()
+                throws IOException {
+            int length = input.limit();
+            byte[] b = buffer.get();
+            if (b == null || b.length < length) {
+                b = new byte[Math.max(length, chunkSize)];
+                buffer.set(b);
+            }
+            input.get(b, 0, length);
+            Output out = columnar ? null : new Output(length + length / 2);
+            if (columnar) {
+                ids = new long[Math.max(16, length / 64)];
+                scores = new float[4 * ids.length];
+            }
+            SentimentAnalysis sa = analysis.get();
+            int n = 0;
+            int bad = 0;
+            int start = 0;
+            if (skipFirst) {
+                start = next(b, 0, length);
+            }
+            while (start < length) {
+                int next = next(b, start, length);
+                int end = (next > start && b[next - 1] == '\n') ? next - 1 : next;
+                if (end > start && b[end - 1] == '\r') {
+                    end--;
+                }
+                if (end > start) {
+                    if (json ? jsonLine(sa, b, start, end, out) : tsvLine(sa, b, start, end, out)) {
+                        n++;
+                    } else {
+                        bad++;
+                    }
+                }
+                start = next;
+            }
+            lines.addAndGet(n);
+            skipped.addAndGet(bad);
+            bytes.addAndGet(length);
+            output = columnar ? null : out.toByteArray();
+            scored = n;
+            malformed = bad;
+            return this;
+        }
+
+        private boolean tsvLine(SentimentAnalysis sa, byte[] b, int start, int end, Output out)
+                throws IOException {
+            int columns = 1;
+            for (int i = start; i < end; i++) {
+                if (b[i] == '\t') {
+                    columns++;
+                }
+            }
+            int text = (textColumn < 0) ? columns + textColumn : textColumn;
+            int id = (idColumn == Integer.MIN_VALUE) ? -1 : ((idColumn < 0) ? columns + idColumn : idColumn);
+            if (text < 0 || text >= columns || (idColumn != Integer.MIN_VALUE && (id < 0 || id >= columns))) {
+                return false;
+            }
+            int textStart = column(b, start, end, text);
+            int textEnd = columnEnd(b, textStart, end);
+            if (columnar) {
+                long value = NO_ID;
+                if (id >= 0) {
+                    int idStart = column(b, start, end, id);
+                    value = parseLong(b, idStart, columnEnd(b, idStart, end));
+                    if (value == NO_ID) {
+                        return false;
+                    }
+                }
+                record(value, score(sa, b, textStart, textEnd - textStart));
+                return true;
+            }
+            Map<String, Float> polarity = score(sa, b, textStart, textEnd - textStart);
+            if (id >= 0) {
+                int idStart = column(b, start, end, id);
+                out.write(b, idStart, columnEnd(b, idStart, end) - idStart);
+                out.write('\t');
+            }
+            for (String p : POLARITY) {
+                out.ascii(polarity.get(p).toString());
+                out.write('\t');
+            }
+            out.write(b, textStart, textEnd - textStart);
+            out.write('\n');
+            return true;
+        }
+
+        private boolean jsonLine(SentimentAnalysis sa, byte[] b, int start, int end, Output out)
+                throws IOException {
+            String id;
+            String text;
+            try {
+                JsonLine line = new JsonLine(new String(b, start, end - start, StandardCharsets.UTF_8));
+                id = line.raw(idField);
+                text = line.string(textField);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            if (text == null) {
+                return false;
+            }
+            if (columnar) {
+                long value = NO_ID;
+                if (id != null) {
+                    int quote = id.startsWith("\"") ? 1 : 0;
+                    value = parseLong(id.getBytes(StandardCharsets.UTF_8), quote, id.length() - quote);
+                    if (value == NO_ID) {
+                        return false;
+                    }
+                }
+                record(value, score(sa, text));
+                return true;
+            }
+            Map<String, Float> polarity = score(sa, text);
+            out.write('{');
+            if (id != null) {
+                out.ascii("\"id\":");
+                byte[] raw = id.getBytes(StandardCharsets.UTF_8);
+                out.write(raw, 0, raw.length);
+                out.write(',');
+            }
+            for (int i = 0; i < POLARITY.length; i++) {
+                out.ascii((i == 0 ? "\"" : ",\"") + POLARITY[i] + "\":" + polarity.get(POLARITY[i]));
+            }
+            out.write('}');
+            out.write('\n');
+            return true;
+        }
+
+        private void record(long id, Map<String, Float> polarity) {
+            int i = recorded;
+            if (i == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * i);
+                scores = Arrays.copyOf(scores, 8 * i);
+            }
+            ids[i] = id;
+            scores[4 * i] = polarity.get("compound");
+            scores[4 * i + 1] = polarity.get("positive");
+            scores[4 * i + 2] = polarity.get("negative");
+            scores[4 * i + 3] = polarity.get("neutral");
+            recorded++;
+        }
+    }
+
+    // A decimal long, NO_ID if not one.
+    private static long parseLong(byte[] b, int start, int end) {
+        int i = start;
+        boolean negative = i < end && b[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return NO_ID;
+        }
+        long value = 0L;
+        for (; i < end; i++) {
+            if (b[i] < '0' || b[i] > '9') {
+                return NO_ID;
+            }
+            value = 10 * value + (b[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // The start of the next line (after the '\n') or the end.
+    private static int next(byte[] b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (b[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    // The start of the 0 based column of a line.
+    private static int column(byte[] b, int start, int end, int column) {
+        int i = start;
+        for (int c = 0; c < column && i < end; i++) {
+            if (b[i] == '\t') {
+                c++;
+                if (c == column) {
+                    return i + 1;
+                }
+            }
+        }
+        return i;
+    }
+
+    private static int columnEnd(byte[] b, int start, int end) {
+        int i = start;
+        while (i < end && b[i] != '\t') {
+            i++;
+        }
+        return i;
+    }
+
+    /*
+     * The chunk output bytes, ASCII strings (the scores) written as is.
+     */
+    private static final class Output
+            extends ByteArrayOutputStream {
+
+        Output(int size) {
+            super(size);
+        }
+
+        void ascii(String s) {
+            int n = s.length();
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                buf[count++] = (byte) s.charAt(i);
+            }
+        }
+
+        private void ensure(int n) {
+            if (count + n > buf.length) {
+                byte[] b = new byte[Math.max(buf.length * 2, count + n)];
+                System.arraycopy(buf, 0, b, 0, count);
+                buf = b;
+            }
+        }
+    }
+}
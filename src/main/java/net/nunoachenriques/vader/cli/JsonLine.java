@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The top level fields of a JSON object in one line (JSON Lines), just
+ * enough for the corpus scoring: the raw JSON value of a field (e.g., an id
+ * copied as is) and the decoded value of a string field (e.g., the text).
+ * Nested values are skipped.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+final class JsonLine {
+
+    private final String line;
+    private final List<String> names = new ArrayList<>();
+    // The [start, end) of each field value.
+    private final List<int[]> spans = new ArrayList<>();
+    private int position;
+
+    /**
+     * Parses the top level fields of a JSON object line.
+     *
+     * @param line The JSON object line.
+     * @throws IllegalArgumentException If not a JSON object.
+     */
+    JsonLine(String line) {
+        this.line = line;
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            names.add(string());
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            int start = position;
+            skipValue();
+            spans.add(new int[]{start, position});
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the raw JSON value (e.g., {@code "a1"} with the quotes, or
+     * {@code 42}) of a top level field.
+     *
+     * @param field The field name.
+     * @return The raw value, {@code null} if not found.
+     */
+    String raw(String field) {
+        int i = names.indexOf(field);
+        return (i == -1) ? null : line.substring(spans.get(i)[0], spans.get(i)[1]);
+    }
+
+    /**
+     * Gets the decoded value of a top level string field.
+     *
+     * @param field The field name.
+     * @return The string value, {@code null} if not found.
+     * @throws IllegalArgumentException If the field value is not a string.
+     */
+    String string(String field) {
+        int i = names.indexOf(field);
+        if (i == -1) {
+            return null;
+        }
+        position = spans.get(i)[0];
+        if (peek() != '"') {
+            throw new IllegalArgumentException("JSON field " + field + " is not a string");
+        }
+        return string();
+    }
+
+    private void skipValue() {
+        char c = peek();
+        if (c == '"') {
+            string();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = peek();
+                if (c == '"') {
+                    string();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0);
+        } else {
+            int start = position;
+            while (position < line.length() && ",}] \t\r\n".indexOf(line.charAt(position)) == -1) {
+                position++;
+            }
+            if (position == start) {
+                throw error("value expected");
+            }
+        }
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder sb = null;
+        int start = position;
+        while (true) {
+            char c = peek();
+            position++;
+            if (c == '"') {
+                return (sb == null) ? line.substring(start, position - 1) : sb.toString();
+            }
+            if (c != '\\') {
+                if (sb != null) {
+                    sb.append(c);
+                }
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(line.substring(start, position - 1));
+            }
+            char e = peek();
+            position++;
+            switch (e) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > line.length()) {
+                        throw error("bad unicode escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(line.substring(position, position + 4), 16));
+                    } catch (NumberFormatException x) {
+                        throw error("bad unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    sb.append(e);
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < line.length() && " \t\r\n".indexOf(line.charAt(position)) != -1) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        if (position >= line.length()) {
+            throw error("unexpected end");
+        }
+        return line.charAt(position);
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("'" + c + "' expected");
+        }
+        position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("JSON " + message + " at " + position);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The corpus scoring split among local worker JVMs: the input is split in
+ * byte range shards on line boundaries, each one scored by a
+ * {@link CorpusScorer} in its own JVM (its own heap and garbage collector)
+ * to a shard output file. The failed shards are retried, resuming from the
+ * shard checkpoint. The shard outputs are then merged in the input order.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+final class ShardCoordinator {
+
+    // Coordinator options, not for the workers.
+    static final List<String> OPTIONS = Arrays.asList("--workers", "--retries", "--jvm-options", "--checkpoint");
+
+    private final Map<String, String> options;
+    private final int workers;
+    private final int retries;
+    private final List<String> jvmOptions = new ArrayList<>();
+
+    /**
+     * @param options The {@link CorpusScorer} options, including the
+     *                coordinator ones.
+     * @throws IllegalArgumentException On invalid options.
+     */
+    ShardCoordinator(Map<String, String> options) {
+        this.options = options;
+        workers = Integer.parseInt(options.get("--workers"));
+        retries = Integer.parseInt(options.get("--retries"));
+        if (workers < 1 || retries < 0) {
+            throw new IllegalArgumentException("Workers must be positive, retries not negative!");
+        }
+        if (options.get("--checkpoint") != null) {
+            throw new IllegalArgumentException("Checkpoint is per shard with workers, see --retries!");
+        }
+        String jvm = options.get("--jvm-options");
+        if (jvm != null && !jvm.trim().isEmpty()) {
+            jvmOptions.addAll(Arrays.asList(jvm.trim().split("\\s+")));
+        }
+    }
+
+    /**
+     * Scores the INPUT file to the OUTPUT one by the worker JVMs.
+     *
+     * @param input The input file.
+     * @param output The output file, "-" for the standard output.
+     * @param err The progress and summary report (the workers report to the
+     *            standard error of this JVM).
+     * @throws IOException On input or output error, or a shard failed after
+     * all the retries.
+     * @throws InterruptedException On thread interruption (the workers are
+     * destroyed).
+     */
+    void score(String input, String output, PrintStream err)
+            throws IOException, InterruptedException {
+        long t0 = System.nanoTime();
+        long[] bounds = shards(new File(input), workers);
+        int n = bounds.length - 1;
+        File[] outputs = new File[n];
+        for (int k = 0; k < n; k++) {
+            outputs[k] = "-".equals(output)
+                    ? File.createTempFile("vader-score-shard" + k + "-", ".out")
+                    : new File(output + ".shard" + k);
+        }
+        List<Integer> pending = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            pending.add(k);
+        }
+        for (int attempt = 0; attempt <= retries && !pending.isEmpty(); attempt++) {
+            Process[] processes = new Process[n];
+            try {
+                for (int k : pending) {
+                    processes[k] = worker(input, bounds[k], bounds[k + 1], outputs[k]).start();
+                }
+                List<Integer> failed = new ArrayList<>();
+                for (int k : pending) {
+                    int status = processes[k].waitFor();
+                    if (status != 0) {
+                        err.println("Shard " + k + " [" + bounds[k] + ", " + bounds[k + 1] + ") failed, exit status " + status);
+                        failed.add(k);
+                    }
+                }
+                pending = failed;
+            } finally {
+                for (Process p : processes) {
+                    if (p != null) {
+                        p.destroy();
+                    }
+                }
+            }
+        }
+        if (!pending.isEmpty()) {
+            throw new IOException("Shards " + pending + " failed after " + retries + " retries!");
+        }
+        try (OutputStream out = "-".equals(output)
+                ? new BufferedOutputStream(System.out, 1 << 16)
+                : new FileOutputStream(output)) {
+            for (File shard : outputs) {
+                Files.copy(shard.toPath(), out);
+            }
+        }
+        for (File shard : outputs) {
+            Files.delete(shard.toPath());
+        }
+        err.println(String.format(Locale.ROOT, "%d shards (%d bytes) in %.1f s",
+                n, bounds[n], (System.nanoTime() - t0) / 1e9));
+    }
+
+    /**
+     * Splits a file in (about) equal byte range shards, each one starting
+     * at a line start. Small files may have fewer shards.
+     *
+     * @param file The input file.
+     * @param n The number of shards.
+     * @return The shards bounds, shard k is [bounds[k], bounds[k + 1]).
+     * @throws IOException On read error.
+     */
+    static long[] shards(File file, int n)
+            throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+            long size = f.length();
+            byte[] b = new byte[8192];
+            for (int k = 1; k < n; k++) {
+                long position = Math.max(size * k / n, bounds.get(bounds.size() - 1));
+                long bound = size;
+                // The next line start at or after the position.
+                if (position > 0) {
+                    f.seek(position - 1);
+                    long offset = position - 1;
+                    int read;
+                    search:
+                    while ((read = f.read(b)) != -1) {
+                        for (int i = 0; i < read; i++) {
+                            if (b[i] == '\n') {
+                                bound = offset + i + 1;
+                                break search;
+                            }
+                        }
+                        offset += read;
+                    }
+                }
+                if (bound > bounds.get(bounds.size() - 1) && bound < size) {
+                    bounds.add(bound);
+                }
+            }
+            bounds.add(size);
+        }
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private ProcessBuilder worker(String input, long start, long end, File output) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CorpusScorer.class.getName());
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            if (option.getValue() != null && !OPTIONS.contains(option.getKey())) {
+                command.add(option.getKey());
+                command.add(option.getValue());
+            }
+        }
+        if (options.get("--threads") == null) {
+            command.add("--threads");
+            command.add(String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / workers)));
+        }
+        command.add("--range");
+        command.add(start + ":" + end);
+        command.add("--checkpoint");
+        command.add(output.getPath() + ".checkpoint");
+        command.add(input);
+        command.add(output.getPath());
+        return new ProcessBuilder(command).inheritIO();
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>Reads a {@link ColumnarScoreWriter} file memory-mapped: each value is
+ * read in place (no copy, no decoding of the other columns), e.g., an
+ * aggregation job scanning the compound column only. Thread-safe (absolute
+ * reads only).</p>
+ *
+ * <pre>
+ * ...
+ * <code>
+ * try (ColumnarScoreReader r = new ColumnarScoreReader(file)) {
+ *     double sum = 0.0;
+ *     for (long i = 0; i &lt; r.getRecords(); i++) {
+ *         sum += r.getCompound(i);
+ *     }
+ * }
+ * </code>
+ * ...
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class ColumnarScoreReader
+        implements Closeable {
+
+    /**
+     * The compound column.
+     */
+    public static final int COMPOUND = 0;
+    /**
+     * The positive column.
+     */
+    public static final int POSITIVE = 1;
+    /**
+     * The negative column.
+     */
+    public static final int NEGATIVE = 2;
+    /**
+     * The neutral column.
+     */
+    public static final int NEUTRAL = 3;
+
+    // Blocks mapped in segments up to 1 GiB (a mapping is up to 2 GiB).
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final RandomAccessFile file;
+    private final int blockSize;
+    private final int encoding;
+    private final long records;
+    private final int blockBytes;
+    private final int blocksPerSegment;
+    private final ByteBuffer[] segments;
+    private final boolean idDelta;
+    private final boolean quantized;
+    private final int idsOffset;
+    private final int[] columnsOffset = new int[4];
+
+    /**
+     * Maps a columnar scores file.
+     *
+     * @param f The {@link ColumnarScoreWriter} file.
+     * @throws IOException On read error or not a (complete) columnar scores
+     * file.
+     */
+    public ColumnarScoreReader(File f)
+            throws IOException {
+        file = new RandomAccessFile(f, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < ColumnarScoreWriter.HEADER_BYTES) {
+                throw new IOException(f + " is not a columnar scores file!");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0L, ColumnarScoreWriter.HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != ColumnarScoreWriter.MAGIC || header.getInt(4) != ColumnarScoreWriter.VERSION) {
+                throw new IOException(f + " is not a columnar scores file (version " + ColumnarScoreWriter.VERSION + ")!");
+            }
+            blockSize = header.getInt(8);
+            encoding = header.getInt(12);
+            records = header.getLong(16);
+            blockBytes = header.getInt(24);
+            if (blockSize < 1 || blockBytes != ColumnarScoreWriter.blockBytes(blockSize, encoding)) {
+                throw new IOException(f + " header corrupted!");
+            }
+            long blocks = (records + blockSize - 1) / blockSize;
+            if (channel.size() < ColumnarScoreWriter.HEADER_BYTES + blocks * blockBytes) {
+                throw new IOException(f + " truncated (not closed by the writer?)!");
+            }
+            blocksPerSegment = (int) Math.max(1L, SEGMENT_BYTES / blockBytes);
+            segments = new ByteBuffer[(int) ((blocks + blocksPerSegment - 1) / blocksPerSegment)];
+            for (int s = 0; s < segments.length; s++) {
+                long first = (long) s * blocksPerSegment;
+                long size = Math.min(blocksPerSegment, blocks - first) * blockBytes;
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        ColumnarScoreWriter.HEADER_BYTES + first * blockBytes, size);
+                segments[s] = segment.order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+        idDelta = (encoding & ColumnarScoreWriter.ID_DELTA) != 0;
+        quantized = (encoding & ColumnarScoreWriter.QUANTIZED) != 0;
+        idsOffset = ColumnarScoreWriter.BLOCK_HEADER_BYTES;
+        int offset = idsOffset + blockSize * (idDelta ? 4 : 8);
+        for (int c = 0; c < columnsOffset.length; c++) {
+            columnsOffset[c] = offset;
+            offset += blockSize * (quantized ? 2 : 4);
+        }
+    }
+
+    /**
+     * Gets the number of records.
+     *
+     * @return Number of records.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Gets the records per block.
+     *
+     * @return Records per block.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Gets the encoding, {@link ColumnarScoreWriter#PLAIN} or a combination
+     * of {@link ColumnarScoreWriter#ID_DELTA} and
+     * {@link ColumnarScoreWriter#QUANTIZED}.
+     *
+     * @return The encoding.
+     */
+    public int getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Gets the id of a record.
+     *
+     * @param record The record index [0, records).
+     * @return The record id.
+     * @throws IndexOutOfBoundsException If the record does not exist.
+     */
+    public long getId(long record) {
+        ByteBuffer segment = segment(record);
+        int block = block(record);
+        int i = (int) (record % blockSize);
+        return idDelta
+                ? segment.getLong(block + 8) + segment.getInt(block + idsOffset + 4 * i)
+                : segment.getLong(block + idsOffset + 8 * i);
+    }
+
+    /**
+     * Gets a score of a record.
+     *
+     * @param record The record index [0, records).
+     * @param column {@link #COMPOUND}, {@link #POSITIVE}, {@link #NEGATIVE}
+     *               or {@link #NEUTRAL}.
+     * @return The score.
+     * @throws IndexOutOfBoundsException If the record or the column does not
+     * exist.
+     */
+    public float getScore(long record, int column) {
+        ByteBuffer segment = segment(record);
+        int block = block(record);
+        int i = (int) (record % blockSize);
+        if (quantized) {
+            float scale = (column == COMPOUND) ? ColumnarScoreWriter.COMPOUND_SCALE : ColumnarScoreWriter.SCALE;
+            return segment.getShort(block + columnsOffset[column] + 2 * i) / scale;
+        }
+        return segment.getFloat(block + columnsOffset[column] + 4 * i);
+    }
+
+    /**
+     * Gets the compound score of a record.
+     *
+     * @param record The record index [0, records).
+     * @return The compound score.
+     * @throws IndexOutOfBoundsException If the record does not exist.
+     */
+    public float getCompound(long record) {
+        return getScore(record, COMPOUND);
+    }
+
+    /**
+     * Gets the positive score of a record.
+     *
+     * @param record The record index [0, records).
+     * @return The positive score.
+     * @throws IndexOutOfBoundsException If the record does not exist.
+     */
+    public float getPositive(long record) {
+        return getScore(record, POSITIVE);
+    }
+
+    /**
+     * Gets the negative score of a record.
+     *
+     * @param record The record index [0, records).
+     * @return The negative score.
+     * @throws IndexOutOfBoundsException If the record does not exist.
+     */
+    public float getNegative(long record) {
+        return getScore(record, NEGATIVE);
+    }
+
+    /**
+     * Gets the neutral score of a record.
+     *
+     * @param record The record index [0, records).
+     * @return The neutral score.
+     * @throws IndexOutOfBoundsException If the record does not exist.
+     */
+    public float getNeutral(long record) {
+        return getScore(record, NEUTRAL);
+    }
+
+    /**
+     * Releases the file. The mappings are released by the garbage
+     * collector.
+     *
+     * @throws IOException On close error.
+     */
+    @Override
+    public void close()
+            throws IOException {
+        file.close();
+    }
+
+    private ByteBuffer segment(long record) {
+        if (record < 0L || record >= records) {
+            throw new IndexOutOfBoundsException("Record " + record + " of " + records);
+        }
+        return segments[(int) (record / blockSize / blocksPerSegment)];
+    }
+
+    // The block offset in its segment.
+    private int block(long record) {
+        return (int) (record / blockSize % blocksPerSegment) * blockBytes;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+/**
+ * <p>Writes sentiment analysis results to a compact binary columnar file: a
+ * record id plus the compound, positive, negative and neutral scores. The
+ * records are stored in fixed size blocks, each one with a column per
+ * field, so a record (or a column of a block) is at a computed offset and
+ * read in place from a memory-mapped file by the
+ * {@link ColumnarScoreReader}.</p>
+ *
+ * <p>Optional encodings: {@link #ID_DELTA} stores each id as a 32 bits
+ * delta from the block first id (e.g., sequential ids), {@link #QUANTIZED}
+ * stores each score as a 16 bits fixed point of the VADER result decimals
+ * (4 for the compound, 3 for the others), lossless for the
+ * {@code SentimentAnalysis} results. Both halve the record size.</p>
+ *
+ * <pre>
+ * header  (32 bytes) magic "VADR", version, block size, encoding, records,
+ *                    block bytes, reserved
+ * block   (block bytes) count, reserved, first id, ids column, compound,
+ *                    positive, negative and neutral columns (little-endian)
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class ColumnarScoreWriter
+        implements Closeable {
+
+    /**
+     * The plain encoding: 64 bits ids and 32 bits float scores.
+     */
+    public static final int PLAIN = 0;
+    /**
+     * Ids as 32 bits deltas from the block first id.
+     */
+    public static final int ID_DELTA = 1;
+    /**
+     * Scores as 16 bits fixed point of the VADER result decimals.
+     */
+    public static final int QUANTIZED = 2;
+    /**
+     * The default records per block.
+     */
+    public static final int BLOCK_SIZE_DEFAULT = 4096;
+
+    static final int MAGIC = 0x52444156; // "VADR" little-endian.
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int BLOCK_HEADER_BYTES = 16;
+    static final float COMPOUND_SCALE = 10000.0f;
+    static final float SCALE = 1000.0f;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final int encoding;
+    private final ByteBuffer block;
+    private final int idsOffset;
+    private final int[] columnsOffset = new int[4];
+    private long records;
+    private int count;
+    private long firstId;
+    private boolean closed;
+
+    /**
+     * A plain encoding writer with the default block size.
+     *
+     * @param file The output file (created or truncated).
+     * @throws IOException On file open error.
+     */
+    public ColumnarScoreWriter(File file)
+            throws IOException {
+        this(file, BLOCK_SIZE_DEFAULT, PLAIN);
+    }
+
+    /**
+     * @param file The output file (created or truncated).
+     * @param blockSize The records per block.
+     * @param encoding {@link #PLAIN} or a combination ({@code |}) of
+     *                 {@link #ID_DELTA} and {@link #QUANTIZED}.
+     * @throws IOException On file open error.
+     * @throws IllegalArgumentException If the block size is not positive or
+     * the encoding is unknown.
+     */
+    public ColumnarScoreWriter(File file, int blockSize, int encoding)
+            throws IOException {
+        if (blockSize < 1 || (encoding & ~(ID_DELTA | QUANTIZED)) != 0) {
+            throw new IllegalArgumentException("Block size " + blockSize + " or encoding " + encoding + " invalid!");
+        }
+        this.blockSize = blockSize;
+        this.encoding = encoding;
+        int blockBytes = blockBytes(blockSize, encoding);
+        if (blockBytes < 0) {
+            throw new IllegalArgumentException("Block size " + blockSize + " too large!");
+        }
+        idsOffset = BLOCK_HEADER_BYTES;
+        int offset = idsOffset + blockSize * (((encoding & ID_DELTA) != 0) ? 4 : 8);
+        for (int c = 0; c < columnsOffset.length; c++) {
+            columnsOffset[c] = offset;
+            offset += blockSize * (((encoding & QUANTIZED) != 0) ? 2 : 4);
+        }
+        block = ByteBuffer.allocateDirect(blockBytes).order(ByteOrder.LITTLE_ENDIAN);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0L);
+        channel = raf.getChannel();
+        writeHeader();
+    }
+
+    /**
+     * Writes a sentiment analysis result.
+     *
+     * @param id The record id.
+     * @param polarity The compound, positive, negative and neutral
+     *                 name-value pairs.
+     * @throws IOException On write error.
+     */
+    public void write(long id, Map<String, Float> polarity)
+            throws IOException {
+        write(id, polarity.get("compound"), polarity.get("positive"), polarity.get("negative"), polarity.get("neutral"));
+    }
+
+    /**
+     * Writes a record.
+     *
+     * @param id The record id.
+     * @param compound The compound score [-1, 1].
+     * @param positive The positive score [0, 1].
+     * @param negative The negative score [0, 1].
+     * @param neutral The neutral score [0, 1].
+     * @throws IOException On write error.
+     * @throws IllegalArgumentException If the {@link #ID_DELTA} encoding and
+     * the id delta from the block first id does not fit in 32 bits.
+     */
+    public void write(long id, float compound, float positive, float negative, float neutral)
+            throws IOException {
+        if (closed) {
+            throw new IOException("Writer closed!");
+        }
+        if (count == 0) {
+            firstId = id;
+        }
+        if ((encoding & ID_DELTA) != 0) {
+            long delta = id - firstId;
+            if (delta != (int) delta) {
+                throw new IllegalArgumentException("Id " + id + " delta from " + firstId + " does not fit in 32 bits!");
+            }
+            block.putInt(idsOffset + 4 * count, (int) delta);
+        } else {
+            block.putLong(idsOffset + 8 * count, id);
+        }
+        if ((encoding & QUANTIZED) != 0) {
+            block.putShort(columnsOffset[0] + 2 * count, quantize(compound, COMPOUND_SCALE));
+            block.putShort(columnsOffset[1] + 2 * count, quantize(positive, SCALE));
+            block.putShort(columnsOffset[2] + 2 * count, quantize(negative, SCALE));
+            block.putShort(columnsOffset[3] + 2 * count, quantize(neutral, SCALE));
+        } else {
+            block.putFloat(columnsOffset[0] + 4 * count, compound);
+            block.putFloat(columnsOffset[1] + 4 * count, positive);
+            block.putFloat(columnsOffset[2] + 4 * count, negative);
+            block.putFloat(columnsOffset[3] + 4 * count, neutral);
+        }
+        count++;
+        records++;
+        if (count == blockSize) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Gets the number of records written.
+     *
+     * @return Number of records written.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Writes the last (partial) block and the records count.
+     *
+     * @throws IOException On write error.
+     */
+    @Override
+    public void close()
+            throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                writeBlock();
+            }
+            writeHeader();
+        } finally {
+            channel.close();
+        }
+    }
+
+    static int blockBytes(int blockSize, int encoding) {
+        long bytes = BLOCK_HEADER_BYTES
+                + (long) blockSize * (((encoding & ID_DELTA) != 0) ? 4 : 8)
+                + 4L * blockSize * (((encoding & QUANTIZED) != 0) ? 2 : 4);
+        bytes = (bytes + 7) & ~7L; // 8 bytes aligned blocks.
+        return (bytes > Integer.MAX_VALUE) ? -1 : (int) bytes;
+    }
+
+    private static short quantize(float value, float scale) {
+        int q = Math.round(value * scale);
+        return (short) Math.max(-(int) scale, Math.min((int) scale, q));
+    }
+
+    private void writeBlock()
+            throws IOException {
+        block.putInt(0, count);
+        block.putInt(4, 0);
+        block.putLong(8, firstId);
+        block.clear();
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        block.clear();
+        count = 0;
+    }
+
+    private void writeHeader()
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(blockSize).putInt(encoding)
+                .putLong(records).putInt(block.capacity()).putInt(0);
+        header.flip();
+        long position = 0L;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        if (channel.position() < HEADER_BYTES) {
+            channel.position(HEADER_BYTES);
+        }
+    }
+}
@@ -0,0 +1,592 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.io;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.Language;
+import net.nunoachenriques.vader.lexicon.ReloadableLanguage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>A persistent store of sentiment analysis results, e.g., to skip the
+ * texts already scored when re-processing a historical corpus. The store is
+ * a memory-mapped open addressing hash table file keyed by the SHA-256 of
+ * the text (UTF-8, first 128 bits) plus the lexicon version: a fingerprint
+ * of the {@link Language} contents (lexicon, boosters, idioms, negative
+ * words and punctuation). When the language changes (e.g., a
+ * {@link ReloadableLanguage} reload or an edited lexicon file between runs)
+ * the entries of the previous version are no longer found, and
+ * {@link #compact()} drops them.</p>
+ *
+ * <pre>
+ * ...
+ * <code>
+ * try (ScoreStore store = new ScoreStore(file, english)) {
+ *     Map&lt;String, Float&gt; polarity = store.getSentimentAnalysis(sa, text);
+ *     ...
+ *     store.compact(); // optional, drops the previous lexicon versions
+ * }
+ * </code>
+ * ...
+ * </pre>
+ *
+ * <p>Thread-safe (one JVM): lookups in parallel, insertions exclusive. The
+ * table grows (doubles) at 70% load, rewritten to a new file renamed over
+ * the store.</p>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class ScoreStore
+        implements Closeable {
+
+    /**
+     * The default initial capacity (slots).
+     */
+    public static final int CAPACITY_DEFAULT = 1 << 16;
+
+    private static final int MAGIC = 0x53444156; // "VADS" little-endian.
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    // Hash (2 longs), lexicon version, compound, positive, negative, neutral.
+    private static final int SLOT_BYTES = 40;
+    private static final int CAPACITY_MAX = 1 << 25;
+    private static final float LOAD_MAX = 0.7f;
+    private static final ThreadLocal<MessageDigest> SHA256 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available!", e);
+            }
+        }
+    };
+
+    private final File file;
+    private final Language language;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private RandomAccessFile raf;
+    private MappedByteBuffer table;
+    private int mask;
+    private int count;
+    // The lexicon version cache, by the language contents identity.
+    private volatile Fingerprint fingerprint;
+
+    /**
+     * Opens (or creates) a store with the default initial capacity.
+     *
+     * @param file The store file.
+     * @param language The language of the scores (e.g., the one given to
+     *                 the {@link SentimentAnalysis}).
+     * @throws IOException On file error or not a store file.
+     */
+    public ScoreStore(File file, Language language)
+            throws IOException {
+        this(file, language, CAPACITY_DEFAULT);
+    }
+
+    /**
+     * Opens (or creates) a store.
+     *
+     * @param file The store file.
+     * @param language The language of the scores (e.g., the one given to
+     *                 the {@link SentimentAnalysis}).
+     * @param capacity The initial capacity (slots) if created, rounded up
+     *                 to a power of two.
+     * @throws IOException On file error or not a store file.
+     */
+    public ScoreStore(File file, Language language, int capacity)
+            throws IOException {
+        this.file = file;
+        this.language = language;
+        if (!file.exists() || file.length() == 0L) {
+            create(file, tableCapacity(capacity)).close();
+        }
+        open();
+    }
+
+    /**
+     * Gets the stored sentiment analysis result of a text for the current
+     * lexicon version.
+     *
+     * @param s The text.
+     * @return The list of positive, neutral, negative, and compound
+     * name-value pairs, {@code null} if not stored.
+     */
+    public Map<String, Float> get(CharSequence s) {
+        return get(hash(s), lexiconVersion());
+    }
+
+    /**
+     * Gets the stored sentiment analysis result of a UTF-8 text for the
+     * current lexicon version (the same key as the decoded text).
+     *
+     * @param b The UTF-8 bytes.
+     * @param offset The text start.
+     * @param length The text length (bytes).
+     * @return The list of positive, neutral, negative, and compound
+     * name-value pairs, {@code null} if not stored.
+     */
+    public Map<String, Float> get(byte[] b, int offset, int length) {
+        return get(hash(b, offset, length), lexiconVersion());
+    }
+
+    /**
+     * Stores the sentiment analysis result of a text for the current
+     * lexicon version.
+     *
+     * @param s The text.
+     * @param polarity The positive, neutral, negative, and compound
+     *                 name-value pairs.
+     * @throws IOException On store growth error.
+     */
+    public void put(CharSequence s, Map<String, Float> polarity)
+            throws IOException {
+        put(hash(s), lexiconVersion(), polarity);
+    }
+
+    /**
+     * Stores the sentiment analysis result of a UTF-8 text for the current
+     * lexicon version.
+     *
+     * @param b The UTF-8 bytes.
+     * @param offset The text start.
+     * @param length The text length (bytes).
+     * @param polarity The positive, neutral, negative, and compound
+     *                 name-value pairs.
+     * @throws IOException On store growth error.
+     */
+    public void put(byte[] b, int offset, int length, Map<String, Float> polarity)
+            throws IOException {
+        put(hash(b, offset, length), lexiconVersion(), polarity);
+    }
+
+    /**
+     * Gets the stored result or scores the text and stores it. A result
+     * truncated by the token or time budget (see
+     * {@link SentimentAnalysis#isTruncated()}) is returned, not stored. The
+     * hit or miss is recorded by the sentiment analysis (see
+     * {@link SentimentAnalysis#recordCacheHit(int)}).
+     *
+     * @param sa The sentiment analysis of the store language.
+     * @param s The text.
+     * @return The list of positive, neutral, negative, and compound
+     * name-value pairs.
+     * @throws IOException On store growth error.
+     */
+    public Map<String, Float> getSentimentAnalysis(SentimentAnalysis sa, CharSequence s)
+            throws IOException {
+        long[] h = hash(s);
+        long v = lexiconVersion();
+        Map<String, Float> polarity = get(h, v);
+        if (polarity == null) {
+            sa.recordCacheMiss();
+            polarity = sa.getSentimentAnalysis(s);
+            if (!sa.isTruncated()) {
+                put(h, v, polarity);
+            }
+        } else {
+            sa.recordCacheHit(s.length());
+        }
+        return polarity;
+    }
+
+    /**
+     * Gets the stored result or scores the UTF-8 text and stores it. A result
+     * truncated by the token or time budget is returned, not stored. The hit
+     * or miss is recorded by the sentiment analysis.
+     *
+     * @param sa The sentiment analysis of the store language.
+     * @param b The UTF-8 bytes.
+     * @param offset The text start.
+     * @param length The text length (bytes).
+     * @return The list of positive, neutral, negative, and compound
+     * name-value pairs.
+     * @throws IOException On store growth error.
+     */
+    public Map<String, Float> getSentimentAnalysis(SentimentAnalysis sa, byte[] b, int offset, int length)
+            throws IOException {
+        long[] h = hash(b, offset, length);
+        long v = lexiconVersion();
+        Map<String, Float> polarity = get(h, v);
+        if (polarity == null) {
+            sa.recordCacheMiss();
+            polarity = sa.getSentimentAnalysis(b, offset, length);
+            if (!sa.isTruncated()) {
+                put(h, v, polarity);
+            }
+        } else {
+            sa.recordCacheHit(length);
+        }
+        return polarity;
+    }
+
+    /**
+     * Gets the number of entries, of all the lexicon versions.
+     *
+     * @return Number of entries.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of lookups found.
+     *
+     * @return Number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups not found.
+     *
+     * @return Number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Rewrites the store with the entries of the current lexicon version
+     * only (a new file renamed over the store), the capacity fitted to them.
+     *
+     * @return The number of entries dropped.
+     * @throws IOException On file error.
+     */
+    public int compact()
+            throws IOException {
+        lock.writeLock().lock();
+        try {
+            int before = count;
+            rewrite(lexiconVersion(), tableCapacity((int) Math.min(CAPACITY_MAX, 2L * count)));
+            return before - count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the changes to the storage device.
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            table.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the store file.
+     *
+     * @throws IOException On close error.
+     */
+    @Override
+    public void close()
+            throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (raf != null) {
+                table.force();
+                raf.close();
+                raf = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the lexicon version of a language: a fingerprint (SHA-256, first
+     * 64 bits, never 0) of its contents, the same across runs for the same
+     * contents.
+     *
+     * @param l The language.
+     * @return The lexicon version.
+     */
+    public static long lexiconVersion(Language l) {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        digest(md, l.getPunctuation());
+        digest(md, l.getNegativeWords());
+        digest(md, l.getBoosterDictionary());
+        digest(md, l.getSentimentLadenIdioms());
+        digest(md, l.getWordValenceDictionary());
+        long v = ByteBuffer.wrap(md.digest()).getLong();
+        return (v == 0L) ? 1L : v;
+    }
+
+    private long lexiconVersion() {
+        Language l = (language instanceof ReloadableLanguage) ? ((ReloadableLanguage) language).snapshot() : language;
+        Map<String, Float> words = l.getWordValenceDictionary();
+        Fingerprint f = fingerprint;
+        if (f == null || f.words != words || f.boosters != l.getBoosterDictionary()
+                || f.idioms != l.getSentimentLadenIdioms() || f.negativeWords != l.getNegativeWords()
+                || f.punctuation != l.getPunctuation()) {
+            // Benign race, the same contents give the same version.
+            f = new Fingerprint(l, words, lexiconVersion(l));
+            fingerprint = f;
+        }
+        return f.version;
+    }
+
+    private Map<String, Float> get(long[] h, long v) {
+        lock.readLock().lock();
+        try {
+            int slot = find(table, mask, h, v);
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            if (table.getLong(offset + 16) == 0L) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            Map<String, Float> polarity = new HashMap<>(8);
+            polarity.put("compound", table.getFloat(offset + 24));
+            polarity.put("positive", table.getFloat(offset + 28));
+            polarity.put("negative", table.getFloat(offset + 32));
+            polarity.put("neutral", table.getFloat(offset + 36));
+            return polarity;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(long[] h, long v, Map<String, Float> polarity)
+            throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (raf == null) {
+                throw new IOException("Store closed!");
+            }
+            if (count + 1 > LOAD_MAX * (mask + 1)) {
+                if (mask + 1 >= CAPACITY_MAX) {
+                    throw new IOException("Store full (" + count + " entries), compact it!");
+                }
+                rewrite(0L, 2 * (mask + 1));
+            }
+            if (insert(table, mask, h, v, polarity.get("compound"), polarity.get("positive"),
+                    polarity.get("negative"), polarity.get("neutral"))) {
+                count++;
+                table.putInt(16, count);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The slot of the key or the empty one where it would be.
+    private static int find(ByteBuffer t, int mask, long[] h, long v) {
+        int slot = (int) (h[0] ^ v) & mask;
+        while (true) {
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            long version = t.getLong(offset + 16);
+            if (version == 0L || (version == v && t.getLong(offset) == h[0] && t.getLong(offset + 8) == h[1])) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // True if a new entry (not a replacement).
+    private static boolean insert(ByteBuffer t, int mask, long[] h, long v,
+                                  float compound, float positive, float negative, float neutral) {
+        int offset = HEADER_BYTES + find(t, mask, h, v) * SLOT_BYTES;
+        boolean added = t.getLong(offset + 16) == 0L;
+        t.putLong(offset, h[0]);
+        t.putLong(offset + 8, h[1]);
+        t.putFloat(offset + 24, compound);
+        t.putFloat(offset + 28, positive);
+        t.putFloat(offset + 32, negative);
+        t.putFloat(offset + 36, neutral);
+        // The version last, it marks the slot used.
+        t.putLong(offset + 16, v);
+        return added;
+    }
+
+    /*
+     * Rewrites the entries (of the version only if not 0) to a new table
+     * file renamed over the store. Under the write lock.
+     */
+    private void rewrite(long version, int capacity)
+            throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        int n = 0;
+        try (RandomAccessFile t = create(temporary, capacity)) {
+            MappedByteBuffer target = t.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, t.length());
+            target.order(ByteOrder.LITTLE_ENDIAN);
+            int targetMask = capacity - 1;
+            long[] h = new long[2];
+            for (int slot = 0; slot <= mask; slot++) {
+                int offset = HEADER_BYTES + slot * SLOT_BYTES;
+                long v = table.getLong(offset + 16);
+                if (v == 0L || (version != 0L && v != version)) {
+                    continue;
+                }
+                h[0] = table.getLong(offset);
+                h[1] = table.getLong(offset + 8);
+                insert(target, targetMask, h, v, table.getFloat(offset + 24), table.getFloat(offset + 28),
+                        table.getFloat(offset + 32), table.getFloat(offset + 36));
+                n++;
+            }
+            target.putInt(16, n);
+            target.force();
+        }
+        raf.close();
+        raf = null;
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        open();
+    }
+
+    private void open()
+            throws IOException {
+        RandomAccessFile f = new RandomAccessFile(file, "rw");
+        try {
+            if (f.length() < HEADER_BYTES) {
+                throw new IOException(file + " is not a score store!");
+            }
+            MappedByteBuffer t = f.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, f.length());
+            t.order(ByteOrder.LITTLE_ENDIAN);
+            int capacity = t.getInt(8);
+            if (t.getInt(0) != MAGIC || t.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a score store (version " + VERSION + ")!");
+            }
+            if (Integer.bitCount(capacity) != 1 || capacity > CAPACITY_MAX
+                    || f.length() != HEADER_BYTES + (long) capacity * SLOT_BYTES) {
+                throw new IOException(file + " corrupted!");
+            }
+            raf = f;
+            table = t;
+            mask = capacity - 1;
+            count = t.getInt(16);
+        } catch (IOException | RuntimeException e) {
+            f.close();
+            throw e;
+        }
+    }
+
+    private static RandomAccessFile create(File f, int capacity)
+            throws IOException {
+        RandomAccessFile t = new RandomAccessFile(f, "rw");
+        t.setLength(0L);
+        t.setLength(HEADER_BYTES + (long) capacity * SLOT_BYTES);
+        ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(capacity).putInt(0);
+        t.write(header.array());
+        return t;
+    }
+
+    private static int tableCapacity(int entries) {
+        int capacity = Integer.highestOneBit(Math.max(entries, 16) - 1) << 1;
+        return Math.min(capacity, CAPACITY_MAX);
+    }
+
+    private static long[] hash(CharSequence s) {
+        ByteBuffer b = StandardCharsets.UTF_8.encode(CharBuffer.wrap(s));
+        MessageDigest md = SHA256.get();
+        md.reset();
+        md.update(b);
+        return key(md.digest());
+    }
+
+    private static long[] hash(byte[] b, int offset, int length) {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        md.update(b, offset, length);
+        return key(md.digest());
+    }
+
+    private static long[] key(byte[] digest) {
+        ByteBuffer d = ByteBuffer.wrap(digest);
+        return new long[]{d.getLong(), d.getLong()};
+    }
+
+    private static void digest(MessageDigest md, List<String> strings) {
+        for (String s : strings) {
+            md.update(s.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) '\n');
+        }
+        md.update((byte) 0);
+    }
+
+    // Sorted entries, the same digest for any map iteration order.
+    private static void digest(MessageDigest md, Map<String, Float> map) {
+        List<String> entries = new ArrayList<>(map.size());
+        for (Map.Entry<String, Float> e : map.entrySet()) {
+            entries.add(e.getKey() + '\t' + Float.floatToIntBits(e.getValue()));
+        }
+        Collections.sort(entries);
+        digest(md, entries);
+    }
+
+    /*
+     * A lexicon version of the language contents (instances).
+     */
+    private static final class Fingerprint {
+
+        private final Map<String, Float> words;
+        private final Map<String, Float> boosters;
+        private final Map<String, Float> idioms;
+        private final List<String> negativeWords;
+        private final List<String> punctuation;
+        private final long version;
+
+        Fingerprint(Language l, Map<String, Float> words, long version) {
+            this.words = words;
+            boosters = l.getBoosterDictionary();
+            idioms = l.getSentimentLadenIdioms();
+            negativeWords = l.getNegativeWords();
+            punctuation = l.getPunctuation();
+            this.version = version;
+        }
+    }
+}
@@ -29,7 +29,8 @@ import java.util.Map;
 /**
  * This class contains the constants that are the used by the sentiment analysis
  * for the English language. The constants are the same as the ones used in the
- * original Python implementation.
+ * original Python implementation. The dictionaries and lists are shared by all
+ * instances, see {@link OverlayLanguage} to change them for one analysis only.
  *
  * @author Nuno A. C. Henriques [nunoachenriques.net]
  * @see <a href="http://www.nltk.org/_modules/nltk/sentiment/vader.html" target="_blank">NLTK source</a>
@@ -46,7 +47,7 @@ public final class English
             ".", "!", "?", ",", ";", ":", "-", "'", "\"",
             "!!", "!!!", "??", "???", "?!?", "!?!", "?!?!", "!?!?"
     );
-    private static final List<String> NEGATIVE_WORDS = Arrays.asList(
+    private static final List<String> NEGATIVE_WORDS = new LexiconList(Arrays.asList(
             "aint", "arent",
             "cannot", "cant", "couldnt",
             "darent",
@@ -70,9 +71,9 @@ public final class English
             "oughtn't", "shan't", "shouldn't", "uh-uh", "wasn't", "weren't",
             "without", "wont", "wouldnt",
             "won't", "wouldn't", "rarely", "seldom", "despite"
-    );
+    ));
 
-    private static final Map<String, Float> BOOSTER_DICTIONARY = createBoosterDictionary();
+    private static final Map<String, Float> BOOSTER_DICTIONARY = new LexiconMap(createBoosterDictionary());
     private static Map<String, Float> createBoosterDictionary() {
         Map<String, Float> m = new HashMap<>();
         m.put("decidedly", BOOSTER_WORD_INCREMENT);
@@ -142,7 +143,7 @@ public final class English
         m.put("effing", BOOSTER_WORD_INCREMENT);
         return m;
     }
-    private static final Map<String, Float> SENTIMENT_LADEN_IDIOMS = createSentimentLadenIdioms();
+    private static final Map<String, Float> SENTIMENT_LADEN_IDIOMS = new LexiconMap(createSentimentLadenIdioms());
     private static Map<String, Float> createSentimentLadenIdioms() {
         Map<String, Float> m = new HashMap<>();
         m.put("cut the mustard", 2f);
@@ -154,19 +155,13 @@ public final class English
         m.put("the shit", 3f);
         return m;
     }
-    private static final Map<String, Float> WORD_VALENCE_DICTIONARY = getWordValenceDictionary(LEXICON_FILE);
+    private static final Map<String, Float> WORD_VALENCE_DICTIONARY = new LexiconMap(getWordValenceDictionary(LEXICON_FILE));
     private static Map<String, Float> getWordValenceDictionary(String filename) {
         InputStream lexFile = LOADER.getResourceAsStream(filename);
         Map<String, Float> lexDictionary = new HashMap<>();
         if (lexFile != null) {
             try (BufferedReader br = new BufferedReader(new InputStreamReader(lexFile))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    String[] lexFileData = line.split("\\t");
-                    String currentText = lexFileData[0];
-                    Float currentTextValence = Float.parseFloat(lexFileData[1]);
-                    lexDictionary.put(currentText, currentTextValence);
-                }
+                readWordValenceDictionary(br, lexDictionary);
             } catch (IOException ioe) {
                 Logger.error(ioe);
             }
@@ -174,6 +169,20 @@ public final class English
         return lexDictionary;
     }
 
+    /*
+     * Reads the lexicon lines (word TAB valence TAB ...) into the map.
+     */
+    static void readWordValenceDictionary(BufferedReader br, Map<String, Float> lexDictionary)
+            throws IOException {
+        String line;
+        while ((line = br.readLine()) != null) {
+            String[] lexFileData = line.split("\\t");
+            String currentText = lexFileData[0];
+            Float currentTextValence = Float.parseFloat(lexFileData[1]);
+            lexDictionary.put(currentText, currentTextValence);
+        }
+    }
+
     public English() {
     }
 
@@ -204,17 +213,24 @@ public final class English
 
     @Override
     public boolean isUpper(String token) {
-        if (token.toLowerCase().startsWith("http://")) {
-            return false;
-        }
-        if (!token.matches(".*[a-zA-Z]+.*")) {
+        if (token.regionMatches(true, 0, "http://", 0, 7)) {
             return false;
         }
+        // Same as token.matches(".*[a-zA-Z]+.*") without the regular
+        // expression: a letter and no line terminator (not matched by '.').
+        boolean hasLetter = false;
         for (int i = 0; i < token.length(); i++) {
-            if (Character.isLowerCase(token.charAt(i))) {
+            char c = token.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+            if (Character.isLowerCase(c)) {
                 return false;
             }
+            if (c >= 'A' && c <= 'Z') {
+                hasLetter = true;
+            }
         }
-        return true;
+        return hasLetter;
     }
 }
@@ -55,7 +55,9 @@ public interface Language {
     Map<String, Float> getSentimentLadenIdioms();
 
     /**
-     * Gets predefined single words valence.
+     * Gets predefined single words valence. The built-in lexicons (e.g.,
+     * {@link English}) are shared, use an {@link OverlayLanguage} to add,
+     * override or delete words without changing them.
      *
      * @return A map with key-value pairs of words and valence.
      */
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import org.pmw.tinylog.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lightweight language identifier based on character trigram profiles.
+ * Each available language has a compact profile (the most frequent
+ * trigrams of a text sample, see {@code bin/ngram_profile.py}) in the
+ * {@code lexicon} resources (e.g., {@code en.ngram}). The text is scanned
+ * once, char by char, and the language whose profile covers the most text
+ * trigrams wins. The confidence is how much of that coverage is beyond what
+ * a profile of an unrelated language covers by chance. Below the minimum
+ * confidence the default language is used instead.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class LanguageIdentifier {
+
+    private static final ClassLoader LOADER = LanguageIdentifier.class.getClassLoader();
+    private static final String PROFILE_FILE = "net/nunoachenriques/vader/lexicon/%s.ngram";
+    private static final char BOUNDARY = '_';
+    // Trigram coverage of an unrelated language text (i.e., chance level) and
+    // the minimum confidence rejecting all the held-out foreign texts (test
+    // resources LanguageIdentification/foreign.tsv), see bin/ngram_thresholds.py.
+    private static final float COVERAGE_FOREIGN = 0.64f;
+    private static final float CONFIDENCE_MIN_DEFAULT = 0.48f;
+
+    private final String[] languages;
+    private final long[][] profiles;
+    private final String defaultLanguage;
+    private final float confidenceMin;
+
+    /**
+     * Loads the trigram profiles of the given languages with the default
+     * minimum confidence.
+     *
+     * @param languages The languages in ISO 639-1 or 639-3 language code
+     *                  (e.g., en).
+     * @param defaultLanguage The language to fall back to when the
+     *                        identification confidence is too low.
+     */
+    public LanguageIdentifier(List<String> languages, String defaultLanguage) {
+        this(languages, defaultLanguage, CONFIDENCE_MIN_DEFAULT);
+    }
+
+    /**
+     * Loads the trigram profiles of the given languages.
+     *
+     * @param languages The languages in ISO 639-1 or 639-3 language code
+     *                  (e.g., en).
+     * @param defaultLanguage The language to fall back to when the
+     *                        identification confidence is too low.
+     * @param confidenceMin The minimum confidence, from 0 to 1, to accept an
+     *                      identification.
+     */
+    public LanguageIdentifier(List<String> languages, String defaultLanguage, float confidenceMin) {
+        this.languages = languages.toArray(new String[languages.size()]);
+        this.profiles = new long[this.languages.length][];
+        for (int i = 0; i < this.languages.length; i++) {
+            profiles[i] = loadProfile(this.languages[i]);
+        }
+        this.defaultLanguage = defaultLanguage;
+        this.confidenceMin = confidenceMin;
+    }
+
+    /**
+     * Identifies the language of the given text sample.
+     *
+     * @param s Text sample to identify.
+     * @return The identified language and confidence, or the default
+     * language if the confidence is below the minimum.
+     */
+    public Result identify(CharSequence s) {
+        int[] hits = new int[profiles.length];
+        int total = 0;
+        char a = BOUNDARY;
+        char b = BOUNDARY;
+        boolean inWord = false;
+        for (int i = 0, n = s.length(); i <= n; i++) {
+            char c = (i < n) ? s.charAt(i) : ' ';
+            if (Character.isLetter(c)) {
+                c = Character.toLowerCase(c);
+                if (inWord) {
+                    hit(hits, a, b, c);
+                    total++;
+                    a = b;
+                } else {
+                    a = BOUNDARY;
+                    inWord = true;
+                }
+                b = c;
+            } else if (inWord) {
+                hit(hits, a, b, BOUNDARY);
+                total++;
+                inWord = false;
+            }
+        }
+        int best = -1;
+        float coverageBest = 0.0f;
+        float coverageSecond = COVERAGE_FOREIGN;
+        if (total > 0) {
+            for (int i = 0; i < hits.length; i++) {
+                float coverage = (float) hits[i] / total;
+                if (coverage > coverageBest) {
+                    coverageSecond = Math.max(coverageBest, COVERAGE_FOREIGN);
+                    coverageBest = coverage;
+                    best = i;
+                } else if (coverage > coverageSecond) {
+                    coverageSecond = coverage;
+                }
+            }
+        }
+        float confidence = (best < 0 || coverageBest <= coverageSecond)
+                ? 0.0f
+                : (coverageBest - coverageSecond) / (1.0f - coverageSecond);
+        return (best < 0 || confidence < confidenceMin)
+                ? new Result(defaultLanguage, confidence, true)
+                : new Result(languages[best], confidence, false);
+    }
+
+    /**
+     * Gets the languages this identifier is able to identify.
+     *
+     * @return List of languages in ISO 639-1 or 639-3 language code
+     * (e.g., en).
+     */
+    public List<String> getLanguages() {
+        List<String> l = new ArrayList<>(languages.length);
+        for (String language : languages) {
+            l.add(language);
+        }
+        return l;
+    }
+
+    /**
+     * Gets the language of a built-in lexicon (e.g., {@link English}), or of
+     * a language layered over one ({@link OverlayLanguage},
+     * {@link ReloadableLanguage} and its snapshots).
+     *
+     * @param l The language, may be {@code null}.
+     * @return The language in ISO 639-1 or 639-3 language code (e.g., en),
+     * {@code null} if unknown.
+     */
+    public static String languageOf(Language l) {
+        while (l != null && !(l instanceof English)) {
+            l = baseOf(l);
+        }
+        return (l == null) ? null : "en";
+    }
+
+    private static Language baseOf(Language l) {
+        if (l instanceof OverlayLanguage) {
+            return ((OverlayLanguage) l).getBase();
+        }
+        if (l instanceof ReloadableLanguage) {
+            return ((ReloadableLanguage) l).getBase();
+        }
+        return ReloadableLanguage.baseOf(l);
+    }
+
+    private void hit(int[] hits, char a, char b, char c) {
+        long key = key(a, b, c);
+        for (int i = 0; i < profiles.length; i++) {
+            if (contains(profiles[i], key)) {
+                hits[i]++;
+            }
+        }
+    }
+
+    private static long key(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+
+    private static boolean contains(long[] table, long key) {
+        int mask = table.length - 1;
+        for (int i = slot(key, mask); table[i] != 0L; i = (i + 1) & mask) {
+            if (table[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Open addressing (linear probing) table of the profile trigram keys,
+     * at most half full and 0 as the empty slot.
+     */
+    private static long[] loadProfile(String language) {
+        List<Long> keys = new ArrayList<>();
+        InputStream profileFile = LOADER.getResourceAsStream(String.format(PROFILE_FILE, language));
+        if (profileFile != null) {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(profileFile, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.length() == 3 && !line.startsWith("#")) {
+                        keys.add(key(line.charAt(0), line.charAt(1), line.charAt(2)));
+                    }
+                }
+            } catch (IOException ioe) {
+                Logger.error(ioe);
+            }
+        } else {
+            Logger.error("No trigram profile for language: {}", language);
+        }
+        long[] table = new long[Integer.highestOneBit(Math.max(keys.size(), 1)) << 2];
+        int mask = table.length - 1;
+        for (long key : keys) {
+            int i = slot(key, mask);
+            while (table[i] != 0L && table[i] != key) {
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+        }
+        return table;
+    }
+
+    /**
+     * The language identification of a text sample.
+     */
+    public static final class Result {
+
+        private final String language;
+        private final float confidence;
+        private final boolean fallback;
+
+        private Result(String language, float confidence, boolean fallback) {
+            this.language = language;
+            this.confidence = confidence;
+            this.fallback = fallback;
+        }
+
+        /**
+         * Gets the identified (or default) language.
+         *
+         * @return Language in ISO 639-1 or 639-3 language code (e.g., en).
+         */
+        public String getLanguage() {
+            return language;
+        }
+
+        /**
+         * Gets the confidence of the identification.
+         *
+         * @return From 0 (chance level) to 1 (all text trigrams known).
+         */
+        public float getConfidence() {
+            return confidence;
+        }
+
+        /**
+         * Checks if the language is the default one due to low confidence.
+         *
+         * @return True if the default language was used, false otherwise.
+         */
+        public boolean isFallback() {
+            return fallback;
+        }
+
+        @Override
+        public String toString() {
+            return language + " (" + confidence + (fallback ? ", fallback)" : ")");
+        }
+    }
+}
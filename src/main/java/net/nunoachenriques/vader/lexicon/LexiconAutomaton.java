@@ -0,0 +1,281 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An Aho-Corasick automaton over the (ASCII) lexicon entries, e.g., words
+ * and emoticons of the word valence dictionary. One pass over the raw text
+ * finds whether any entry occurs in the lower case text between delimiters
+ * (white space or punctuation characters). If none occurs, no token
+ * of the text may be a lexicon hit and the sentiment analysis is the
+ * neutral one. It is conservative: any non-ASCII character is a possible
+ * match.
+ *
+ * <p>The trie is stored in compact arrays: a dense root transition table
+ * and the sorted children of each state.</p>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see <a href="https://doi.org/10.1145/360825.360855" target="_blank">Aho, A. V., &amp; Corasick, M. J. (1975). Efficient string matching: an aid to bibliographic search</a>
+ */
+public final class LexiconAutomaton {
+
+    private static final int ASCII = 128;
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    // Java \p{Space} as in the TokenizerEnglish.
+    private static final String WHITESPACE = " \t\n\u000B\f\r";
+
+    // Root transitions, ROOT if none.
+    private final int[] root = new int[ASCII];
+    // Children of state s: childChar and childState from childStart[s] to childStart[s + 1].
+    private final int[] childStart;
+    private final char[] childChar;
+    private final int[] childState;
+    private final int[] fail;
+    // The state itself if an entry ends there, the nearest one in the fail chain otherwise, NONE if none.
+    private final int[] output;
+    private final int[] depth;
+
+    /**
+     * Builds the automaton of the lexicon entries. The entries with non-ASCII
+     * characters are left out, these may never occur in a text accepted by
+     * {@link #containsEntry(CharSequence, boolean[])}.
+     *
+     * @param entries The lexicon entries (e.g., words and emoticons).
+     */
+    public LexiconAutomaton(Collection<String> entries) {
+        // Trie with sorted children, states numbered in breadth-first order.
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Boolean> terminal = new ArrayList<>();
+        trie.add(new TreeMap<Character, Integer>());
+        terminal.add(Boolean.FALSE);
+        for (String e : entries) {
+            if (e.isEmpty() || !isAscii(e)) {
+                continue;
+            }
+            int s = ROOT;
+            for (int i = 0; i < e.length(); i++) {
+                Integer next = trie.get(s).get(e.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<Character, Integer>());
+                    terminal.add(Boolean.FALSE);
+                    trie.get(s).put(e.charAt(i), next);
+                }
+                s = next;
+            }
+            terminal.set(s, Boolean.TRUE);
+        }
+        int states = trie.size();
+        int[] order = new int[states]; // breadth-first order to trie state
+        int[] number = new int[states]; // trie state to breadth-first order
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            for (Integer child : trie.get(order[head++]).values()) {
+                number[child] = tail;
+                order[tail++] = child;
+            }
+        }
+        childStart = new int[states + 1];
+        childChar = new char[states - 1];
+        childState = new int[states - 1];
+        depth = new int[states];
+        int edge = 0;
+        for (int s = 0; s < states; s++) {
+            childStart[s] = edge;
+            for (Map.Entry<Character, Integer> c : trie.get(order[s]).entrySet()) {
+                int child = number[c.getValue()];
+                childChar[edge] = c.getKey();
+                childState[edge] = child;
+                depth[child] = depth[s] + 1;
+                edge++;
+            }
+        }
+        childStart[states] = edge;
+        Arrays.fill(root, ROOT);
+        for (int e = childStart[ROOT]; e < childStart[ROOT + 1]; e++) {
+            root[childChar[e]] = childState[e];
+        }
+        // Fail and output links, parents before children (breadth-first).
+        fail = new int[states];
+        output = new int[states];
+        output[ROOT] = NONE;
+        for (int s = 0; s < states; s++) {
+            for (int e = childStart[s]; e < childStart[s + 1]; e++) {
+                int child = childState[e];
+                fail[child] = (s == ROOT) ? ROOT : next(fail[s], childChar[e]);
+                output[child] = terminal.get(order[child]) ? child : output[fail[child]];
+            }
+        }
+    }
+
+    /**
+     * Gets the automaton of a lexicon dictionary. Only the built-in lexicon
+     * maps (e.g., {@link English#getWordValenceDictionary()}) have one, built
+     * once on first use.
+     *
+     * @param dictionary The lexicon dictionary.
+     * @return The automaton of the dictionary entries, {@code null} if not
+     * available.
+     */
+    public static LexiconAutomaton of(Map<String, Float> dictionary) {
+        return (dictionary instanceof LexiconMap) ? ((LexiconMap) dictionary).getAutomaton() : null;
+    }
+
+    /**
+     * Gets the delimiters table, ASCII characters that may delimit an entry
+     * in a token: white space and the punctuation characters.
+     *
+     * @param punctuation The language punctuation
+     *                    (e.g., {@link English#getPunctuation()}).
+     * @return The delimiters table indexed by ASCII character.
+     */
+    public static boolean[] delimiters(List<String> punctuation) {
+        boolean[] delimiters = new boolean[ASCII];
+        for (int i = 0; i < WHITESPACE.length(); i++) {
+            delimiters[WHITESPACE.charAt(i)] = true;
+        }
+        for (String p : punctuation) {
+            for (int i = 0; i < p.length(); i++) {
+                if (p.charAt(i) < ASCII) {
+                    delimiters[p.charAt(i)] = true;
+                }
+            }
+        }
+        return delimiters;
+    }
+
+    /**
+     * Checks if any lexicon entry occurs in the text, ASCII letters lower
+     * cased, starting at the text start or after a delimiter and ending at
+     * the text end or before a delimiter.
+     *
+     * @param s Text sample to scan.
+     * @param delimiters The delimiters table, see {@link #delimiters(List)}.
+     * @return False if no entry occurs, true if any or if the text has a
+     * non-ASCII character.
+     */
+    public boolean containsEntry(CharSequence s, boolean[] delimiters) {
+        int length = s.length();
+        int state = ROOT;
+        for (int j = 0; j < length; j++) {
+            char c = s.charAt(j);
+            if (c >= ASCII) {
+                return true;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            state = next(state, c);
+            int o = output[state];
+            if (o != NONE && (j + 1 == length || isDelimiter(s.charAt(j + 1), delimiters))) {
+                for (; o != NONE; o = output[fail[o]]) {
+                    int start = j + 1 - depth[o];
+                    if (start == 0 || isDelimiter(s.charAt(start - 1), delimiters)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The same as {@link #containsEntry(CharSequence, boolean[])} on UTF-8
+     * bytes, no decoding required: any byte not ASCII (i.e., of a multi-byte
+     * character) is a possible match.
+     *
+     * @param b UTF-8 bytes of the text sample to scan.
+     * @param offset The text first byte index.
+     * @param length The text number of bytes.
+     * @param delimiters The delimiters table, see {@link #delimiters(List)}.
+     * @return False if no entry occurs, true if any or if the text has a
+     * non-ASCII character.
+     */
+    public boolean containsEntry(byte[] b, int offset, int length, boolean[] delimiters) {
+        int end = offset + length;
+        int state = ROOT;
+        for (int j = offset; j < end; j++) {
+            int c = b[j];
+            if (c < 0) {
+                return true;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            state = next(state, (char) c);
+            int o = output[state];
+            if (o != NONE && (j + 1 == end || b[j + 1] < 0 || delimiters[b[j + 1]])) {
+                for (; o != NONE; o = output[fail[o]]) {
+                    int start = j + 1 - depth[o];
+                    if (start == offset || delimiters[b[start - 1]]) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private int next(int state, char c) {
+        while (state != ROOT) {
+            int next = child(state, c);
+            if (next != NONE) {
+                return next;
+            }
+            state = fail[state];
+        }
+        return root[c];
+    }
+
+    private int child(int state, char c) {
+        int low = childStart[state];
+        int high = childStart[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char m = childChar[middle];
+            if (m < c) {
+                low = middle + 1;
+            } else if (m > c) {
+                high = middle - 1;
+            } else {
+                return childState[middle];
+            }
+        }
+        return NONE;
+    }
+
+    private static boolean isDelimiter(char c, boolean[] delimiters) {
+        return c >= ASCII || delimiters[c];
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= ASCII) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import java.util.Collection;
+
+/**
+ * A compact pre-filter of a lexicon key set: rejects most of the misses
+ * before any map or list probe. First a (length, first char) bitset, no
+ * hashing at all, then a {@link BloomFilter} of the string hash code. No
+ * false negatives. Keys may be added, not removed (a removed key is a false
+ * positive until rebuilt).
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see LexiconMap
+ * @see LexiconList
+ */
+final class LexiconFilter {
+
+    // Lengths 1 to 31 (longer ones share the last), first char 0 to 127 plus
+    // one bit for any other (non-ASCII) first char.
+    private static final int LENGTHS = 32;
+    private static final int CHARS = 129;
+    private static final int LENGTH_MAX = LENGTHS - 1;
+    private static final int CHAR_OTHER = CHARS - 1;
+
+    private final long[] lengthFirstChar = new long[(LENGTHS * CHARS + 63) >>> 6];
+    private final BloomFilter bloom;
+    private final int capacity;
+    private boolean hasEmpty;
+
+    LexiconFilter(Collection<String> keys) {
+        capacity = keys.size();
+        bloom = new BloomFilter(capacity);
+        for (String k : keys) {
+            add(k);
+        }
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param s The key, {@code null} ignored (not a {@link String} probe).
+     */
+    void add(String s) {
+        if (s == null) {
+            return;
+        }
+        if (s.isEmpty()) {
+            hasEmpty = true;
+            return;
+        }
+        int bit = bit(s);
+        lengthFirstChar[bit >>> 6] |= 1L << bit;
+        bloom.add(s);
+    }
+
+    /**
+     * Gets the number of keys the filter was sized for, more keys added
+     * raise the false positives.
+     *
+     * @return The number of keys at build.
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Checks if the key may be in the lexicon.
+     *
+     * @param s The key.
+     * @return False if surely not in the lexicon, true if it may be.
+     */
+    boolean mightContain(String s) {
+        if (s.isEmpty()) {
+            return hasEmpty;
+        }
+        int bit = bit(s);
+        return (lengthFirstChar[bit >>> 6] & (1L << bit)) != 0L && bloom.mightContain(s);
+    }
+
+    private static int bit(String s) {
+        char c = s.charAt(0);
+        return Math.min(s.length(), LENGTH_MAX) * CHARS + ((c < CHAR_OTHER) ? c : CHAR_OTHER);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * A lexicon list (e.g., negative words) with a {@link LexiconFilter} and a
+ * hash set behind {@link #contains(Object)} instead of the linear search.
+ * Mutable (set, add, remove): a change rebuilds the set and the filter and
+ * outdates the derived tables, see {@link LexiconMap}. Not thread-safe: no
+ * change during an analysis.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see LexiconFilter
+ */
+final class LexiconList
+        extends AbstractList<String>
+        implements RandomAccess {
+
+    private final List<String> list;
+    private Set<String> set;
+    private LexiconFilter filter;
+
+    /**
+     * Copies the elements, the filter is built here.
+     *
+     * @param l Lexicon elements.
+     */
+    LexiconList(List<String> l) {
+        list = new ArrayList<>(l);
+        build();
+    }
+
+    private void build() {
+        set = new HashSet<>(list);
+        filter = new LexiconFilter(set);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return (!(o instanceof String) || filter.mightContain((String) o)) && set.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return contains(o) ? list.indexOf(o) : -1;
+    }
+
+    @Override
+    public String get(int index) {
+        return list.get(index);
+    }
+
+    @Override
+    public int size() {
+        return list.size();
+    }
+
+    @Override
+    public String set(int index, String element) {
+        String previous = list.set(index, element);
+        build();
+        LexiconMap.modified();
+        return previous;
+    }
+
+    @Override
+    public void add(int index, String element) {
+        list.add(index, element);
+        modCount++;
+        build();
+        LexiconMap.modified();
+    }
+
+    @Override
+    public String remove(int index) {
+        String previous = list.remove(index);
+        modCount++;
+        build();
+        LexiconMap.modified();
+        return previous;
+    }
+}
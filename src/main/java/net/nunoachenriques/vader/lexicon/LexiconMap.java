@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lexicon map (e.g., word valence) with a {@link LexiconFilter} in front:
+ * most misses, the common case for the tokens of a text, are rejected
+ * before the hash map probe. Mutable as the {@link HashMap} it replaces: a
+ * change updates the filter and the derived automaton and symbol tables (of
+ * any lexicon map, they depend on all the language lexicons) are rebuilt on
+ * next use. As before, not thread-safe: no change during an analysis.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see LexiconFilter
+ */
+final class LexiconMap
+        extends AbstractMap<String, Float> {
+
+    // The words tested by the sentiment analysis rules.
+    static final List<String> SYMBOL_WORDS = Arrays.asList(
+            "kind", "of", "least", "at", "very", "but", "BUT", "never", "so", "this");
+
+    // Changes of any lexicon map or list, the derived tables built at one.
+    private static final AtomicInteger MODIFICATIONS = new AtomicInteger();
+
+    private final Map<String, Float> map;
+    private LexiconFilter filter;
+    private volatile LexiconAutomaton automaton;
+    private volatile int automatonModifications;
+    private volatile LexiconSymbols symbols;
+    private volatile int symbolsModifications;
+
+    /**
+     * Copies the entries, the filter is built here.
+     *
+     * @param m Lexicon entries.
+     */
+    LexiconMap(Map<String, Float> m) {
+        map = new HashMap<>(m);
+        filter = new LexiconFilter(map.keySet());
+    }
+
+    /**
+     * Gets the automaton of the entries, built on first use.
+     *
+     * @return The {@link LexiconAutomaton} of the keys.
+     */
+    LexiconAutomaton getAutomaton() {
+        int m = MODIFICATIONS.get();
+        LexiconAutomaton a = automaton;
+        if (a == null || automatonModifications != m) {
+            // A benign race, at worst built more than once.
+            a = new LexiconAutomaton(map.keySet());
+            automatonModifications = m;
+            automaton = a;
+        }
+        return a;
+    }
+
+    /**
+     * Gets the symbol table of the language of these word valence entries,
+     * built on first use.
+     *
+     * @param l The language of this word valence dictionary.
+     * @return The {@link LexiconSymbols} of the language.
+     */
+    LexiconSymbols getSymbols(Language l) {
+        int m = MODIFICATIONS.get();
+        LexiconSymbols s = symbols;
+        if (s == null || symbolsModifications != m) {
+            // A benign race, at worst built more than once.
+            s = new LexiconSymbols(l, SYMBOL_WORDS);
+            symbolsModifications = m;
+            symbols = s;
+        }
+        return s;
+    }
+
+    /**
+     * Marks the derived tables of all the lexicon maps as outdated, after a
+     * change of a lexicon map or list.
+     */
+    static void modified() {
+        MODIFICATIONS.incrementAndGet();
+    }
+
+    @Override
+    public Float get(Object key) {
+        return (key instanceof String && !filter.mightContain((String) key)) ? null : map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (!(key instanceof String) || filter.mightContain((String) key)) && map.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public Float put(String key, Float value) {
+        Float previous = map.put(key, value);
+        if (map.size() > 2 * filter.getCapacity() + 64) {
+            filter = new LexiconFilter(map.keySet());
+        } else {
+            filter.add(key);
+        }
+        modified();
+        return previous;
+    }
+
+    @Override
+    public Float remove(Object key) {
+        if (!containsKey(key)) {
+            return null;
+        }
+        Float previous = map.remove(key);
+        modified();
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+        modified();
+    }
+
+    @Override
+    public Set<Entry<String, Float>> entrySet() {
+        return new AbstractSet<Entry<String, Float>>() {
+            @Override
+            public Iterator<Entry<String, Float>> iterator() {
+                final Iterator<Entry<String, Float>> i = map.entrySet().iterator();
+                return new Iterator<Entry<String, Float>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return i.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Float> next() {
+                        final Entry<String, Float> e = i.next();
+                        return new SimpleEntry<String, Float>(e) {
+                            @Override
+                            public Float setValue(Float value) {
+                                super.setValue(value);
+                                Float previous = e.setValue(value);
+                                modified();
+                                return previous;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        i.remove();
+                        modified();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return map.size();
+            }
+
+            @Override
+            public void clear() {
+                LexiconMap.this.clear();
+            }
+        };
+    }
+}
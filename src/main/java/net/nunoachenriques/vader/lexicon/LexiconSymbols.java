@@ -0,0 +1,372 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>A symbol table of a language lexicon entries: each entry of the word
+ * valence, booster and idioms dictionaries and of the negative words is a
+ * symbol ID, looked up directly on a {@code char[]} span (no
+ * {@code String}), with its attributes in arrays indexed by the ID. The
+ * analysis of a text may then resolve each token once and test the rules
+ * by ID, allocating nothing.</p>
+ *
+ * <p>Only the {@link English} lexicon (and a {@link ReloadableLanguage} of
+ * it) has one, see {@link #of(Language)}. Any other language (e.g., an
+ * {@link OverlayLanguage}) has a lazy one, see {@link #lazy(Language)}.</p>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class LexiconSymbols {
+
+    /**
+     * The ID of a span that is no symbol.
+     */
+    public static final int NONE = -1;
+
+    private static final int VALENCE = 1;
+    private static final int BOOSTER = 2;
+    private static final int IDIOM = 4;
+    private static final int NEGATIVE = 8;
+    private static final String HTTP = "http://";
+    private static final int CAPACITY_LAZY = 64;
+
+    // The language of a lazy table, null if built once.
+    private final Language language;
+    private final List<String> words;
+    private char[][] keys;
+    private int size;
+    private int[] table;
+    private int mask;
+    private byte[] flags;
+    private float[] valence;
+    private float[] booster;
+    private float[] idiom;
+
+    /**
+     * Builds the symbol table of the language entries plus the extra words
+     * (e.g., the ones the rules test, "but", "never", ...).
+     *
+     * @param l The language.
+     * @param words Extra words (no attributes).
+     */
+    LexiconSymbols(Language l, List<String> words) {
+        Map<String, Float> valenceDictionary = l.getWordValenceDictionary();
+        Map<String, Float> boosterDictionary = l.getBoosterDictionary();
+        Map<String, Float> idioms = l.getSentimentLadenIdioms();
+        List<String> negativeWords = l.getNegativeWords();
+        Set<String> entries = new LinkedHashSet<>();
+        entries.addAll(valenceDictionary.keySet());
+        entries.addAll(boosterDictionary.keySet());
+        entries.addAll(idioms.keySet());
+        entries.addAll(negativeWords);
+        entries.addAll(words);
+        language = null;
+        this.words = words;
+        allocate(entries.size());
+        for (String e : entries) {
+            add(e, l);
+        }
+    }
+
+    /*
+     * An empty lazy table of the language, the words added.
+     */
+    private LexiconSymbols(List<String> words, Language l) {
+        language = l;
+        this.words = words;
+        clear();
+    }
+
+    /**
+     * Gets the symbol table of a language, built once on first use. Only
+     * the {@link English} lexicon, or a {@link ReloadableLanguage} snapshot
+     * over it, has one: the symbol IDs stand for its dictionaries and
+     * {@link #isUpper(char[], int, int)} for {@link English#isUpper(String)}.
+     *
+     * @param l The language (e.g., a {@link ReloadableLanguage#snapshot()}).
+     * @return The symbol table, {@code null} if not available.
+     */
+    public static LexiconSymbols of(Language l) {
+        boolean english = (l instanceof English) || (ReloadableLanguage.baseOf(l) instanceof English);
+        Map<String, Float> dictionary = l.getWordValenceDictionary();
+        return (english && dictionary instanceof LexiconMap) ? ((LexiconMap) dictionary).getSymbols(l) : null;
+    }
+
+    /**
+     * Gets a lazy symbol table of any language: each span looked up is a
+     * symbol, its attributes looked up in the language on first use. Not
+     * thread-safe and growing with the distinct spans looked up, so one per
+     * analysis context, cleared per text (see {@link #clear()}).
+     *
+     * @param l The language (e.g., an {@link OverlayLanguage}).
+     * @return A new lazy symbol table.
+     */
+    public static LexiconSymbols lazy(Language l) {
+        return new LexiconSymbols(LexiconMap.SYMBOL_WORDS, l);
+    }
+
+    /**
+     * Removes the symbols of a lazy table (e.g., the previous text ones), the
+     * symbol IDs of the rule words are kept. Does nothing on a table of
+     * {@link #of(Language)}.
+     */
+    public void clear() {
+        if (language == null) {
+            return;
+        }
+        if (keys == null || keys.length > 4 * CAPACITY_LAZY) {
+            allocate(CAPACITY_LAZY);
+        } else {
+            Arrays.fill(table, NONE);
+            size = 0;
+        }
+        for (String w : words) {
+            add(w, language);
+        }
+    }
+
+    /**
+     * Gets the symbol ID of a span.
+     *
+     * @param b The characters.
+     * @param offset The span first index.
+     * @param length The span length.
+     * @return The symbol ID, {@link #NONE} if not a symbol (never on a lazy
+     * table).
+     */
+    public int lookup(char[] b, int offset, int length) {
+        int slot = hash(b, offset, length) & mask;
+        int id;
+        while ((id = table[slot]) != NONE) {
+            char[] k = keys[id];
+            if (k.length == length && regionEquals(k, b, offset)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return (language == null) ? NONE : add(new String(b, offset, length), language);
+    }
+
+    /**
+     * Gets the symbol ID of a word.
+     *
+     * @param s The word.
+     * @return The symbol ID, {@link #NONE} if not a symbol.
+     */
+    public int lookup(String s) {
+        return lookup(s.toCharArray(), 0, s.length());
+    }
+
+    /**
+     * Checks if a symbol is a word valence dictionary entry.
+     *
+     * @param id The symbol ID, or {@link #NONE}.
+     * @return True if an entry, false otherwise.
+     */
+    public boolean hasValence(int id) {
+        return id != NONE && (flags[id] & VALENCE) != 0;
+    }
+
+    /**
+     * Gets the word valence of a symbol.
+     *
+     * @param id The symbol ID of an entry, see {@link #hasValence(int)}.
+     * @return The valence.
+     */
+    public float getValence(int id) {
+        return valence[id];
+    }
+
+    /**
+     * Checks if a symbol is a booster dictionary entry.
+     *
+     * @param id The symbol ID, or {@link #NONE}.
+     * @return True if an entry, false otherwise.
+     */
+    public boolean hasBooster(int id) {
+        return id != NONE && (flags[id] & BOOSTER) != 0;
+    }
+
+    /**
+     * Gets the booster value of a symbol.
+     *
+     * @param id The symbol ID of an entry, see {@link #hasBooster(int)}.
+     * @return The booster value.
+     */
+    public float getBooster(int id) {
+        return booster[id];
+    }
+
+    /**
+     * Checks if a symbol is a sentiment laden idioms entry.
+     *
+     * @param id The symbol ID, or {@link #NONE}.
+     * @return True if an entry, false otherwise.
+     */
+    public boolean hasIdiom(int id) {
+        return id != NONE && (flags[id] & IDIOM) != 0;
+    }
+
+    /**
+     * Gets the idiom valence of a symbol.
+     *
+     * @param id The symbol ID of an entry, see {@link #hasIdiom(int)}.
+     * @return The idiom valence.
+     */
+    public float getIdiom(int id) {
+        return idiom[id];
+    }
+
+    /**
+     * Checks if a symbol is a negative word.
+     *
+     * @param id The symbol ID, or {@link #NONE}.
+     * @return True if a negative word, false otherwise.
+     */
+    public boolean isNegative(int id) {
+        return id != NONE && (flags[id] & NEGATIVE) != 0;
+    }
+
+    /**
+     * The same as {@link English#isUpper(String)} on a span.
+     *
+     * @param b The characters.
+     * @param offset The token first index.
+     * @param length The token length.
+     * @return True if the token is upper case, false otherwise.
+     */
+    public static boolean isUpper(char[] b, int offset, int length) {
+        if (length >= HTTP.length()) {
+            boolean http = true;
+            for (int i = 0; i < HTTP.length() && http; i++) {
+                char c = b[offset + i];
+                char h = HTTP.charAt(i);
+                http = c == h || Character.toUpperCase(c) == Character.toUpperCase(h)
+                        || Character.toLowerCase(c) == Character.toLowerCase(h);
+            }
+            if (http) {
+                return false;
+            }
+        }
+        boolean hasLetter = false;
+        for (int i = offset; i < offset + length; i++) {
+            char c = b[i];
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+            if (Character.isLowerCase(c)) {
+                return false;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                hasLetter = true;
+            }
+        }
+        return hasLetter;
+    }
+
+    private void allocate(int n) {
+        keys = new char[n][];
+        flags = new byte[n];
+        valence = new float[n];
+        booster = new float[n];
+        idiom = new float[n];
+        int capacity = Integer.highestOneBit(Math.max(n, 1) * 2 - 1) << 1;
+        table = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(table, NONE);
+        size = 0;
+    }
+
+    /*
+     * Adds a new entry, its attributes from the language, and returns its
+     * ID. Grows a lazy table (at most half full).
+     */
+    private int add(String e, Language l) {
+        if (size == keys.length) {
+            grow();
+        }
+        int id = size++;
+        keys[id] = e.toCharArray();
+        insert(id);
+        flags[id] = 0;
+        Float v = l.getWordValenceDictionary().get(e);
+        if (v != null) {
+            flags[id] |= VALENCE;
+            valence[id] = v;
+        }
+        Float b = l.getBoosterDictionary().get(e);
+        if (b != null) {
+            flags[id] |= BOOSTER;
+            booster[id] = b;
+        }
+        Float i = l.getSentimentLadenIdioms().get(e);
+        if (i != null) {
+            flags[id] |= IDIOM;
+            idiom[id] = i;
+        }
+        if (l.getNegativeWords().contains(e)) {
+            flags[id] |= NEGATIVE;
+        }
+        return id;
+    }
+
+    private void insert(int id) {
+        int slot = hash(keys[id], 0, keys[id].length) & mask;
+        while (table[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id;
+    }
+
+    private void grow() {
+        int n = 2 * keys.length;
+        keys = Arrays.copyOf(keys, n);
+        flags = Arrays.copyOf(flags, n);
+        valence = Arrays.copyOf(valence, n);
+        booster = Arrays.copyOf(booster, n);
+        idiom = Arrays.copyOf(idiom, n);
+        table = new int[2 * table.length];
+        mask = table.length - 1;
+        Arrays.fill(table, NONE);
+        for (int id = 0; id < size; id++) {
+            insert(id);
+        }
+    }
+
+    // String.hashCode() of the span, spread.
+    private static int hash(char[] b, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + b[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean regionEquals(char[] k, char[] b, int offset) {
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != b[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
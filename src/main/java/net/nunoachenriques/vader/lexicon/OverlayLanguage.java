@@ -0,0 +1,264 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link Language} with a small (e.g., tenant domain) word valence
+ * dictionary of additions, overrides and deletions layered in front of a
+ * shared base language lexicon, without copying it. Many overlays may share
+ * one base (e.g., {@link English}) in the same JVM, each one costs its own
+ * entries only. Overlays may be chained (an overlay base).
+ * <p>
+ * A per overlay Bloom filter of its words lets most lookups (words not in
+ * the overlay) go straight to the base. The other language parameters
+ * (punctuation, negative words, boosters, idioms, upper case) are the ones of
+ * the base language.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see English
+ * @see ReloadableLanguage
+ */
+public final class OverlayLanguage
+        implements Language {
+
+    private final Language base;
+    // Word to valence, null valence for a deleted word.
+    private final Map<String, Float> overlay;
+    private final BloomFilter filter;
+    private volatile OverlayMap view;
+
+    /**
+     * Layers the words over the base language lexicon.
+     *
+     * @param base The base language (e.g., {@link English}), shared.
+     * @param words Words to add or override (word to valence).
+     * @param deletions Words to delete from the base lexicon.
+     */
+    public OverlayLanguage(Language base, Map<String, Float> words, Collection<String> deletions) {
+        this.base = base;
+        Map<String, Float> o = new HashMap<>(Math.max(2 * (words.size() + deletions.size()), 16));
+        for (String d : deletions) {
+            o.put(d, null);
+        }
+        for (Map.Entry<String, Float> e : words.entrySet()) {
+            if (e.getValue() == null) {
+                throw new IllegalArgumentException("No valence for: " + e.getKey());
+            }
+            o.put(e.getKey(), e.getValue());
+        }
+        overlay = o;
+        filter = new BloomFilter(o.size());
+        for (String w : o.keySet()) {
+            filter.add(w);
+        }
+    }
+
+    /**
+     * Layers the words over the base language lexicon, no deletions.
+     *
+     * @param base The base language (e.g., {@link English}), shared.
+     * @param words Words to add or override (word to valence).
+     */
+    public OverlayLanguage(Language base, Map<String, Float> words) {
+        this(base, words, Collections.<String>emptyList());
+    }
+
+    @Override
+    public List<String> getPunctuation() {
+        return base.getPunctuation();
+    }
+
+    @Override
+    public List<String> getNegativeWords() {
+        return base.getNegativeWords();
+    }
+
+    @Override
+    public Map<String, Float> getBoosterDictionary() {
+        return base.getBoosterDictionary();
+    }
+
+    @Override
+    public Map<String, Float> getSentimentLadenIdioms() {
+        return base.getSentimentLadenIdioms();
+    }
+
+    /**
+     * Gets the read-only overlay view of the word valence dictionary. The
+     * view follows the base dictionary instance (e.g., a
+     * {@link ReloadableLanguage} new version).
+     *
+     * @return A map with key-value pairs of words and valence.
+     */
+    @Override
+    public Map<String, Float> getWordValenceDictionary() {
+        Map<String, Float> baseWords = base.getWordValenceDictionary();
+        OverlayMap v = view;
+        if (v == null || v.base != baseWords) {
+            // Benign race, the views are immutable and equivalent.
+            v = new OverlayMap(baseWords, overlay, filter);
+            view = v;
+        }
+        return v;
+    }
+
+    @Override
+    public boolean isUpper(String token) {
+        return base.isUpper(token);
+    }
+
+    /*
+     * The language the overlay is layered over.
+     */
+    Language getBase() {
+        return base;
+    }
+
+    /*
+     * Read-only view of the overlay in front of the base.
+     */
+    private static final class OverlayMap
+            extends AbstractMap<String, Float> {
+
+        private final Map<String, Float> base;
+        private final Map<String, Float> overlay;
+        private final BloomFilter filter;
+        private int size = -1;
+
+        OverlayMap(Map<String, Float> base, Map<String, Float> overlay, BloomFilter filter) {
+            this.base = base;
+            this.overlay = overlay;
+            this.filter = filter;
+        }
+
+        @Override
+        public Float get(Object key) {
+            if (key instanceof String && filter.mightContain((String) key) && overlay.containsKey(key)) {
+                return overlay.get(key);
+            }
+            return base.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (key instanceof String && filter.mightContain((String) key) && overlay.containsKey(key)) {
+                return overlay.get(key) != null;
+            }
+            return base.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            if (size < 0) {
+                int n = base.size();
+                for (Map.Entry<String, Float> e : overlay.entrySet()) {
+                    boolean inBase = base.containsKey(e.getKey());
+                    if (e.getValue() == null && inBase) {
+                        n--;
+                    } else if (e.getValue() != null && !inBase) {
+                        n++;
+                    }
+                }
+                size = n;
+            }
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, Float>> entrySet() {
+            return new AbstractSet<Entry<String, Float>>() {
+                @Override
+                public Iterator<Entry<String, Float>> iterator() {
+                    return new EntryIterator(base, overlay);
+                }
+
+                @Override
+                public int size() {
+                    return OverlayMap.this.size();
+                }
+            };
+        }
+    }
+
+    /*
+     * The base entries not in the overlay, then the overlay additions and
+     * overrides.
+     */
+    private static final class EntryIterator
+            implements Iterator<Map.Entry<String, Float>> {
+
+        private final Iterator<Map.Entry<String, Float>> baseEntries;
+        private final Iterator<Map.Entry<String, Float>> overlayEntries;
+        private final Map<String, Float> overlay;
+        private Map.Entry<String, Float> next;
+
+        EntryIterator(Map<String, Float> base, Map<String, Float> overlay) {
+            this.baseEntries = base.entrySet().iterator();
+            this.overlayEntries = overlay.entrySet().iterator();
+            this.overlay = overlay;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (baseEntries.hasNext()) {
+                Map.Entry<String, Float> e = baseEntries.next();
+                if (!overlay.containsKey(e.getKey())) {
+                    next = new AbstractMap.SimpleImmutableEntry<>(e);
+                    return;
+                }
+            }
+            while (overlayEntries.hasNext()) {
+                Map.Entry<String, Float> e = overlayEntries.next();
+                if (e.getValue() != null) {
+                    next = new AbstractMap.SimpleImmutableEntry<>(e);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, Float> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, Float> e = next;
+            advance();
+            return e;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import org.pmw.tinylog.Logger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link Language} with the word valence lexicon loaded from a file
+ * (same format as {@code english.txt}, UTF-8) that may be reloaded without
+ * restarting: on demand ({@link #reload()}, {@link #reloadAsync(ExecutorService)})
+ * or on file change ({@link #watch()}). The other language parameters
+ * (punctuation, negative words, boosters, idioms, upper case) are the ones
+ * of the base language (e.g., {@link English}).
+ * <p>
+ * The new lexicon is built off the scoring path and published with a single
+ * atomic reference swap, reads are lock-free. Each sentiment analysis uses
+ * one {@link #snapshot()}, i.e., one consistent lexicon version, even if a
+ * reload happens meanwhile. A lexicon that fails to load is not published.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see English
+ */
+public final class ReloadableLanguage
+        implements Language, Closeable {
+
+    private static final long WATCH_SETTLE_MILLIS = 100L;
+
+    private final Language base;
+    private final File lexicon;
+    private final AtomicReference<Version> current = new AtomicReference<>();
+    private final Object reloadLock = new Object();
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * Loads the lexicon file (first version).
+     *
+     * @param base The base language of the other parameters (e.g., {@link English}).
+     * @param lexicon The word valence lexicon file (word TAB valence per line).
+     * @throws IOException On lexicon file not found, read or format error.
+     */
+    public ReloadableLanguage(Language base, File lexicon)
+            throws IOException {
+        this.base = base;
+        this.lexicon = lexicon;
+        current.set(new Version(1L, base, load(lexicon)));
+    }
+
+    /**
+     * Gets the current version, the same lexicon for all the calls to it.
+     *
+     * @return The current lexicon version as a {@link Language}.
+     */
+    public Language snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Gets the current lexicon version number, starting at 1 and incremented
+     * on each successful reload.
+     *
+     * @return The current version number.
+     */
+    public long getVersion() {
+        return current.get().version;
+    }
+
+    /**
+     * Reloads the lexicon file in the calling thread and publishes it. On
+     * failure the current version remains.
+     *
+     * @return The new version number.
+     * @throws IOException On lexicon file read or format error.
+     */
+    public long reload()
+            throws IOException {
+        // Serialized reloads, readers are never blocked.
+        synchronized (reloadLock) {
+            Map<String, Float> words = load(lexicon);
+            Version v = new Version(current.get().version + 1L, base, words);
+            current.set(v);
+            return v.version;
+        }
+    }
+
+    /**
+     * Reloads the lexicon file in the given executor.
+     *
+     * @param executor The executor where the lexicon is built.
+     * @return The future new version number.
+     */
+    public Future<Long> reloadAsync(ExecutorService executor) {
+        return executor.submit(new Callable<Long>() {
+            @Override
+            public Long call()
+                    throws IOException {
+                return reload();
+            }
+        });
+    }
+
+    /**
+     * Watches the lexicon file and reloads it on change (created or
+     * modified) in a daemon thread. Reload errors are logged, the current
+     * version remains. Stop with {@link #close()}.
+     *
+     * @throws IOException On file system watch service error.
+     */
+    public synchronized void watch()
+            throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        final Path file = lexicon.getAbsoluteFile().toPath();
+        final WatchService ws = FileSystems.getDefault().newWatchService();
+        file.getParent().register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = ws;
+        watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchLoop(ws, file.getFileName());
+            }
+        }, "vader-lexicon-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops watching the lexicon file, if watching.
+     *
+     * @throws IOException On watch service close error.
+     */
+    @Override
+    public synchronized void close()
+            throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+            watcher = null;
+        }
+    }
+
+    private void watchLoop(WatchService ws, Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = ws.take();
+                if (isChanged(key, fileName)) {
+                    // Lets the writer finish and coalesces the burst of events.
+                    Thread.sleep(WATCH_SETTLE_MILLIS);
+                    WatchKey more;
+                    while ((more = ws.poll()) != null) {
+                        isChanged(more, fileName);
+                    }
+                    try {
+                        reload();
+                    } catch (IOException | RuntimeException e) {
+                        Logger.error(e, "Lexicon reload failed, version {} remains", getVersion());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped.
+        }
+    }
+
+    private static boolean isChanged(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private static Map<String, Float> load(File lexicon)
+            throws IOException {
+        Map<String, Float> words = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(lexicon), StandardCharsets.UTF_8))) {
+            English.readWordValenceDictionary(br, words);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Lexicon format error in " + lexicon + ": " + e.getMessage(), e);
+        }
+        LexiconMap map = new LexiconMap(words);
+        // The fast-reject automaton too, off the scoring path.
+        map.getAutomaton();
+        return map;
+    }
+
+    @Override
+    public List<String> getPunctuation() {
+        return base.getPunctuation();
+    }
+
+    @Override
+    public List<String> getNegativeWords() {
+        return base.getNegativeWords();
+    }
+
+    @Override
+    public Map<String, Float> getBoosterDictionary() {
+        return base.getBoosterDictionary();
+    }
+
+    @Override
+    public Map<String, Float> getSentimentLadenIdioms() {
+        return base.getSentimentLadenIdioms();
+    }
+
+    @Override
+    public Map<String, Float> getWordValenceDictionary() {
+        return current.get().words;
+    }
+
+    @Override
+    public boolean isUpper(String token) {
+        return base.isUpper(token);
+    }
+
+    /*
+     * The base language of the lexicon versions.
+     */
+    Language getBase() {
+        return base;
+    }
+
+    /*
+     * The base language of a snapshot, null if not a snapshot.
+     */
+    static Language baseOf(Language l) {
+        return (l instanceof Version) ? ((Version) l).base : null;
+    }
+
+    /*
+     * An immutable lexicon version.
+     */
+    private static final class Version
+            implements Language {
+
+        private final long version;
+        private final Language base;
+        private final Map<String, Float> words;
+
+        Version(long version, Language base, Map<String, Float> words) {
+            this.version = version;
+            this.base = base;
+            this.words = words;
+        }
+
+        @Override
+        public List<String> getPunctuation() {
+            return base.getPunctuation();
+        }
+
+        @Override
+        public List<String> getNegativeWords() {
+            return base.getNegativeWords();
+        }
+
+        @Override
+        public Map<String, Float> getBoosterDictionary() {
+            return base.getBoosterDictionary();
+        }
+
+        @Override
+        public Map<String, Float> getSentimentLadenIdioms() {
+            return base.getSentimentLadenIdioms();
+        }
+
+        @Override
+        public Map<String, Float> getWordValenceDictionary() {
+            return words;
+        }
+
+        @Override
+        public boolean isUpper(String token) {
+            return base.isUpper(token);
+        }
+    }
+}
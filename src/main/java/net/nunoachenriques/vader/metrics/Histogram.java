@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values (e.g., nanoseconds) in
+ * power of two buckets: bucket {@code i} counts the values in
+ * {@code [2^(i-1), 2^i)} and bucket 0 counts the zeros. The buckets are
+ * striped by thread as in {@link StripedCounter}.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(StripedCounter.STRIPES * BUCKETS);
+    private final StripedCounter sum = new StripedCounter();
+
+    Histogram() {
+    }
+
+    void record(long value) {
+        int bucket = Math.min(BUCKETS - Long.numberOfLeadingZeros(Math.max(value, 0L)), BUCKETS - 1);
+        buckets.getAndIncrement(StripedCounter.stripe() * BUCKETS + bucket);
+        sum.add(value);
+    }
+
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0L);
+        }
+        sum.reset();
+    }
+
+    Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < buckets.length(); i++) {
+            counts[i % BUCKETS] += buckets.get(i);
+        }
+        return new Snapshot(counts, sum.sum());
+    }
+
+    /**
+     * A point in time view of a {@link Histogram}. The percentiles are the
+     * upper bound of the bucket where they are (i.e., at most 2x the real
+     * value).
+     */
+    public static final class Snapshot {
+
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+
+        private Snapshot(long[] buckets, long sum) {
+            this.buckets = buckets;
+            long c = 0L;
+            for (long b : buckets) {
+                c += b;
+            }
+            this.count = c;
+            this.sum = sum;
+        }
+
+        /**
+         * Gets the number of recorded values.
+         *
+         * @return Number of values.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the total of the recorded values.
+         *
+         * @return Sum of values.
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Gets the mean of the recorded values.
+         *
+         * @return Mean value, 0 if none.
+         */
+        public double getMean() {
+            return (count == 0L) ? 0.0 : (double) sum / count;
+        }
+
+        /**
+         * Gets the median (50th percentile) bucket upper bound.
+         *
+         * @return The median upper bound.
+         */
+        public long getP50() {
+            return getPercentile(50.0);
+        }
+
+        /**
+         * Gets the 99th percentile bucket upper bound.
+         *
+         * @return The 99th percentile upper bound.
+         */
+        public long getP99() {
+            return getPercentile(99.0);
+        }
+
+        /**
+         * Gets the maximum bucket upper bound.
+         *
+         * @return The maximum upper bound.
+         */
+        public long getMax() {
+            return getPercentile(100.0);
+        }
+
+        /**
+         * Gets the count of each power of two bucket.
+         *
+         * @return The bucket counts, index {@code i} for values in
+         * {@code [2^(i-1), 2^i)}.
+         */
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        /**
+         * Gets a percentile bucket upper bound.
+         *
+         * @param p Percentile from 0 to 100.
+         * @return The percentile upper bound, 0 if none.
+         */
+        public long getPercentile(double p) {
+            long rank = (long) Math.ceil(count * p / 100.0);
+            long seen = 0L;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0L) {
+                    return (i == 0) ? 0L : (i == BUCKETS - 1) ? Long.MAX_VALUE : (1L << i) - 1L;
+                }
+            }
+            return 0L;
+        }
+    }
+}
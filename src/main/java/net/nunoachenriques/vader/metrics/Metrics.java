@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.metrics;
+
+/**
+ * The opt-in metrics of the sentiment analysis: calls, errors, tokens per
+ * text, per stage latency, lexicon and cache hit ratios. All counters are
+ * lock-free and striped by thread, so recording from many threads costs
+ * little more than an uncontended atomic add. Use
+ * {@link MetricsJmx#register(Metrics, String)} to expose them as a JMX
+ * MXBean.
+ *
+ * <pre>
+ * ...
+ * <code>
+ * Metrics metrics = new Metrics();
+ * MetricsJmx.register(metrics, "default");
+ * SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+ * sa.setMetrics(metrics);
+ * </code>
+ * ...
+ * </pre>
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class Metrics
+        implements MetricsMXBean {
+
+    /**
+     * The sentiment analysis stages measured.
+     */
+    public enum Stage {
+        /** Fast-reject and tokens (text spans or properties). */
+        TOKENIZE,
+        /** Lexicon lookup and rules (idioms included). */
+        RULES,
+        /** Idioms check, total per call. */
+        IDIOMS,
+        /** Polarity scores normalization. */
+        NORMALIZATION
+    }
+
+    private final StripedCounter calls = new StripedCounter();
+    private final StripedCounter errors = new StripedCounter();
+    private final StripedCounter lexiconHits = new StripedCounter();
+    private final StripedCounter lexiconMisses = new StripedCounter();
+    private final StripedCounter cacheHits = new StripedCounter();
+    private final StripedCounter cacheMisses = new StripedCounter();
+    private final Histogram tokens = new Histogram();
+    private final Histogram[] stages = new Histogram[Stage.values().length];
+    private volatile long start;
+
+    public Metrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new Histogram();
+        }
+        start = System.nanoTime();
+    }
+
+    /**
+     * Records a sentiment analysis call.
+     *
+     * @param tokenCount Number of tokens (words and emoticons) in the text.
+     * @param hits Number of tokens found in the word valence dictionary.
+     * @param misses Number of tokens not found in the word valence
+     *               dictionary.
+     */
+    public void recordCall(int tokenCount, int hits, int misses) {
+        calls.increment();
+        tokens.record(tokenCount);
+        lexiconHits.add(hits);
+        lexiconMisses.add(misses);
+    }
+
+    /**
+     * Records the latency of a stage.
+     *
+     * @param stage The stage measured.
+     * @param nanos Latency in nanoseconds.
+     */
+    public void recordStage(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records a failed call.
+     */
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Records a result found in a cache.
+     */
+    public void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    /**
+     * Records a result not found in a cache.
+     */
+    public void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public double getCallsPerSecond() {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return (seconds > 0.0) ? calls.sum() / seconds : 0.0;
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public Histogram.Snapshot getTokensPerText() {
+        return tokens.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getTokenizeLatency() {
+        return getStageLatency(Stage.TOKENIZE);
+    }
+
+    @Override
+    public Histogram.Snapshot getRulesLatency() {
+        return getStageLatency(Stage.RULES);
+    }
+
+    @Override
+    public Histogram.Snapshot getIdiomsLatency() {
+        return getStageLatency(Stage.IDIOMS);
+    }
+
+    @Override
+    public Histogram.Snapshot getNormalizationLatency() {
+        return getStageLatency(Stage.NORMALIZATION);
+    }
+
+    @Override
+    public long getLexiconHits() {
+        return lexiconHits.sum();
+    }
+
+    @Override
+    public long getLexiconMisses() {
+        return lexiconMisses.sum();
+    }
+
+    @Override
+    public double getLexiconHitRatio() {
+        return ratio(lexiconHits.sum(), lexiconMisses.sum());
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        return ratio(cacheHits.sum(), cacheMisses.sum());
+    }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        lexiconHits.reset();
+        lexiconMisses.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        tokens.reset();
+        for (Histogram stage : stages) {
+            stage.reset();
+        }
+        start = System.nanoTime();
+    }
+
+    /**
+     * Gets the latency distribution of a stage.
+     *
+     * @param stage The stage measured.
+     * @return Latency histogram.
+     */
+    public Histogram.Snapshot getStageLatency(Stage stage) {
+        return stages[stage.ordinal()].snapshot();
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return (total == 0L) ? 0.0 : (double) hits / total;
+    }
+}
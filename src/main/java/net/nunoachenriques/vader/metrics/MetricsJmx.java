@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Exposes {@link Metrics} on the platform MBean server. Kept apart from
+ * {@link Metrics} so that the metrics are usable where JMX is not available
+ * (e.g., Android).
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public final class MetricsJmx {
+
+    private static final String DOMAIN = "net.nunoachenriques.vader";
+
+    private MetricsJmx() {
+    }
+
+    /**
+     * Registers the metrics as an MXBean named
+     * {@code net.nunoachenriques.vader:type=Metrics,name=<name>}.
+     *
+     * @param metrics The metrics to expose.
+     * @param name The name to distinguish several metrics (e.g., default).
+     * @return The registered MXBean name.
+     * @throws JMException If the name is invalid or already registered.
+     */
+    public static ObjectName register(Metrics metrics, String name)
+            throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        return objectName;
+    }
+
+    /**
+     * Unregisters the metrics MXBean previously registered with the given
+     * name.
+     *
+     * @param name The name given on registration.
+     * @throws JMException If the name is invalid or not registered.
+     */
+    public static void unregister(String name)
+            throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+    }
+
+    private static ObjectName objectName(String name)
+            throws JMException {
+        return new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+    }
+}
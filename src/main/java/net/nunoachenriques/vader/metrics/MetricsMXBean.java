@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.metrics;
+
+/**
+ * The management interface of the sentiment analysis {@link Metrics}.
+ * Latencies are in nanoseconds.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Gets the number of sentiment analysis calls.
+     *
+     * @return Number of calls.
+     */
+    long getCalls();
+
+    /**
+     * Gets the mean number of calls per second since start (or reset).
+     *
+     * @return Calls per second.
+     */
+    double getCallsPerSecond();
+
+    /**
+     * Gets the number of calls that failed with an exception.
+     *
+     * @return Number of errors.
+     */
+    long getErrors();
+
+    /**
+     * Gets the distribution of the number of tokens per text.
+     *
+     * @return Tokens per text histogram.
+     */
+    Histogram.Snapshot getTokensPerText();
+
+    /**
+     * Gets the tokenize stage (text properties) latency distribution.
+     *
+     * @return Latency histogram.
+     */
+    Histogram.Snapshot getTokenizeLatency();
+
+    /**
+     * Gets the lexicon lookup and rules stage latency distribution
+     * (idioms included).
+     *
+     * @return Latency histogram.
+     */
+    Histogram.Snapshot getRulesLatency();
+
+    /**
+     * Gets the idioms check latency distribution, the total per call.
+     *
+     * @return Latency histogram.
+     */
+    Histogram.Snapshot getIdiomsLatency();
+
+    /**
+     * Gets the normalization stage (polarity scores) latency distribution.
+     *
+     * @return Latency histogram.
+     */
+    Histogram.Snapshot getNormalizationLatency();
+
+    /**
+     * Gets the number of tokens found in the word valence dictionary.
+     *
+     * @return Number of lexicon hits.
+     */
+    long getLexiconHits();
+
+    /**
+     * Gets the number of tokens not found in the word valence dictionary.
+     *
+     * @return Number of lexicon misses.
+     */
+    long getLexiconMisses();
+
+    /**
+     * Gets the ratio of tokens found in the word valence dictionary.
+     *
+     * @return Lexicon hits / (hits + misses), 0 if none.
+     */
+    double getLexiconHitRatio();
+
+    /**
+     * Gets the number of results found in a cache (e.g., the
+     * {@link net.nunoachenriques.vader.io.ScoreStore}), see
+     * {@link net.nunoachenriques.vader.SentimentAnalysis#recordCacheHit(int)}.
+     *
+     * @return Number of cache hits.
+     */
+    long getCacheHits();
+
+    /**
+     * Gets the number of results not found in a cache, see
+     * {@link net.nunoachenriques.vader.SentimentAnalysis#recordCacheMiss()}.
+     *
+     * @return Number of cache misses.
+     */
+    long getCacheMisses();
+
+    /**
+     * Gets the ratio of results found in a cache.
+     *
+     * @return Cache hits / (hits + misses), 0 if none.
+     */
+    double getCacheHitRatio();
+
+    /**
+     * Resets all the metrics to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free counter striped by thread. Each thread adds to its own padded
+ * cell (a cache line apart from the others) so that many threads counting at
+ * the same time do not contend. The sum is the total of all cells, not an
+ * atomic snapshot.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+final class StripedCounter {
+
+    // Longs per cache line (64 bytes), cells are padded to avoid false sharing.
+    private static final int PAD = 8;
+    static final int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+    StripedCounter() {
+    }
+
+    void increment() {
+        add(1L);
+    }
+
+    void add(long x) {
+        cells.getAndAdd(stripe() * PAD, x);
+    }
+
+    long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PAD, 0L);
+        }
+    }
+
+    /*
+     * Thread ids are sequential, so up to STRIPES threads have a stripe each.
+     */
+    static int stripe() {
+        return (int) Thread.currentThread().getId() & (STRIPES - 1);
+    }
+
+    private static int stripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Math.min(Integer.highestOneBit(Math.max(processors, 1)) << 1, 64);
+    }
+}
@@ -17,8 +17,12 @@ package net.nunoachenriques.vader.text;
 
 import net.nunoachenriques.vader.lexicon.Language;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Implements the text processing steps required by the VADER sentiment analysis
@@ -33,7 +37,7 @@ public class Properties {
     private static final int TOKEN_SIZE_MIN = 2;
     private static final int TOKEN_SIZE_MAX = Integer.MAX_VALUE;
 
-    private final String text;
+    private final CharSequence text;
     private final Language language;
     private final Tokenizer tokenizer;
     private List<String> wordsAndEmoticons;
@@ -43,11 +47,25 @@ public class Properties {
      * Default constructor. Does all the processing on instantiation, use the
      * getters afterwards.
      *
-     * @param text The text string to be processed.
+     * @param text The text to be processed.
      * @param language The {@link Language} implementation class instance.
      * @param tokenizer The tokenizer to be used for text processing.
      */
     public Properties(String text, Language language, Tokenizer tokenizer) {
+        this((CharSequence) text, language, tokenizer);
+    }
+
+    /**
+     * Does all the processing on instantiation, use the getters afterwards.
+     * The text is read in place by a {@link CharSequenceTokenizer}, a
+     * {@code String} copy is tokenized otherwise.
+     *
+     * @param text The text to be processed (e.g., {@code String},
+     *             {@code StringBuilder}, {@code CharBuffer} slice).
+     * @param language The {@link Language} implementation class instance.
+     * @param tokenizer The tokenizer to be used for text processing.
+     */
+    public Properties(CharSequence text, Language language, Tokenizer tokenizer) {
         this.text = text;
         this.language = language;
         this.tokenizer = tokenizer;
@@ -73,6 +91,23 @@ public class Properties {
         return numberOfLetters;
     }
 
+    /**
+     * Counts a character frequency in a text.
+     *
+     * @param s Text sample to search for the character occurrences.
+     * @param c The character to be counted (e.g., '!').
+     * @return The number of occurrences of the character in the text sample.
+     */
+    public static int countLetter(CharSequence s, char c) {
+        int numberOfLetters = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                numberOfLetters++;
+            }
+        }
+        return numberOfLetters;
+    }
+
     /**
      * Gets the list of words and emoticons extracted from the text.
      *
@@ -95,33 +130,122 @@ public class Properties {
     }
 
     private void setWordsAndEmoticons() {
-        // words only!
-        List<String> wordsOnly = tokenizer.cleanPunctuationAndSplitWhitespace(text, " ");
+        // words only! words plus emoticons!
+        List<String> wordsOnly;
+        List<String> wordsAndEmoticonsList;
+        if (tokenizer instanceof CharSequenceTokenizer) {
+            CharSequenceTokenizer t = (CharSequenceTokenizer) tokenizer;
+            wordsOnly = t.cleanPunctuationAndSplitWhitespace(text, " ");
+            wordsAndEmoticonsList = t.splitWhitespace(text);
+        } else {
+            String s = text.toString();
+            wordsOnly = tokenizer.cleanPunctuationAndSplitWhitespace(s, " ");
+            wordsAndEmoticonsList = tokenizer.splitWhitespace(s);
+        }
         tokenizer.removeTokensBySize(wordsOnly, TOKEN_SIZE_MIN, TOKEN_SIZE_MAX);
-        // words plus emoticons!
-        List<String> wordsAndEmoticonsList = tokenizer.splitWhitespace(text);
         tokenizer.removeTokensBySize(wordsAndEmoticonsList, TOKEN_SIZE_MIN, TOKEN_SIZE_MAX);
-        for (String currentWord : wordsOnly) {
-            for (String currentPunctuation : language.getPunctuation()) {
-                String pWord = currentWord + currentPunctuation;
-                Integer pWordCount = Collections.frequency(wordsAndEmoticonsList, pWord);
-                while (pWordCount > 0) {
-                    int index = wordsAndEmoticonsList.indexOf(pWord);
-                    wordsAndEmoticonsList.remove(pWord);
-                    wordsAndEmoticonsList.add(index, currentWord);
-                    pWordCount = Collections.frequency(wordsAndEmoticonsList, pWord);
+        List<String> punctuation = language.getPunctuation();
+        if (isPunctuationUnambiguous(wordsOnly, punctuation)) {
+            stripPunctuation(wordsOnly, wordsAndEmoticonsList, punctuation);
+        } else {
+            replacePunctuation(wordsOnly, wordsAndEmoticonsList, punctuation);
+        }
+        this.wordsAndEmoticons = wordsAndEmoticonsList;
+    }
+
+    /*
+     * True iff no word starts or ends with a punctuation character. Then each
+     * token matches at most one word plus punctuation (or punctuation plus
+     * word) and the replacement order does not matter.
+     */
+    private static boolean isPunctuationUnambiguous(List<String> words, List<String> punctuation) {
+        for (String p : punctuation) {
+            if (p.isEmpty()) {
+                return false;
+            }
+        }
+        for (String w : words) {
+            char first = w.charAt(0);
+            char last = w.charAt(w.length() - 1);
+            for (String p : punctuation) {
+                if (p.indexOf(first) != -1 || p.indexOf(last) != -1) {
+                    return false;
                 }
-                String wordP = currentPunctuation + currentWord;
-                Integer wordPCount = Collections.frequency(wordsAndEmoticonsList, wordP);
-                while (wordPCount > 0) {
-                    int index = wordsAndEmoticonsList.indexOf(wordP);
-                    wordsAndEmoticonsList.remove(wordP);
-                    wordsAndEmoticonsList.add(index, currentWord);
-                    wordPCount = Collections.frequency(wordsAndEmoticonsList, wordP);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Replaces each token made of a word plus punctuation (or punctuation plus
+     * word) by the word, in place, one hashed word lookup per candidate.
+     */
+    private static void stripPunctuation(List<String> words, List<String> tokens, List<String> punctuation) {
+        Set<String> wordSet = new HashSet<>(words);
+        for (int i = 0; i < tokens.size(); i++) {
+            String t = tokens.get(i);
+            for (String p : punctuation) {
+                int wordLength = t.length() - p.length();
+                String word = null;
+                if (wordLength > 0 && t.endsWith(p)) {
+                    word = findWord(wordSet, t.substring(0, wordLength));
+                }
+                if (word == null && wordLength > 0 && t.startsWith(p)) {
+                    word = findWord(wordSet, t.substring(p.length()));
+                }
+                if (word != null) {
+                    tokens.set(i, word);
+                    break;
                 }
             }
         }
-        this.wordsAndEmoticons = wordsAndEmoticonsList;
+    }
+
+    private static String findWord(Set<String> words, String candidate) {
+        return words.contains(candidate) ? candidate : null;
+    }
+
+    /*
+     * The same replacements as each word, each punctuation, in order: every
+     * token equal to word plus punctuation, then to punctuation plus word,
+     * replaced by the word (i.e., the original Collections.frequency() and
+     * indexOf() loops, quadratic on a long text). The token indexes are
+     * grouped by value, so each candidate is one lookup and each replacement
+     * (a token shortened) one index moved: linear in the text length. An
+     * empty punctuation is skipped (the original never ends).
+     */
+    private static void replacePunctuation(List<String> words, List<String> tokens, List<String> punctuation) {
+        Map<String, List<Integer>> indexes = new HashMap<>(2 * tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            indexesOf(indexes, tokens.get(i)).add(i);
+        }
+        for (String currentWord : words) {
+            for (String currentPunctuation : punctuation) {
+                if (!currentPunctuation.isEmpty()) {
+                    replace(indexes, tokens, currentWord + currentPunctuation, currentWord);
+                    replace(indexes, tokens, currentPunctuation + currentWord, currentWord);
+                }
+            }
+        }
+    }
+
+    private static void replace(Map<String, List<Integer>> indexes, List<String> tokens, String token, String word) {
+        List<Integer> replaced = indexes.remove(token);
+        if (replaced != null) {
+            for (int i : replaced) {
+                tokens.set(i, word);
+            }
+            indexesOf(indexes, word).addAll(replaced);
+        }
+    }
+
+    private static List<Integer> indexesOf(Map<String, List<Integer>> indexes, String token) {
+        List<Integer> l = indexes.get(token);
+        if (l == null) {
+            l = new ArrayList<>(1);
+            indexes.put(token, l);
+        }
+        return l;
     }
 
     /*
@@ -19,10 +19,12 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 /**
- * A simple tokenizer of plain text.
+ * A simple tokenizer of plain text. A tokenizer able to read any
+ * {@link CharSequence} in place implements {@link CharSequenceTokenizer}.
  *
  * @author Nuno A. C. Henriques [nunoachenriques.net]
  * @see java.util.regex.Pattern
+ * @see CharSequenceTokenizer
  */
 public interface Tokenizer {
 
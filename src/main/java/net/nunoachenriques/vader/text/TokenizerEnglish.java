@@ -15,21 +15,23 @@
  */
 package net.nunoachenriques.vader.text;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * A simple tokenizer of plain text.
+ * A simple tokenizer of plain text, any {@link CharSequence} read in place.
  *
  * @author Nuno A. C. Henriques [nunoachenriques.net]
- * @see net.nunoachenriques.vader.text.Tokenizer
+ * @see net.nunoachenriques.vader.text.CharSequenceTokenizer
  * @see java.util.regex.Pattern
  */
 public class TokenizerEnglish
-        implements Tokenizer {
+        implements CharSequenceTokenizer {
 
     /**
      * All types of white space (e.g., line feed).
@@ -54,28 +56,66 @@ public class TokenizerEnglish
     public TokenizerEnglish() {
     }
 
+    @Override
+    public List<String> split(CharSequence s, Pattern p) {
+        return new ArrayList<>(Arrays.asList(p.split(s)));
+    }
+
+    @Override
+    public List<String> cleanAndSplit(CharSequence s, Pattern p, Pattern c, String r) {
+        return new ArrayList<>(Arrays.asList(p.split(c.matcher(s).replaceAll(r))));
+    }
+
+    @Override
+    public List<String> splitWhitespace(CharSequence s) {
+        return split(s, WHITESPACE_PATTERN);
+    }
+
+    @Override
+    public List<String> cleanPunctuationAndSplitWhitespace(CharSequence s, String r) {
+        if (r.length() == 1 && isWhitespace(r.charAt(0))) {
+            return splitWhitespaceAndPunctuation(s);
+        }
+        return cleanAndSplit(s, WHITESPACE_PATTERN, PUNCTUATION_EXCLUDE_CONTRACTION_PATTERN, r);
+    }
+
     @Override
     public List<String> split(String s, Pattern p) {
-        return new LinkedList<>(Arrays.asList(p.split(s)));
+        return split((CharSequence) s, p);
     }
 
     @Override
     public List<String> cleanAndSplit(String s, Pattern p, Pattern c, String r) {
-        return new LinkedList<>(Arrays.asList(p.split(c.matcher(s).replaceAll(r))));
+        return cleanAndSplit((CharSequence) s, p, c, r);
     }
 
     @Override
     public List<String> splitWhitespace(String s) {
-        return split(s, WHITESPACE_PATTERN);
+        return splitWhitespace((CharSequence) s);
     }
 
     @Override
     public List<String> cleanPunctuationAndSplitWhitespace(String s, String r) {
-        return cleanAndSplit(s, WHITESPACE_PATTERN, PUNCTUATION_EXCLUDE_CONTRACTION_PATTERN, r);
+        return cleanPunctuationAndSplitWhitespace((CharSequence) s, r);
     }
 
     @Override
     public void removeTokensBySize(List<String> l, int min, int max) {
+        if (l instanceof RandomAccess) {
+            // One pass compaction instead of one array shift per removal.
+            int kept = 0;
+            for (int i = 0; i < l.size(); i++) {
+                String t = l.get(i);
+                if (t.length() >= min && t.length() <= max) {
+                    if (kept != i) {
+                        l.set(kept, t);
+                    }
+                    kept++;
+                }
+            }
+            l.subList(kept, l.size()).clear();
+            return;
+        }
         Iterator<String> i = l.iterator();
         while (i.hasNext()) {
             String t = i.next();
@@ -84,4 +124,47 @@ public class TokenizerEnglish
             }
         }
     }
+
+    /*
+     * The same as the white space split of the text with each punctuation
+     * match (one char) replaced by white space, i.e., Pattern.split()
+     * semantics, without building the cleaned text.
+     */
+    private static List<String> splitWhitespaceAndPunctuation(CharSequence s) {
+        List<String> tokens = new ArrayList<>();
+        Matcher m = PUNCTUATION_EXCLUDE_CONTRACTION_PATTERN.matcher(s);
+        int punctuation = m.find() ? m.start() : -1;
+        int start = 0;
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            boolean separator;
+            if (i == punctuation) {
+                separator = true;
+                punctuation = m.find() ? m.start() : -1;
+            } else {
+                separator = isWhitespace(s.charAt(i));
+            }
+            if (separator) {
+                tokens.add(s.subSequence(start, i).toString());
+                start = i + 1;
+            }
+        }
+        if (tokens.isEmpty()) {
+            tokens.add(s.toString());
+            return tokens;
+        }
+        tokens.add(s.subSequence(start, length).toString());
+        // Trailing empty strings are not included.
+        int size = tokens.size();
+        while (size > 0 && tokens.get(size - 1).isEmpty()) {
+            size--;
+        }
+        tokens.subList(size, tokens.size()).clear();
+        return tokens;
+    }
+
+    // Java \p{Space} as in the WHITESPACE_PATTERN.
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
 }
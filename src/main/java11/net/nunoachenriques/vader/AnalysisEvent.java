@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A sentiment analysis call event. This is the Java 11+ version that commits
+ * a Java Flight Recorder event ({@code net.nunoachenriques.vader.Analysis}).
+ * Only calls longer than the threshold (default 10 ms, see
+ * {@link Threshold}) are recorded. When recording is off
+ * {@link #isEnabled()} is false and nothing else is done.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+final class AnalysisEvent {
+
+    static final String CACHE_NONE = "none";
+    static final String CACHE_HIT = "hit";
+    static final String CACHE_MISS = "miss";
+
+    int textLength;
+    int tokenCount;
+    String language;
+    long tokenizeDuration;
+    long rulesDuration;
+    long idiomsDuration;
+    long normalizationDuration;
+    String cacheOutcome;
+
+    private final Jfr event = new Jfr();
+
+    AnalysisEvent() {
+    }
+
+    boolean isEnabled() {
+        return event.isEnabled();
+    }
+
+    void begin() {
+        event.begin();
+    }
+
+    void end() {
+        event.end();
+    }
+
+    boolean shouldCommit() {
+        return event.shouldCommit();
+    }
+
+    void commit() {
+        event.textLength = textLength;
+        event.tokenCount = tokenCount;
+        event.language = language;
+        event.tokenizeDuration = tokenizeDuration;
+        event.rulesDuration = rulesDuration;
+        event.idiomsDuration = idiomsDuration;
+        event.normalizationDuration = normalizationDuration;
+        event.cacheOutcome = cacheOutcome;
+        event.commit();
+    }
+
+    @Name("net.nunoachenriques.vader.Analysis")
+    @Label("Sentiment Analysis")
+    @Category("VADER")
+    @Description("A sentiment analysis call")
+    @StackTrace(false)
+    @Threshold("10 ms")
+    static final class Jfr
+            extends Event {
+
+        @Label("Text Length")
+        int textLength;
+
+        @Label("Token Count")
+        int tokenCount;
+
+        @Label("Language")
+        String language;
+
+        @Label("Tokenize")
+        @Description("Fast-reject and tokens (text spans or properties)")
+        @Timespan(Timespan.NANOSECONDS)
+        long tokenizeDuration;
+
+        @Label("Rules")
+        @Description("Lexicon lookup and rules (idioms included)")
+        @Timespan(Timespan.NANOSECONDS)
+        long rulesDuration;
+
+        @Label("Idioms")
+        @Timespan(Timespan.NANOSECONDS)
+        long idiomsDuration;
+
+        @Label("Normalization")
+        @Timespan(Timespan.NANOSECONDS)
+        long normalizationDuration;
+
+        @Label("Cache")
+        @Description("Result cache (e.g., ScoreStore) outcome: none, hit or miss")
+        String cacheOutcome;
+    }
+}
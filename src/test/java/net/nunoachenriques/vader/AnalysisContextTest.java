@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.lexicon.Language;
+import net.nunoachenriques.vader.lexicon.LexiconSymbols;
+import net.nunoachenriques.vader.lexicon.OverlayLanguage;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Testing the {@link AnalysisContext} span tokens: the same polarity values
+ * (bit-exact) and explanation as the {@code Properties} tokens ones, which
+ * are the ones of an {@link OverlayLanguage} (lazy symbol table) over the
+ * same lexicon, on the ground truth corpora and on random texts made of
+ * lexicon entries, rule words, punctuation, letter case and white space
+ * variants.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class AnalysisContextTest {
+
+    private static final ClassLoader LOADER = AnalysisContextTest.class.getClassLoader();
+    private static final String[] WORDS = {
+            "but", "BUT", "But", "least", "LEAST", "at", "very", "kind", "of", "never", "so", "this",
+            "Never", "So", "the", "a", "I", "http://x.com", "HTTP://Y", "OK", "a.b", "J.R.R.", "it's",
+            "'tis", "don't", "isn't", "DON'T", "caf\u00e9", "\ud83d\ude00", "\u0130stanbul", "\u03a3OS", "x\u0085"};
+    private static final String[] PUNCTUATION = {
+            ".", ",", "!", "?", ";", ":", "-", "'", "\"", "!!", "!!!", "??", "???", "?!?", "(", ")", "#", "...", "'s"};
+    private static final String[] WHITESPACE = {" ", " ", " ", "  ", "\t", "\n", "\u000b", "\r\n", " . ", "\u2028"};
+
+    @Test
+    public void testGroundTruthBitExact()
+            throws IOException {
+        List<String> texts = new ArrayList<>();
+        for (String file : Arrays.asList("amazonReviewSnippets_GroundTruth_vader.tsv",
+                "movieReviewSnippets_GroundTruth_vader.tsv",
+                "nytEditorialSnippets_GroundTruth_vader.tsv",
+                "tweets_GroundTruth_vader.tsv")) {
+            texts.addAll(readTexts(file));
+        }
+        assertBitExact(texts);
+    }
+
+    @Test
+    public void testRandomTextsBitExact() {
+        English english = new English();
+        List<List<String>> entries = Arrays.asList(
+                new ArrayList<>(english.getWordValenceDictionary().keySet()),
+                new ArrayList<>(english.getBoosterDictionary().keySet()),
+                new ArrayList<>(english.getSentimentLadenIdioms().keySet()),
+                english.getNegativeWords(),
+                Arrays.asList(WORDS));
+        Random random = new Random(47L);
+        List<String> texts = new ArrayList<>();
+        for (int k = 0; k < 20000; k++) {
+            StringBuilder sb = new StringBuilder();
+            int tokens = random.nextInt((random.nextInt(10) == 0) ? 60 : 15);
+            for (int t = 0; t < tokens; t++) {
+                List<String> list = entries.get(Math.min(random.nextInt(7), entries.size() - 1));
+                String w = list.get(random.nextInt(list.size()));
+                int letterCase = random.nextInt(6);
+                if (letterCase == 0) {
+                    w = w.toUpperCase(Locale.ROOT);
+                } else if (letterCase == 1 && !w.isEmpty()) {
+                    w = Character.toUpperCase(w.charAt(0)) + w.substring(1);
+                }
+                if (random.nextInt(4) == 0) {
+                    w = w + PUNCTUATION[random.nextInt(PUNCTUATION.length)];
+                }
+                if (random.nextInt(6) == 0) {
+                    w = PUNCTUATION[random.nextInt(PUNCTUATION.length)] + w;
+                }
+                sb.append(w).append(WHITESPACE[random.nextInt(WHITESPACE.length)]);
+            }
+            if (random.nextBoolean() && sb.length() > 0) {
+                sb.setLength(sb.length() - 1);
+            }
+            texts.add(sb.toString());
+        }
+        assertBitExact(texts);
+    }
+
+    @Test
+    public void testReuseAndFallback() {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        AnalysisContext context = new AnalysisContext();
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            longText.append("not so good but GREAT!! ");
+        }
+        List<String> texts = Arrays.asList("Good.", longText.toString(), "", "bad",
+                "\u0130yi g\u00fcnler, great", "\u03a3 is bad");
+        for (String text : texts) {
+            Map<String, Float> expected = sa.getSentimentAnalysis(text);
+            Assert.assertSame(context, sa.getSentimentAnalysis(text, context));
+            Assert.assertEquals(text, expected, context.toMap());
+            Assert.assertEquals(text, expected.get("compound"), context.getCompound(), 0.0f);
+            Assert.assertEquals(text, expected.get("positive"), context.getPositive(), 0.0f);
+            Assert.assertEquals(text, expected.get("negative"), context.getNegative(), 0.0f);
+            Assert.assertEquals(text, expected.get("neutral"), context.getNeutral(), 0.0f);
+        }
+        Language overlay = new OverlayLanguage(new English(), Collections.<String, Float>emptyMap());
+        Assert.assertNotNull(LexiconSymbols.of(new English()));
+        Assert.assertNull(LexiconSymbols.of(overlay));
+        SentimentAnalysis fallback = new SentimentAnalysis(overlay, new TokenizerEnglish());
+        Assert.assertEquals(sa.getSentimentAnalysis("It is good"),
+                fallback.getSentimentAnalysis("It is good", context).toMap());
+    }
+
+    private static void assertBitExact(List<String> texts) {
+        English english = new English();
+        SentimentAnalysis reference = new SentimentAnalysis(
+                new OverlayLanguage(english, Collections.<String, Float>emptyMap()), new TokenizerEnglish());
+        SentimentAnalysis sa = new SentimentAnalysis(english, new TokenizerEnglish());
+        AnalysisContext context = new AnalysisContext();
+        for (String text : texts) {
+            Map<String, Float> expected = reference.getSentimentAnalysis(text);
+            Assert.assertEquals(text, expected, sa.getSentimentAnalysis(text, context).toMap());
+            Assert.assertEquals(text, expected, sa.getSentimentAnalysis(text));
+            Assert.assertEquals(text, reference.explain(text).toString(), sa.explain(text).toString());
+        }
+    }
+
+    private static List<String> readTexts(String file)
+            throws IOException {
+        List<String> texts = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(LOADER.getResourceAsStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                texts.add(line.split("\\t")[5]);
+            }
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Testing the UTF-8 bytes methods, the same results on every Java version
+ * of the multi-release JAR.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class BytesTest {
+
+    @Test
+    public void testDecode() {
+        for (String text : new String[]{"", "VADER is smart, handsome, and funny!",
+                "Caf\u00e9 \u00e9 \u00f3timo \ud83d\ude00", "\u2014 :-)"}) {
+            byte[] b = ("#" + text + "#").getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(text, Bytes.decode(b, 1, b.length - 2));
+        }
+        byte[] invalid = {'a', (byte) 0xC3, 'b', (byte) 0xFF, (byte) 0x80};
+        Assert.assertEquals(new String(invalid, StandardCharsets.UTF_8), Bytes.decode(invalid, 0, invalid.length));
+    }
+
+    @Test
+    public void testRemaining() {
+        byte[] b = "VADER is smart!".getBytes(StandardCharsets.UTF_8);
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.wrap(b), ByteBuffer.allocateDirect(b.length).put(b)}) {
+            buffer.position(6);
+            Assert.assertArrayEquals(Arrays.copyOfRange(b, 6, b.length), Bytes.remaining(buffer));
+            Assert.assertEquals(6, buffer.position());
+        }
+    }
+}
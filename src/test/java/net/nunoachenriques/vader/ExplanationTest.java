@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import net.nunoachenriques.vader.Explanation.Rule;
+import net.nunoachenriques.vader.Explanation.Step;
+import net.nunoachenriques.vader.Explanation.Token;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Testing the {@link Explanation} trace of a sentence with all caps, booster,
+ * negation and "but" rules: the tokens, the rule steps in order with the
+ * trigger token and the valence before and after, the punctuation boost and
+ * the same polarity values as the regular analysis.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class ExplanationTest {
+
+    private static final String TEXT = "not very GOOD but great!!";
+    private static final float DELTA = 1e-4f;
+
+    @Test
+    public void testTrace() {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        Explanation e = sa.explain(TEXT);
+        List<Token> tokens = e.getTokens();
+        Assert.assertEquals(5, tokens.size());
+        String[] words = {"not", "very", "GOOD", "but", "great"};
+        for (int i = 0; i < words.length; i++) {
+            Assert.assertEquals(i, tokens.get(i).getIndex());
+            Assert.assertEquals(words[i], tokens.get(i).getToken());
+        }
+        // Not in the lexicon, no rules.
+        for (int i : new int[]{0, 3}) {
+            Assert.assertFalse(words[i], tokens.get(i).isLexiconHit());
+            Assert.assertTrue(words[i], Float.isNaN(tokens.get(i).getLexiconValence()));
+            Assert.assertTrue(words[i], tokens.get(i).getSteps().isEmpty());
+            Assert.assertEquals(words[i], 0.0f, tokens.get(i).getValence(), 0.0f);
+        }
+        // Booster word itself, valence ignored.
+        Token very = tokens.get(1);
+        assertSteps(very, Arrays.asList(Rule.SKIPPED));
+        assertStep(very.getSteps().get(0), Rule.SKIPPED, 1, 0.0f, 0.0f);
+        Assert.assertEquals(0.0f, very.getValence(), 0.0f);
+        // All caps, boosted by "very", negated by "not", halved before "but".
+        Token good = tokens.get(2);
+        Assert.assertTrue(good.isLexiconHit());
+        Assert.assertEquals(1.9f, good.getLexiconValence(), DELTA);
+        assertSteps(good, Arrays.asList(Rule.ALL_CAPS, Rule.BOOSTER, Rule.NEGATION, Rule.BUT));
+        List<Step> steps = good.getSteps();
+        assertStep(steps.get(0), Rule.ALL_CAPS, 2, 1.9f, 2.633f);
+        assertStep(steps.get(1), Rule.BOOSTER, 1, 2.633f, 2.926f);
+        assertStep(steps.get(2), Rule.NEGATION, 0, 2.926f, -2.16524f);
+        assertStep(steps.get(3), Rule.BUT, 3, -2.16524f, -1.08262f);
+        Assert.assertEquals(-1.08262f, good.getValence(), DELTA);
+        // Boosted by "very" (3 tokens before), increased after "but".
+        Token great = tokens.get(4);
+        Assert.assertEquals(3.1f, great.getLexiconValence(), DELTA);
+        assertSteps(great, Arrays.asList(Rule.BOOSTER, Rule.BUT));
+        assertStep(great.getSteps().get(0), Rule.BOOSTER, 1, 3.1f, 3.3637f);
+        assertStep(great.getSteps().get(1), Rule.BUT, 3, 3.3637f, 5.04555f);
+        Assert.assertEquals(5.04555f, great.getValence(), DELTA);
+        // Each step starts from the previous one, the lexicon valence first.
+        for (Token t : tokens) {
+            float valence = t.isLexiconHit() ? t.getLexiconValence() : 0.0f;
+            for (Step s : t.getSteps()) {
+                Assert.assertEquals(t.getToken(), valence, s.getValenceBefore(), DELTA);
+                valence = s.getValenceAfter();
+            }
+            Assert.assertEquals(t.getToken(), valence, t.getValence(), DELTA);
+        }
+        // Two exclamation marks.
+        Assert.assertEquals(2 * Constant.EXCLAMATION_BOOST, e.getPunctuationBoost(), DELTA);
+        Assert.assertEquals(sa.getSentimentAnalysis(TEXT), e.getPolarity());
+    }
+
+    @Test
+    public void testNoTraceAfterExplain() {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        Explanation e = sa.explain(TEXT);
+        int steps = e.getTokens().get(2).getSteps().size();
+        Assert.assertEquals(e.getPolarity(), sa.getSentimentAnalysis(TEXT));
+        Assert.assertEquals(e.getPolarity(), sa.getSentimentAnalysis(TEXT, new AnalysisContext()).toMap());
+        Assert.assertEquals(steps, e.getTokens().get(2).getSteps().size());
+    }
+
+    private static void assertSteps(Token t, List<Rule> rules) {
+        Assert.assertEquals(t.getToken(), rules.size(), t.getSteps().size());
+        for (int i = 0; i < rules.size(); i++) {
+            Assert.assertEquals(t.getToken(), rules.get(i), t.getSteps().get(i).getRule());
+        }
+    }
+
+    private static void assertStep(Step s, Rule rule, int trigger, float before, float after) {
+        Assert.assertEquals(rule, s.getRule());
+        Assert.assertEquals(rule.name(), trigger, s.getTrigger());
+        Assert.assertEquals(rule.name(), before, s.getValenceBefore(), DELTA);
+        Assert.assertEquals(rule.name(), after, s.getValenceAfter(), DELTA);
+    }
+}
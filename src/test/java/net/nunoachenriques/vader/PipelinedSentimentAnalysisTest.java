@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Testing the {@link PipelinedSentimentAnalysis}: the same results as the
+ * {@link SentimentAnalysis}, in the submission order, for each wait
+ * strategy and a small ring (wrapping around many times), and a stage
+ * thread error rethrown to the producer.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class PipelinedSentimentAnalysisTest {
+
+    private static final ClassLoader LOADER = PipelinedSentimentAnalysisTest.class.getClassLoader();
+
+    @Test
+    public void testSameAsSentimentAnalysis() throws IOException {
+        // Busy spin stages may share a single core, a subset is enough.
+        List<String> texts = readTexts("tweets_GroundTruth_vader.tsv").subList(0, 1000);
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        List<Map<String, Float>> expected = new ArrayList<>();
+        for (String text : texts) {
+            expected.add(sa.getSentimentAnalysis(text));
+        }
+        for (PipelinedSentimentAnalysis.WaitStrategy w : PipelinedSentimentAnalysis.WaitStrategy.values()) {
+            Collector collector = new Collector();
+            PipelinedSentimentAnalysis<Integer> pipeline = new PipelinedSentimentAnalysis<>(
+                    new English(), new TokenizerEnglish(), collector, 16, 5, w, null);
+            for (int i = 0; i < texts.size(); i++) {
+                pipeline.submit(texts.get(i), i);
+            }
+            pipeline.close();
+            Assert.assertEquals(w.name(), texts.size(), pipeline.getEmitted());
+            Assert.assertEquals(w.name(), expected, collector.results);
+            Assert.assertEquals(w.name(), texts.size(), collector.tags.size());
+            for (int i = 0; i < texts.size(); i++) {
+                Assert.assertEquals(w.name(), Integer.valueOf(i), collector.tags.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testError() {
+        Collector collector = new Collector();
+        PipelinedSentimentAnalysis<Integer> pipeline = new PipelinedSentimentAnalysis<>(
+                new English(), new TokenizerEnglish(), collector);
+        pipeline.submit("Good!", 0);
+        pipeline.submit(null, 1);
+        pipeline.submit("Bad!", 2);
+        pipeline.flush();
+        Assert.assertEquals(2, collector.results.size());
+        Assert.assertEquals(1, collector.errors.size());
+        Assert.assertEquals(Integer.valueOf(1), collector.errors.get(0));
+        pipeline.close();
+        try {
+            pipeline.submit("Late.", 3);
+            Assert.fail("Fails to refuse a text after close!");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+    }
+
+    @Test(timeout = 10000L)
+    public void testStageError() {
+        // Tokenize stage.
+        PipelinedSentimentAnalysis<Integer> pipeline = new PipelinedSentimentAnalysis<>(
+                new English(), new TokenizerEnglish(), new Collector());
+        pipeline.submit("Good!", 0);
+        pipeline.submit(new FailingText(), 1);
+        try {
+            pipeline.flush();
+            Assert.fail("Fails to rethrow the tokenize stage error!");
+        } catch (StackOverflowError e) {
+            Assert.assertEquals("Tokenize", e.getMessage());
+        }
+        try {
+            pipeline.close();
+            Assert.fail("Fails to rethrow the tokenize stage error on close!");
+        } catch (StackOverflowError e) {
+            // Expected.
+        }
+        // Emit stage (handler), a full ring: the producer must not wait.
+        pipeline = new PipelinedSentimentAnalysis<>(new English(), new TokenizerEnglish(), new Collector() {
+            @Override
+            public void onResult(Integer tag, Map<String, Float> polarity) {
+                throw new OutOfMemoryError("Handler");
+            }
+        }, 4, 2, PipelinedSentimentAnalysis.WaitStrategy.PARK, null);
+        try {
+            for (int i = 0; i < 100; i++) {
+                pipeline.submit("Good!", i);
+            }
+            Assert.fail("Fails to rethrow the emit stage error on submit!");
+        } catch (OutOfMemoryError e) {
+            Assert.assertEquals("Handler", e.getMessage());
+        }
+        try {
+            pipeline.close();
+            Assert.fail("Fails to rethrow the emit stage error on close!");
+        } catch (OutOfMemoryError e) {
+            // Expected.
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityPowerOfTwo() {
+        new PipelinedSentimentAnalysis<>(new English(), new TokenizerEnglish(), new Collector(),
+                1000, 10, PipelinedSentimentAnalysis.WaitStrategy.PARK, null);
+    }
+
+    private static List<String> readTexts(String file)
+            throws IOException {
+        List<String> texts = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(LOADER.getResourceAsStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                texts.add(line.split("\\t")[5]);
+            }
+        }
+        return texts;
+    }
+
+    // A text failing the tokenize stage with an error.
+    private static final class FailingText
+            implements CharSequence {
+
+        @Override
+        public int length() {
+            throw new StackOverflowError("Tokenize");
+        }
+
+        @Override
+        public char charAt(int index) {
+            throw new StackOverflowError("Tokenize");
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            throw new StackOverflowError("Tokenize");
+        }
+
+        @Override
+        public String toString() {
+            throw new StackOverflowError("Tokenize");
+        }
+    }
+
+    // Emit stage thread only, read after flush() or close().
+    private static class Collector
+            implements PipelinedSentimentAnalysis.Handler<Integer> {
+
+        private final List<Integer> tags = new ArrayList<>();
+        private final List<Map<String, Float>> results = new ArrayList<>();
+        private final List<Integer> errors = new ArrayList<>();
+
+        @Override
+        public void onResult(Integer tag, Map<String, Float> polarity) {
+            tags.add(tag);
+            results.add(polarity);
+        }
+
+        @Override
+        public void onError(Integer tag, RuntimeException e) {
+            errors.add(tag);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.metrics.Metrics;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Allocation budget regression test of the scoring hot path. The average
+ * bytes allocated per {@link SentimentAnalysis#getSentimentAnalysis(CharSequence)}
+ * call, for each Ground Truth file, must stay within the checked in budget
+ * ({@code allocation-budget.properties}). Skipped when the JVM does not
+ * support thread allocated bytes measurement.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ * @see SentimentAnalysisEnglishTest
+ */
+public class SentimentAnalysisAllocationTest {
+
+    private static final ClassLoader LOADER = SentimentAnalysisAllocationTest.class.getClassLoader();
+    private static final String BUDGET = "allocation-budget.properties";
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 3;
+    private static Properties budget;
+    private static com.sun.management.ThreadMXBean threadBean;
+
+    @BeforeClass
+    public static void init()
+            throws IOException {
+        budget = new Properties();
+        try (InputStream is = LOADER.getResourceAsStream(BUDGET)) {
+            budget.load(is);
+        }
+        ThreadMXBean tmx = ManagementFactory.getThreadMXBean();
+        if (tmx instanceof com.sun.management.ThreadMXBean) {
+            threadBean = (com.sun.management.ThreadMXBean) tmx;
+            if (threadBean.isThreadAllocatedMemorySupported()) {
+                threadBean.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                threadBean = null;
+            }
+        }
+    }
+
+    @Test
+    public void testAmazonReviewSnippetsGTV() {
+        testAllocationBudget("amazonReviewSnippets_GroundTruth_vader.tsv");
+    }
+
+    @Test
+    public void testMovieReviewSnippetsGTV() {
+        testAllocationBudget("movieReviewSnippets_GroundTruth_vader.tsv");
+    }
+
+    @Test
+    public void testNytEditorialSnippetsGTV() {
+        testAllocationBudget("nytEditorialSnippets_GroundTruth_vader.tsv");
+    }
+
+    @Test
+    public void testTweetsGTV() {
+        testAllocationBudget("tweets_GroundTruth_vader.tsv");
+    }
+
+    @Test
+    public void testAnalysisContext() {
+        testAnalysisContext(null);
+    }
+
+    @Test
+    public void testAnalysisContextWithMetrics() {
+        Metrics metrics = new Metrics();
+        testAnalysisContext(metrics);
+        Assert.assertTrue(metrics.getCalls() > 0L);
+        Assert.assertTrue(metrics.getLexiconHits() > 0L);
+    }
+
+    private void testAnalysisContext(Metrics metrics) {
+        Assume.assumeTrue(threadBean != null);
+        long bytesPerCallMax = Long.parseLong(budget.getProperty("AnalysisContext"));
+        List<String> texts = new ArrayList<>();
+        for (String file : new String[]{"amazonReviewSnippets_GroundTruth_vader.tsv",
+                "movieReviewSnippets_GroundTruth_vader.tsv",
+                "nytEditorialSnippets_GroundTruth_vader.tsv",
+                "tweets_GroundTruth_vader.tsv"}) {
+            texts.addAll(readTexts(file));
+        }
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        sa.setMetrics(metrics);
+        AnalysisContext context = new AnalysisContext();
+        for (String text : texts) {
+            sa.getSentimentAnalysis(text, context);
+            sa.getCompound(text);
+        }
+        long threadId = Thread.currentThread().getId();
+        long bytesStart = threadBean.getThreadAllocatedBytes(threadId);
+        float compoundSum = 0.0f;
+        for (String text : texts) {
+            compoundSum += sa.getSentimentAnalysis(text, context).getCompound();
+            compoundSum += sa.getCompound(text);
+        }
+        long bytesPerCall = (threadBean.getThreadAllocatedBytes(threadId) - bytesStart) / (2L * texts.size());
+        Assert.assertTrue("AnalysisContext: " + bytesPerCall + " bytes per call over the budget of " + bytesPerCallMax,
+                bytesPerCall <= bytesPerCallMax);
+        Assert.assertNotEquals(0.0f, compoundSum, 0.0f);
+    }
+
+    private void testAllocationBudget(String file) {
+        Assume.assumeTrue(threadBean != null);
+        long bytesPerCallMax = Long.parseLong(budget.getProperty(file));
+        List<String> texts = readTexts(file);
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        for (int r = 0; r < WARM_UP_ROUNDS; r++) {
+            analyze(sa, texts);
+        }
+        long threadId = Thread.currentThread().getId();
+        long bytesStart = threadBean.getThreadAllocatedBytes(threadId);
+        for (int r = 0; r < MEASURE_ROUNDS; r++) {
+            analyze(sa, texts);
+        }
+        long bytesPerCall = (threadBean.getThreadAllocatedBytes(threadId) - bytesStart)
+                / ((long) MEASURE_ROUNDS * texts.size());
+        Assert.assertTrue(file + ": " + bytesPerCall + " bytes per call over the budget of " + bytesPerCallMax,
+                bytesPerCall <= bytesPerCallMax);
+    }
+
+    private static void analyze(SentimentAnalysis sa, List<String> texts) {
+        for (String text : texts) {
+            if (sa.getSentimentAnalysis(text).isEmpty()) {
+                Assert.fail("No polarity for: " + text);
+            }
+        }
+    }
+
+    private static List<String> readTexts(String file) {
+        List<String> texts = new ArrayList<>();
+        InputStream is = LOADER.getResourceAsStream(file);
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                texts.add(line.split("\\t")[5]);
+            }
+        } catch (IOException e) {
+            Assert.fail(e.getMessage());
+        }
+        return texts;
+    }
+}
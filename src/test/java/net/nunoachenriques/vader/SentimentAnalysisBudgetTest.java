@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.lexicon.OverlayLanguage;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Testing the per call token and time budgets (the truncated analysis) and
+ * the same results on adversarial (long, repetitive) texts, with and
+ * without the span analysis.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class SentimentAnalysisBudgetTest {
+
+    private static final List<String> TEXTS = Arrays.asList(
+            "The plot was good, but the characters are uncompelling!",
+            "At least it is not a horrible book.  \u00e9t\u00e9 :)  GREAT",
+            "a b c good ! bad?? x y",
+            "caf\u00e9 \ud83d\ude00 is NOT bad at all, kind of great");
+
+    @Test
+    public void testNoBudget() {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        Assert.assertEquals(0, sa.getTokenBudget());
+        Assert.assertEquals(0L, sa.getTimeBudget());
+        for (String text : TEXTS) {
+            sa.getSentimentAnalysis(text);
+            Assert.assertFalse(text, sa.isTruncated());
+        }
+    }
+
+    @Test
+    public void testTokenBudgetIsTextBeginning() {
+        SentimentAnalysis reference = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        AnalysisContext context = new AnalysisContext();
+        for (String text : TEXTS) {
+            String[] tokens = text.split(" ");
+            for (int budget = 1; budget <= tokens.length; budget++) {
+                sa.setTokenBudget(budget);
+                String beginning = beginning(text, budget);
+                boolean truncated = beginning.length() < text.length();
+                Map<String, Float> expected = reference.getSentimentAnalysis(beginning);
+                String message = text + " (" + budget + " tokens)";
+                Assert.assertEquals(message, expected, sa.getSentimentAnalysis(text));
+                Assert.assertEquals(message, truncated, sa.isTruncated());
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                Assert.assertEquals(message, expected, sa.getSentimentAnalysis(bytes, 0, bytes.length));
+                Assert.assertEquals(message, truncated, sa.isTruncated());
+                Assert.assertEquals(message, expected.get("compound"), sa.getCompound(text), 0.0f);
+                Assert.assertEquals(message, truncated, sa.isTruncated());
+                Assert.assertEquals(message, expected.get("compound"), sa.getCompound(bytes, 0, bytes.length), 0.0f);
+                Assert.assertEquals(message, truncated, sa.isTruncated());
+                Assert.assertEquals(message, expected, sa.getSentimentAnalysis(text, context).toMap());
+                Assert.assertEquals(message, truncated, context.isTruncated());
+            }
+        }
+    }
+
+    @Test
+    public void testTimeBudget() {
+        String text = repeat("good movie but ", 20000);
+        for (SentimentAnalysis sa : Arrays.asList(
+                new SentimentAnalysis(new English(), new TokenizerEnglish()),
+                new SentimentAnalysis(new OverlayLanguage(new English(), Collections.<String, Float>emptyMap()), new TokenizerEnglish()))) {
+            sa.setTimeBudget(1L);
+            Map<String, Float> polarity = sa.getSentimentAnalysis(text);
+            Assert.assertTrue(sa.isTruncated());
+            Assert.assertEquals(4, polarity.size());
+            sa.setTimeBudget(0L);
+            sa.getSentimentAnalysis(text);
+            Assert.assertFalse(sa.isTruncated());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTokenBudget() {
+        new SentimentAnalysis(new English(), new TokenizerEnglish()).setTokenBudget(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTimeBudget() {
+        new SentimentAnalysis(new English(), new TokenizerEnglish()).setTimeBudget(-1L);
+    }
+
+    @Test
+    public void testAdversarialTexts() {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        SentimentAnalysis reference = new SentimentAnalysis(
+                new OverlayLanguage(new English(), Collections.<String, Float>emptyMap()), new TokenizerEnglish());
+        for (String text : Arrays.asList(
+                repeat("good ", 50000) + "but great",
+                repeat("good!! bad?? ", 25000),
+                repeat("GOOD very good not bad but ", 10000),
+                repeat("good", 50000))) {
+            Assert.assertEquals(reference.getSentimentAnalysis(text), sa.getSentimentAnalysis(text));
+        }
+    }
+
+    // The text up to the token after the budget ones (2 or more chars).
+    private static String beginning(String text, int budget) {
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                start = i + 1;
+            } else if (i - start == 1 && count++ == budget) {
+                return text.substring(0, start);
+            }
+        }
+        return text;
+    }
+
+    private static String repeat(String s, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.lexicon.OverlayLanguage;
+import net.nunoachenriques.vader.metrics.Metrics;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Testing the compound only sentiment analysis: the same compound score
+ * (bit-exact) and label as the full analysis on the ground truth corpora,
+ * fast-rejected or not, measured or not.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class SentimentAnalysisCompoundTest {
+
+    private static final ClassLoader LOADER = SentimentAnalysisCompoundTest.class.getClassLoader();
+    private static final List<String> TEXTS = Arrays.asList(
+            "", " ", "a", "OK", "12345", "good", "GOOD!!!", "bad??", "bad???? :(",
+            "It is not bad at all.", "The plot was good, but the characters are uncompelling.",
+            "At least it is not a horrible book.", "caf\u00e9 :)", "\u00e9t\u00e9");
+
+    @Test
+    public void testCompoundIsBitExact()
+            throws IOException {
+        List<String> texts = new ArrayList<>(TEXTS);
+        for (String file : Arrays.asList("amazonReviewSnippets_GroundTruth_vader.tsv",
+                "movieReviewSnippets_GroundTruth_vader.tsv",
+                "nytEditorialSnippets_GroundTruth_vader.tsv",
+                "tweets_GroundTruth_vader.tsv")) {
+            texts.addAll(readTexts(file));
+        }
+        SentimentAnalysis reference = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        SentimentAnalysis full = new SentimentAnalysis(
+                new OverlayLanguage(new English(), Collections.<String, Float>emptyMap()), new TokenizerEnglish());
+        SentimentAnalysis measured = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        measured.setMetrics(new Metrics());
+        for (String text : texts) {
+            float expected = reference.getSentimentAnalysis(text).get("compound");
+            int bits = Float.floatToIntBits(expected);
+            Assert.assertEquals(text, bits, Float.floatToIntBits(sa.getCompound(text)));
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(text, bits, Float.floatToIntBits(sa.getCompound(utf8, 0, utf8.length)));
+            Assert.assertEquals(text, bits, Float.floatToIntBits(full.getCompound(text)));
+            Assert.assertEquals(text, bits, Float.floatToIntBits(measured.getCompound(text)));
+            Assert.assertEquals(text, Label.of(expected), sa.getLabel(text));
+        }
+        Assert.assertEquals(texts.size(), measured.getMetrics().getCalls());
+    }
+
+    @Test
+    public void testLabel() {
+        Assert.assertEquals(Label.POSITIVE, Label.of(0.05f));
+        Assert.assertEquals(Label.POSITIVE, Label.of(1.0f));
+        Assert.assertEquals(Label.NEUTRAL, Label.of(0.0499f));
+        Assert.assertEquals(Label.NEUTRAL, Label.of(-0.0499f));
+        Assert.assertEquals(Label.NEGATIVE, Label.of(-0.05f));
+        Assert.assertEquals(Label.NEGATIVE, Label.of(-1.0f));
+    }
+
+    private static List<String> readTexts(String file)
+            throws IOException {
+        List<String> texts = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(LOADER.getResourceAsStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                texts.add(line.split("\\t")[5]);
+            }
+        }
+        return texts;
+    }
+}
@@ -17,6 +17,8 @@ package net.nunoachenriques.vader;
 
 import net.nunoachenriques.vader.lexicon.English;
 import net.nunoachenriques.vader.lexicon.Language;
+import net.nunoachenriques.vader.lexicon.LanguageIdentifier;
+import net.nunoachenriques.vader.lexicon.OverlayLanguage;
 import net.nunoachenriques.vader.text.Tokenizer;
 import net.nunoachenriques.vader.text.TokenizerEnglish;
 
@@ -28,6 +30,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.CharBuffer;
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -46,6 +50,8 @@ public class SentimentAnalysisEnglishTest {
     private static final int MODE_GET_T_L = 0; // SentimentAnalysis()
     private static final int MODE_GET_L = 1; // SentimentAnalysis()
     private static final int MODE_GET_ = 2; // SentimentAnalysis(t,l)
+    private static final int MODE_ANALYZE = 3; // SentimentAnalysis()
+    private static final int MODE_GET_SLICE = 4; // SentimentAnalysis(t,l), CharBuffer slice
     private static Language language;
     private static Tokenizer tokenizer;
 
@@ -85,6 +91,39 @@ public class SentimentAnalysisEnglishTest {
         testGroundTruth("tweets_GroundTruth_vader.tsv", language, tokenizer, MODE_GET_L);
     }
 
+    @Test
+    public void testTweetsGTVModeGetSlice() {
+        testGroundTruth("tweets_GroundTruth_vader.tsv", language, tokenizer, MODE_GET_SLICE);
+    }
+
+    @Test
+    public void testTweetsGTVModeAnalyze() {
+        testGroundTruth("tweets_GroundTruth_vader.tsv", language, tokenizer, MODE_ANALYZE);
+    }
+
+    @Test
+    public void testAnalyzeLanguageIdentification() {
+        SentimentAnalysis sa = new SentimentAnalysis();
+        sa.analyze("The book was very good and I liked the story, but the ending was weak.");
+        Assert.assertEquals("en", sa.getLanguageIdentification().getLanguage());
+        Assert.assertFalse("Fails to identify English!", sa.getLanguageIdentification().isFallback());
+        sa.analyze("12345 :-)");
+        Assert.assertEquals("en", sa.getLanguageIdentification().getLanguage());
+        Assert.assertTrue("Fails to fall back to default!", sa.getLanguageIdentification().isFallback());
+    }
+
+    @Test
+    public void testAnalyzeKeepsConfiguredLanguage() {
+        Language overlay = new OverlayLanguage(language, Collections.singletonMap("vaderish", 3.0f));
+        SentimentAnalysis sa = new SentimentAnalysis(overlay, tokenizer);
+        String text = "The book was vaderish and I liked the story.";
+        Map<String, Float> expected = sa.getSentimentAnalysis(text);
+        Assert.assertNotEquals(new SentimentAnalysis(language, tokenizer).getSentimentAnalysis(text), expected);
+        Assert.assertEquals("en", LanguageIdentifier.languageOf(overlay));
+        Assert.assertEquals(expected, sa.analyze(text));
+        Assert.assertEquals("Fails to keep the configured language!", expected, sa.getSentimentAnalysis(text));
+    }
+
     @Test
     public void testGetAvailableLanguages() {
         SentimentAnalysis sa = new SentimentAnalysis();
@@ -102,6 +141,7 @@ public class SentimentAnalysisEnglishTest {
             switch (mode) {
                 case MODE_GET_T_L:
                 case MODE_GET_L:
+                case MODE_ANALYZE:
                     sa = new SentimentAnalysis();
                     break;
                 case MODE_GET_:
@@ -125,6 +165,15 @@ public class SentimentAnalysisEnglishTest {
                     case MODE_GET_L:
                         sp = sa.getSentimentAnalysis(text, "en");
                         break;
+                    case MODE_ANALYZE:
+                        sp = sa.analyze(text);
+                        break;
+                    case MODE_GET_SLICE:
+                        String document = "... '" + text + "' ...";
+                        int start = document.indexOf(text);
+                        sp = sa.getSentimentAnalysis(CharBuffer.wrap(document, start, start + text.length()));
+                        Assert.assertEquals(text, sa.getSentimentAnalysis(text), sp);
+                        break;
                     case MODE_GET_:
                     default:
                         sp = sa.getSentimentAnalysis(text);
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.lexicon.Language;
+import net.nunoachenriques.vader.lexicon.LexiconAutomaton;
+import net.nunoachenriques.vader.lexicon.OverlayLanguage;
+import net.nunoachenriques.vader.metrics.Metrics;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Testing the fast-reject of texts with no lexicon hit: the same polarity
+ * values (bit-exact) as the full analysis, which is the one of an
+ * {@link OverlayLanguage} (no automaton) over the same lexicon. The UTF-8
+ * bytes entry points too.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class SentimentAnalysisFastRejectTest {
+
+    private static final ClassLoader LOADER = SentimentAnalysisFastRejectTest.class.getClassLoader();
+    private static final List<String> TEXTS = Arrays.asList(
+            "", " ", "a", "a b c", "OK", "ok", "\t\n", "12345",
+            "https://example.com/a1b2c3?id=42&x=y",
+            "Build #4521 finished in 00:03:12 (id 7f3a-99be)",
+            "Job 12 queued; job 13 running; job 14 done.",
+            "GOOD", "good.", "(good)", "\"good\"", "-good-", "goodx", "xgood",
+            ":)", "x:)", ":)x", "a:)", "kind of", "at least", "no", "NOT",
+            "The meeting is at 10 am in room 4.", "caf\u00e9", "\u00e9t\u00e9 :)");
+
+    @Test
+    public void testFastRejectIsBitExact() throws IOException {
+        List<String> texts = new ArrayList<>(TEXTS);
+        for (String file : Arrays.asList("amazonReviewSnippets_GroundTruth_vader.tsv",
+                "movieReviewSnippets_GroundTruth_vader.tsv",
+                "nytEditorialSnippets_GroundTruth_vader.tsv",
+                "tweets_GroundTruth_vader.tsv")) {
+            texts.addAll(readTexts(file));
+        }
+        English english = new English();
+        LexiconAutomaton automaton = LexiconAutomaton.of(english.getWordValenceDictionary());
+        Assert.assertNotNull(automaton);
+        boolean[] delimiters = LexiconAutomaton.delimiters(english.getPunctuation());
+        Language full = new OverlayLanguage(english, Collections.<String, Float>emptyMap());
+        Assert.assertNull(LexiconAutomaton.of(full.getWordValenceDictionary()));
+        SentimentAnalysis fast = new SentimentAnalysis(english, new TokenizerEnglish());
+        SentimentAnalysis measured = new SentimentAnalysis(english, new TokenizerEnglish());
+        measured.setMetrics(new Metrics());
+        SentimentAnalysis reference = new SentimentAnalysis(full, new TokenizerEnglish());
+        int rejected = 0;
+        for (String text : texts) {
+            Map<String, Float> expected = reference.getSentimentAnalysis(text);
+            Assert.assertEquals(text, expected, fast.getSentimentAnalysis(text));
+            Assert.assertEquals(text, expected, measured.getSentimentAnalysis(text));
+            if (!automaton.containsEntry(text, delimiters)) {
+                rejected++;
+                Assert.assertEquals(text, 0.0f, expected.get("compound"), 0.0f);
+            }
+        }
+        Assert.assertTrue("Fails to fast-reject any text!", rejected >= 10);
+    }
+
+    @Test
+    public void testUtf8BytesSameAsString() throws IOException {
+        List<String> texts = new ArrayList<>(TEXTS);
+        texts.addAll(readTexts("tweets_GroundTruth_vader.tsv"));
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        for (String text : texts) {
+            Map<String, Float> expected = sa.getSentimentAnalysis(text);
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            byte[] framed = new byte[utf8.length + 4];
+            System.arraycopy(utf8, 0, framed, 2, utf8.length);
+            Assert.assertEquals(text, expected, sa.getSentimentAnalysis(utf8, 0, utf8.length));
+            Assert.assertEquals(text, expected, sa.getSentimentAnalysis(framed, 2, utf8.length));
+            ByteBuffer slice = ByteBuffer.wrap(framed, 2, utf8.length);
+            Assert.assertEquals(text, expected, sa.getSentimentAnalysis(slice));
+            Assert.assertEquals(2, slice.position());
+            ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+            direct.put(utf8).flip();
+            Assert.assertEquals(text, expected, sa.getSentimentAnalysis(direct));
+        }
+    }
+
+    @Test
+    public void testEnglishLexiconChange() {
+        English english = new English();
+        String text = "The zorblax is here.";
+        SentimentAnalysis sa = new SentimentAnalysis(english, new TokenizerEnglish());
+        Assert.assertEquals(0.0f, sa.getSentimentAnalysis(text).get("compound"), 0.0f);
+        Map<String, Float> expected = new SentimentAnalysis(
+                new OverlayLanguage(english, Collections.singletonMap("zorblax", 2.0f)),
+                new TokenizerEnglish()).getSentimentAnalysis(text);
+        Assert.assertTrue(expected.get("compound") > 0.0f);
+        try {
+            english.getWordValenceDictionary().put("zorblax", 2.0f);
+            Assert.assertEquals(expected, sa.getSentimentAnalysis(text));
+        } finally {
+            english.getWordValenceDictionary().remove("zorblax");
+        }
+        Assert.assertEquals(0.0f, sa.getSentimentAnalysis(text).get("compound"), 0.0f);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testUtf8BytesOutOfBounds() {
+        new SentimentAnalysis(new English(), new TokenizerEnglish()).getSentimentAnalysis(new byte[4], 2, 3);
+    }
+
+    @Test
+    public void testContainsEntry() {
+        English english = new English();
+        LexiconAutomaton automaton = new LexiconAutomaton(Arrays.asList("good", "od", ":)", "kind of"));
+        boolean[] delimiters = LexiconAutomaton.delimiters(english.getPunctuation());
+        Assert.assertTrue(automaton.containsEntry("so GOOD!", delimiters));
+        Assert.assertTrue(automaton.containsEntry("\"good\"", delimiters));
+        Assert.assertTrue(automaton.containsEntry("go-od", delimiters));
+        Assert.assertTrue(automaton.containsEntry("x :)", delimiters));
+        Assert.assertTrue(automaton.containsEntry("kind of", delimiters));
+        Assert.assertTrue(automaton.containsEntry("d\u00e9j\u00e0 vu", delimiters));
+        Assert.assertFalse(automaton.containsEntry("goods", delimiters));
+        Assert.assertFalse(automaton.containsEntry("(good)", delimiters));
+        Assert.assertFalse(automaton.containsEntry("xgood", delimiters));
+        Assert.assertFalse(automaton.containsEntry("goodod", delimiters));
+        Assert.assertFalse(automaton.containsEntry("x:)x", delimiters));
+        Assert.assertFalse(automaton.containsEntry("kind  of", delimiters));
+        Assert.assertFalse(automaton.containsEntry("", delimiters));
+        byte[] utf8 = "xx so GOOD! goods \u00e9".getBytes(StandardCharsets.UTF_8);
+        Assert.assertTrue(automaton.containsEntry(utf8, 2, 9, delimiters));
+        Assert.assertFalse(automaton.containsEntry(utf8, 12, 5, delimiters));
+        Assert.assertTrue(automaton.containsEntry(utf8, 12, 7, delimiters));
+    }
+
+    private static List<String> readTexts(String file)
+            throws IOException {
+        List<String> texts = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(LOADER.getResourceAsStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                texts.add(line.split("\\t")[5]);
+            }
+        }
+        return texts;
+    }
+}
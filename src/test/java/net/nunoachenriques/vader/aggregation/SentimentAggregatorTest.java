@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.aggregation;
+
+import net.nunoachenriques.vader.PipelinedSentimentAnalysis;
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Testing the {@link SentimentAggregator}: exact sums from many threads,
+ * tumbling and sliding windows, eviction and the pipeline feed.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class SentimentAggregatorTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testConcurrentAdds()
+            throws InterruptedException {
+        final SentimentAggregator<String> aggregator = new SentimentAggregator<>(1000L, 4, 20, 8);
+        final int threads = 4;
+        final int adds = 50000;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < adds; i++) {
+                        aggregator.add("acme", 500L, 0.5f, 0.4f, 0.1f, 0.5f);
+                        aggregator.add("acme", 500L, -0.25f, 0.1f, 0.3f, 0.6f);
+                        aggregator.add("other", 1500L, 0.0f, 0.0f, 0.0f, 1.0f);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        SentimentAggregator.Aggregate a = aggregator.tumbling("acme", 999L);
+        Assert.assertEquals(0L, a.getStart());
+        Assert.assertEquals(1000L, a.getEnd());
+        Assert.assertEquals(2L * threads * adds, a.getCount());
+        Assert.assertEquals(0.125, a.getCompoundMean(), DELTA);
+        Assert.assertEquals(0.25, a.getPositiveMean(), DELTA);
+        Assert.assertEquals(0.2, a.getNegativeMean(), DELTA);
+        Assert.assertEquals(0.55, a.getNeutralMean(), DELTA);
+        Assert.assertEquals(0.5, a.getPositiveShare(), DELTA);
+        Assert.assertEquals(0.5, a.getNegativeShare(), DELTA);
+        Assert.assertEquals(0.0, a.getNeutralShare(), DELTA);
+        long[] histogram = a.getHistogram();
+        Assert.assertEquals((long) threads * adds, histogram[15]); // [0.5, 0.6)
+        Assert.assertEquals((long) threads * adds, histogram[7]); // [-0.3, -0.2)
+        SentimentAggregator.Aggregate other = aggregator.tumbling("other", 1000L);
+        Assert.assertEquals((long) threads * adds, other.getCount());
+        Assert.assertEquals(1.0, other.getNeutralShare(), DELTA);
+        Assert.assertEquals((long) threads * adds, other.getHistogram()[10]);
+        Assert.assertEquals(0L, aggregator.tumbling("other", 0L).getCount());
+    }
+
+    @Test
+    public void testWindows() {
+        SentimentAggregator<String> aggregator = new SentimentAggregator<>(10L, 3);
+        for (long t = 0L; t < 50L; t++) {
+            aggregator.add("k", t, 1.0f, 1.0f, 0.0f, 0.0f);
+        }
+        Assert.assertEquals(0L, aggregator.getDropped());
+        // Windows [20, 30), [30, 40) and [40, 50) retained.
+        Assert.assertEquals(0L, aggregator.tumbling("k", 15L).getCount());
+        Assert.assertEquals(10L, aggregator.tumbling("k", 25L).getCount());
+        SentimentAggregator.Aggregate sliding = aggregator.sliding("k", 49L, 3);
+        Assert.assertEquals(20L, sliding.getStart());
+        Assert.assertEquals(50L, sliding.getEnd());
+        Assert.assertEquals(30L, sliding.getCount());
+        Assert.assertEquals(1.0, sliding.getCompoundMean(), DELTA);
+        Assert.assertEquals(30L, sliding.getHistogram()[SentimentAggregator.BUCKETS_DEFAULT - 1]);
+        Assert.assertEquals(20L, aggregator.sliding("k", 55L, 3).getCount());
+        // Too old: dropped.
+        aggregator.add("k", 5L, 0.0f, 0.0f, 0.0f, 1.0f);
+        Assert.assertEquals(1L, aggregator.getDropped());
+        // Before the epoch, too old too.
+        aggregator.add("k", -1L, -1.0f, 0.0f, 1.0f, 0.0f);
+        Assert.assertEquals(2L, aggregator.getDropped());
+        aggregator.remove("k");
+        aggregator.add("k", -1L, -1.0f, 0.0f, 1.0f, 0.0f);
+        SentimentAggregator.Aggregate negative = aggregator.tumbling("k", -10L);
+        Assert.assertEquals(-10L, negative.getStart());
+        Assert.assertEquals(1L, negative.getCount());
+        Assert.assertEquals(1.0, negative.getNegativeShare(), DELTA);
+        Assert.assertEquals(1L, negative.getHistogram()[0]);
+        try {
+            aggregator.sliding("k", 0L, 4);
+            Assert.fail("More windows than retained!");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testPipelineFeed() {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        String[] texts = {"VADER is smart, handsome, and funny.", "The book was kind of bad.", "It is a book."};
+        SentimentAggregator<String> aggregator = new SentimentAggregator<>(Long.MAX_VALUE, 1);
+        try (PipelinedSentimentAnalysis<String> pipeline = new PipelinedSentimentAnalysis<>(
+                new English(), new TokenizerEnglish(), aggregator)) {
+            for (String text : texts) {
+                pipeline.submit(text, "acme");
+            }
+        }
+        SentimentAggregator.Aggregate a = aggregator.tumbling("acme", System.currentTimeMillis());
+        Assert.assertEquals(texts.length, a.getCount());
+        double compound = 0.0;
+        for (String text : texts) {
+            Map<String, Float> polarity = sa.getSentimentAnalysis(text);
+            compound += polarity.get("compound");
+        }
+        Assert.assertEquals(compound / texts.length, a.getCompoundMean(), 1e-6);
+        Assert.assertEquals(1.0 / 3.0, a.getPositiveShare(), DELTA);
+        Assert.assertEquals(0L, aggregator.getErrors());
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.cli;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.io.ColumnarScoreReader;
+import net.nunoachenriques.vader.io.ScoreStore;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Testing the {@link CorpusScorer}: the same results as the
+ * {@link SentimentAnalysis}, in the input order, with many small chunks
+ * scored on several threads, and the same output when a checkpointed job is
+ * killed (a separate JVM) at random points of its progress and resumed, or
+ * split among worker JVMs.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class CorpusScorerTest {
+
+    private static final ClassLoader LOADER = CorpusScorerTest.class.getClassLoader();
+    private static final String[] CORPORA = {
+            "amazonReviewSnippets_GroundTruth_vader.tsv",
+            "movieReviewSnippets_GroundTruth_vader.tsv",
+            "nytEditorialSnippets_GroundTruth_vader.tsv",
+            "tweets_GroundTruth_vader.tsv"};
+
+    @Test
+    public void testGroundTruthLayout()
+            throws IOException {
+        File input = File.createTempFile("vader-score", ".tsv");
+        File output = File.createTempFile("vader-score", ".tsv");
+        try {
+            try (InputStream is = LOADER.getResourceAsStream("tweets_GroundTruth_vader.tsv")) {
+                Files.copy(is, input.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Assert.assertEquals(0, run("--threads", "3", "--chunk-size", "4096", "--progress", "0",
+                    input.getPath(), output.getPath()));
+            List<String> expected = Files.readAllLines(input.toPath(), StandardCharsets.UTF_8);
+            List<String> actual = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+            Assert.assertEquals(expected.size(), actual.size());
+            SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+            for (int i = 0; i < expected.size(); i++) {
+                String[] e = expected.get(i).split("\\t");
+                String[] a = actual.get(i).split("\\t");
+                Map<String, Float> polarity = sa.getSentimentAnalysis(e[5]);
+                Assert.assertEquals(Arrays.asList(e[0], polarity.get("negative").toString(),
+                        polarity.get("neutral").toString(), polarity.get("positive").toString(),
+                        polarity.get("compound").toString(), e[5]), Arrays.asList(a));
+            }
+        } finally {
+            Files.delete(input.toPath());
+            Files.delete(output.toPath());
+        }
+    }
+
+    @Test
+    public void testLongLinesHeaderAndColumns()
+            throws IOException {
+        String longText = "good " + new String(new char[200]).replace("\0", "very ") + "day";
+        String tsv = "text\tkey\n"
+                + "Good!\tk1\r\n"
+                + "\n"
+                + longText + "\tk2\n"
+                + "no tab\n"
+                + "Bad.\tk3";
+        String out = score(tsv, ".tsv", "--header", "true", "--id-column", "1", "--text-column", "0",
+                "--chunk-size", "16", "--threads", "2", "--progress", "0");
+        String[] lines = out.split("\\n");
+        Assert.assertEquals(3, lines.length);
+        Assert.assertTrue(lines[0].startsWith("k1\t") && lines[0].endsWith("\tGood!"));
+        Assert.assertTrue(lines[1].startsWith("k2\t") && lines[1].endsWith("\t" + longText));
+        Assert.assertTrue(lines[2].startsWith("k3\t") && lines[2].endsWith("\tBad."));
+    }
+
+    @Test
+    public void testJsonLines()
+            throws IOException {
+        String jsonl = "{\"id\": 7, \"meta\": {\"tags\": [\"a\", \"}\"]}, \"text\": \"I \\\"love\\\" it \\u263a\"}\n"
+                + "{\"id\": \"x\\\"1\", \"text\": \"Today kinda sux! But I'll get by, lol\"}\n"
+                + "{\"text\": 42}\n"
+                + "not json\n"
+                + "{\"text\": \"No id.\"}\n";
+        String out = score(jsonl, ".jsonl", "--progress", "0");
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        Assert.assertEquals(json("7", sa.getSentimentAnalysis("I \"love\" it \u263a"))
+                + json("\"x\\\"1\"", sa.getSentimentAnalysis("Today kinda sux! But I'll get by, lol"))
+                + json(null, sa.getSentimentAnalysis("No id.")), out);
+    }
+
+    @Test
+    public void testResumeFromCheckpoint()
+            throws IOException {
+        File input = corpora(1);
+        File output = File.createTempFile("vader-score", ".tsv");
+        File checkpoint = new File(output.getPath() + ".checkpoint");
+        try {
+            Assert.assertEquals(0, run("--progress", "0", input.getPath(), output.getPath()));
+            byte[] expected = Files.readAllBytes(output.toPath());
+            // Stopped after the line 1000: the output ahead of the checkpoint is torn.
+            byte[] in = Files.readAllBytes(input.toPath());
+            long digest = digest(input);
+            long inputOffset = lineEnd(in, 1000);
+            long outputOffset = lineEnd(expected, 1000);
+            new Checkpoint(in.length, digest, inputOffset, outputOffset, 1000, 0).write(checkpoint);
+            Files.write(output.toPath(), Arrays.copyOf(expected, (int) outputOffset + 77));
+            Assert.assertEquals(0, run("--progress", "0", "--checkpoint", checkpoint.getPath(),
+                    input.getPath(), output.getPath()));
+            Assert.assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+            Assert.assertFalse(checkpoint.exists());
+            // Another input (size) than the checkpoint one.
+            new Checkpoint(in.length + 1, digest, inputOffset, outputOffset, 1000, 0).write(checkpoint);
+            Assert.assertEquals(1, run("--progress", "0", "--checkpoint", checkpoint.getPath(),
+                    input.getPath(), output.getPath()));
+            // Another input of the same size (a line changed at the end or the beginning).
+            for (int at : new int[]{in.length - 2, 0}) {
+                byte[] other = in.clone();
+                other[at] = (byte) (other[at] == 'x' ? 'y' : 'x');
+                Files.write(input.toPath(), other);
+                new Checkpoint(in.length, digest, inputOffset, outputOffset, 1000, 0).write(checkpoint);
+                Assert.assertEquals(1, run("--progress", "0", "--checkpoint", checkpoint.getPath(),
+                        input.getPath(), output.getPath()));
+            }
+            Assert.assertFalse(new File(checkpoint.getPath() + ".tmp").exists());
+        } finally {
+            Files.delete(input.toPath());
+            Files.delete(output.toPath());
+            Files.deleteIfExists(checkpoint.toPath());
+        }
+    }
+
+    @Test
+    public void testKilledAtRandomAndResumed()
+            throws IOException, InterruptedException {
+        File input = corpora(2);
+        File expected = File.createTempFile("vader-score", ".tsv");
+        File output = File.createTempFile("vader-score", ".tsv");
+        File checkpoint = new File(output.getPath() + ".checkpoint");
+        Random random = new Random(20171019L);
+        try {
+            Assert.assertEquals(0, run("--progress", "0", input.getPath(), expected.getPath()));
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            ProcessBuilder job = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    CorpusScorer.class.getName(), "--progress", "0", "--threads", "2", "--chunk-size", "65536",
+                    "--checkpoint", checkpoint.getPath(), "--checkpoint-interval", "0",
+                    input.getPath(), output.getPath());
+            job.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.appendTo(new File(output.getPath() + ".log")));
+            // Killed once the checkpoint is past a random point of each quarter.
+            long[] killAt = new long[3];
+            for (int i = 0; i < killAt.length; i++) {
+                killAt[i] = input.length() * (i + 1) / 4 + random.nextInt((int) (input.length() / 8));
+            }
+            int kills = 0;
+            while (true) {
+                Process p = job.start();
+                if (kills < killAt.length && killed(p, checkpoint, killAt[kills])) {
+                    kills++;
+                    continue;
+                }
+                Assert.assertEquals("Kills " + kills, 0, p.waitFor());
+                break;
+            }
+            Assert.assertTrue("Kills " + kills, kills > 0);
+            Assert.assertArrayEquals("Kills " + kills,
+                    Files.readAllBytes(expected.toPath()), Files.readAllBytes(output.toPath()));
+            Assert.assertFalse(checkpoint.exists());
+        } finally {
+            Files.delete(input.toPath());
+            Files.delete(expected.toPath());
+            Files.delete(output.toPath());
+            Files.deleteIfExists(checkpoint.toPath());
+            Files.deleteIfExists(new File(checkpoint.getPath() + ".tmp").toPath());
+            Files.deleteIfExists(new File(output.getPath() + ".log").toPath());
+        }
+    }
+
+    @Test
+    public void testWorkers()
+            throws IOException {
+        File input = corpora(1);
+        File expected = File.createTempFile("vader-score", ".tsv");
+        File output = File.createTempFile("vader-score", ".tsv");
+        try {
+            Assert.assertEquals(0, run("--progress", "0", input.getPath(), expected.getPath()));
+            Assert.assertEquals(0, run("--progress", "0", "--workers", "3", "--threads", "1",
+                    input.getPath(), output.getPath()));
+            Assert.assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(output.toPath()));
+            Assert.assertFalse(new File(output.getPath() + ".shard0").exists());
+            // Workers failing to start, retried, then given up.
+            Assert.assertEquals(1, run("--progress", "0", "--workers", "2", "--retries", "1",
+                    "--jvm-options", "-Xmx1k", input.getPath(), output.getPath()));
+        } finally {
+            Files.delete(input.toPath());
+            Files.delete(expected.toPath());
+            Files.delete(output.toPath());
+        }
+    }
+
+    @Test
+    public void testShards()
+            throws IOException {
+        File input = File.createTempFile("vader-score", ".tsv");
+        try {
+            Files.write(input.toPath(), "a\nbb\nccc\ndddd\n".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertArrayEquals(new long[]{0, 14}, ShardCoordinator.shards(input, 1));
+            Assert.assertArrayEquals(new long[]{0, 5, 9, 14}, ShardCoordinator.shards(input, 3));
+            Assert.assertArrayEquals(new long[]{0, 2, 5, 9, 14}, ShardCoordinator.shards(input, 100));
+            Files.write(input.toPath(), "no newline".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertArrayEquals(new long[]{0, 10}, ShardCoordinator.shards(input, 4));
+        } finally {
+            Files.delete(input.toPath());
+        }
+    }
+
+    @Test
+    public void testColumnarOutput()
+            throws IOException {
+        File input = corpora(1);
+        File output = File.createTempFile("vader-score", ".bin");
+        try {
+            Assert.assertEquals(0, run("--progress", "0", "--chunk-size", "65536", "--output-format", "columnar",
+                    "--encoding", "delta+quantized", "--block-size", "512", "--id-column", "none", input.getPath(), output.getPath()));
+            List<String> lines = Files.readAllLines(input.toPath(), StandardCharsets.UTF_8);
+            SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+            try (ColumnarScoreReader r = new ColumnarScoreReader(output)) {
+                Assert.assertEquals(lines.size(), r.getRecords());
+                for (int i = 0; i < lines.size(); i += 7) {
+                    String[] data = lines.get(i).split("\\t");
+                    Map<String, Float> polarity = sa.getSentimentAnalysis(data[5]);
+                    Assert.assertEquals(i, r.getId(i));
+                    Assert.assertEquals(polarity.get("compound"), r.getCompound(i), 0.0f);
+                    Assert.assertEquals(polarity.get("neutral"), r.getNeutral(i), 0.0f);
+                }
+            }
+            Assert.assertEquals(2, run("--output-format", "columnar", input.getPath(), "-"));
+        } finally {
+            Files.delete(input.toPath());
+            Files.delete(output.toPath());
+        }
+    }
+
+    @Test
+    public void testStore()
+            throws IOException {
+        File store = File.createTempFile("vader-store", ".bin");
+        Assert.assertTrue(store.delete());
+        try {
+            StringBuilder tsv = new StringBuilder();
+            Set<String> texts = new HashSet<>();
+            try (InputStream is = LOADER.getResourceAsStream("tweets_GroundTruth_vader.tsv")) {
+                String[] lines = new String(readAll(is), StandardCharsets.UTF_8).split("\n");
+                for (int i = 0; i < 200; i++) {
+                    tsv.append(lines[i]).append('\n');
+                    texts.add(lines[i].split("\t")[5]);
+                }
+            }
+            String expected = score(tsv.toString(), ".tsv", "--progress", "0");
+            Assert.assertEquals(expected, score(tsv.toString(), ".tsv", "--progress", "0", "--store", store.getPath()));
+            Assert.assertEquals(expected, score(tsv.toString(), ".tsv", "--progress", "0", "--store", store.getPath(),
+                    "--store-compact", "true"));
+            try (ScoreStore s = new ScoreStore(store, new English())) {
+                Assert.assertEquals(texts.size(), s.size());
+                for (String text : texts) {
+                    Assert.assertNotNull(s.get(text));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(store.toPath());
+        }
+    }
+
+    @Test
+    public void testUsage() {
+        Assert.assertEquals(2, run("--threads", "2"));
+        Assert.assertEquals(2, run("--format", "csv", "in", "out"));
+        Assert.assertEquals(2, run("--unknown", "1", "in", "out"));
+    }
+
+    private static String score(String content, String suffix, String... options)
+            throws IOException {
+        File input = File.createTempFile("vader-score", suffix);
+        File output = File.createTempFile("vader-score", suffix);
+        try {
+            Files.write(input.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            String[] args = Arrays.copyOf(options, options.length + 2);
+            args[options.length] = input.getPath();
+            args[options.length + 1] = output.getPath();
+            Assert.assertEquals(0, run(args));
+            return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+        } finally {
+            Files.delete(input.toPath());
+            Files.delete(output.toPath());
+        }
+    }
+
+    private static byte[] readAll(InputStream is)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] b = new byte[1 << 16];
+        int n;
+        while ((n = is.read(b)) != -1) {
+            bytes.write(b, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+
+    // All the ground truth corpora, copies times.
+    private static File corpora(int copies)
+            throws IOException {
+        File input = File.createTempFile("vader-score", ".tsv");
+        try (OutputStream os = new FileOutputStream(input)) {
+            for (int i = 0; i < copies; i++) {
+                for (String corpus : CORPORA) {
+                    try (InputStream is = LOADER.getResourceAsStream(corpus)) {
+                        os.write(readAll(is));
+                    }
+                }
+            }
+        }
+        return input;
+    }
+
+    private static long digest(File input)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+            return Checkpoint.digest(channel);
+        }
+    }
+
+    // The byte offset after the line n (1 based).
+    private static long lineEnd(byte[] b, int n) {
+        for (int i = 0; i < b.length; i++) {
+            if (b[i] == '\n' && --n == 0) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("Not enough lines!");
+    }
+
+    // Kills the job once the checkpoint is at the input offset, false if ended before.
+    private static boolean killed(Process p, File checkpoint, long inputOffset)
+            throws IOException, InterruptedException {
+        while (true) {
+            try {
+                p.exitValue();
+                return false;
+            } catch (IllegalThreadStateException e) {
+                // Still running.
+            }
+            try {
+                Checkpoint c = Checkpoint.read(checkpoint);
+                if (c != null && c.inputOffset >= inputOffset) {
+                    p.destroy();
+                    p.waitFor();
+                    return true;
+                }
+            } catch (FileNotFoundException e) {
+                // Deleted on completion.
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static int run(String... args) {
+        return CorpusScorer.run(args, new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    private static String json(String id, Map<String, Float> polarity) {
+        return "{" + (id == null ? "" : "\"id\":" + id + ",")
+                + "\"negative\":" + polarity.get("negative")
+                + ",\"neutral\":" + polarity.get("neutral")
+                + ",\"positive\":" + polarity.get("positive")
+                + ",\"compound\":" + polarity.get("compound") + "}\n";
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.io;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Testing the {@link ColumnarScoreWriter} and {@link ColumnarScoreReader}
+ * round trip of the sentiment analysis results, bit exact for each encoding
+ * (quantized included).
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class ColumnarScoreTest {
+
+    private static final ClassLoader LOADER = ColumnarScoreTest.class.getClassLoader();
+    private static final int[] ENCODINGS = {
+            ColumnarScoreWriter.PLAIN,
+            ColumnarScoreWriter.ID_DELTA,
+            ColumnarScoreWriter.QUANTIZED,
+            ColumnarScoreWriter.ID_DELTA | ColumnarScoreWriter.QUANTIZED};
+
+    @Test
+    public void testRoundTrip()
+            throws IOException {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        List<Long> ids = new ArrayList<>();
+        List<Map<String, Float>> results = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                LOADER.getResourceAsStream("tweets_GroundTruth_vader.tsv"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] data = line.split("\\t");
+                ids.add(Long.parseLong(data[0]) + 10000000000L);
+                results.add(sa.getSentimentAnalysis(data[5]));
+            }
+        }
+        File file = File.createTempFile("vader-columnar", ".bin");
+        try {
+            for (int encoding : ENCODINGS) {
+                try (ColumnarScoreWriter w = new ColumnarScoreWriter(file, 1000, encoding)) {
+                    for (int i = 0; i < ids.size(); i++) {
+                        w.write(ids.get(i), results.get(i));
+                    }
+                }
+                try (ColumnarScoreReader r = new ColumnarScoreReader(file)) {
+                    Assert.assertEquals(ids.size(), r.getRecords());
+                    Assert.assertEquals(1000, r.getBlockSize());
+                    Assert.assertEquals(encoding, r.getEncoding());
+                    for (int i = ids.size() - 1; i >= 0; i--) {
+                        Map<String, Float> e = results.get(i);
+                        String m = "Encoding " + encoding + " record " + i;
+                        Assert.assertEquals(m, (long) ids.get(i), r.getId(i));
+                        Assert.assertEquals(m, Float.floatToIntBits(e.get("compound")), Float.floatToIntBits(r.getCompound(i)));
+                        Assert.assertEquals(m, Float.floatToIntBits(e.get("positive")), Float.floatToIntBits(r.getPositive(i)));
+                        Assert.assertEquals(m, Float.floatToIntBits(e.get("negative")), Float.floatToIntBits(r.getNegative(i)));
+                        Assert.assertEquals(m, Float.floatToIntBits(e.get("neutral")), Float.floatToIntBits(r.getNeutral(i)));
+                    }
+                    try {
+                        r.getId(ids.size());
+                        Assert.fail("Fails to refuse a record out of bounds!");
+                    } catch (IndexOutOfBoundsException e) {
+                        // Expected.
+                    }
+                }
+            }
+            // Half the plain size (but the block header).
+            long plain = ColumnarScoreWriter.blockBytes(1000, ColumnarScoreWriter.PLAIN);
+            long compact = ColumnarScoreWriter.blockBytes(1000, ColumnarScoreWriter.ID_DELTA | ColumnarScoreWriter.QUANTIZED);
+            Assert.assertTrue(compact * 2 <= plain + ColumnarScoreWriter.BLOCK_HEADER_BYTES);
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    @Test
+    public void testInvalid()
+            throws IOException {
+        File file = File.createTempFile("vader-columnar", ".bin");
+        try {
+            try (ColumnarScoreWriter w = new ColumnarScoreWriter(file, 4, ColumnarScoreWriter.ID_DELTA)) {
+                w.write(0L, 0.5f, 0.5f, 0.0f, 0.5f);
+                try {
+                    w.write(1L << 40, 0.5f, 0.5f, 0.0f, 0.5f);
+                    Assert.fail("Fails to refuse an id delta beyond 32 bits!");
+                } catch (IllegalArgumentException e) {
+                    // Expected.
+                }
+            }
+            Files.write(file.toPath(), "Not a columnar scores file at all!".getBytes(StandardCharsets.US_ASCII));
+            try {
+                new ColumnarScoreReader(file).close();
+                Assert.fail("Fails to refuse a file not columnar!");
+            } catch (IOException e) {
+                // Expected.
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+}
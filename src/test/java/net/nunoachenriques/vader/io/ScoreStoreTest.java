@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.io;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.metrics.Metrics;
+import net.nunoachenriques.vader.lexicon.OverlayLanguage;
+import net.nunoachenriques.vader.lexicon.ReloadableLanguage;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Testing the {@link ScoreStore}: the same results as the
+ * {@link SentimentAnalysis}, persistent across reopening and growth,
+ * invalidated by a lexicon change, no truncated (budget) result stored, and
+ * the hits and misses recorded by the sentiment analysis metrics.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class ScoreStoreTest {
+
+    private static final ClassLoader LOADER = ScoreStoreTest.class.getClassLoader();
+    private static final String LEXICON = "net/nunoachenriques/vader/lexicon/english.txt";
+
+    @Test
+    public void testPersistentAndGrowth()
+            throws IOException {
+        List<String> texts = readTexts().subList(0, 1000);
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        File file = File.createTempFile("vader-store", ".bin");
+        Assert.assertTrue(file.delete());
+        try {
+            try (ScoreStore store = new ScoreStore(file, new English(), 16)) {
+                for (String text : texts) {
+                    Assert.assertEquals(text, sa.getSentimentAnalysis(text), store.getSentimentAnalysis(sa, text));
+                }
+                Assert.assertEquals(0L, store.getHits());
+                for (String text : texts) {
+                    Assert.assertEquals(text, sa.getSentimentAnalysis(text), store.get(text));
+                }
+                Assert.assertEquals(texts.size(), store.getHits());
+            }
+            try (ScoreStore store = new ScoreStore(file, new English())) {
+                Assert.assertEquals(new HashSet<>(texts).size(), store.size());
+                for (String text : texts) {
+                    byte[] b = ("\t" + text + "\t").getBytes(StandardCharsets.UTF_8);
+                    Assert.assertEquals(text, sa.getSentimentAnalysis(text), store.get(b, 1, b.length - 2));
+                }
+                Assert.assertEquals(0L, store.getMisses());
+                Assert.assertNull(store.get("Not scored yet."));
+                Assert.assertEquals(0, store.compact());
+            }
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Test
+    public void testLexiconChange()
+            throws IOException {
+        File lexicon = File.createTempFile("lexicon", ".txt");
+        File file = File.createTempFile("vader-store", ".bin");
+        Assert.assertTrue(file.delete());
+        try (InputStream is = LOADER.getResourceAsStream(LEXICON)) {
+            Files.copy(is, lexicon.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        try (ReloadableLanguage language = new ReloadableLanguage(new English(), lexicon);
+             ScoreStore store = new ScoreStore(file, language)) {
+            // The same contents, the same version.
+            Assert.assertEquals(ScoreStore.lexiconVersion(new English()), ScoreStore.lexiconVersion(new English()));
+            Assert.assertEquals(ScoreStore.lexiconVersion(language.snapshot()), ScoreStore.lexiconVersion(language));
+            Assert.assertNotEquals(ScoreStore.lexiconVersion(new English()),
+                    ScoreStore.lexiconVersion(new OverlayLanguage(new English(), Collections.singletonMap("good", -1.9f))));
+            SentimentAnalysis sa = new SentimentAnalysis(language, new TokenizerEnglish());
+            store.getSentimentAnalysis(sa, "The food is good!");
+            store.getSentimentAnalysis(sa, "The food is bad!");
+            Assert.assertTrue(store.get("The food is good!").get("compound") > 0.0f);
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(lexicon.toPath(), StandardCharsets.UTF_8)) {
+                lines.add(line.startsWith("good\t") ? "good\t-1.9" + line.substring(line.indexOf('\t', 5)) : line);
+            }
+            Files.write(lexicon.toPath(), lines, StandardCharsets.UTF_8);
+            language.reload();
+            Assert.assertNull(store.get("The food is good!"));
+            Assert.assertTrue(store.getSentimentAnalysis(sa, "The food is good!").get("compound") < 0.0f);
+            Assert.assertEquals(3, store.size());
+            Assert.assertEquals(2, store.compact());
+            Assert.assertEquals(1, store.size());
+            Assert.assertTrue(store.get("The food is good!").get("compound") < 0.0f);
+        } finally {
+            Files.deleteIfExists(lexicon.toPath());
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Test
+    public void testTruncatedNotStored()
+            throws IOException {
+        String text = "The food is bad, but the service is great!";
+        byte[] b = text.getBytes(StandardCharsets.UTF_8);
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        Map<String, Float> expected = sa.getSentimentAnalysis(text);
+        File file = File.createTempFile("vader-store", ".bin");
+        Assert.assertTrue(file.delete());
+        try (ScoreStore store = new ScoreStore(file, new English())) {
+            sa.setTokenBudget(4);
+            Map<String, Float> truncated = store.getSentimentAnalysis(sa, text);
+            Assert.assertTrue(sa.isTruncated());
+            Assert.assertNotEquals(expected, truncated);
+            Assert.assertEquals(truncated, store.getSentimentAnalysis(sa, b, 0, b.length));
+            Assert.assertEquals(0, store.size());
+            Assert.assertNull(store.get(text));
+            sa.setTokenBudget(0);
+            Assert.assertEquals(expected, store.getSentimentAnalysis(sa, text));
+            Assert.assertEquals(1, store.size());
+            Assert.assertEquals(expected, store.get(b, 0, b.length));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Test
+    public void testCacheMetrics()
+            throws IOException {
+        String text = "The food is good.";
+        byte[] b = text.getBytes(StandardCharsets.UTF_8);
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        Metrics metrics = new Metrics();
+        sa.setMetrics(metrics);
+        File file = File.createTempFile("vader-store", ".bin");
+        Assert.assertTrue(file.delete());
+        try (ScoreStore store = new ScoreStore(file, new English())) {
+            store.getSentimentAnalysis(sa, text);
+            Assert.assertEquals(0, metrics.getCacheHits());
+            Assert.assertEquals(1, metrics.getCacheMisses());
+            Assert.assertEquals(1, metrics.getCalls());
+            store.getSentimentAnalysis(sa, text);
+            store.getSentimentAnalysis(sa, b, 0, b.length);
+            Assert.assertEquals(2, metrics.getCacheHits());
+            Assert.assertEquals(1, metrics.getCacheMisses());
+            Assert.assertEquals(1, metrics.getCalls());
+            Assert.assertEquals(2.0 / 3.0, metrics.getCacheHitRatio(), 1e-9);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    private static List<String> readTexts()
+            throws IOException {
+        List<String> texts = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                LOADER.getResourceAsStream("tweets_GroundTruth_vader.tsv"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                texts.add(line.split("\\t")[5]);
+            }
+        }
+        return texts;
+    }
+}
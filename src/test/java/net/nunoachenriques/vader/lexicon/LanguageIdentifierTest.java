@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Testing the {@link LanguageIdentifier} thresholds against texts the
+ * English trigram profile was not created from: the held-out texts in other
+ * languages are all rejected (default language fallback) and most of the
+ * English ground truth texts are accepted.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class LanguageIdentifierTest {
+
+    private static final ClassLoader LOADER = LanguageIdentifierTest.class.getClassLoader();
+    private static final String DEFAULT = "xx";
+
+    private final LanguageIdentifier identifier = new LanguageIdentifier(Collections.singletonList("en"), DEFAULT);
+
+    @Test
+    public void testForeignRejected() throws IOException {
+        List<String> texts = readTexts("LanguageIdentification/foreign.tsv");
+        Assert.assertTrue(texts.size() >= 90);
+        for (String text : texts) {
+            LanguageIdentifier.Result r = identifier.identify(text);
+            Assert.assertTrue(text + " " + r, r.isFallback());
+            Assert.assertEquals(DEFAULT, r.getLanguage());
+        }
+    }
+
+    @Test
+    public void testEnglishAccepted() throws IOException {
+        int accepted = 0;
+        int total = 0;
+        for (String file : new String[]{"amazonReviewSnippets_GroundTruth.txt",
+                "movieReviewSnippets_GroundTruth.txt", "nytEditorialSnippets_GroundTruth.txt",
+                "tweets_GroundTruth.txt"}) {
+            for (String text : readTexts("GroundTruth/" + file)) {
+                LanguageIdentifier.Result r = identifier.identify(text);
+                if (!r.isFallback()) {
+                    Assert.assertEquals("en", r.getLanguage());
+                    accepted++;
+                }
+                total++;
+            }
+        }
+        Assert.assertTrue("Accepts " + accepted + " of " + total + " English texts!",
+                accepted >= 0.7 * total);
+    }
+
+    private static List<String> readTexts(String file)
+            throws IOException {
+        List<String> texts = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(LOADER.getResourceAsStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] columns = line.split("\\t");
+                texts.add(columns[columns.length - 1]);
+            }
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Testing the {@link LexiconFilter} (no false negatives) and the filtered
+ * {@link LexiconMap} and {@link LexiconList} against the plain collections,
+ * also after changes.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class LexiconFilterTest {
+
+    private static final List<String> PROBES = Arrays.asList(
+            "", "a", "I", "good", "GOOD", "goodness", "n't", "don't", "dont",
+            "kind of", "the bomb", "\u00e9t\u00e9", "\uD83D\uDE00", ":-)", "<3",
+            "supercalifragilisticexpialidocious-and-more-than-31-chars");
+
+    @Test
+    public void testLexiconMap() {
+        Map<String, Float> plain = new HashMap<>(new English().getWordValenceDictionary());
+        plain.put("", 1.0f);
+        LexiconMap lexicon = new LexiconMap(plain);
+        Assert.assertEquals(plain.size(), lexicon.size());
+        for (String k : plain.keySet()) {
+            Assert.assertTrue(k, lexicon.containsKey(k));
+            Assert.assertEquals(k, plain.get(k), lexicon.get(k));
+        }
+        for (String p : probes(plain.keySet())) {
+            Assert.assertEquals(p, plain.containsKey(p), lexicon.containsKey(p));
+            Assert.assertEquals(p, plain.get(p), lexicon.get(p));
+        }
+        Assert.assertNull(lexicon.get(null));
+        Assert.assertNull(lexicon.get(1));
+    }
+
+    @Test
+    public void testLexiconList() {
+        List<String> plain = new ArrayList<>(new English().getNegativeWords());
+        LexiconList lexicon = new LexiconList(plain);
+        Assert.assertEquals(plain, lexicon);
+        for (String p : probes(plain)) {
+            Assert.assertEquals(p, plain.contains(p), lexicon.contains(p));
+            Assert.assertEquals(p, plain.indexOf(p), lexicon.indexOf(p));
+        }
+    }
+
+    @Test
+    public void testLexiconMapChanges() {
+        Map<String, Float> plain = new HashMap<>(new English().getWordValenceDictionary());
+        LexiconMap lexicon = new LexiconMap(plain);
+        LexiconAutomaton automaton = lexicon.getAutomaton();
+        // Many more keys than the filter was built for.
+        int added = 3 * plain.size();
+        for (int i = 0; i < added; i++) {
+            Assert.assertNull(lexicon.put("zz" + i, (float) i));
+            plain.put("zz" + i, (float) i);
+        }
+        Assert.assertNotSame(automaton, lexicon.getAutomaton());
+        Assert.assertEquals(1.9f, lexicon.put("good", 2.5f), 0.0f);
+        plain.put("good", 2.5f);
+        Assert.assertEquals(3.1f, lexicon.remove("great"), 0.0f);
+        plain.remove("great");
+        Assert.assertNull(lexicon.remove("no such word"));
+        for (Map.Entry<String, Float> e : lexicon.entrySet()) {
+            if (e.getKey().equals("bad")) {
+                e.setValue(-3.0f);
+                plain.put("bad", -3.0f);
+            }
+        }
+        lexicon.keySet().remove("zz0");
+        plain.remove("zz0");
+        Assert.assertEquals(plain, lexicon);
+        for (String p : probes(plain.keySet())) {
+            Assert.assertEquals(p, plain.get(p), lexicon.get(p));
+        }
+        lexicon.clear();
+        Assert.assertTrue(lexicon.isEmpty());
+        Assert.assertNull(lexicon.get("good"));
+    }
+
+    @Test
+    public void testLexiconListChanges() {
+        List<String> plain = new ArrayList<>(new English().getNegativeWords());
+        LexiconList lexicon = new LexiconList(plain);
+        lexicon.add("nope");
+        plain.add("nope");
+        lexicon.set(0, "nah");
+        plain.set(0, "nah");
+        lexicon.remove("never");
+        plain.remove("never");
+        Assert.assertEquals(plain, lexicon);
+        for (String p : probes(plain)) {
+            Assert.assertEquals(p, plain.contains(p), lexicon.contains(p));
+            Assert.assertEquals(p, plain.indexOf(p), lexicon.indexOf(p));
+        }
+    }
+
+    private static List<String> probes(Iterable<String> keys) {
+        List<String> probes = new ArrayList<>(PROBES);
+        for (String k : keys) {
+            probes.add(k);
+            probes.add(k + "s");
+            probes.add(k.toUpperCase());
+            if (k.length() > 1) {
+                probes.add(k.substring(1));
+            }
+        }
+        return probes;
+    }
+}
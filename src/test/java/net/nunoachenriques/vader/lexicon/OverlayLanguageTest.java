@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Testing the {@link OverlayLanguage} additions, overrides and deletions
+ * over the shared {@link English} lexicon, and its Bloom filter.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class OverlayLanguageTest {
+
+    private English english;
+    private OverlayLanguage overlay;
+
+    @Before
+    public void init() {
+        english = new English();
+        Map<String, Float> words = new HashMap<>();
+        words.put("latency", -1.5f); // addition
+        words.put("good", -1.0f); // override
+        overlay = new OverlayLanguage(english, words, Collections.singletonList("love")); // deletion
+    }
+
+    @Test
+    public void testWordValenceDictionary() {
+        Map<String, Float> base = english.getWordValenceDictionary();
+        Map<String, Float> words = overlay.getWordValenceDictionary();
+        Assert.assertEquals(-1.5f, words.get("latency"), 0.0f);
+        Assert.assertEquals(-1.0f, words.get("good"), 0.0f);
+        Assert.assertNull(words.get("love"));
+        Assert.assertFalse(words.containsKey("love"));
+        Assert.assertEquals(base.get("hate"), words.get("hate"));
+        Assert.assertEquals(base.size(), words.size());
+        Assert.assertEquals(words.size(), words.entrySet().size());
+        int n = 0;
+        for (Map.Entry<String, Float> e : words.entrySet()) {
+            Assert.assertEquals(words.get(e.getKey()), e.getValue());
+            n++;
+        }
+        Assert.assertEquals(words.size(), n);
+        // The base is not changed.
+        Assert.assertFalse(base.containsKey("latency"));
+        Assert.assertEquals(1.9f, base.get("good"), 0.0f);
+        Assert.assertTrue(base.containsKey("love"));
+    }
+
+    @Test
+    public void testSentimentAnalysis() {
+        SentimentAnalysis sa = new SentimentAnalysis(overlay, new TokenizerEnglish());
+        Assert.assertTrue(sa.getSentimentAnalysis("The latency is awful").get("compound")
+                < new SentimentAnalysis(english, new TokenizerEnglish()).getSentimentAnalysis("The latency is awful").get("compound"));
+        Assert.assertTrue(sa.getSentimentAnalysis("The service is good").get("compound") < 0.0f);
+        Assert.assertEquals(0.0f, sa.getSentimentAnalysis("I love it").get("compound"), 0.0f);
+        Assert.assertEquals(
+                new SentimentAnalysis(english, new TokenizerEnglish()).getSentimentAnalysis("I hate it!"),
+                sa.getSentimentAnalysis("I hate it!"));
+    }
+
+    @Test
+    public void testBloomFilter() {
+        BloomFilter filter = new BloomFilter(english.getWordValenceDictionary().size());
+        for (String w : english.getWordValenceDictionary().keySet()) {
+            filter.add(w);
+        }
+        for (String w : english.getWordValenceDictionary().keySet()) {
+            Assert.assertTrue(w, filter.mightContain(w));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives + " false positives", falsePositives < 300);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.lexicon;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Testing the {@link ReloadableLanguage} reload, version and snapshot
+ * consistency, using a copy of the English lexicon.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class ReloadableLanguageTest {
+
+    private static final String LEXICON = "net/nunoachenriques/vader/lexicon/english.txt";
+    private static final String TEXT = "The food is good!";
+    private File lexicon;
+    private ReloadableLanguage language;
+
+    @Before
+    public void init()
+            throws IOException {
+        lexicon = File.createTempFile("lexicon", ".txt");
+        try (InputStream is = ReloadableLanguageTest.class.getClassLoader().getResourceAsStream(LEXICON)) {
+            Files.copy(is, lexicon.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        language = new ReloadableLanguage(new English(), lexicon);
+    }
+
+    @After
+    public void cleanUp()
+            throws IOException {
+        language.close();
+        Assert.assertTrue(lexicon.delete());
+    }
+
+    @Test
+    public void testSameAsEnglish() {
+        Map<String, Float> expected = new SentimentAnalysis(new English(), new TokenizerEnglish()).getSentimentAnalysis(TEXT);
+        Map<String, Float> actual = new SentimentAnalysis(language, new TokenizerEnglish()).getSentimentAnalysis(TEXT);
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(1L, language.getVersion());
+    }
+
+    @Test
+    public void testReload()
+            throws IOException {
+        SentimentAnalysis sa = new SentimentAnalysis(language, new TokenizerEnglish());
+        Language before = language.snapshot();
+        Assert.assertTrue(sa.getSentimentAnalysis(TEXT).get("compound") > 0.0f);
+        setValence("good", "-1.9");
+        Assert.assertEquals(2L, language.reload());
+        Assert.assertEquals(2L, language.getVersion());
+        Assert.assertTrue(sa.getSentimentAnalysis(TEXT).get("compound") < 0.0f);
+        // A snapshot is one consistent version.
+        Assert.assertEquals(1.9f, before.getWordValenceDictionary().get("good"), 0.0f);
+        Assert.assertEquals(-1.9f, language.snapshot().getWordValenceDictionary().get("good"), 0.0f);
+    }
+
+    @Test
+    public void testReloadErrorKeepsVersion()
+            throws IOException {
+        Files.write(lexicon.toPath(), "good\tnot a number\n".getBytes(StandardCharsets.UTF_8));
+        try {
+            language.reload();
+            Assert.fail("Malformed lexicon published");
+        } catch (IOException e) {
+            Assert.assertEquals(1L, language.getVersion());
+            Assert.assertEquals(1.9f, language.getWordValenceDictionary().get("good"), 0.0f);
+        }
+    }
+
+    @Test
+    public void testWatch()
+            throws IOException, InterruptedException {
+        language.watch();
+        setValence("good", "-1.9");
+        long deadline = System.currentTimeMillis() + 20000L;
+        while (language.getVersion() == 1L && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+        Assert.assertTrue(language.getVersion() > 1L);
+        Assert.assertEquals(-1.9f, language.getWordValenceDictionary().get("good"), 0.0f);
+    }
+
+    private void setValence(String word, String valence)
+            throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(lexicon.toPath(), StandardCharsets.UTF_8)) {
+            lines.add(line.startsWith(word + "\t") ? word + "\t" + valence + line.substring(line.indexOf('\t', word.length() + 1)) : line);
+        }
+        File tmp = new File(lexicon.getPath() + ".new");
+        Files.write(tmp.toPath(), lines, StandardCharsets.UTF_8);
+        Files.move(tmp.toPath(), lexicon.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
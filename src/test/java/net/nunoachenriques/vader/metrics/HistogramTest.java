@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Testing the {@link Histogram} power of two buckets, the percentiles (the
+ * bucket upper bound), the count, sum and mean, and the reset.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class HistogramTest {
+
+    @Test
+    public void testEmpty() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+        Assert.assertEquals(0L, snapshot.getCount());
+        Assert.assertEquals(0L, snapshot.getSum());
+        Assert.assertEquals(0.0, snapshot.getMean(), 0.0);
+        Assert.assertEquals(0L, snapshot.getP50());
+        Assert.assertEquals(0L, snapshot.getP99());
+        Assert.assertEquals(0L, snapshot.getMax());
+    }
+
+    @Test
+    public void testBuckets() {
+        Histogram histogram = new Histogram();
+        histogram.record(0L);
+        histogram.record(-5L);
+        histogram.record(1L);
+        histogram.record(2L);
+        histogram.record(3L);
+        histogram.record(4L);
+        histogram.record(1023L);
+        histogram.record(1024L);
+        histogram.record(Long.MAX_VALUE);
+        long[] buckets = histogram.snapshot().getBuckets();
+        Assert.assertEquals(64, buckets.length);
+        // Bucket i is [2^(i-1), 2^i), bucket 0 the zero (and negative) ones.
+        Assert.assertEquals(2L, buckets[0]);
+        Assert.assertEquals(1L, buckets[1]);
+        Assert.assertEquals(2L, buckets[2]);
+        Assert.assertEquals(1L, buckets[3]);
+        Assert.assertEquals(1L, buckets[10]);
+        Assert.assertEquals(1L, buckets[11]);
+        Assert.assertEquals(1L, buckets[63]);
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        // 1..100: 50th is 50 (bucket [32, 64)), 99th is 99 (bucket [64, 128)).
+        for (long v = 1L; v <= 100L; v++) {
+            histogram.record(v);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(100L, snapshot.getCount());
+        Assert.assertEquals(5050L, snapshot.getSum());
+        Assert.assertEquals(50.5, snapshot.getMean(), 0.0);
+        Assert.assertEquals(63L, snapshot.getP50());
+        Assert.assertEquals(127L, snapshot.getP99());
+        Assert.assertEquals(127L, snapshot.getMax());
+        Assert.assertEquals(1L, snapshot.getPercentile(1.0));
+        Assert.assertEquals(3L, snapshot.getPercentile(3.0));
+        // The 0th is the minimum one.
+        Assert.assertEquals(1L, snapshot.getPercentile(0.0));
+        // At most 2x the real value, never below it.
+        for (int p = 1; p <= 100; p++) {
+            long upperBound = snapshot.getPercentile(p);
+            Assert.assertTrue(p + ": " + upperBound, upperBound >= p && upperBound < 2 * p);
+        }
+    }
+
+    @Test
+    public void testOutlier() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 999; i++) {
+            histogram.record(100L);
+        }
+        histogram.record(1000000L);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(127L, snapshot.getP50());
+        Assert.assertEquals(127L, snapshot.getP99());
+        Assert.assertEquals(1048575L, snapshot.getMax());
+    }
+
+    @Test
+    public void testReset() {
+        Histogram histogram = new Histogram();
+        histogram.record(7L);
+        Histogram.Snapshot before = histogram.snapshot();
+        histogram.reset();
+        Assert.assertEquals(0L, histogram.snapshot().getCount());
+        Assert.assertEquals(0L, histogram.snapshot().getSum());
+        // A snapshot is a point in time view.
+        Assert.assertEquals(1L, before.getCount());
+        Assert.assertEquals(7L, before.getMax());
+    }
+}
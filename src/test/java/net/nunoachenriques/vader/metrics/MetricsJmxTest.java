@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Testing the {@link MetricsJmx} MXBean register and unregister: the name,
+ * the attributes read through the platform MBean server, and the errors of
+ * a name registered twice or not registered.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class MetricsJmxTest {
+
+    @Test
+    public void testRegisterAndUnregister()
+            throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Metrics metrics = new Metrics();
+        metrics.recordCall(10, 3, 7);
+        metrics.recordStage(Metrics.Stage.RULES, 1000L);
+        ObjectName name = MetricsJmx.register(metrics, "test, \"quoted\"");
+        try {
+            Assert.assertEquals("net.nunoachenriques.vader", name.getDomain());
+            Assert.assertEquals("Metrics", name.getKeyProperty("type"));
+            Assert.assertEquals("test, \"quoted\"", ObjectName.unquote(name.getKeyProperty("name")));
+            Assert.assertTrue(server.isRegistered(name));
+            Assert.assertEquals(1L, server.getAttribute(name, "Calls"));
+            Assert.assertEquals(3L, server.getAttribute(name, "LexiconHits"));
+            Assert.assertEquals(0.3, (Double) server.getAttribute(name, "LexiconHitRatio"), 1e-9);
+            CompositeData rules = (CompositeData) server.getAttribute(name, "RulesLatency");
+            Assert.assertEquals(1L, rules.get("count"));
+            Assert.assertEquals(1023L, rules.get("p99"));
+            server.invoke(name, "reset", null, null);
+            Assert.assertEquals(0L, metrics.getCalls());
+        } finally {
+            MetricsJmx.unregister("test, \"quoted\"");
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+    @Test(expected = InstanceAlreadyExistsException.class)
+    public void testRegisterTwice()
+            throws JMException {
+        MetricsJmx.register(new Metrics(), "twice");
+        try {
+            MetricsJmx.register(new Metrics(), "twice");
+        } finally {
+            MetricsJmx.unregister("twice");
+        }
+    }
+
+    @Test(expected = InstanceNotFoundException.class)
+    public void testUnregisterNotRegistered()
+            throws JMException {
+        MetricsJmx.unregister("not registered");
+    }
+}
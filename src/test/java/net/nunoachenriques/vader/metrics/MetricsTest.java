@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.metrics;
+
+import net.nunoachenriques.vader.AnalysisContext;
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.lexicon.OverlayLanguage;
+import net.nunoachenriques.vader.text.Tokenizer;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Testing the {@link Metrics} recorded by the sentiment analysis calls: the
+ * same counts on the fast-reject, the span and the {@code Properties}
+ * analyses, each stage measured, the errors, the cache outcomes and the
+ * reset.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class MetricsTest {
+
+    // 6 tokens, 2 word valence dictionary hits (good, bad).
+    private static final String TEXT = "The food is good, not bad!";
+    // 4 tokens, no hit: fast-rejected.
+    private static final String NEUTRAL = "The food is here.";
+
+    @Test
+    public void testFastPaths() {
+        Metrics metrics = new Metrics();
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        sa.setMetrics(metrics);
+        Assert.assertSame(metrics, sa.getMetrics());
+        AnalysisContext context = new AnalysisContext();
+        byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+        byte[] neutralBytes = NEUTRAL.getBytes(StandardCharsets.UTF_8);
+        sa.getSentimentAnalysis(TEXT);
+        sa.getSentimentAnalysis(TEXT, context);
+        sa.getCompound(TEXT);
+        sa.getSentimentAnalysis(bytes, 0, bytes.length);
+        sa.getCompound(bytes, 0, bytes.length);
+        Assert.assertEquals(5L, metrics.getCalls());
+        Assert.assertEquals(10L, metrics.getLexiconHits());
+        Assert.assertEquals(20L, metrics.getLexiconMisses());
+        Assert.assertEquals(5L, metrics.getRulesLatency().getCount());
+        Assert.assertEquals(5L, metrics.getIdiomsLatency().getCount());
+        Assert.assertEquals(5L, metrics.getNormalizationLatency().getCount());
+        Assert.assertTrue(metrics.getTokenizeLatency().getSum() > 0L);
+        Assert.assertTrue(metrics.getRulesLatency().getSum() > 0L);
+        Assert.assertEquals(30L, metrics.getTokensPerText().getSum());
+        sa.getSentimentAnalysis(NEUTRAL);
+        sa.getSentimentAnalysis(NEUTRAL, context);
+        sa.getCompound(NEUTRAL);
+        sa.getSentimentAnalysis(neutralBytes, 0, neutralBytes.length);
+        sa.getCompound(neutralBytes, 0, neutralBytes.length);
+        Assert.assertEquals(10L, metrics.getCalls());
+        Assert.assertEquals(10L, metrics.getLexiconHits());
+        Assert.assertEquals(40L, metrics.getLexiconMisses());
+        Assert.assertEquals(10L, metrics.getTokenizeLatency().getCount());
+        Assert.assertEquals(50L, metrics.getTokensPerText().getSum());
+        Assert.assertEquals(0L, metrics.getErrors());
+    }
+
+    @Test
+    public void testSameAsPropertiesPath() {
+        Metrics spans = new Metrics();
+        Metrics properties = new Metrics();
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        sa.setMetrics(spans);
+        SentimentAnalysis overlay = new SentimentAnalysis(
+                new OverlayLanguage(new English(), Collections.<String, Float>emptyMap()), new TokenizerEnglish());
+        overlay.setMetrics(properties);
+        for (String text : new String[]{TEXT, NEUTRAL, "", "At least it is not a horrible book, kind of GREAT :)"}) {
+            Assert.assertEquals(text, overlay.getSentimentAnalysis(text), sa.getSentimentAnalysis(text));
+        }
+        Assert.assertEquals(properties.getCalls(), spans.getCalls());
+        Assert.assertEquals(properties.getLexiconHits(), spans.getLexiconHits());
+        Assert.assertEquals(properties.getLexiconMisses(), spans.getLexiconMisses());
+        Assert.assertEquals(properties.getTokensPerText().getSum(), spans.getTokensPerText().getSum());
+    }
+
+    @Test
+    public void testError() {
+        Metrics metrics = new Metrics();
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new FailingTokenizer());
+        sa.setMetrics(metrics);
+        try {
+            sa.getSentimentAnalysis(TEXT);
+            Assert.fail("Tokenizer failure expected.");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1L, metrics.getErrors());
+            Assert.assertEquals(0L, metrics.getCalls());
+        }
+    }
+
+    @Test
+    public void testRatiosAndReset() {
+        Metrics metrics = new Metrics();
+        Assert.assertEquals(0.0, metrics.getLexiconHitRatio(), 0.0);
+        Assert.assertEquals(0.0, metrics.getCacheHitRatio(), 0.0);
+        metrics.recordCall(4, 1, 3);
+        metrics.recordCacheHit();
+        metrics.recordCacheHit();
+        metrics.recordCacheHit();
+        metrics.recordCacheMiss();
+        metrics.recordError();
+        Assert.assertEquals(0.25, metrics.getLexiconHitRatio(), 0.0);
+        Assert.assertEquals(0.75, metrics.getCacheHitRatio(), 0.0);
+        Assert.assertEquals(3L, metrics.getCacheHits());
+        Assert.assertEquals(1L, metrics.getCacheMisses());
+        Assert.assertEquals(1L, metrics.getErrors());
+        Assert.assertTrue(metrics.getCallsPerSecond() > 0.0);
+        metrics.reset();
+        Assert.assertEquals(0L, metrics.getCalls());
+        Assert.assertEquals(0L, metrics.getErrors());
+        Assert.assertEquals(0L, metrics.getCacheHits());
+        Assert.assertEquals(0L, metrics.getTokensPerText().getCount());
+        Assert.assertEquals(0.0, metrics.getLexiconHitRatio(), 0.0);
+    }
+
+    private static final class FailingTokenizer
+            implements Tokenizer {
+
+        @Override
+        public List<String> split(String s, Pattern p) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public List<String> cleanAndSplit(String s, Pattern p, Pattern c, String r) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public List<String> splitWhitespace(String s) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public List<String> cleanPunctuationAndSplitWhitespace(String s, String r) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void removeTokensBySize(List<String> l, int min, int max) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Testing the {@link StripedCounter} sum of the increments of concurrent
+ * threads (one stripe each, or shared) and the reset.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class StripedCounterTest {
+
+    @Test
+    public void testSumAndReset() {
+        StripedCounter counter = new StripedCounter();
+        Assert.assertEquals(0L, counter.sum());
+        counter.increment();
+        counter.add(41L);
+        counter.add(-2L);
+        Assert.assertEquals(40L, counter.sum());
+        counter.reset();
+        Assert.assertEquals(0L, counter.sum());
+    }
+
+    @Test
+    public void testConcurrentIncrements()
+            throws InterruptedException {
+        final StripedCounter counter = new StripedCounter();
+        final int increments = 100000;
+        // More threads than stripes: some share a stripe.
+        Thread[] threads = new Thread[StripedCounter.STRIPES + 3];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < increments; i++) {
+                        counter.increment();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals((long) threads.length * increments, counter.sum());
+    }
+
+    @Test
+    public void testStripes() {
+        Assert.assertEquals(1, Integer.bitCount(StripedCounter.STRIPES));
+        Assert.assertTrue(StripedCounter.STRIPES >= 2 && StripedCounter.STRIPES <= 64);
+        int stripe = StripedCounter.stripe();
+        Assert.assertTrue(stripe >= 0 && stripe < StripedCounter.STRIPES);
+        Assert.assertEquals(stripe, StripedCounter.stripe());
+    }
+}
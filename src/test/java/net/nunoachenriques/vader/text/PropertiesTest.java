@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.text;
+
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.lexicon.Language;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Testing the text processing of any {@link CharSequence} (e.g., a
+ * {@link CharBuffer} slice of a larger document) against the {@code String}
+ * one.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class PropertiesTest {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\p{Space}");
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{Punct}&&[^.']]|(?<=(^|\\s|\\p{Punct}))[.']|[.'](?=($|\\s|\\p{Punct}))");
+    private static final List<String> TEXTS = Arrays.asList(
+            "", " ", "!", "a", "  a  ", ".a.", "'a'", "a.b", "don't", "J.R.R. ",
+            "VADER is VERY SMART, handsome, and FUNNY!!!",
+            "Today kinda sux! But I'll get by, lol",
+            ":) and :D", "x\t\ny\u000B\fz\r", "caf\u00e9 :-) --- ...'");
+
+    @Test
+    public void testCleanPunctuationAndSplitWhitespace() {
+        TokenizerEnglish tokenizer = new TokenizerEnglish();
+        for (String text : TEXTS) {
+            List<String> expected = Arrays.asList(WHITESPACE.split(PUNCTUATION.matcher(text).replaceAll(" ")));
+            Assert.assertEquals(text, expected, tokenizer.cleanPunctuationAndSplitWhitespace(text, " "));
+            Assert.assertEquals(text, expected, tokenizer.cleanPunctuationAndSplitWhitespace(slice(text), " "));
+            Assert.assertEquals(text, expected, tokenizer.cleanPunctuationAndSplitWhitespace(new StringBuilder(text), " "));
+        }
+    }
+
+    @Test
+    public void testSlice() {
+        English english = new English();
+        TokenizerEnglish tokenizer = new TokenizerEnglish();
+        for (String text : TEXTS) {
+            Properties expected = new Properties(text, english, tokenizer);
+            Properties actual = new Properties(slice(text), english, tokenizer);
+            Assert.assertEquals(text, expected.getWordsAndEmoticons(), actual.getWordsAndEmoticons());
+            Assert.assertEquals(text, expected.isCapDifferential(), actual.isCapDifferential());
+            Assert.assertEquals(text, Properties.countLetter(text, "!"), Properties.countLetter(slice(text), '!'));
+        }
+    }
+
+    @Test
+    public void testStringTokenizer() {
+        English english = new English();
+        final TokenizerEnglish tokenizerEnglish = new TokenizerEnglish();
+        // A tokenizer of String only, e.g., implemented before CharSequence.
+        Tokenizer tokenizer = new Tokenizer() {
+            @Override
+            public List<String> split(String s, Pattern p) {
+                return tokenizerEnglish.split(s, p);
+            }
+
+            @Override
+            public List<String> cleanAndSplit(String s, Pattern p, Pattern c, String r) {
+                return tokenizerEnglish.cleanAndSplit(s, p, c, r);
+            }
+
+            @Override
+            public List<String> splitWhitespace(String s) {
+                return tokenizerEnglish.splitWhitespace(s);
+            }
+
+            @Override
+            public List<String> cleanPunctuationAndSplitWhitespace(String s, String r) {
+                return tokenizerEnglish.cleanPunctuationAndSplitWhitespace(s, r);
+            }
+
+            @Override
+            public void removeTokensBySize(List<String> l, int min, int max) {
+                tokenizerEnglish.removeTokensBySize(l, min, max);
+            }
+        };
+        for (String text : TEXTS) {
+            Properties expected = new Properties(text, english, tokenizerEnglish);
+            Properties actual = new Properties(slice(text), english, tokenizer);
+            Assert.assertEquals(text, expected.getWordsAndEmoticons(), actual.getWordsAndEmoticons());
+            Assert.assertEquals(text, expected.isCapDifferential(), actual.isCapDifferential());
+        }
+    }
+
+    @Test
+    public void testAmbiguousPunctuation() {
+        final English english = new English();
+        final List<String> punctuation = Arrays.asList("s", "es", "!", "!!", "ss");
+        Language language = new Language() {
+            @Override
+            public List<String> getPunctuation() {
+                return punctuation;
+            }
+
+            @Override
+            public List<String> getNegativeWords() {
+                return english.getNegativeWords();
+            }
+
+            @Override
+            public Map<String, Float> getBoosterDictionary() {
+                return english.getBoosterDictionary();
+            }
+
+            @Override
+            public Map<String, Float> getSentimentLadenIdioms() {
+                return english.getSentimentLadenIdioms();
+            }
+
+            @Override
+            public Map<String, Float> getWordValenceDictionary() {
+                return english.getWordValenceDictionary();
+            }
+
+            @Override
+            public boolean isUpper(String token) {
+                return english.isUpper(token);
+            }
+        };
+        TokenizerEnglish tokenizer = new TokenizerEnglish();
+        String[] atoms = {"a", "s", "es", "ss", "!", "good", "bad", "!!"};
+        Random random = new Random(48L);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int t = random.nextInt(12); t > 0; t--) {
+                for (int a = 1 + random.nextInt(4); a > 0; a--) {
+                    text.append(atoms[random.nextInt(atoms.length)]);
+                }
+                text.append(' ');
+            }
+            String s = text.toString();
+            Assert.assertEquals(s, replacePunctuation(s, punctuation, tokenizer),
+                    new Properties(s, language, tokenizer).getWordsAndEmoticons());
+        }
+    }
+
+    /*
+     * The original words and emoticons of any punctuation: each word, each
+     * punctuation, every token equal to word plus punctuation (then
+     * punctuation plus word) replaced by the word.
+     */
+    private static List<String> replacePunctuation(String text, List<String> punctuation, Tokenizer tokenizer) {
+        List<String> words = tokenizer.cleanPunctuationAndSplitWhitespace(text, " ");
+        tokenizer.removeTokensBySize(words, 2, Integer.MAX_VALUE);
+        List<String> tokens = tokenizer.splitWhitespace(text);
+        tokenizer.removeTokensBySize(tokens, 2, Integer.MAX_VALUE);
+        for (String word : words) {
+            for (String p : punctuation) {
+                for (String candidate : Arrays.asList(word + p, p + word)) {
+                    while (Collections.frequency(tokens, candidate) > 0) {
+                        tokens.set(tokens.indexOf(candidate), word);
+                    }
+                }
+            }
+        }
+        return tokens;
+    }
+
+    // The text in the middle of a larger document, punctuation around it.
+    private static CharSequence slice(String text) {
+        String document = "Quote: '" + text + "'.";
+        return CharBuffer.wrap(document, 8, 8 + text.length());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader.text.lucene;
+
+import net.nunoachenriques.vader.SentimentAnalysis;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Testing the Lucene token stream tokenizer, reused across calls, against
+ * new Lucene tokenizers per call (Animesh Pandey original Java port).
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class TokenizerLuceneTest {
+
+    private static final ClassLoader LOADER = TokenizerLuceneTest.class.getClassLoader();
+    private TokenizerLucene tokenizer;
+
+    @Before
+    public void init() {
+        tokenizer = new TokenizerLucene();
+    }
+
+    @After
+    public void close() {
+        tokenizer.close();
+    }
+
+    @Test
+    public void testAmazonReviewSnippetsGTV() {
+        testReusedVsNew("amazonReviewSnippets_GroundTruth_vader.tsv");
+    }
+
+    @Test
+    public void testTweetsGTV() {
+        testReusedVsNew("tweets_GroundTruth_vader.tsv");
+    }
+
+    @Test
+    public void testCharSequence() {
+        String text = "VADER is smart, handsome, and funny! :-) #nice";
+        List<String> expected = tokenizer.splitWhitespace(text);
+        Assert.assertEquals(Arrays.asList("VADER", "is", "smart,", "handsome,", "and", "funny!", ":-)", "#nice"),
+                expected);
+        Assert.assertEquals(expected, tokenizer.splitWhitespace(new StringBuilder(text)));
+        Assert.assertEquals(Arrays.asList("VADER", "is", "smart", "handsome", "and", "funny", "nice"),
+                tokenizer.cleanPunctuationAndSplitWhitespace(new StringBuilder(text), " "));
+        Assert.assertTrue(tokenizer.splitWhitespace("").isEmpty());
+    }
+
+    @Test
+    public void testOriginalText() {
+        Analyzer lowerCase = new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer source = new WhitespaceTokenizer();
+                return new TokenStreamComponents(source, new LowerCaseFilter(source));
+            }
+        };
+        try (TokenizerLucene t = new TokenizerLucene(lowerCase, lowerCase, TokenizerLucene.FIELD)) {
+            Assert.assertEquals(Arrays.asList("GREAT", "movie!"), t.splitWhitespace("GREAT movie!"));
+        }
+        lowerCase.close();
+    }
+
+    @Test
+    public void testSentimentAnalysis() {
+        SentimentAnalysis lucene = new SentimentAnalysis(new English(), tokenizer);
+        SentimentAnalysis english = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        for (String text : new String[]{
+                "VADER is smart, handsome, and funny!",
+                "VADER is VERY SMART, handsome, and FUNNY!!!",
+                "The book was good, but the movie was kind of bad.",
+                "Today SUX!",
+                "Not bad at all"}) {
+            Assert.assertEquals(text, english.getSentimentAnalysis(text), lucene.getSentimentAnalysis(text));
+        }
+    }
+
+    private void testReusedVsNew(String file) {
+        InputStream is = LOADER.getResourceAsStream(file);
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String text = line.split("\\t")[5];
+                Assert.assertEquals(text, tokens(new WhitespaceTokenizer(), text),
+                        tokenizer.splitWhitespace(text));
+                Assert.assertEquals(text, tokens(new StandardTokenizer(), text),
+                        tokenizer.cleanPunctuationAndSplitWhitespace(text, " "));
+            }
+        } catch (IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    private static List<String> tokens(Tokenizer t, String s)
+            throws IOException {
+        List<String> tokens = new ArrayList<>();
+        t.setReader(new StringReader(s));
+        try (TokenStream ts = t) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            ts.end();
+        }
+        return tokens;
+    }
+}
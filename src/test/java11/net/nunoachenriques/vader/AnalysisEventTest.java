@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Nuno A. C. Henriques [nunoachenriques.net]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.nunoachenriques.vader;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.nunoachenriques.vader.io.ScoreStore;
+import net.nunoachenriques.vader.lexicon.English;
+import net.nunoachenriques.vader.lexicon.OverlayLanguage;
+import net.nunoachenriques.vader.text.TokenizerEnglish;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Testing the Java Flight Recorder analysis event (Java 11+): committed by
+ * the fast-reject, the span and the {@code Properties} analyses, with the
+ * fields filled, the score store cache hit and miss outcome, only when over
+ * the threshold.
+ *
+ * @author Nuno A. C. Henriques [nunoachenriques.net]
+ */
+public class AnalysisEventTest {
+
+    private static final String EVENT = "net.nunoachenriques.vader.Analysis";
+    // 6 tokens, 2 word valence dictionary hits (good, bad).
+    private static final String TEXT = "The food is good, not bad!";
+    // 4 tokens, no hit: fast-rejected.
+    private static final String NEUTRAL = "The food is here.";
+
+    @Test
+    public void testEventFields()
+            throws IOException {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        SentimentAnalysis overlay = new SentimentAnalysis(
+                new OverlayLanguage(new English(), Collections.<String, Float>emptyMap()), new TokenizerEnglish());
+        AnalysisContext context = new AnalysisContext();
+        List<RecordedEvent> events = record(Duration.ZERO, () -> {
+            sa.getSentimentAnalysis(TEXT);
+            sa.getSentimentAnalysis(TEXT, context);
+            sa.getCompound(NEUTRAL);
+            overlay.getSentimentAnalysis(TEXT);
+        });
+        Assert.assertEquals(4, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            RecordedEvent e = events.get(i);
+            boolean neutral = i == 2;
+            Assert.assertEquals(neutral ? NEUTRAL.length() : TEXT.length(), e.getInt("textLength"));
+            Assert.assertEquals(neutral ? 4 : 6, e.getInt("tokenCount"));
+            Assert.assertEquals((i == 3) ? "OverlayLanguage" : "English", e.getString("language"));
+            Assert.assertEquals(AnalysisEvent.CACHE_NONE, e.getString("cacheOutcome"));
+            Assert.assertTrue(e.getDuration("tokenizeDuration").toNanos() > 0L);
+            Assert.assertEquals(neutral, e.getDuration("rulesDuration").isZero());
+            Assert.assertEquals(neutral, e.getDuration("normalizationDuration").isZero());
+            Assert.assertTrue(e.getDuration().compareTo(e.getDuration("tokenizeDuration")) >= 0);
+        }
+    }
+
+    @Test
+    public void testCacheOutcome()
+            throws IOException {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        Path file = Files.createTempFile("vader-store", ".bin");
+        Files.delete(file);
+        try (ScoreStore store = new ScoreStore(file.toFile(), new English())) {
+            List<RecordedEvent> events = record(Duration.ZERO, () -> {
+                try {
+                    store.getSentimentAnalysis(sa, TEXT);
+                    store.getSentimentAnalysis(sa, TEXT);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                sa.getSentimentAnalysis(TEXT);
+            });
+            Assert.assertEquals(3, events.size());
+            Assert.assertEquals(AnalysisEvent.CACHE_MISS, events.get(0).getString("cacheOutcome"));
+            Assert.assertEquals(6, events.get(0).getInt("tokenCount"));
+            Assert.assertEquals(AnalysisEvent.CACHE_HIT, events.get(1).getString("cacheOutcome"));
+            Assert.assertEquals(TEXT.length(), events.get(1).getInt("textLength"));
+            Assert.assertEquals(0, events.get(1).getInt("tokenCount"));
+            Assert.assertEquals(AnalysisEvent.CACHE_NONE, events.get(2).getString("cacheOutcome"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testThreshold()
+            throws IOException {
+        SentimentAnalysis sa = new SentimentAnalysis(new English(), new TokenizerEnglish());
+        List<RecordedEvent> events = record(Duration.ofHours(1L), () -> {
+            for (int i = 0; i < 100; i++) {
+                sa.getSentimentAnalysis(TEXT);
+            }
+        });
+        Assert.assertTrue(events.isEmpty());
+    }
+
+    private static List<RecordedEvent> record(Duration threshold, Runnable calls)
+            throws IOException {
+        Path file = Files.createTempFile("vader-analysis-event", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(EVENT).withThreshold(threshold);
+                recording.start();
+                calls.run();
+                recording.stop();
+                recording.dump(file);
+            }
+            List<RecordedEvent> events = new ArrayList<>();
+            for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+                if (e.getEventType().getName().equals(EVENT)) {
+                    events.add(e);
+                }
+            }
+            events.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+            return events;
+        } finally {
+            Files.delete(file);
+        }
+    }
+}